@@ -1,19 +1,21 @@
 package com.tradax.auth.config;
 
 import com.tradax.auth.filter.JwtAuthenticationFilter;
+import com.tradax.auth.revocation.TokenRevocationService;
+import com.tradax.auth.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.authentication.logout.LogoutHandler;
@@ -21,9 +23,13 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
@@ -31,14 +37,19 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     // Load allowed origins from environment or properties file
     @Value("${ALLOWED_ORIGINS:*}")
     private String allowedOrigins;
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
+    // shared with the services following /auth/revocations; empty closes the feed
+    @Value("${auth.revocation.service-token:}")
+    private String revocationServiceToken;
 
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
@@ -55,6 +66,9 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 .antMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                 .antMatchers(HttpMethod.GET, "/auth/health").permitAll()
+                // followed by the other services, which send the shared service token
+                .antMatchers(HttpMethod.GET, "/auth/revocations")
+                    .access((authentication, context) -> new AuthorizationDecision(isRevocationFollower(context.getRequest())))
                 .antMatchers(HttpMethod.POST,
                         "/auth/register",
                         "/auth/login",
@@ -80,6 +94,14 @@ public class SecurityConfig {
         return http.build();
     }
 
+    private boolean isRevocationFollower(HttpServletRequest request) {
+        String token = request.getHeader("X-Service-Token");
+        if (revocationServiceToken.isEmpty() || token == null) return false;
+        // constant time, so the token cannot be guessed a byte at a time
+        return MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                revocationServiceToken.getBytes(StandardCharsets.UTF_8));
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -105,7 +127,12 @@ public class SecurityConfig {
                 return;
             }
             final String token = authHeader.substring(7);
-            // TODO: Optionally blacklist or invalidate the token here
+            try {
+                Claims claims = jwtUtil.extractClaim(token, c -> c);
+                tokenRevocationService.revoke(claims.getId(), claims.getExpiration());
+            } catch (Exception e) {
+                // an invalid or expired token has nothing left to revoke
+            }
         };
     }
 }
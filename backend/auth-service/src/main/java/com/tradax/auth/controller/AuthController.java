@@ -2,12 +2,15 @@ package com.tradax.auth.controller;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import javax.validation.Valid;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -21,7 +24,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.tradax.auth.async.RequestExecutor;
 import com.tradax.auth.model.User;
+import com.tradax.auth.password.PasswordHashingBusyException;
+import com.tradax.auth.revocation.TokenRevocationService;
 import com.tradax.auth.service.AuthService;
 
 /**
@@ -37,6 +43,15 @@ public class AuthController {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private RequestExecutor requestExecutor;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Value("${auth.password.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
     // ---- HEALTH ----------------------------------------------------------------
 
     @GetMapping("/health")
@@ -50,197 +65,217 @@ public class AuthController {
     // ---- REGISTER --------------------------------------------------------------
 
     @PostMapping("/register")
-    public ResponseEntity<Map<String, Object>> register(@Valid @RequestBody RegisterRequest request) {
-        try {
-            logger.info("Registration attempt for email: {}", request.getEmail());
-
-            User user = authService.register(
-                    request.getFirstName(),
-                    request.getLastName(),
-                    request.getEmail(),
-                    request.getPassword()
-            );
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "User registered successfully. Please verify your email.");
-            response.put("userId", user.getId());
-            response.put("email", user.getEmail());
-            response.put("firstName", user.getFirstName());
-            response.put("lastName", user.getLastName());
-            response.put("initials", user.getInitials());
-
-            logger.info("User registered successfully: {}", user.getEmail());
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
-
-        } catch (Exception e) {
-            logger.error("Registration failed for email: {}", request.getEmail(), e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("error", e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> register(@Valid @RequestBody RegisterRequest request) {
+        return requestExecutor.io(() -> {
+            try {
+                logger.info("Registration attempt for email: {}", request.getEmail());
+
+                User user = authService.register(
+                        request.getFirstName(),
+                        request.getLastName(),
+                        request.getEmail(),
+                        request.getPassword()
+                );
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "User registered successfully. Please verify your email.");
+                response.put("userId", user.getId());
+                response.put("email", user.getEmail());
+                response.put("firstName", user.getFirstName());
+                response.put("lastName", user.getLastName());
+                response.put("initials", user.getInitials());
+
+                logger.info("User registered successfully: {}", user.getEmail());
+                return ResponseEntity.status(HttpStatus.CREATED).body(response);
+
+            } catch (PasswordHashingBusyException e) {
+                return tooManyRequests(e);
+            } catch (Exception e) {
+                logger.error("Registration failed for email: {}", request.getEmail(), e);
+                Map<String, Object> response = new HashMap<>();
+                response.put("error", e.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+        });
     }
 
     // ---- LOGIN -----------------------------------------------------------------
 
     @PostMapping("/login")
-    public ResponseEntity<Map<String, Object>> login(@Valid @RequestBody LoginRequest request) {
-        try {
-            logger.info("Login attempt for email: {}", request.getEmail());
-
-            User user = authService.validateUser(request.getEmail(), request.getPassword());
-            String token = authService.generateToken(user);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("token", token);
-            response.put("message", "Login successful");
-            response.put("email", user.getEmail());
-            response.put("firstName", user.getFirstName());
-            response.put("lastName", user.getLastName());
-            response.put("initials", user.getInitials());
-
-            logger.info("User logged in successfully: {}", request.getEmail());
-            return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> login(@Valid @RequestBody LoginRequest request) {
+        return requestExecutor.io(() -> {
+            try {
+                logger.info("Login attempt for email: {}", request.getEmail());
+
+                User user = authService.validateUser(request.getEmail(), request.getPassword());
+                String token = authService.generateToken(user);
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("token", token);
+                response.put("message", "Login successful");
+                response.put("email", user.getEmail());
+                response.put("firstName", user.getFirstName());
+                response.put("lastName", user.getLastName());
+                response.put("initials", user.getInitials());
+
+                logger.info("User logged in successfully: {}", request.getEmail());
+                return ResponseEntity.ok(response);
 
-        } catch (Exception e) {
-            logger.error("Login failed for email: {}", request.getEmail(), e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("error", e.getMessage());
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
-        }
+            } catch (PasswordHashingBusyException e) {
+                return tooManyRequests(e);
+            } catch (Exception e) {
+                logger.error("Login failed for email: {}", request.getEmail(), e);
+                Map<String, Object> response = new HashMap<>();
+                response.put("error", e.getMessage());
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+            }
+        });
     }
 
     // ---- OTP -------------------------------------------------------------------
 
     @PostMapping("/verify-otp")
-    public ResponseEntity<Map<String, Object>> verifyOTP(@Valid @RequestBody OTPRequest request) {
-        try {
-            logger.info("OTP verification attempt for email: {}", request.getEmail());
-
-            boolean verified = authService.verifyOTP(request.getEmail(), request.getOtp());
-
-            Map<String, Object> response = new HashMap<>();
-            if (verified) {
-                response.put("message", "Email verified successfully");
-                response.put("verified", true);
-                logger.info("OTP verified successfully for email: {}", request.getEmail());
-                return ResponseEntity.ok(response);
-            } else {
-                response.put("error", "Invalid or expired OTP");
-                response.put("verified", false);
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> verifyOTP(@Valid @RequestBody OTPRequest request) {
+        return requestExecutor.io(() -> {
+            try {
+                logger.info("OTP verification attempt for email: {}", request.getEmail());
+
+                boolean verified = authService.verifyOTP(request.getEmail(), request.getOtp());
+
+                Map<String, Object> response = new HashMap<>();
+                if (verified) {
+                    response.put("message", "Email verified successfully");
+                    response.put("verified", true);
+                    logger.info("OTP verified successfully for email: {}", request.getEmail());
+                    return ResponseEntity.ok(response);
+                } else {
+                    response.put("error", "Invalid or expired OTP");
+                    response.put("verified", false);
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+                }
+
+            } catch (Exception e) {
+                logger.error("OTP verification failed for email: {}", request.getEmail(), e);
+                Map<String, Object> response = new HashMap<>();
+                response.put("error", e.getMessage());
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
-
-        } catch (Exception e) {
-            logger.error("OTP verification failed for email: {}", request.getEmail(), e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("error", e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-        }
+        });
     }
 
     @PostMapping("/resend-otp")
-    public ResponseEntity<Map<String, Object>> resendOTP(@Valid @RequestBody ResendOTPRequest request) {
-        try {
-            logger.info("Resend OTP request for email: {}", request.getEmail());
-            authService.resendOTP(request.getEmail());
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "OTP sent successfully");
-            logger.info("OTP resent successfully for email: {}", request.getEmail());
-            return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> resendOTP(@Valid @RequestBody ResendOTPRequest request) {
+        return requestExecutor.io(() -> {
+            try {
+                logger.info("Resend OTP request for email: {}", request.getEmail());
+                authService.resendOTP(request.getEmail());
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "OTP sent successfully");
+                logger.info("OTP resent successfully for email: {}", request.getEmail());
+                return ResponseEntity.ok(response);
 
-        } catch (Exception e) {
-            logger.error("Resend OTP failed for email: {}", request.getEmail(), e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("error", e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-        }
+            } catch (Exception e) {
+                logger.error("Resend OTP failed for email: {}", request.getEmail(), e);
+                Map<String, Object> response = new HashMap<>();
+                response.put("error", e.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+        });
     }
 
     // ---- PROFILE ----------------------------------------------------------------
 
     @PutMapping("/profile")
-    public ResponseEntity<Map<String, Object>> updateProfile(@Valid @RequestBody ProfileUpdateRequest request) {
-        try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication == null || !authentication.isAuthenticated() ||
-                    authentication.getPrincipal() == null ||
-                    "anonymousUser".equals(authentication.getPrincipal())) {
-                Map<String, Object> res = new HashMap<>();
-                res.put("error", "Unauthorized");
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(res);
-            }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> updateProfile(@Valid @RequestBody ProfileUpdateRequest request) {
+        return requestExecutor.io(() -> {
+            try {
+                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+                if (authentication == null || !authentication.isAuthenticated() ||
+                        authentication.getPrincipal() == null ||
+                        "anonymousUser".equals(authentication.getPrincipal())) {
+                    Map<String, Object> res = new HashMap<>();
+                    res.put("error", "Unauthorized");
+                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(res);
+                }
+
+                String email;
+                Object principal = authentication.getPrincipal();
+                if (principal instanceof org.springframework.security.core.userdetails.UserDetails) {
+                    email = ((org.springframework.security.core.userdetails.UserDetails) principal).getUsername();
+                } else {
+                    email = authentication.getName();
+                }
+
+                logger.info("Profile update request for email: {}", email);
+
+                User user = authService.updateProfile(
+                        email,
+                        request.getFirstName() != null ? request.getFirstName().trim() : null,
+                        request.getLastName() != null ? request.getLastName().trim() : null
+                );
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "Profile updated successfully");
+                response.put("user", Map.of(
+                        "id", user.getId(),
+                        "firstName", user.getFirstName(),
+                        "lastName", user.getLastName(),
+                        "email", user.getEmail(),
+                        "initials", user.getInitials()
+                ));
+                return ResponseEntity.ok(response);
 
-            String email;
-            Object principal = authentication.getPrincipal();
-            if (principal instanceof org.springframework.security.core.userdetails.UserDetails) {
-                email = ((org.springframework.security.core.userdetails.UserDetails) principal).getUsername();
-            } else {
-                email = authentication.getName();
+            } catch (Exception e) {
+                logger.error("Profile update failed", e);
+                Map<String, Object> response = new HashMap<>();
+                response.put("error", e.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
-
-            logger.info("Profile update request for email: {}", email);
-
-            User user = authService.updateProfile(
-                    email,
-                    request.getFirstName() != null ? request.getFirstName().trim() : null,
-                    request.getLastName() != null ? request.getLastName().trim() : null
-            );
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "Profile updated successfully");
-            response.put("user", Map.of(
-                    "id", user.getId(),
-                    "firstName", user.getFirstName(),
-                    "lastName", user.getLastName(),
-                    "email", user.getEmail(),
-                    "initials", user.getInitials()
-            ));
-            return ResponseEntity.ok(response);
-
-        } catch (Exception e) {
-            logger.error("Profile update failed", e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("error", e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-        }
+        });
     }
 
     // ---- PASSWORD RESET ---------------------------------------------------------
 
     @PostMapping("/forgot-password")
-    public ResponseEntity<Map<String, Object>> forgotPassword(@RequestParam String email) {
-        try {
-            authService.sendPasswordResetOTP(email);
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "Password reset OTP sent to your email");
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("error", e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> forgotPassword(@RequestParam String email) {
+        return requestExecutor.io(() -> {
+            try {
+                authService.sendPasswordResetOTP(email);
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "Password reset OTP sent to your email");
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("error", e.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+        });
     }
 
     @PostMapping("/reset-password")
-    public ResponseEntity<Map<String, Object>> resetPassword(@RequestParam String email,
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> resetPassword(@RequestParam String email,
                                                              @RequestParam String otp,
                                                              @RequestParam String newPassword) {
-        try {
-            boolean reset = authService.resetPassword(email, otp, newPassword);
-            Map<String, Object> response = new HashMap<>();
-            if (reset) {
-                response.put("message", "Password reset successful");
-                return ResponseEntity.ok(response);
-            } else {
-                response.put("error", "Invalid OTP or password reset failed");
+        return requestExecutor.io(() -> {
+            try {
+                boolean reset = authService.resetPassword(email, otp, newPassword);
+                Map<String, Object> response = new HashMap<>();
+                if (reset) {
+                    response.put("message", "Password reset successful");
+                    return ResponseEntity.ok(response);
+                } else {
+                    response.put("error", "Invalid OTP or password reset failed");
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+                }
+            } catch (PasswordHashingBusyException e) {
+                return tooManyRequests(e);
+            } catch (Exception e) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("error", e.getMessage());
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
-        } catch (Exception e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("error", e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-        }
+        });
     }
 
     // ---- LOGOUT -----------------------------------------------------------------
@@ -262,6 +297,36 @@ public class AuthController {
         }
     }
 
+    // ---- REVOCATIONS ------------------------------------------------------------
+
+    /**
+     * Revoked token ids with an id above {@code after}, for services that check tokens themselves.
+     * Only served with the shared service token, see {@link com.tradax.auth.config.SecurityConfig}.
+     */
+    @GetMapping("/revocations")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getRevocations(@RequestParam(defaultValue = "0") long after) {
+        return requestExecutor.io(() -> {
+            try {
+                return ResponseEntity.ok(tokenRevocationService.changesSince(after));
+            } catch (Exception e) {
+                logger.error("Failed to list revocations after {}", after, e);
+                Map<String, Object> response = new HashMap<>();
+                response.put("error", "Failed to list revocations");
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            }
+        });
+    }
+
+    // ---- HELPERS ----------------------------------------------------------------
+
+    private ResponseEntity<Map<String, Object>> tooManyRequests(PasswordHashingBusyException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(response);
+    }
+
     // ---- DTOs -------------------------------------------------------------------
 
     public static class RegisterRequest {
@@ -18,8 +18,6 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.tradax.auth.util.JwtUtil;
 
-import io.jsonwebtoken.MalformedJwtException;
-
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
@@ -38,7 +36,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             || path.equals("/auth/resend-otp")
             || path.equals("/auth/forgot-password")
             || path.equals("/auth/reset-password")
-            || path.equals("/auth/health");
+            || path.equals("/auth/health")
+            || path.equals("/auth/revocations");
     }
 
     @Override
@@ -50,24 +49,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String jwt = authHeader.substring(7);
-            String userEmail = null;
-
-            try {
-                userEmail = jwtUtil.extractUsername(jwt);
-            } catch (MalformedJwtException | IllegalArgumentException e) {
-                // ignore and continue
-            }
+            String userEmail = jwtUtil.validateToken(jwt);
 
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                if (jwtUtil.isTokenValid(jwt, userEmail)) {
-                    var authToken = new UsernamePasswordAuthenticationToken(
-                        userEmail,
-                        null,
-                        Collections.singletonList(() -> "ROLE_USER")
-                    );
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                }
+                var authToken = new UsernamePasswordAuthenticationToken(
+                    userEmail,
+                    null,
+                    Collections.singletonList(() -> "ROLE_USER")
+                );
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
             }
         }
 
@@ -0,0 +1,216 @@
+package com.tradax.auth.mail;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tradax.auth.model.OutboxMail;
+import com.tradax.auth.repository.OutboxMailRepository;
+
+/**
+ * Sends the mails queued in {@code mail_outbox}.
+ *
+ * One dispatch thread picks up due mails in batches and splits each batch across a few sender
+ * threads; every sender delivers its share over a single SMTP connection. Failed mails are retried
+ * with exponential backoff and jitter until {@code auth.mail.max-attempts} is reached, then left
+ * as {@code FAILED}. Delivery is at least once: a crash between sending and recording the result
+ * sends that batch again. Assumes one dispatching instance per database.
+ */
+@Component
+public class MailDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailDispatcher.class);
+
+    @Autowired
+    private OutboxMailRepository outboxMailRepository;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // 0 disables dispatching, mails stay queued
+    @Value("${auth.mail.poll-ms:1000}")
+    private long pollMs;
+
+    @Value("${auth.mail.batch-size:50}")
+    private int batchSize;
+
+    @Value("${auth.mail.senders:2}")
+    private int senders;
+
+    @Value("${auth.mail.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${auth.mail.retry-base-ms:2000}")
+    private long retryBaseMs;
+
+    @Value("${auth.mail.retry-max-ms:600000}")
+    private long retryMaxMs;
+
+    @Value("${auth.mail.retention-hours:24}")
+    private long retentionHours;
+
+    private ScheduledExecutorService dispatcher;
+    private ExecutorService senderPool;
+    private TransactionTemplate transactionTemplate;
+    private final AtomicBoolean wakePending = new AtomicBoolean();
+
+    // only touched by the dispatch thread
+    private long nextCleanupAt;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (pollMs <= 0 || dispatcher != null) return;
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger index = new AtomicInteger();
+        senderPool = Executors.newFixedThreadPool(senders, r -> daemon(r, "mail-sender-" + index.incrementAndGet()));
+        dispatcher = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "mail-dispatch"));
+        dispatcher.scheduleWithFixedDelay(this::dispatchQuietly, 0, pollMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (dispatcher == null) return;
+        dispatcher.shutdown();
+        dispatcher.awaitTermination(10, TimeUnit.SECONDS);
+        senderPool.shutdownNow();
+        dispatcher = null;
+    }
+
+    /**
+     * Runs a dispatch pass soon instead of at the next poll. Wakes arriving while one is pending are merged.
+     */
+    public void wake() {
+        ScheduledExecutorService d = dispatcher;
+        if (d == null || !wakePending.compareAndSet(false, true)) return;
+        try {
+            d.execute(() -> {
+                wakePending.set(false);
+                dispatchQuietly();
+            });
+        } catch (RuntimeException e) {
+            // shutting down; whatever is queued is sent after the next start
+            wakePending.set(false);
+        }
+    }
+
+    private void dispatchQuietly() {
+        try {
+            dispatch();
+            cleanUp();
+        } catch (RuntimeException e) {
+            logger.error("Mail dispatch failed, will retry on the next poll", e);
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            List<OutboxMail> due = outboxMailRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                    OutboxMail.Status.PENDING, Instant.now(), PageRequest.of(0, batchSize));
+            if (due.isEmpty()) return;
+            send(due);
+            transactionTemplate.executeWithoutResult(status -> outboxMailRepository.saveAll(due));
+            if (due.size() < batchSize) return;
+        }
+    }
+
+    // marks every mail of the batch as sent or failed
+    private void send(List<OutboxMail> batch) {
+        int slices = Math.min(senders, batch.size());
+        int sliceSize = (batch.size() + slices - 1) / slices;
+        List<CompletableFuture<Void>> results = new ArrayList<>(slices);
+        for (int from = 0; from < batch.size(); from += sliceSize) {
+            List<OutboxMail> slice = batch.subList(from, Math.min(from + sliceSize, batch.size()));
+            results.add(CompletableFuture.runAsync(() -> sendOverOneConnection(slice), senderPool));
+        }
+        for (CompletableFuture<Void> r : results) r.join();
+    }
+
+    private void sendOverOneConnection(List<OutboxMail> mails) {
+        SimpleMailMessage[] messages = new SimpleMailMessage[mails.size()];
+        for (int i = 0; i < messages.length; i++) {
+            OutboxMail m = mails.get(i);
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(m.getRecipient());
+            message.setSubject(m.getSubject());
+            message.setText(m.getBody());
+            messages[i] = message;
+        }
+        Map<Object, Exception> failed = Map.of();
+        MailException everything = null;
+        try {
+            mailSender.send(messages);
+        } catch (MailSendException e) {
+            failed = e.getFailedMessages();
+            if (failed.isEmpty()) everything = e;
+        } catch (MailException e) {
+            everything = e;
+        }
+        Instant now = Instant.now();
+        int failures = 0;
+        for (int i = 0; i < messages.length; i++) {
+            OutboxMail m = mails.get(i);
+            Exception error = everything != null ? everything : failed.get(messages[i]);
+            if (error == null) {
+                m.markSent(now);
+            } else {
+                failures++;
+                m.markFailed(error.getMessage(), now.plusMillis(backoff(m.getAttempts() + 1)), maxAttempts);
+                if (m.getStatus() == OutboxMail.Status.FAILED) {
+                    logger.error("Giving up on mail {} to {} after {} attempts: {}", m.getId(), m.getRecipient(), m.getAttempts(), error.getMessage());
+                }
+            }
+        }
+        if (failures > 0) logger.warn("{} of {} mails could not be sent and will be retried", failures, messages.length);
+    }
+
+    // attempt n waits retryBaseMs * 2^(n-1), capped at retryMaxMs, of which a random half to all
+    private long backoff(int attempt) {
+        long delay = retryBaseMs << Math.min(attempt - 1, 20);
+        delay = Math.min(delay, retryMaxMs);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private void cleanUp() {
+        long now = System.currentTimeMillis();
+        if (now < nextCleanupAt) return;
+        nextCleanupAt = now + TimeUnit.MINUTES.toMillis(10);
+        long deleted = outboxMailRepository.deleteByStatusAndSentAtBefore(OutboxMail.Status.SENT,
+                Instant.now().minusSeconds(TimeUnit.HOURS.toSeconds(retentionHours)));
+        if (deleted > 0) logger.debug("Deleted {} sent mails from the outbox", deleted);
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
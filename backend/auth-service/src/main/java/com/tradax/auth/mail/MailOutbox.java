@@ -0,0 +1,41 @@
+package com.tradax.auth.mail;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.tradax.auth.model.OutboxMail;
+import com.tradax.auth.repository.OutboxMailRepository;
+
+/**
+ * Queues emails for the {@link MailDispatcher}.
+ *
+ * The mail is a row in {@code mail_outbox} written in the caller's transaction, so a rolled back
+ * registration sends nothing and a committed one is sent even if the mail server is down right
+ * now. The dispatcher is woken once the transaction commits, so delivery does not wait for its
+ * next poll.
+ */
+@Component
+public class MailOutbox {
+
+    @Autowired
+    private OutboxMailRepository outboxMailRepository;
+
+    @Autowired
+    private MailDispatcher mailDispatcher;
+
+    public void enqueue(String to, String subject, String text) {
+        outboxMailRepository.save(new OutboxMail(to, subject, text));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    mailDispatcher.wake();
+                }
+            });
+        } else {
+            mailDispatcher.wake();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.tradax.auth.model;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * Persistent copy of an outstanding one-time code, used when {@code auth.otp.persistent} is on.
+ * Only a salted hash of the code is stored.
+ */
+@Entity
+@Table(name = "otp_codes", uniqueConstraints = @UniqueConstraint(columnNames = {"email", "purpose"}))
+public class OtpCode {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "email", nullable = false)
+    private String email;
+
+    @Column(name = "purpose", nullable = false, length = 32)
+    private String purpose;
+
+    @Column(name = "code_hash", nullable = false, length = 64)
+    private String codeHash;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    public OtpCode() {}
+
+    public OtpCode(String email, String purpose) {
+        this.email = email;
+        this.purpose = purpose;
+    }
+
+    public Long getId() { return id; }
+    public String getEmail() { return email; }
+    public String getPurpose() { return purpose; }
+
+    public String getCodeHash() { return codeHash; }
+    public void setCodeHash(String codeHash) { this.codeHash = codeHash; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+}
@@ -0,0 +1,214 @@
+package com.tradax.auth.otp;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.tradax.auth.model.OtpCode;
+import com.tradax.auth.repository.OtpCodeRepository;
+
+/**
+ * Outstanding one-time codes, one per user and purpose.
+ *
+ * Codes live in memory, keyed by email and purpose, so checking one touches neither the user row
+ * nor the database. Expired codes are dropped by a sweeper driving a {@link TimingWheel}. Each code
+ * allows {@code auth.otp.max-attempts} wrong guesses, after which it is locked until it expires or
+ * a new one is issued. Only a salted SHA-256 of the code is kept.
+ *
+ * With {@code auth.otp.persistent} every change is also written to {@code otp_codes} (in the
+ * caller's transaction) and outstanding codes are reloaded on startup.
+ */
+@Component
+public class OtpStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OtpStore.class);
+
+    public enum Purpose { VERIFY_EMAIL, RESET_PASSWORD }
+
+    public enum Result { MATCH, MISMATCH, EXPIRED, TOO_MANY_ATTEMPTS, NONE }
+
+    @Autowired
+    private OtpCodeRepository otpCodeRepository;
+
+    @Value("${auth.otp.ttl-minutes:10}")
+    private int ttlMinutes;
+
+    @Value("${auth.otp.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${auth.otp.persistent:false}")
+    private boolean persistent;
+
+    @Value("${auth.otp.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${auth.otp.wheel-slots:1024}")
+    private int wheelSlots;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private TimingWheel<String> wheel;
+    private ScheduledExecutorService sweeper;
+    // only touched by the sweeper thread
+    private long nextTableSweepAt;
+
+    private static final class Entry {
+        final String email;
+        final Purpose purpose;
+        final byte[] codeHash;
+        final long expiresAt;
+        final int attempts;
+
+        Entry(String email, Purpose purpose, byte[] codeHash, long expiresAt, int attempts) {
+            this.email = email;
+            this.purpose = purpose;
+            this.codeHash = codeHash;
+            this.expiresAt = expiresAt;
+            this.attempts = attempts;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        wheel = new TimingWheel<>(tickMs, wheelSlots, System.currentTimeMillis());
+        if (persistent) {
+            for (OtpCode c : otpCodeRepository.findByExpiresAtAfter(Instant.now())) {
+                Purpose purpose = Purpose.valueOf(c.getPurpose());
+                put(new Entry(c.getEmail(), purpose, HexFormat.of().parseHex(c.getCodeHash()),
+                        c.getExpiresAt().toEpochMilli(), c.getAttempts()));
+            }
+            logger.info("Loaded {} outstanding one-time codes", entries.size());
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "otp-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweepQuietly, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (sweeper != null) sweeper.shutdownNow();
+    }
+
+    /**
+     * Issues a new six-digit code, replacing any outstanding one for the same purpose.
+     */
+    public String issue(String email, Purpose purpose) {
+        String code = String.valueOf(100000 + random.nextInt(900000));
+        long expiresAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(ttlMinutes);
+        Entry entry = new Entry(email, purpose, hash(email, purpose, code), expiresAt, 0);
+        put(entry);
+        if (persistent) {
+            OtpCode row = otpCodeRepository.findByEmailAndPurpose(email, purpose.name())
+                    .orElseGet(() -> new OtpCode(email, purpose.name()));
+            row.setCodeHash(HexFormat.of().formatHex(entry.codeHash));
+            row.setExpiresAt(Instant.ofEpochMilli(expiresAt));
+            row.setAttempts(0);
+            otpCodeRepository.save(row);
+        }
+        return code;
+    }
+
+    /**
+     * Checks {@code code} without using it up; a wrong code counts as an attempt.
+     * Call {@link #invalidate} once the code has served its purpose.
+     */
+    public Result check(String email, Purpose purpose, String code) {
+        if (code == null) return Result.NONE;
+        long now = System.currentTimeMillis();
+        Result[] result = { Result.NONE };
+        Entry updated = entries.computeIfPresent(key(email, purpose), (k, e) -> {
+            if (e.expiresAt <= now) {
+                result[0] = Result.EXPIRED;
+                return null;
+            }
+            if (e.attempts >= maxAttempts) {
+                result[0] = Result.TOO_MANY_ATTEMPTS;
+                return e;
+            }
+            if (MessageDigest.isEqual(e.codeHash, hash(email, purpose, code))) {
+                result[0] = Result.MATCH;
+                return e;
+            }
+            int attempts = e.attempts + 1;
+            result[0] = attempts >= maxAttempts ? Result.TOO_MANY_ATTEMPTS : Result.MISMATCH;
+            return new Entry(e.email, e.purpose, e.codeHash, e.expiresAt, attempts);
+        });
+        if (persistent && updated != null && result[0] != Result.MATCH) {
+            otpCodeRepository.updateAttempts(email, purpose.name(), updated.attempts);
+        }
+        return result[0];
+    }
+
+    public void invalidate(String email, Purpose purpose) {
+        if (entries.remove(key(email, purpose)) != null && persistent) {
+            otpCodeRepository.deleteByEmailAndPurpose(email, purpose.name());
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getTtlMinutes() {
+        return ttlMinutes;
+    }
+
+    private void put(Entry entry) {
+        String key = key(entry.email, entry.purpose);
+        entries.put(key, entry);
+        wheel.schedule(key, entry.expiresAt);
+    }
+
+    private void sweepQuietly() {
+        try {
+            long now = System.currentTimeMillis();
+            wheel.advance(now, (key, nowMs) -> {
+                Entry e = entries.get(key);
+                if (e == null) return false;
+                if (e.expiresAt > nowMs) return true;
+                entries.remove(key, e);
+                return false;
+            });
+            // rows are cleaned up in bulk rather than one delete per expired code
+            if (persistent && now >= nextTableSweepAt) {
+                nextTableSweepAt = now + TimeUnit.MINUTES.toMillis(1);
+                otpCodeRepository.deleteByExpiresAtBefore(Instant.ofEpochMilli(now));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to sweep expired one-time codes", e);
+        }
+    }
+
+    private static String key(String email, Purpose purpose) {
+        return purpose.name() + ':' + email;
+    }
+
+    private static byte[] hash(String email, Purpose purpose, String code) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return md.digest((key(email, purpose) + ':' + code).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
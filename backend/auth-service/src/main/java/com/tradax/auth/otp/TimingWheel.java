@@ -0,0 +1,61 @@
+package com.tradax.auth.otp;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hashed timing wheel: keys are filed under the tick their deadline falls in, and advancing the
+ * wheel visits only the slots of the ticks that passed. Scheduling is O(1) and sweeping costs
+ * in proportion to what is due, not to everything stored.
+ *
+ * A key may sit in a slot after its deadline moved (or after it was removed); the {@link Visitor}
+ * sees it each time its slot comes round and decides, from the real deadline, whether it stays.
+ * Deadlines further out than one revolution are kept the same way.
+ */
+final class TimingWheel<K> {
+
+    interface Visitor<K> {
+        /**
+         * Called for {@code key} when its slot comes round at {@code nowMs}. Returns true to keep it there.
+         */
+        boolean visit(K key, long nowMs);
+    }
+
+    private final long tickMs;
+    private final Set<K>[] slots;
+    // last tick that has been swept; only advanced by the sweeping thread
+    private volatile long swept;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMs, int slotCount, long nowMs) {
+        this.tickMs = tickMs;
+        this.slots = new Set[slotCount];
+        for (int i = 0; i < slotCount; i++) slots[i] = ConcurrentHashMap.newKeySet();
+        this.swept = nowMs / tickMs;
+    }
+
+    /**
+     * Files {@code key} under the first tick after {@code deadlineMs}, or the next tick if that one
+     * has already been swept.
+     */
+    void schedule(K key, long deadlineMs) {
+        long tick = Math.max(deadlineMs / tickMs + 1, swept + 1);
+        slots[(int) (tick % slots.length)].add(key);
+    }
+
+    /**
+     * Visits every slot whose tick has passed by {@code nowMs}. Only one thread may call this.
+     */
+    void advance(long nowMs, Visitor<K> visitor) {
+        long target = nowMs / tickMs;
+        // after a long pause one revolution covers every slot
+        long from = Math.max(swept + 1, target - slots.length + 1);
+        for (long tick = from; tick <= target; tick++) {
+            for (Iterator<K> it = slots[(int) (tick % slots.length)].iterator(); it.hasNext(); ) {
+                if (!visitor.visit(it.next(), nowMs)) it.remove();
+            }
+        }
+        if (target > swept) swept = target;
+    }
+}
@@ -0,0 +1,12 @@
+package com.tradax.auth.password;
+
+/**
+ * Thrown when the password hashing pool is full. Nothing has been hashed or changed; the caller
+ * may retry shortly.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException() {
+        super("Too many password checks in progress, please retry");
+    }
+}
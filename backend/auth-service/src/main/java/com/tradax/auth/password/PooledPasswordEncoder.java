@@ -0,0 +1,141 @@
+package com.tradax.auth.password;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * BCrypt on a bounded pool of its own.
+ *
+ * Hashing is the only CPU-heavy step of login, registration and password reset, so it runs on
+ * one thread per core with a short queue in front. The calling thread waits for its own hash;
+ * when the queue is full the call fails at once with {@link PasswordHashingBusyException}, which
+ * caps the request threads that can be tied up by a burst of logins at threads + queue.
+ *
+ * Unless {@code auth.password.strength} is set, the cost factor is picked at startup: one hash
+ * is timed at the minimum cost and the cost is raised while the estimate (doubling per step)
+ * stays within {@code auth.password.target-ms}. Existing hashes keep verifying at the cost they
+ * were created with.
+ */
+@Component
+public class PooledPasswordEncoder implements PasswordEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledPasswordEncoder.class);
+
+    // 0 = one per available core
+    @Value("${auth.password.threads:0}")
+    private int threads;
+
+    @Value("${auth.password.queue:32}")
+    private int queue;
+
+    // 0 = tune at startup
+    @Value("${auth.password.strength:0}")
+    private int strength;
+
+    @Value("${auth.password.target-ms:100}")
+    private long targetMs;
+
+    @Value("${auth.password.min-strength:10}")
+    private int minStrength;
+
+    @Value("${auth.password.max-strength:16}")
+    private int maxStrength;
+
+    private BCryptPasswordEncoder bcrypt;
+    private ThreadPoolExecutor pool;
+
+    @PostConstruct
+    void init() {
+        if (strength <= 0) strength = tune();
+        bcrypt = new BCryptPasswordEncoder(strength);
+        int n = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger index = new AtomicInteger();
+        pool = new ThreadPoolExecutor(n, n, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queue), r -> {
+            Thread t = new Thread(r, "password-hash-" + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        logger.info("Password hashing: BCrypt cost {}, {} threads, queue {}", strength, n, queue);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (pool != null) pool.shutdown();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> bcrypt.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> bcrypt.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return bcrypt.upgradeEncoding(encodedPassword);
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = pool.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingBusyException();
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while hashing password");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new RuntimeException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private int tune() {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        probe.encode("warm-up");
+        long[] samples = new long[3];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            probe.encode("self-benchmark-" + i);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        double estimateMs = samples[1] / 1_000_000.0;
+        int cost = minStrength;
+        while (cost < maxStrength && estimateMs * 2 <= targetMs) {
+            estimateMs *= 2;
+            cost++;
+        }
+        logger.info("BCrypt cost {} measured at {} ms, using cost {} (~{} ms) for a {} ms target",
+                minStrength, samples[1] / 1_000_000, cost, Math.round(estimateMs), targetMs);
+        return cost;
+    }
+}
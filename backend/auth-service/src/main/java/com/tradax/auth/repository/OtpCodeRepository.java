@@ -0,0 +1,52 @@
+package com.tradax.auth.repository;
+
+import com.tradax.auth.model.OtpCode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for OtpCode entity
+ */
+@Repository
+public interface OtpCodeRepository extends JpaRepository<OtpCode, Long> {
+
+    /**
+     * Find the outstanding code of a user for a purpose
+     */
+    Optional<OtpCode> findByEmailAndPurpose(String email, String purpose);
+
+    /**
+     * Codes that have not expired yet
+     */
+    List<OtpCode> findByExpiresAtAfter(Instant instant);
+
+    /**
+     * Record the number of failed attempts on a code
+     */
+    @Modifying
+    @Transactional
+    @Query("update OtpCode o set o.attempts = :attempts where o.email = :email and o.purpose = :purpose")
+    int updateAttempts(@Param("email") String email, @Param("purpose") String purpose, @Param("attempts") int attempts);
+
+    /**
+     * Delete the code of a user for a purpose
+     */
+    @Modifying
+    @Transactional
+    long deleteByEmailAndPurpose(String email, String purpose);
+
+    /**
+     * Delete expired codes
+     */
+    @Modifying
+    @Transactional
+    long deleteByExpiresAtBefore(Instant instant);
+}
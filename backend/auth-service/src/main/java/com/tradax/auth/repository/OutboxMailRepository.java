@@ -0,0 +1,35 @@
+package com.tradax.auth.repository;
+
+import com.tradax.auth.model.OutboxMail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository interface for OutboxMail entity
+ */
+@Repository
+public interface OutboxMailRepository extends JpaRepository<OutboxMail, Long> {
+
+    /**
+     * Mails in the given status that are due by {@code now}, oldest first
+     */
+    List<OutboxMail> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(OutboxMail.Status status, Instant now, Pageable page);
+
+    /**
+     * Count mails in the given status
+     */
+    long countByStatus(OutboxMail.Status status);
+
+    /**
+     * Delete mails sent before the given instant
+     */
+    @Modifying
+    @Transactional
+    long deleteByStatusAndSentAtBefore(OutboxMail.Status status, Instant instant);
+}
@@ -0,0 +1,34 @@
+package com.tradax.auth.repository;
+
+import com.tradax.auth.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository interface for RevokedToken entity
+ */
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    /**
+     * Next page of revocations after the given id, oldest first
+     */
+    List<RevokedToken> findTop500ByIdGreaterThanOrderByIdAsc(Long id);
+
+    /**
+     * Revocations of tokens that have not expired yet
+     */
+    List<RevokedToken> findByExpiresAtAfter(Instant instant);
+
+    /**
+     * Delete revocations of tokens that have expired
+     */
+    @Modifying
+    @Transactional
+    long deleteByExpiresAtBefore(Instant instant);
+}
@@ -24,11 +24,6 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     boolean existsByEmail(String email);
 
-    /**
-     * Find users with expired OTP
-     */
-    List<User> findByOtpExpiryBefore(LocalDateTime dateTime);
-
     /**
      * Find unverified users older than specified date
      */
@@ -0,0 +1,86 @@
+package com.tradax.auth.revocation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ids ({@code jti}) of tokens that were revoked before they expired.
+ *
+ * Almost every token checked was never revoked, so lookups go to a Bloom filter first and only
+ * its (rare) positives are confirmed against the exact set, which keeps the check at a few
+ * hashes and array reads per request. Entries are kept until the token's own expiration;
+ * {@link #purge} drops them afterwards and rebuilds the filter, since Bloom bits cannot be
+ * cleared one by one.
+ *
+ * Kept in step with the copy in wallet-service (with {@link BloomFilter}): the services build and
+ * run on their own and share no code, and the two classes are small enough to copy.
+ */
+@Component
+public class RevokedTokens {
+
+    @Value("${auth.revocation.expected-entries:100000}")
+    private int expectedEntries;
+
+    @Value("${auth.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    // jti -> expiration of the token in epoch millis
+    private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    // guarded by this
+    private int capacity;
+
+    @PostConstruct
+    void init() {
+        capacity = expectedEntries;
+        filter = new BloomFilter(capacity, falsePositiveRate);
+    }
+
+    public boolean isRevoked(String jti) {
+        // an entry past its expiration still answers true, but so does the token's own exp check
+        return jti != null && filter.mightContain(jti) && expiries.containsKey(jti);
+    }
+
+    /**
+     * Revokes {@code jti} until {@code expiresAt} (epoch millis). Already expired tokens are ignored.
+     */
+    public synchronized void add(String jti, long expiresAt) {
+        if (expiresAt <= System.currentTimeMillis()) return;
+        // the exact entry goes in before the filter bits, so a reader that passes the filter finds it
+        if (expiries.put(jti, expiresAt) != null) return;
+        if (expiries.size() > capacity) {
+            rebuild();
+        } else {
+            filter.add(jti);
+        }
+    }
+
+    /**
+     * Forgets tokens that have expired by now. Returns how many were dropped.
+     */
+    public synchronized int purge() {
+        long now = System.currentTimeMillis();
+        int before = expiries.size();
+        expiries.values().removeIf(exp -> exp <= now);
+        int removed = before - expiries.size();
+        if (removed > 0) rebuild();
+        return removed;
+    }
+
+    public int size() {
+        return expiries.size();
+    }
+
+    // sized with headroom so a growing set does not rebuild on every add
+    private void rebuild() {
+        capacity = Math.max(expectedEntries, expiries.size() * 2);
+        BloomFilter rebuilt = new BloomFilter(capacity, falsePositiveRate);
+        for (String jti : expiries.keySet()) rebuilt.add(jti);
+        filter = rebuilt;
+    }
+}
@@ -0,0 +1,121 @@
+package com.tradax.auth.revocation;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.tradax.auth.model.RevokedToken;
+import com.tradax.auth.repository.RevokedTokenRepository;
+
+/**
+ * Records revoked tokens and serves them to the other services.
+ *
+ * Revocations are stored in {@code revoked_tokens} and mirrored in {@link RevokedTokens} for the
+ * request path. Other services follow the table through {@link #changesSince}; the epoch changes
+ * whenever this service starts, so followers can tell that ids may have started over.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    // matches findTop500ByIdGreaterThanOrderByIdAsc
+    private static final int PAGE_SIZE = 500;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private RevokedTokens revokedTokens;
+
+    @Value("${auth.revocation.purge-ms:60000}")
+    private long purgeMs;
+
+    private final String epoch = UUID.randomUUID().toString();
+    private ScheduledExecutorService purger;
+
+    @PostConstruct
+    void start() {
+        for (RevokedToken t : revokedTokenRepository.findByExpiresAtAfter(Instant.now())) {
+            revokedTokens.add(t.getJti(), t.getExpiresAt().toEpochMilli());
+        }
+        if (purgeMs <= 0) return;
+        purger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "revocation-purge");
+            t.setDaemon(true);
+            return t;
+        });
+        purger.scheduleWithFixedDelay(this::purgeQuietly, purgeMs, purgeMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (purger != null) purger.shutdownNow();
+    }
+
+    /**
+     * Revokes the token with id {@code jti} until it expires. Tokens without an id cannot be revoked.
+     */
+    public boolean revoke(String jti, Date expiration) {
+        if (jti == null || expiration == null || !expiration.after(new Date())) return false;
+        if (revokedTokens.isRevoked(jti)) return true;
+        try {
+            revokedTokenRepository.save(new RevokedToken(jti, expiration.toInstant()));
+        } catch (DataIntegrityViolationException e) {
+            // revoked concurrently, the row is already there
+        }
+        revokedTokens.add(jti, expiration.getTime());
+        return true;
+    }
+
+    public boolean isRevoked(String jti) {
+        return revokedTokens.isRevoked(jti);
+    }
+
+    /**
+     * Up to one page of revocations with an id above {@code afterId}, oldest first.
+     */
+    public Map<String, Object> changesSince(long afterId) {
+        List<RevokedToken> page = revokedTokenRepository.findTop500ByIdGreaterThanOrderByIdAsc(afterId);
+        List<Map<String, Object>> revocations = new ArrayList<>(page.size());
+        for (RevokedToken t : page) {
+            Map<String, Object> r = new HashMap<>();
+            r.put("id", t.getId());
+            r.put("jti", t.getJti());
+            r.put("expiresAt", t.getExpiresAt().toEpochMilli());
+            revocations.add(r);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("epoch", epoch);
+        response.put("revocations", revocations);
+        response.put("more", page.size() == PAGE_SIZE);
+        return response;
+    }
+
+    private void purgeQuietly() {
+        try {
+            int dropped = revokedTokens.purge();
+            long deleted = revokedTokenRepository.deleteByExpiresAtBefore(Instant.now());
+            if (dropped > 0 || deleted > 0) logger.debug("Purged {} expired revocations ({} rows)", dropped, deleted);
+        } catch (RuntimeException e) {
+            logger.error("Failed to purge expired revocations", e);
+        }
+    }
+}
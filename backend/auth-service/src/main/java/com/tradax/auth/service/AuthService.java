@@ -2,18 +2,17 @@ package com.tradax.auth.service;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
-import java.util.Random;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.tradax.auth.mail.MailOutbox;
 import com.tradax.auth.model.User;
+import com.tradax.auth.otp.OtpStore;
 import com.tradax.auth.repository.UserRepository;
 import com.tradax.auth.util.JwtUtil;
 
@@ -33,7 +32,10 @@ public class AuthService {
     private JwtUtil jwtUtil;
 
     @Autowired
-    private JavaMailSender mailSender;
+    private MailOutbox mailOutbox;
+
+    @Autowired
+    private OtpStore otpStore;
 
     public User register(String firstName, String lastName, String email, String password) {
         logger.info("Attempting to register user with email: {}", email);
@@ -51,14 +53,11 @@ public class AuthService {
         user.setCreatedAt(LocalDateTime.now());
         user.setUpdatedAt(LocalDateTime.now());
 
-        String otp = generateOTP();
-        user.setOtp(otp);
-        user.setOtpExpiry(LocalDateTime.now().plusMinutes(10));
-
         User savedUser = userRepository.save(user);
 
+        String otp = otpStore.issue(savedUser.getEmail(), OtpStore.Purpose.VERIFY_EMAIL);
         sendEmail(user.getEmail(), "Email Verification OTP",
-                "Your verification code is: " + otp + "\n\nThis code expires in 10 minutes.");
+                "Your verification code is: " + otp + "\n\nThis code expires in " + otpStore.getTtlMinutes() + " minutes.");
 
         return savedUser;
     }
@@ -86,19 +85,17 @@ public class AuthService {
     }
 
     public boolean verifyOTP(String email, String otp) {
-        Optional<User> userOpt = userRepository.findByEmail(email.toLowerCase());
+        String normalized = email.toLowerCase();
+        if (!checkOTP(normalized, OtpStore.Purpose.VERIFY_EMAIL, otp)) return false;
+
+        Optional<User> userOpt = userRepository.findByEmail(normalized);
         if (userOpt.isEmpty()) throw new RuntimeException("User not found");
 
         User user = userOpt.get();
-        if (user.getOtp() == null || !user.getOtp().equals(otp)) return false;
-        if (user.getOtpExpiry() == null || user.getOtpExpiry().isBefore(LocalDateTime.now()))
-            throw new RuntimeException("OTP has expired");
-
         user.setEmailVerified(true);
-        user.setOtp(null);
-        user.setOtpExpiry(null);
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        otpStore.invalidate(normalized, OtpStore.Purpose.VERIFY_EMAIL);
         return true;
     }
 
@@ -110,14 +107,9 @@ public class AuthService {
         if (user.isEmailVerified())
             throw new RuntimeException("Email is already verified");
 
-        String otp = generateOTP();
-        user.setOtp(otp);
-        user.setOtpExpiry(LocalDateTime.now().plusMinutes(10));
-        user.setUpdatedAt(LocalDateTime.now());
-        userRepository.save(user);
-
+        String otp = otpStore.issue(user.getEmail(), OtpStore.Purpose.VERIFY_EMAIL);
         sendEmail(user.getEmail(), "Resend Verification OTP",
-                "Your new verification code is: " + otp + "\n\nThis code expires in 10 minutes.");
+                "Your new verification code is: " + otp + "\n\nThis code expires in " + otpStore.getTtlMinutes() + " minutes.");
     }
 
     public void sendPasswordResetOTP(String email) {
@@ -125,30 +117,23 @@ public class AuthService {
         if (userOpt.isEmpty()) throw new RuntimeException("User not found");
 
         User user = userOpt.get();
-        String otp = generateOTP();
-        user.setOtp(otp);
-        user.setOtpExpiry(LocalDateTime.now().plusMinutes(10));
-        user.setUpdatedAt(LocalDateTime.now());
-        userRepository.save(user);
-
+        String otp = otpStore.issue(user.getEmail(), OtpStore.Purpose.RESET_PASSWORD);
         sendEmail(user.getEmail(), "Password Reset OTP",
-                "Your password reset code is: " + otp + "\n\nThis code expires in 10 minutes.");
+                "Your password reset code is: " + otp + "\n\nThis code expires in " + otpStore.getTtlMinutes() + " minutes.");
     }
 
     public boolean resetPassword(String email, String otp, String newPassword) {
-        Optional<User> userOpt = userRepository.findByEmail(email.toLowerCase());
+        String normalized = email.toLowerCase();
+        if (!checkOTP(normalized, OtpStore.Purpose.RESET_PASSWORD, otp)) return false;
+
+        Optional<User> userOpt = userRepository.findByEmail(normalized);
         if (userOpt.isEmpty()) throw new RuntimeException("User not found");
 
         User user = userOpt.get();
-        if (user.getOtp() == null || !user.getOtp().equals(otp)) return false;
-        if (user.getOtpExpiry() == null || user.getOtpExpiry().isBefore(LocalDateTime.now()))
-            throw new RuntimeException("OTP has expired");
-
         user.setPassword(passwordEncoder.encode(newPassword));
-        user.setOtp(null);
-        user.setOtpExpiry(null);
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        otpStore.invalidate(normalized, OtpStore.Purpose.RESET_PASSWORD);
         return true;
     }
 
@@ -176,18 +161,19 @@ public class AuthService {
         return user;
     }
 
+    // queued in this transaction and sent by the mail dispatcher after commit
     private void sendEmail(String to, String subject, String text) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(to);
-        message.setSubject(subject);
-        message.setText(text);
-        mailSender.send(message);
+        mailOutbox.enqueue(to, subject, text);
     }
 
-    private String generateOTP() {
-        Random random = new Random();
-        int otp = 100000 + random.nextInt(900000);
-        return String.valueOf(otp);
+    // true only for a matching code; the user row is not touched before that
+    private boolean checkOTP(String email, OtpStore.Purpose purpose, String otp) {
+        OtpStore.Result result = otpStore.check(email, purpose, otp);
+        if (result == OtpStore.Result.EXPIRED)
+            throw new RuntimeException("OTP has expired");
+        if (result == OtpStore.Result.TOO_MANY_ATTEMPTS)
+            throw new RuntimeException("Too many incorrect attempts, please request a new code");
+        return result == OtpStore.Result.MATCH;
     }
 
     public Optional<User> findByEmail(String email) {
@@ -38,7 +38,8 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             jwt = authorizationHeader.substring(7);
-            email = jwtUtil.extractUsername(jwt);
+            // null for a token that is badly signed, expired or revoked
+            email = jwtUtil.validateToken(jwt);
         }
 
         if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
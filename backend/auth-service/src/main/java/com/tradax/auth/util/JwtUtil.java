@@ -1,20 +1,27 @@
 package com.tradax.auth.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import com.tradax.auth.revocation.RevokedTokens;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 /**
- * JWT utility class for token generation and validation
+ * JWT utility class for token generation and validation.
+ * The signing key and parser are built once; claims of verified tokens are cached until the
+ * token expires.
  */
 @Component
 public class JwtUtil {
@@ -25,11 +32,21 @@ public class JwtUtil {
     @Value("${jwt.expiration:86400000}") // 24 hours in milliseconds
     private Long jwtExpiration;
 
-    /**
-     * Extract username from JWT token
-     */
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    @Value("${jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    @Autowired
+    private RevokedTokens revokedTokens;
+
+    private Key signInKey;
+    private JwtParser parser;
+    private VerifiedTokenCache cache;
+
+    @PostConstruct
+    void init() {
+        signInKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+        cache = new VerifiedTokenCache(cacheMaxEntries);
     }
 
     /**
@@ -48,21 +65,15 @@ public class JwtUtil {
     }
 
     /**
-     * Extract all claims from JWT token
+     * Extract all claims from JWT token, verifying it unless it was verified before
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    /**
-     * Check if JWT token is expired
-     */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        Claims claims = cache.get(token);
+        if (claims == null) {
+            claims = parser.parseClaimsJws(token).getBody();
+            cache.put(token, claims);
+        }
+        return claims;
     }
 
     /**
@@ -86,6 +97,7 @@ public class JwtUtil {
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
@@ -94,14 +106,15 @@ public class JwtUtil {
     }
 
     /**
-     * Validate JWT token
+     * Subject of a correctly signed, unexpired and unrevoked token, or null
      */
-    public Boolean isTokenValid(String token, String username) {
+    public String validateToken(String token) {
         try {
-            final String extractedUsername = extractUsername(token);
-            return (extractedUsername.equals(username) && !isTokenExpired(token));
+            Claims claims = extractAllClaims(token);
+            if (claims.getExpiration().before(new Date()) || revokedTokens.isRevoked(claims.getId())) return null;
+            return claims.getSubject();
         } catch (Exception e) {
-            return false;
+            return null;
         }
     }
 
@@ -109,8 +122,7 @@ public class JwtUtil {
      * Get signing key for JWT
      */
     private Key getSignInKey() {
-        byte[] keyBytes = secret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signInKey;
     }
 
     /**
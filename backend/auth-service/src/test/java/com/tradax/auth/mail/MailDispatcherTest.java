@@ -0,0 +1,273 @@
+package com.tradax.auth.mail;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.tradax.auth.model.OutboxMail;
+import com.tradax.auth.repository.OutboxMailRepository;
+
+/**
+ * {@link MailDispatcher} delivering to an SMTP stub: batches are split across the sender threads
+ * with one connection each, rejected mails are retried with growing delays, and a mail that keeps
+ * failing is marked {@code FAILED} after {@code auth.mail.max-attempts}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "jwt.secret=MailDispatcherTestSecretThatIsLongEnoughForHmacSha256",
+    "spring.jpa.show-sql=false",
+    "spring.mail.username=",
+    "spring.mail.password=",
+    "spring.mail.properties.mail.smtp.auth=false",
+    "spring.mail.properties.mail.smtp.starttls.enable=false",
+    "auth.mail.poll-ms=50",
+    "auth.mail.batch-size=4",
+    "auth.mail.senders=2",
+    "auth.mail.max-attempts=3",
+    "auth.mail.retry-base-ms=200",
+    "auth.mail.retry-max-ms=1000"
+})
+class MailDispatcherTest {
+
+    private static SmtpStub smtp;
+
+    @Autowired
+    private OutboxMailRepository outboxMailRepository;
+
+    @Autowired
+    private MailDispatcher mailDispatcher;
+
+    @Autowired
+    private MailOutbox mailOutbox;
+
+    @DynamicPropertySource
+    static void mailServer(DynamicPropertyRegistry registry) throws IOException {
+        smtp = new SmtpStub();
+        registry.add("spring.mail.host", () -> "127.0.0.1");
+        registry.add("spring.mail.port", () -> smtp.port());
+    }
+
+    @AfterAll
+    static void stopMailServer() throws IOException {
+        smtp.close();
+    }
+
+    @BeforeEach
+    void clear() {
+        await(() -> outboxMailRepository.countByStatus(OutboxMail.Status.PENDING) == 0);
+        outboxMailRepository.deleteAll();
+        smtp.reset();
+    }
+
+    @Test
+    void batchIsSplitAcrossSendersWithOneConnectionEach() {
+        List<OutboxMail> mails = new ArrayList<>();
+        for (int i = 0; i < 8; i++) mails.add(new OutboxMail("batch" + i + "@tradax.local", "Code", "123456"));
+        // one commit, so a single pass sees all eight: two batches of four, two senders each
+        outboxMailRepository.saveAll(mails);
+        mailDispatcher.wake();
+
+        await(() -> outboxMailRepository.countByStatus(OutboxMail.Status.SENT) == 8);
+        assertEquals(8, smtp.delivered().size());
+        assertEquals(List.of(2, 2, 2, 2), smtp.messagesPerConnection());
+    }
+
+    @Test
+    void rejectedMailIsRetriedWithBackoff() {
+        smtp.reject("flaky@tradax.local", 2);
+        mailOutbox.enqueue("flaky@tradax.local", "Code", "123456");
+
+        await(() -> outboxMailRepository.countByStatus(OutboxMail.Status.SENT) == 1);
+        OutboxMail mail = outboxMailRepository.findAll().get(0);
+        assertEquals(2, mail.getAttempts());
+        assertEquals(List.of("flaky@tradax.local"), smtp.delivered());
+
+        // attempt n waits a random half to all of retry-base-ms * 2^(n-1)
+        List<Long> tries = smtp.attempts("flaky@tradax.local");
+        assertEquals(3, tries.size());
+        assertTrue(tries.get(1) - tries.get(0) >= 100, "first retry after at least 100 ms: " + tries);
+        assertTrue(tries.get(2) - tries.get(1) >= 200, "second retry after at least 200 ms: " + tries);
+    }
+
+    @Test
+    void mailIsFailedAfterMaxAttempts() throws InterruptedException {
+        smtp.reject("dead@tradax.local", Integer.MAX_VALUE);
+        mailOutbox.enqueue("dead@tradax.local", "Code", "123456");
+        mailOutbox.enqueue("alive@tradax.local", "Code", "654321");
+
+        await(() -> outboxMailRepository.countByStatus(OutboxMail.Status.FAILED) == 1);
+        OutboxMail dead = outboxMailRepository.findAll().stream()
+                .filter(m -> m.getRecipient().equals("dead@tradax.local")).findFirst().orElseThrow();
+        assertEquals(3, dead.getAttempts());
+        assertTrue(dead.getLastError() != null && !dead.getLastError().isEmpty());
+        assertEquals(1, outboxMailRepository.countByStatus(OutboxMail.Status.SENT));
+
+        // longer than the largest backoff: nothing is tried again
+        Thread.sleep(1200);
+        assertEquals(3, smtp.attempts("dead@tradax.local").size());
+        assertEquals(List.of("alive@tradax.local"), smtp.delivered());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Timed out waiting for the dispatcher");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError("Interrupted");
+            }
+        }
+    }
+
+    /**
+     * Just enough SMTP for JavaMail without auth or TLS. Records every RCPT and every delivered
+     * recipient, and answers 550 to recipients told to be rejected.
+     */
+    static final class SmtpStub implements AutoCloseable {
+
+        private final ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        private final List<String> delivered = new CopyOnWriteArrayList<>();
+        private final List<AtomicInteger> connections = new CopyOnWriteArrayList<>();
+        private final Map<String, List<Long>> attempts = new ConcurrentHashMap<>();
+        private final Map<String, Integer> rejections = new ConcurrentHashMap<>();
+
+        SmtpStub() throws IOException {
+            Thread acceptor = new Thread(this::accept, "smtp-stub");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return server.getLocalPort();
+        }
+
+        void reset() {
+            delivered.clear();
+            connections.clear();
+            attempts.clear();
+            rejections.clear();
+        }
+
+        // the next times RCPTs for the address are refused
+        void reject(String address, int times) {
+            rejections.put(address, times);
+        }
+
+        List<String> delivered() {
+            return new ArrayList<>(delivered);
+        }
+
+        List<Long> attempts(String address) {
+            return attempts.getOrDefault(address, Collections.emptyList());
+        }
+
+        List<Integer> messagesPerConnection() {
+            List<Integer> counts = new ArrayList<>();
+            for (AtomicInteger c : connections) counts.add(c.get());
+            return counts;
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+
+        private void accept() {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    Thread session = new Thread(() -> serve(socket), "smtp-stub-session");
+                    session.setDaemon(true);
+                    session.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            AtomicInteger messages = new AtomicInteger();
+            connections.add(messages);
+            try (Socket s = socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+                 PrintWriter out = new PrintWriter(s.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+                reply(out, "220 stub ESMTP");
+                List<String> recipients = new ArrayList<>();
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+                    switch (command) {
+                        case "EHLO":
+                        case "HELO":
+                        case "NOOP":
+                            reply(out, "250 stub");
+                            break;
+                        case "MAIL":
+                        case "RSET":
+                            recipients.clear();
+                            reply(out, "250 OK");
+                            break;
+                        case "RCPT":
+                            String address = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+                            attempts.computeIfAbsent(address, a -> new CopyOnWriteArrayList<>()).add(System.currentTimeMillis());
+                            if (rejections.getOrDefault(address, 0) > 0) {
+                                rejections.merge(address, -1, Integer::sum);
+                                reply(out, "550 mailbox unavailable");
+                            } else {
+                                recipients.add(address);
+                                reply(out, "250 OK");
+                            }
+                            break;
+                        case "DATA":
+                            reply(out, "354 end with <CRLF>.<CRLF>");
+                            while ((line = in.readLine()) != null && !line.equals(".")) {
+                                // message content is not checked
+                            }
+                            delivered.addAll(recipients);
+                            messages.incrementAndGet();
+                            recipients.clear();
+                            reply(out, "250 queued");
+                            break;
+                        case "QUIT":
+                            reply(out, "221 bye");
+                            return;
+                        default:
+                            reply(out, "502 not implemented");
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // client went away
+            }
+        }
+
+        private static void reply(PrintWriter out, String line) {
+            out.print(line + "\r\n");
+            out.flush();
+        }
+    }
+}
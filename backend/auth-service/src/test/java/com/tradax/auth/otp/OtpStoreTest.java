@@ -0,0 +1,131 @@
+package com.tradax.auth.otp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tradax.auth.model.OtpCode;
+import com.tradax.auth.repository.OtpCodeRepository;
+
+/**
+ * {@link OtpStore} with a short tick: codes match until invalidated, wrong guesses lock a code,
+ * a new code replaces the old one, expired codes are reported and swept, and persistent codes are
+ * written through and reloaded with their attempts.
+ */
+class OtpStoreTest {
+
+    private static final String EMAIL = "a@tradax.local";
+
+    private OtpStore store;
+
+    @AfterEach
+    void stop() {
+        if (store != null) store.stop();
+    }
+
+    @Test
+    void codesMatchUntilInvalidated() {
+        store = store(10, 3_600_000, null);
+        String code = store.issue(EMAIL, OtpStore.Purpose.VERIFY_EMAIL);
+        assertEquals(6, code.length());
+
+        assertEquals(OtpStore.Result.MATCH, store.check(EMAIL, OtpStore.Purpose.VERIFY_EMAIL, code));
+        // checking does not use the code up, and purposes are kept apart
+        assertEquals(OtpStore.Result.MATCH, store.check(EMAIL, OtpStore.Purpose.VERIFY_EMAIL, code));
+        assertEquals(OtpStore.Result.NONE, store.check(EMAIL, OtpStore.Purpose.RESET_PASSWORD, code));
+        assertEquals(OtpStore.Result.NONE, store.check(EMAIL, OtpStore.Purpose.VERIFY_EMAIL, null));
+
+        store.invalidate(EMAIL, OtpStore.Purpose.VERIFY_EMAIL);
+        assertEquals(OtpStore.Result.NONE, store.check(EMAIL, OtpStore.Purpose.VERIFY_EMAIL, code));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void wrongGuessesLockTheCodeUntilANewOne() {
+        store = store(10, 3_600_000, null);
+        String code = store.issue(EMAIL, OtpStore.Purpose.RESET_PASSWORD);
+        String wrong = code.equals("999999") ? "100000" : "999999";
+        for (int i = 1; i < 5; i++) {
+            assertEquals(OtpStore.Result.MISMATCH, store.check(EMAIL, OtpStore.Purpose.RESET_PASSWORD, wrong));
+        }
+        assertEquals(OtpStore.Result.TOO_MANY_ATTEMPTS, store.check(EMAIL, OtpStore.Purpose.RESET_PASSWORD, wrong));
+        assertEquals(OtpStore.Result.TOO_MANY_ATTEMPTS, store.check(EMAIL, OtpStore.Purpose.RESET_PASSWORD, code));
+
+        String next = store.issue(EMAIL, OtpStore.Purpose.RESET_PASSWORD);
+        assertEquals(OtpStore.Result.MATCH, store.check(EMAIL, OtpStore.Purpose.RESET_PASSWORD, next));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void expiredCodesAreReportedOnce() {
+        store = store(0, 3_600_000, null);
+        String code = store.issue(EMAIL, OtpStore.Purpose.VERIFY_EMAIL);
+        assertEquals(OtpStore.Result.EXPIRED, store.check(EMAIL, OtpStore.Purpose.VERIFY_EMAIL, code));
+        assertEquals(OtpStore.Result.NONE, store.check(EMAIL, OtpStore.Purpose.VERIFY_EMAIL, code));
+    }
+
+    @Test
+    void sweeperDropsExpiredCodes() throws InterruptedException {
+        store = store(0, 10, null);
+        for (int i = 0; i < 100; i++) store.issue(i + EMAIL, OtpStore.Purpose.VERIFY_EMAIL);
+        for (int i = 0; i < 500 && store.size() > 0; i++) Thread.sleep(10);
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void persistentCodesAreWrittenAndReloaded() throws Exception {
+        OtpCodeRepository repository = mock(OtpCodeRepository.class);
+        doReturn(Optional.empty()).when(repository).findByEmailAndPurpose(EMAIL, "VERIFY_EMAIL");
+        store = store(10, 3_600_000, repository);
+        store.issue(EMAIL, OtpStore.Purpose.VERIFY_EMAIL);
+        ArgumentCaptor<OtpCode> saved = ArgumentCaptor.forClass(OtpCode.class);
+        verify(repository).save(saved.capture());
+        assertEquals(64, saved.getValue().getCodeHash().length());
+        assertEquals(0, saved.getValue().getAttempts());
+        store.stop();
+
+        // a restart finds a known code with four wrong guesses already made
+        OtpCode row = new OtpCode(EMAIL, "VERIFY_EMAIL");
+        row.setCodeHash(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(("VERIFY_EMAIL:" + EMAIL + ":123456").getBytes(StandardCharsets.UTF_8))));
+        row.setExpiresAt(Instant.now().plusSeconds(600));
+        row.setAttempts(4);
+        doReturn(List.of(row)).when(repository).findByExpiresAtAfter(any());
+        store = store(10, 3_600_000, repository);
+
+        assertEquals(1, store.size());
+        assertEquals(OtpStore.Result.MATCH, store.check(EMAIL, OtpStore.Purpose.VERIFY_EMAIL, "123456"));
+        assertEquals(OtpStore.Result.TOO_MANY_ATTEMPTS, store.check(EMAIL, OtpStore.Purpose.VERIFY_EMAIL, "654321"));
+        verify(repository).updateAttempts(EMAIL, "VERIFY_EMAIL", 5);
+
+        store.invalidate(EMAIL, OtpStore.Purpose.VERIFY_EMAIL);
+        verify(repository).deleteByEmailAndPurpose(EMAIL, "VERIFY_EMAIL");
+        assertEquals(0, store.size());
+    }
+
+    private static OtpStore store(int ttlMinutes, long tickMs, OtpCodeRepository repository) {
+        OtpStore store = new OtpStore();
+        ReflectionTestUtils.setField(store, "otpCodeRepository", repository);
+        ReflectionTestUtils.setField(store, "ttlMinutes", ttlMinutes);
+        ReflectionTestUtils.setField(store, "maxAttempts", 5);
+        ReflectionTestUtils.setField(store, "persistent", repository != null);
+        ReflectionTestUtils.setField(store, "tickMs", tickMs);
+        ReflectionTestUtils.setField(store, "wheelSlots", 8);
+        store.start();
+        return store;
+    }
+}
@@ -0,0 +1,69 @@
+package com.tradax.auth.otp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link TimingWheel} driven with explicit times: keys come round once their tick has passed, kept
+ * keys come round again a revolution later, and a long pause sweeps every slot once.
+ */
+class TimingWheelTest {
+
+    @Test
+    void keysComeRoundOnceTheirTickHasPassed() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 1000);
+        wheel.schedule("a", 1250);
+        wheel.schedule("b", 1420);
+
+        assertEquals(List.of(), advance(wheel, 1299, false));
+        assertEquals(List.of("a"), advance(wheel, 1300, false));
+        assertEquals(List.of(), advance(wheel, 1300, false));
+        assertEquals(List.of("b"), advance(wheel, 1599, false));
+    }
+
+    @Test
+    void pastDeadlinesGoToTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 1000);
+        advance(wheel, 1500, false);
+        wheel.schedule("late", 200);
+        assertEquals(List.of(), advance(wheel, 1599, false));
+        assertEquals(List.of("late"), advance(wheel, 1600, false));
+    }
+
+    @Test
+    void keptKeysComeRoundEveryRevolution() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 4, 0);
+        // further out than one revolution: seen early, kept, seen again
+        wheel.schedule("far", 650);
+        assertEquals(List.of("far"), advance(wheel, 300, true));
+        assertEquals(List.of(), advance(wheel, 600, true));
+        assertEquals(List.of("far"), advance(wheel, 700, false));
+        assertEquals(List.of(), advance(wheel, 1200, false));
+    }
+
+    @Test
+    void longPauseSweepsEachSlotOnce() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(10, 4, 0);
+        for (int i = 0; i < 4; i++) wheel.schedule(i, i * 10L);
+        List<Integer> seen = new ArrayList<>();
+        wheel.advance(1_000_000, (key, now) -> {
+            seen.add(key);
+            return false;
+        });
+        seen.sort(null);
+        assertEquals(List.of(0, 1, 2, 3), seen);
+    }
+
+    private static List<String> advance(TimingWheel<String> wheel, long nowMs, boolean keep) {
+        List<String> seen = new ArrayList<>();
+        wheel.advance(nowMs, (key, now) -> {
+            seen.add(key);
+            return keep;
+        });
+        return seen;
+    }
+}
@@ -0,0 +1,97 @@
+package com.tradax.auth.password;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * {@link PooledPasswordEncoder} at low costs: hashes verify at the cost they were made with, the
+ * tuned cost stays within its bounds, and a full pool fails at once with
+ * {@link PasswordHashingBusyException} instead of queueing the caller.
+ */
+class PooledPasswordEncoderTest {
+
+    private PooledPasswordEncoder encoder;
+
+    @AfterEach
+    void stop() {
+        if (encoder != null) encoder.stop();
+    }
+
+    @Test
+    void hashesVerifyAtTheirOwnCost() {
+        encoder = encoder(4, 0);
+        String hash = encoder.encode("correct horse");
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(encoder.matches("correct horse", hash));
+        assertFalse(encoder.matches("wrong horse", hash));
+        assertFalse(encoder.upgradeEncoding(hash));
+
+        PooledPasswordEncoder stronger = encoder(5, 0);
+        try {
+            // older, cheaper hashes keep working and are flagged for rehashing
+            assertTrue(stronger.matches("correct horse", hash));
+            assertTrue(stronger.upgradeEncoding(hash));
+        } finally {
+            stronger.stop();
+        }
+    }
+
+    @Test
+    void tunedCostStaysWithinBounds() {
+        encoder = encoder(0, 0);
+        assertEquals(4, encoder.getStrength());
+        encoder.stop();
+
+        encoder = encoder(0, 3_600_000);
+        assertEquals(6, encoder.getStrength());
+        assertTrue(encoder.encode("x").startsWith("$2a$06$"));
+    }
+
+    @Test
+    void fullPoolFailsAtOnce() throws Exception {
+        encoder = encoder(4, 0);
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) ReflectionTestUtils.getField(encoder, "pool");
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // the only thread and the only queue slot are taken
+        pool.execute(() -> {
+            running.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        pool.execute(() -> { });
+
+        assertEquals("Too many password checks in progress, please retry",
+                assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("x")).getMessage());
+        assertThrows(PasswordHashingBusyException.class, () -> encoder.matches("x", "$2a$04$unused"));
+
+        release.countDown();
+        assertTrue(encoder.matches("x", encoder.encode("x")));
+    }
+
+    private static PooledPasswordEncoder encoder(int strength, long targetMs) {
+        PooledPasswordEncoder encoder = new PooledPasswordEncoder();
+        ReflectionTestUtils.setField(encoder, "threads", 1);
+        ReflectionTestUtils.setField(encoder, "queue", 1);
+        ReflectionTestUtils.setField(encoder, "strength", strength);
+        ReflectionTestUtils.setField(encoder, "targetMs", targetMs);
+        ReflectionTestUtils.setField(encoder, "minStrength", 4);
+        ReflectionTestUtils.setField(encoder, "maxStrength", 6);
+        encoder.init();
+        return encoder;
+    }
+}
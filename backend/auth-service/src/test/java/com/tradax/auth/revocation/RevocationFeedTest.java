@@ -0,0 +1,55 @@
+package com.tradax.auth.revocation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+
+/**
+ * {@code GET /auth/revocations} is only served to callers sending the shared service token.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "jwt.secret=RevocationFeedTestSecretThatIsLongEnoughForHmacSha256",
+    "spring.jpa.show-sql=false",
+    "auth.revocation.service-token=feed-test-token"
+})
+class RevocationFeedTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void feedNeedsTheServiceToken() throws Exception {
+        String jti = UUID.randomUUID().toString();
+        tokenRevocationService.revoke(jti, new Date(System.currentTimeMillis() + 3_600_000));
+
+        assertEquals(403, get(null).statusCode());
+        assertEquals(403, get("wrong-token").statusCode());
+
+        HttpResponse<String> allowed = get("feed-test-token");
+        assertEquals(200, allowed.statusCode());
+        assertTrue(allowed.body().contains(jti), allowed.body());
+    }
+
+    private HttpResponse<String> get(String token) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/auth/revocations?after=0"));
+        if (token != null) request.header("X-Service-Token", token);
+        return client.send(request.GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,65 @@
+package com.tradax.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.tradax.auth.model.User;
+import com.tradax.auth.repository.UserRepository;
+import com.tradax.auth.service.AuthService;
+
+/**
+ * Login as the auth service performs it: user lookup, BCrypt check and the last-login update.
+ * Dominated by the BCrypt cost factor of the configured {@link PasswordEncoder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthServiceBenchmark {
+
+    private static final String EMAIL = "bench@tradax.local";
+    private static final String PASSWORD = "correct horse battery staple";
+
+    ConfigurableApplicationContext context;
+    AuthService authService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContexts.auth();
+        authService = context.getBean(AuthService.class);
+
+        // saved directly: register() would send a verification mail
+        User user = new User("Bench", "User", EMAIL, context.getBean(PasswordEncoder.class).encode(PASSWORD));
+        user.setEmailVerified(true);
+        user.setCreatedAt(LocalDateTime.now());
+        user.setUpdatedAt(LocalDateTime.now());
+        context.getBean(UserRepository.class).save(user);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public User validateUser() {
+        return authService.validateUser(EMAIL, PASSWORD);
+    }
+}
@@ -0,0 +1,58 @@
+package com.tradax.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.tradax.auth.AuthServiceApplication;
+import com.tradax.wallet.WalletServiceApplication;
+
+/**
+ * Starts the service application contexts without a web server.
+ *
+ * Both services ship an {@code application.properties}; the benchmarks load their own
+ * {@code *-benchmark.properties} instead so the two never shadow each other on the classpath.
+ */
+final class BenchmarkContexts {
+
+    private BenchmarkContexts() {
+    }
+
+    static ConfigurableApplicationContext wallet(String... properties) {
+        return start(WalletServiceApplication.class, "wallet-benchmark", properties);
+    }
+
+    static ConfigurableApplicationContext auth(String... properties) {
+        return start(AuthServiceApplication.class, "auth-benchmark", properties);
+    }
+
+    private static ConfigurableApplicationContext start(Class<?> application, String configName, String... properties) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.config.name=" + configName);
+        for (String p : properties) args.add("--" + p);
+        return new SpringApplicationBuilder(application)
+            .web(WebApplicationType.NONE)
+            .run(args.toArray(new String[0]));
+    }
+
+    /**
+     * Wallet context for one of the persistence modes the suites compare:
+     * {@code db} (plain JPA), {@code journal} (group-committed transaction rows) or {@code ledger}
+     * (in-memory sharded balances, written behind).
+     */
+    static ConfigurableApplicationContext walletInMode(String mode) {
+        switch (mode) {
+            case "db":
+                return wallet("wallet.ledger.enabled=false", "wallet.journal.enabled=false");
+            case "journal":
+                return wallet("wallet.ledger.enabled=false", "wallet.journal.enabled=true");
+            case "ledger":
+                return wallet("wallet.ledger.enabled=true", "wallet.journal.enabled=false");
+            default:
+                throw new IllegalArgumentException("Unknown wallet mode: " + mode);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.tradax.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares two JMH JSON result files and fails when any benchmark got worse than the tolerance.
+ *
+ * Usage: {@code CompareResults <baseline.json> <current.json> [tolerancePercent]} (default 10).
+ * Benchmarks are matched by name and parameters; ones present in only one file are listed but
+ * never fail the comparison.
+ */
+public final class CompareResults {
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: CompareResults <baseline.json> <current.json> [tolerancePercent]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> current = read(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> e : current.entrySet()) {
+            JsonNode before = baseline.get(e.getKey());
+            JsonNode after = e.getValue();
+            String unit = after.path("primaryMetric").path("scoreUnit").asText();
+            double now = after.path("primaryMetric").path("score").asDouble();
+            if (before == null) {
+                System.out.printf("  new   %-80s %14.3f %s%n", e.getKey(), now, unit);
+                continue;
+            }
+            double was = before.path("primaryMetric").path("score").asDouble();
+            // throughput: higher is better; every other JMH mode reports time per operation
+            boolean higherIsBetter = "thrpt".equals(after.path("mode").asText());
+            double change = was == 0 ? 0 : (now - was) / was * 100;
+            double worse = higherIsBetter ? -change : change;
+            String verdict = worse > tolerance ? "WORSE" : worse < -tolerance ? "better" : "same";
+            if (worse > tolerance) regressions++;
+            System.out.printf("  %-6s%-80s %14.3f -> %14.3f %s (%+.1f%%)%n", verdict, e.getKey(), was, now, unit, change);
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) System.out.printf("  gone  %s%n", key);
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, tolerance);
+            System.exit(1);
+        }
+        System.out.println("No regressions beyond " + tolerance + "%");
+    }
+
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            results.put(key(run), run);
+        }
+        return results;
+    }
+
+    private static String key(JsonNode run) {
+        StringBuilder key = new StringBuilder(run.path("benchmark").asText().replace("com.tradax.benchmarks.", ""));
+        Map<String, String> params = new TreeMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = run.path("params").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> p = it.next();
+            params.put(p.getKey(), p.getValue().asText());
+        }
+        if (!params.isEmpty()) key.append(params);
+        return key.append(" [").append(run.path("mode").asText()).append(']').toString();
+    }
+}
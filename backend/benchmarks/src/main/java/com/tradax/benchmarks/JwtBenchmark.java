@@ -0,0 +1,115 @@
+package com.tradax.benchmarks;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Token parsing as done on every authenticated request, in both services' {@code JwtUtil}.
+ * The utilities are created directly with the values Spring would inject.
+ *
+ * {@code cacheEntries=0} disables the verified-token cache, so every call checks the signature;
+ * {@code filterPath*} is what the authentication filters do per request, including the revocation
+ * check against {@value #REVOKED} revoked tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final String SECRET = "TradaXSecretKeyThatIsVeryLongAndSecureForProductionUse2024";
+    private static final String EMAIL = "bench@tradax.local";
+    private static final int REVOKED = 10_000;
+
+    com.tradax.auth.util.JwtUtil authJwt;
+    com.tradax.wallet.util.JwtUtil walletJwt;
+    com.tradax.wallet.revocation.RevokedTokens walletRevoked;
+    String token;
+    String tokenId;
+
+    @Param({ "0", "10000" })
+    int cacheEntries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        authJwt = new com.tradax.auth.util.JwtUtil();
+        inject(authJwt, "secret", SECRET);
+        inject(authJwt, "jwtExpiration", TimeUnit.DAYS.toMillis(1));
+        inject(authJwt, "cacheMaxEntries", cacheEntries);
+        inject(authJwt, "revokedTokens", authRevoked());
+        init(authJwt);
+        walletJwt = new com.tradax.wallet.util.JwtUtil();
+        inject(walletJwt, "secret", SECRET);
+        inject(walletJwt, "cacheMaxEntries", cacheEntries);
+        walletRevoked = walletRevoked();
+        inject(walletJwt, "revokedTokens", walletRevoked);
+        init(walletJwt);
+        token = authJwt.generateToken(EMAIL);
+        tokenId = authJwt.extractClaim(token, c -> c.getId());
+    }
+
+    private static com.tradax.auth.revocation.RevokedTokens authRevoked() {
+        com.tradax.auth.revocation.RevokedTokens revoked = new com.tradax.auth.revocation.RevokedTokens();
+        inject(revoked, "expectedEntries", 100_000);
+        inject(revoked, "falsePositiveRate", 0.01);
+        init(revoked);
+        long expiresAt = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+        for (int i = 0; i < REVOKED; i++) revoked.add(UUID.randomUUID().toString(), expiresAt);
+        return revoked;
+    }
+
+    private static com.tradax.wallet.revocation.RevokedTokens walletRevoked() {
+        com.tradax.wallet.revocation.RevokedTokens revoked = new com.tradax.wallet.revocation.RevokedTokens();
+        inject(revoked, "expectedEntries", 100_000);
+        inject(revoked, "falsePositiveRate", 0.01);
+        init(revoked);
+        long expiresAt = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+        for (int i = 0; i < REVOKED; i++) revoked.add(UUID.randomUUID().toString(), expiresAt);
+        return revoked;
+    }
+
+    @Benchmark
+    public String authFilterPath() {
+        return authJwt.validateToken(token);
+    }
+
+    @Benchmark
+    public String walletFilterPath() {
+        return walletJwt.validateToken(token);
+    }
+
+    @Benchmark
+    public boolean walletRevocationCheck() {
+        return walletRevoked.isRevoked(tokenId);
+    }
+
+    static void init(Object target) {
+        Method m = ReflectionUtils.findMethod(target.getClass(), "init");
+        ReflectionUtils.makeAccessible(m);
+        ReflectionUtils.invokeMethod(m, target);
+    }
+
+    static void inject(Object target, String field, Object value) {
+        Field f = ReflectionUtils.findField(target.getClass(), field);
+        ReflectionUtils.makeAccessible(f);
+        ReflectionUtils.setField(f, target, value);
+    }
+}
@@ -0,0 +1,93 @@
+package com.tradax.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tradax.wallet.matching.Fills;
+import com.tradax.wallet.matching.MatchingEngine;
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.service.WalletService;
+
+/**
+ * Order book operations in isolation, on a book holding {@code levels} price levels per side with
+ * ten orders each. Every operation leaves the book the way it found it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchingEngineBenchmark {
+
+    private static final String ASSET = "BTC";
+    private static final String OWNER = "maker@tradax.local";
+    private static final long MID = Money.of(new BigDecimal("45000"));
+    private static final long TICK = Money.of(new BigDecimal("0.01"));
+    private static final long QTY = Money.of(new BigDecimal("0.01"));
+
+    @Param({ "10", "1000" })
+    public int levels;
+
+    MatchingEngine engine;
+    Fills fills;
+    long nextId;
+    boolean buy;
+
+    @Setup(Level.Trial)
+    public void fillBook() {
+        engine = new MatchingEngine();
+        fills = new Fills();
+        for (int level = 1; level <= levels; level++) {
+            for (int i = 0; i < 10; i++) {
+                engine.restore(ASSET, ++nextId, OWNER, true, MID - level * TICK, QTY, reserved(true, MID - level * TICK));
+                engine.restore(ASSET, ++nextId, OWNER, false, MID + level * TICK, QTY, QTY);
+            }
+        }
+    }
+
+    // takes the first order at the top of one side, then rests an identical order in its place
+    @Benchmark
+    public long takeTopAndReplenish() {
+        buy = !buy;
+        long price = buy ? MID + TICK : MID - TICK;
+        fills.clear();
+        long left = engine.submit(ASSET, 0, "taker@tradax.local", buy, price, QTY, reserved(buy, price), false, fills);
+        engine.restore(ASSET, ++nextId, OWNER, !buy, price, QTY, reserved(!buy, price));
+        return left + fills.size();
+    }
+
+    // a new price level behind the whole book is the most expensive place to insert
+    @Benchmark
+    public long restAndCancelBehindBook() {
+        long id = ++nextId;
+        fills.clear();
+        long price = MID - (levels + 1) * TICK;
+        engine.submit(ASSET, id, OWNER, true, price, QTY, reserved(true, price), true, fills);
+        return engine.cancel(ASSET, id, OWNER);
+    }
+
+    @Benchmark
+    public List<BigDecimal[]> depth() {
+        return engine.depth(ASSET, true, 20);
+    }
+
+    // what OrderService reserves for one order of QTY
+    private static long reserved(boolean buy, long price) {
+        return buy ? WalletService.buyCost(Money.multiply(QTY, price)) : QTY;
+    }
+}
@@ -0,0 +1,80 @@
+package com.tradax.benchmarks;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.tradax.wallet.model.Money;
+
+/**
+ * The arithmetic of one buy (cost with fee, balance check, both balance updates and the valuation
+ * delta) and of revaluing a position on a price tick, done with {@code BigDecimal} the way the
+ * wallet used to and with {@link Money} units the way it does now. Add {@code -prof gc} to
+ * {@code bench.args} to see the allocation per operation next to the time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final BigDecimal FEE_RATE = new BigDecimal("0.001");
+    private static final long FEE_RATE_UNITS = Money.of(FEE_RATE);
+
+    BigDecimal amount = new BigDecimal("0.015");
+    BigDecimal price = new BigDecimal("45123.45");
+    BigDecimal usdBalance = new BigDecimal("10000.00000000");
+    BigDecimal assetBalance = new BigDecimal("1.25000000");
+    BigDecimal nextPrice = new BigDecimal("45130.10");
+
+    long amountUnits = Money.of(amount);
+    long priceUnits = Money.of(price);
+    long usdUnits = Money.of(usdBalance);
+    long assetUnits = Money.of(assetBalance);
+    long nextPriceUnits = Money.of(nextPrice);
+
+    @Benchmark
+    public void buyBigDecimal(Blackhole bh) {
+        BigDecimal total = amount.multiply(price);
+        BigDecimal cost = total.add(total.multiply(FEE_RATE)).setScale(8, RoundingMode.HALF_UP);
+        if (usdBalance.compareTo(cost) < 0) throw new IllegalStateException();
+        BigDecimal quantity = amount.setScale(8, RoundingMode.HALF_UP);
+        bh.consume(usdBalance.subtract(cost));
+        bh.consume(assetBalance.add(quantity));
+        bh.consume(quantity.multiply(price).subtract(cost));
+    }
+
+    @Benchmark
+    public void buyMoney(Blackhole bh) {
+        long total = Money.multiply(amountUnits, priceUnits);
+        long cost = Money.add(total, Money.multiply(total, FEE_RATE_UNITS));
+        if (usdUnits < cost) throw new IllegalStateException();
+        bh.consume(usdUnits - cost);
+        bh.consume(Money.add(assetUnits, amountUnits));
+        bh.consume(Money.subtract(Money.multiply(amountUnits, priceUnits), cost));
+    }
+
+    @Benchmark
+    public BigDecimal revalueBigDecimal() {
+        return usdBalance.add(assetBalance.multiply(nextPrice.subtract(price)));
+    }
+
+    @Benchmark
+    public long revalueMoney() {
+        long before = Money.multiply(assetUnits, priceUnits);
+        return Money.add(usdUnits, Money.subtract(Money.multiply(assetUnits, nextPriceUnits), before));
+    }
+}
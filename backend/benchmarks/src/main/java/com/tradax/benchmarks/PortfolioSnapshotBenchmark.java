@@ -0,0 +1,89 @@
+package com.tradax.benchmarks;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.tradax.wallet.snapshot.PortfolioHistory;
+
+/**
+ * One full snapshot run over {@code users} accounts of five wallets each. Every invocation after the
+ * first appends to the rows the first one created, which is the steady state of an hourly job;
+ * divide by {@code users} for the cost per user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PortfolioSnapshotBenchmark {
+
+    private static final String[] ASSETS = { "BTC", "ETH", "ADA", "SOL", "USD" };
+
+    @Param({ "100000" })
+    public int users;
+
+    ConfigurableApplicationContext context;
+    PortfolioHistory history;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContexts.wallet("wallet.snapshots.interval-ms=0");
+        history = context.getBean(PortfolioHistory.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(10_000);
+        for (int u = 0; u < users; u++) {
+            for (String asset : ASSETS) {
+                rows.add(new Object[] { String.format("user-%08d@tradax.local", u), asset, asset, asset,
+                    BigDecimal.valueOf(u % 1000 + 1, 2), now, now });
+            }
+            if (rows.size() >= 10_000) {
+                insert(jdbc, rows);
+            }
+        }
+        insert(jdbc, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    // every run lands on a new minute, so it appends a sample instead of skipping the user
+    @Setup(Level.Invocation)
+    public void nextMinute() throws InterruptedException {
+        Thread.sleep(60_000 - System.currentTimeMillis() % 60_000 + 10);
+    }
+
+    @Benchmark
+    public int snapshotAll() {
+        return history.snapshotAll();
+    }
+
+    private static void insert(JdbcTemplate jdbc, List<Object[]> rows) {
+        jdbc.batchUpdate("INSERT INTO wallets (user_email, asset, symbol, name, balance, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+        rows.clear();
+    }
+}
@@ -0,0 +1,125 @@
+package com.tradax.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.model.Transaction;
+import com.tradax.wallet.service.WalletService;
+
+/**
+ * Eight threads depositing into and trading against the same wallet: the worst case for balance
+ * updates. Throughput here is bounded by how each mode serialises writes to one row. Every change
+ * that succeeds is tallied, and the trial fails if the final balances do not match the tallies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class WalletContentionBenchmark {
+
+    private static final String EMAIL = "contended@tradax.local";
+    private static final BigDecimal AMOUNT = new BigDecimal("0.001");
+    private static final BigDecimal PRICE = new BigDecimal("1000");
+    private static final long BUY_COST = WalletService.buyCost(Money.multiply(Money.of(AMOUNT), Money.of(PRICE)));
+    private static final long SELL_PROCEEDS = WalletService.sellProceeds(Money.multiply(Money.of(AMOUNT), Money.of(PRICE)));
+
+    @Param({ "db", "journal", "ledger" })
+    public String mode;
+
+    ConfigurableApplicationContext context;
+    WalletService walletService;
+
+    // balances at the start of the trial and the changes applied since, in units
+    long startEth;
+    long startBtc;
+    long startUsd;
+    final AtomicLong ethDelta = new AtomicLong();
+    final AtomicLong btcDelta = new AtomicLong();
+    final AtomicLong usdDelta = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContexts.walletInMode(mode);
+        walletService = context.getBean(WalletService.class);
+        walletService.getUserWallets(EMAIL);
+        startEth = balance("ETH");
+        startBtc = balance("BTC");
+        startUsd = balance("USD");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        try {
+            check("ETH", startEth + ethDelta.get());
+            check("BTC", startBtc + btcDelta.get());
+            check("USD", startUsd + usdDelta.get());
+        } finally {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public Transaction depositSameWallet() {
+        Transaction t = walletService.deposit(EMAIL, "ETH", AMOUNT);
+        ethDelta.addAndGet(Money.of(AMOUNT));
+        return t;
+    }
+
+    // each thread alternates buys and sells, so both legs of both kinds of trade are contended
+    @Benchmark
+    public Transaction tradeSameWallet(Trader trader) {
+        boolean buy = trader.buyNext;
+        Transaction t;
+        try {
+            t = walletService.executeTrade(EMAIL, buy ? "buy" : "sell", "BTC", AMOUNT, PRICE);
+        } catch (RuntimeException e) {
+            // out of USD or BTC: nothing changed, try the other side
+            trader.buyNext = !buy;
+            return null;
+        }
+        btcDelta.addAndGet(buy ? Money.of(AMOUNT) : -Money.of(AMOUNT));
+        usdDelta.addAndGet(buy ? -BUY_COST : SELL_PROCEEDS);
+        trader.buyNext = !buy;
+        return t;
+    }
+
+    @State(Scope.Thread)
+    public static class Trader {
+        boolean buyNext = true;
+    }
+
+    private long balance(String asset) {
+        return walletService.getUserWallets(EMAIL).stream()
+                .filter(w -> w.getAsset().equals(asset))
+                .mapToLong(w -> w.getBalanceUnits())
+                .findFirst().orElse(0);
+    }
+
+    private void check(String asset, long expected) {
+        long actual = balance(asset);
+        if (actual != expected)
+            throw new IllegalStateException(asset + " balance is " + Money.toBigDecimal(actual) + " after the trial, expected "
+                    + Money.toBigDecimal(expected));
+    }
+}
@@ -0,0 +1,108 @@
+package com.tradax.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.tradax.wallet.model.Transaction;
+import com.tradax.wallet.model.Wallet;
+import com.tradax.wallet.service.BatchOperation;
+import com.tradax.wallet.service.BatchResult;
+import com.tradax.wallet.service.WalletService;
+
+/**
+ * Single-user latency of the wallet hot paths against in-memory H2, per persistence mode.
+ * Every benchmark thread works on its own account, so there is no contention between threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WalletServiceBenchmark {
+
+    private static final BigDecimal TRADE_AMOUNT = new BigDecimal("0.001");
+    private static final BigDecimal TRADE_PRICE = new BigDecimal("45000.00");
+    private static final int BATCH = 100;
+    // alternating buys and sells, like executeTrade below
+    private static final List<BatchOperation> TRADE_BATCH = new ArrayList<>();
+
+    static {
+        for (int i = 0; i < BATCH; i++) {
+            TRADE_BATCH.add(new BatchOperation(i % 2 == 0 ? "buy" : "sell", "BTC", TRADE_AMOUNT, TRADE_PRICE));
+        }
+    }
+
+    @Param({ "db", "journal", "ledger" })
+    public String mode;
+
+    ConfigurableApplicationContext context;
+    WalletService walletService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContexts.walletInMode(mode);
+        walletService = context.getBean(WalletService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Account {
+        String email;
+        boolean buy;
+
+        @Setup(Level.Trial)
+        public void open(WalletServiceBenchmark benchmark) {
+            email = "bench-" + UUID.randomUUID() + "@tradax.local";
+            benchmark.walletService.getUserWallets(email);
+            benchmark.walletService.deposit(email, "USD", new BigDecimal("1000000"));
+        }
+    }
+
+    // alternates buy and sell so balances stay stable over millions of invocations
+    @Benchmark
+    public Transaction executeTrade(Account account) {
+        account.buy = !account.buy;
+        return walletService.executeTrade(account.email, account.buy ? "buy" : "sell", "BTC", TRADE_AMOUNT, TRADE_PRICE);
+    }
+
+    // per trade, directly comparable with executeTrade
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<BatchResult> executeTradeBatch(Account account) {
+        return walletService.applyBatch(account.email, TRADE_BATCH);
+    }
+
+    @Benchmark
+    public BigDecimal calculateTotalPortfolioValue(Account account) {
+        return walletService.calculateTotalPortfolioValue(account.email);
+    }
+
+    @Benchmark
+    public List<Wallet> getUserWallets(Account account) {
+        return walletService.getUserWallets(account.email);
+    }
+}
@@ -0,0 +1,143 @@
+package com.tradax.wallet.async;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Where controller work runs. By default it runs on the servlet thread as before. With
+ * {@code wallet.async.enabled} it runs on one of two bounded pools, CPU-bound work (valuation,
+ * lot replay) on one sized to the cores and database work on one sized to the connection pool. The
+ * servlet thread is released right away, so a backlog of expensive requests does not hold up cheap
+ * ones served synchronously. When a pool's queue is full the request is answered at once with 503 and
+ * {@code Retry-After} instead of waiting.
+ *
+ * The caller's security context and request attributes are carried over to the pool thread, so
+ * handlers can use {@link SecurityContextHolder} and request-scoped beans unchanged.
+ */
+@Component
+public class RequestExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestExecutor.class);
+
+    @Value("${wallet.async.enabled:false}")
+    private boolean enabled;
+
+    // 0 = one per available core
+    @Value("${wallet.async.cpu-threads:0}")
+    private int cpuThreads;
+
+    @Value("${wallet.async.cpu-queue:64}")
+    private int cpuQueue;
+
+    @Value("${wallet.async.io-threads:10}")
+    private int ioThreads;
+
+    @Value("${wallet.async.io-queue:256}")
+    private int ioQueue;
+
+    @Value("${wallet.async.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    private ThreadPoolExecutor cpu;
+    private ThreadPoolExecutor io;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) return;
+        cpu = pool("request-cpu", cpuThreads > 0 ? cpuThreads : Runtime.getRuntime().availableProcessors(), cpuQueue);
+        io = pool("request-io", ioThreads, ioQueue);
+        logger.info("Async request execution enabled: {} CPU threads, {} I/O threads", cpu.getCorePoolSize(), io.getCorePoolSize());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (cpu != null) cpu.shutdown();
+        if (io != null) io.shutdown();
+    }
+
+    /**
+     * Runs CPU-bound handler work.
+     */
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> cpu(Supplier<ResponseEntity<Map<String, Object>>> work) {
+        return run(cpu, work);
+    }
+
+    /**
+     * Runs handler work that mostly waits on the database.
+     */
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> io(Supplier<ResponseEntity<Map<String, Object>>> work) {
+        return run(io, work);
+    }
+
+    private CompletableFuture<ResponseEntity<Map<String, Object>>> run(ThreadPoolExecutor pool,
+                                                                       Supplier<ResponseEntity<Map<String, Object>>> work) {
+        if (pool == null) return CompletableFuture.completedFuture(work.get());
+
+        SecurityContext context = SecurityContextHolder.getContext();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        HttpServletRequest request = attributes instanceof ServletRequestAttributes
+                ? ((ServletRequestAttributes) attributes).getRequest() : null;
+        CompletableFuture<ResponseEntity<Map<String, Object>>> result = new CompletableFuture<>();
+        try {
+            pool.execute(() -> {
+                // the servlet thread's attributes end with its dispatch, so the task gets its own
+                ServletRequestAttributes taskAttributes = request != null ? new ServletRequestAttributes(request) : null;
+                SecurityContextHolder.setContext(context);
+                RequestContextHolder.setRequestAttributes(taskAttributes);
+                try {
+                    result.complete(work.get());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    if (taskAttributes != null) taskAttributes.requestCompleted();
+                    RequestContextHolder.resetRequestAttributes();
+                    SecurityContextHolder.clearContext();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.complete(busy());
+        }
+        return result;
+    }
+
+    private ResponseEntity<Map<String, Object>> busy() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Server is busy, please retry");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(response);
+    }
+
+    private static ThreadPoolExecutor pool(String name, int threads, int queue) {
+        AtomicInteger index = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queue), r -> {
+            Thread t = new Thread(r, name + "-" + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
@@ -0,0 +1,94 @@
+package com.tradax.wallet.controller;
+
+import com.tradax.wallet.market.MarketDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * CoinGecko market data proxied through {@link MarketDataService}. Bodies are CoinGecko's own,
+ * so the apps keep their mapping code; only the base URL changes.
+ */
+@RestController
+@RequestMapping("/wallet/market")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class MarketController {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketController.class);
+
+    @Autowired
+    private MarketDataService marketDataService;
+
+    @GetMapping("/coins/markets")
+    public ResponseEntity<?> getMarkets(@RequestParam(defaultValue = "10") int limit) {
+        return json(() -> marketDataService.getMarkets(limit));
+    }
+
+    @GetMapping("/coins/{id}")
+    public ResponseEntity<?> getCoin(@PathVariable String id) {
+        return json(() -> marketDataService.getCoin(id));
+    }
+
+    @GetMapping("/coins/{id}/market_chart")
+    public ResponseEntity<?> getMarketChart(@PathVariable String id, @RequestParam(defaultValue = "7") String days) {
+        return json(() -> marketDataService.getMarketChart(id, days));
+    }
+
+    @GetMapping("/coins/{id}/ohlc")
+    public ResponseEntity<?> getOhlc(@PathVariable String id, @RequestParam(defaultValue = "7") String days) {
+        return json(() -> marketDataService.getOhlc(id, days));
+    }
+
+    @GetMapping("/trending")
+    public ResponseEntity<?> getTrending() {
+        return json(marketDataService::getTrending);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam String query) {
+        return json(() -> marketDataService.search(query));
+    }
+
+    @GetMapping("/global")
+    public ResponseEntity<?> getGlobal() {
+        return json(marketDataService::getGlobal);
+    }
+
+    @GetMapping("/simple/price")
+    public ResponseEntity<?> getSimplePrices(@RequestParam String ids,
+                                             @RequestParam(name = "vs_currencies", defaultValue = "usd") String currencies) {
+        return json(() -> marketDataService.getSimplePrices(ids, currencies));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("upstreamRequests", marketDataService.getUpstreamRequests());
+        response.put("cachedResponses", marketDataService.getCachedResponses());
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<?> json(Supplier<String> body) {
+        try {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body.get());
+        } catch (IllegalArgumentException e) {
+            return errorResponse(e, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            logger.error("Error fetching market data", e);
+            return errorResponse(e, HttpStatus.BAD_GATEWAY);
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> errorResponse(Exception e, HttpStatus status) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return ResponseEntity.status(status).body(response);
+    }
+}
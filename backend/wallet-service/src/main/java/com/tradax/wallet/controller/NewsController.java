@@ -0,0 +1,85 @@
+package com.tradax.wallet.controller;
+
+import com.tradax.wallet.news.NewsPage;
+import com.tradax.wallet.news.NewsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The crypto news feed, served from {@link NewsService}'s in-memory index. Responses carry an
+ * ETag; a request whose {@code If-None-Match} still matches gets 304 without a body.
+ */
+@RestController
+@RequestMapping("/wallet/news")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class NewsController {
+
+    @Autowired
+    private NewsService newsService;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getNews(@RequestParam(required = false) String category,
+                                                       @RequestParam(required = false) String coin,
+                                                       @RequestParam(required = false) String q,
+                                                       @RequestParam(required = false) String since,
+                                                       @RequestParam(defaultValue = "1") int page,
+                                                       @RequestParam(defaultValue = "10") int size,
+                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        try {
+            String feed = newsService.feedKey(category, coin);
+            NewsPage result = newsService.getPage(feed, parseSince(since), q, page, size);
+            if (matches(ifNoneMatch, result.getEtag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(result.getEtag()).build();
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("feed", feed);
+            response.put("data", result.getArticles());
+            response.put("page", page);
+            response.put("hasMore", result.isHasMore());
+            response.put("updatedAt", result.getUpdatedAt());
+            return ResponseEntity.ok().eTag(result.getEtag()).body(response);
+        } catch (IllegalArgumentException e) {
+            return errorResponse(e, e.getMessage().startsWith("Unknown news feed") ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping("/feeds")
+    public ResponseEntity<Map<String, Object>> getFeeds() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("feeds", newsService.getFeeds());
+        response.put("articles", newsService.getArticleCount());
+        return ResponseEntity.ok(response);
+    }
+
+    private static Instant parseSince(String since) {
+        if (since == null || since.isBlank()) return null;
+        try {
+            return since.chars().allMatch(Character::isDigit) ? Instant.ofEpochMilli(Long.parseLong(since)) : Instant.parse(since);
+        } catch (DateTimeParseException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid since, expected epoch millis or an ISO-8601 instant");
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals("*") || c.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private ResponseEntity<Map<String, Object>> errorResponse(Exception e, HttpStatus status) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return ResponseEntity.status(status).body(response);
+    }
+}
@@ -1,22 +1,49 @@
 package com.tradax.wallet.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tradax.wallet.async.RequestExecutor;
+import com.tradax.wallet.idempotency.IdempotencyStore;
+import com.tradax.wallet.model.TradeOrder;
 import com.tradax.wallet.model.Transaction;
-import com.tradax.wallet.model.Wallet;
+import com.tradax.wallet.price.Candle;
+import com.tradax.wallet.price.CandleInterval;
+import com.tradax.wallet.price.CandleStore;
+import com.tradax.wallet.push.PushHub;
+import com.tradax.wallet.service.BatchOperation;
+import com.tradax.wallet.service.BatchResult;
+import com.tradax.wallet.service.HistoryPage;
+import com.tradax.wallet.service.OrderExecution;
+import com.tradax.wallet.service.OrderService;
+import com.tradax.wallet.service.PortfolioSnapshot;
+import com.tradax.wallet.service.PortfolioSnapshots;
 import com.tradax.wallet.service.WalletService;
+import com.tradax.wallet.stats.CostBasis;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/wallet")
@@ -28,6 +55,27 @@ public class WalletController {
     @Autowired
     private WalletService walletService;
 
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PortfolioSnapshots portfolioSnapshots;
+
+    @Autowired
+    private RequestExecutor requestExecutor;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private CandleStore candleStore;
+
+    @Autowired
+    private PushHub pushHub;
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
         Map<String, String> response = new HashMap<>();
@@ -37,135 +85,404 @@ public class WalletController {
     }
 
     @GetMapping("/balance")
-    public ResponseEntity<Map<String, Object>> getBalances() {
-        try {
-            String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-            List<Wallet> wallets = walletService.getUserWallets(userEmail);
-            BigDecimal totalValue = walletService.calculateTotalPortfolioValue(userEmail);
-            Map<String, Object> response = new HashMap<>();
-            response.put("balances", wallets);
-            response.put("totalValue", totalValue);
-            response.put("currency", "USD");
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            logger.error("Error fetching balances", e);
-            return errorResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getBalances() {
+        return requestExecutor.io(() -> {
+            try {
+                String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+                PortfolioSnapshot snapshot = portfolioSnapshots.get(userEmail);
+                Map<String, Object> response = new HashMap<>();
+                response.put("balances", snapshot.getWallets());
+                response.put("totalValue", snapshot.getTotalValue());
+                response.put("currency", "USD");
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                logger.error("Error fetching balances", e);
+                return errorResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+        });
     }
 
+    // Mutations accept an optional Idempotency-Key header; a retry with the same key gets the
+    // original response instead of running the operation again.
+
     @PostMapping("/deposit")
-    public ResponseEntity<Map<String, Object>> deposit(@Valid @RequestBody DepositRequest request) {
-        try {
-            String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-            Transaction transaction = walletService.deposit(userEmail, request.getAsset(), request.getAmount());
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "Deposit successful");
-            response.put("transaction", transaction);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            logger.error("Deposit failed", e);
-            return errorResponse(e, HttpStatus.BAD_REQUEST);
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> deposit(@Valid @RequestBody DepositRequest request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return requestExecutor.io(() -> {
+            try {
+                String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+                return idempotencyStore.execute(userEmail, idempotencyKey,
+                        fingerprint("deposit", request.getAsset(), request.getAmount()), () -> {
+                    Transaction transaction = walletService.deposit(userEmail, request.getAsset(), request.getAmount());
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("message", "Deposit successful");
+                    response.put("transaction", transaction);
+                    return ResponseEntity.ok(response);
+                });
+            } catch (Exception e) {
+                logger.error("Deposit failed", e);
+                return errorResponse(e, HttpStatus.BAD_REQUEST);
+            }
+        });
     }
 
     @PostMapping("/withdraw")
-    public ResponseEntity<Map<String, Object>> withdraw(@Valid @RequestBody WithdrawRequest request) {
-        try {
-            String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-            Transaction transaction = walletService.withdraw(userEmail, request.getAsset(), request.getAmount());
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "Withdrawal successful");
-            response.put("transaction", transaction);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            logger.error("Withdrawal failed", e);
-            return errorResponse(e, HttpStatus.BAD_REQUEST);
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> withdraw(@Valid @RequestBody WithdrawRequest request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return requestExecutor.io(() -> {
+            try {
+                String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+                return idempotencyStore.execute(userEmail, idempotencyKey,
+                        fingerprint("withdraw", request.getAsset(), request.getAmount()), () -> {
+                    Transaction transaction = walletService.withdraw(userEmail, request.getAsset(), request.getAmount());
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("message", "Withdrawal successful");
+                    response.put("transaction", transaction);
+                    return ResponseEntity.ok(response);
+                });
+            } catch (Exception e) {
+                logger.error("Withdrawal failed", e);
+                return errorResponse(e, HttpStatus.BAD_REQUEST);
+            }
+        });
     }
 
     @PostMapping("/trade")
-    public ResponseEntity<Map<String, Object>> trade(@Valid @RequestBody TradeRequest request) {
-        try {
-            String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-            Transaction transaction = walletService.executeTrade(userEmail, request.getType(), request.getAsset(), request.getAmount(), request.getPrice());
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "Trade executed successfully");
-            response.put("transaction", transaction);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            logger.error("Trade execution failed", e);
-            return errorResponse(e, HttpStatus.BAD_REQUEST);
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> trade(@Valid @RequestBody TradeRequest request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return requestExecutor.io(() -> {
+            try {
+                String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+                return idempotencyStore.execute(userEmail, idempotencyKey, fingerprint("trade", request.getType(),
+                        request.getOrderType(), request.getAsset(), request.getAmount(), request.getPrice()), () -> {
+                    OrderExecution execution = orderService.placeOrder(userEmail, request.getType(), request.getOrderType(),
+                            request.getAsset(), request.getAmount(), request.getPrice());
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("message", execution.getOrder() == null ? "Trade executed successfully" : "Order placed");
+                    response.put("transaction", execution.getLastFill());
+                    response.put("fills", execution.getFills());
+                    if (execution.getOrder() != null) response.put("order", execution.getOrder());
+                    return ResponseEntity.ok(response);
+                });
+            } catch (Exception e) {
+                logger.error("Trade execution failed", e);
+                return errorResponse(e, HttpStatus.BAD_REQUEST);
+            }
+        });
+    }
+
+    // Batches are validated as a whole, then applied in chunks; the response reports every operation.
+
+    @PostMapping("/deposit/batch")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> depositBatch(@Valid @RequestBody DepositBatchRequest request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return requestExecutor.io(() -> {
+            try {
+                String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+                List<BatchOperation> operations = new ArrayList<>(request.getDeposits().size());
+                List<Object> fields = new ArrayList<>();
+                for (DepositRequest d : request.getDeposits()) {
+                    operations.add(BatchOperation.deposit(d.getAsset(), d.getAmount()));
+                    fields.add(d.getAsset());
+                    fields.add(d.getAmount());
+                }
+                return idempotencyStore.execute(userEmail, idempotencyKey, fingerprint("deposit/batch", fields.toArray()),
+                        () -> batchResponse(walletService.applyBatch(userEmail, operations)));
+            } catch (Exception e) {
+                logger.error("Batch deposit failed", e);
+                return errorResponse(e, HttpStatus.BAD_REQUEST);
+            }
+        });
+    }
+
+    // Market trades only, each filled by the house at the feed price if that is no worse than its own
+    @PostMapping("/trade/batch")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> tradeBatch(@Valid @RequestBody TradeBatchRequest request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return requestExecutor.io(() -> {
+            try {
+                String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+                List<BatchOperation> operations = new ArrayList<>(request.getTrades().size());
+                List<Object> fields = new ArrayList<>();
+                for (TradeRequest t : request.getTrades()) {
+                    if (t.getOrderType() != null && !"market".equalsIgnoreCase(t.getOrderType()))
+                        throw new RuntimeException("Only market trades can be batched");
+                    operations.add(new BatchOperation(t.getType(), t.getAsset(), t.getAmount(), t.getPrice()));
+                    fields.add(t.getType());
+                    fields.add(t.getAsset());
+                    fields.add(t.getAmount());
+                    fields.add(t.getPrice());
+                }
+                return idempotencyStore.execute(userEmail, idempotencyKey, fingerprint("trade/batch", fields.toArray()),
+                        () -> batchResponse(walletService.applyBatch(userEmail, operations)));
+            } catch (Exception e) {
+                logger.error("Batch trade failed", e);
+                return errorResponse(e, HttpStatus.BAD_REQUEST);
+            }
+        });
+    }
+
+    @GetMapping("/orders")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getOpenOrders() {
+        return requestExecutor.io(() -> {
+            try {
+                String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+                List<TradeOrder> orders = orderService.getOpenOrders(userEmail);
+                Map<String, Object> response = new HashMap<>();
+                response.put("orders", orders);
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                logger.error("Error fetching open orders", e);
+                return errorResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+        });
+    }
+
+    @DeleteMapping("/orders/{id}")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> cancelOrder(@PathVariable Long id) {
+        return requestExecutor.io(() -> {
+            try {
+                String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+                TradeOrder order = orderService.cancelOrder(userEmail, id);
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "Order cancelled");
+                response.put("order", order);
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                logger.error("Order cancellation failed", e);
+                return errorResponse(e, HttpStatus.BAD_REQUEST);
+            }
+        });
+    }
+
+    @GetMapping("/orderbook/{asset}")
+    public ResponseEntity<Map<String, Object>> getOrderBook(@PathVariable String asset,
+                                                            @RequestParam(defaultValue = "20") int depth) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("asset", asset.toUpperCase());
+        response.put("bids", orderService.getDepth(asset, true, depth));
+        response.put("asks", orderService.getDepth(asset, false, depth));
+        return ResponseEntity.ok(response);
     }
 
     @GetMapping("/history")
-    public ResponseEntity<Map<String, Object>> getTransactionHistory(@RequestParam(defaultValue = "0") int page,
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getTransactionHistory(@RequestParam(defaultValue = "0") int page,
                                                                        @RequestParam(defaultValue = "20") int size) {
-        try {
-            String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-            Page<Transaction> transactions = walletService.getTransactionHistory(userEmail, page, size);
-            Map<String, Object> response = new HashMap<>();
-            response.put("transactions", transactions.getContent());
-            response.put("totalElements", transactions.getTotalElements());
-            response.put("totalPages", transactions.getTotalPages());
-            response.put("currentPage", page);
-            response.put("size", size);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            logger.error("Error fetching transaction history", e);
-            return errorResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+        return requestExecutor.io(() -> {
+            try {
+                String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+                Page<Transaction> transactions = walletService.getTransactionHistory(userEmail, page, size);
+                Map<String, Object> response = new HashMap<>();
+                response.put("transactions", transactions.getContent());
+                response.put("totalElements", transactions.getTotalElements());
+                response.put("totalPages", transactions.getTotalPages());
+                response.put("currentPage", page);
+                response.put("size", size);
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                logger.error("Error fetching transaction history", e);
+                return errorResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+        });
+    }
+
+    // ?cursor= (empty) starts at the newest row; each response carries the cursor of the next page
+    @GetMapping(value = "/history", params = "cursor")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getTransactionHistoryPage(@RequestParam String cursor,
+                                                                         @RequestParam(defaultValue = "20") int size) {
+        return requestExecutor.io(() -> {
+            try {
+                String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+                HistoryPage history = walletService.getTransactionHistory(userEmail, cursor, size);
+                Map<String, Object> response = new HashMap<>();
+                response.put("transactions", history.getTransactions());
+                response.put("nextCursor", history.getNextCursor());
+                response.put("size", size);
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                logger.error("Error fetching transaction history", e);
+                return errorResponse(e, HttpStatus.BAD_REQUEST);
+            }
+        });
+    }
+
+    // Whole history as NDJSON or server-sent events, written while the rows are read
+    @GetMapping(value = "/history", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamTransactionHistory(
+            @RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = MediaType.APPLICATION_NDJSON_VALUE) String accept) {
+        String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+        boolean sse = accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            walletService.streamTransactionHistory(userEmail, t -> {
+                try {
+                    if (sse) writer.write("data: ");
+                    writer.write(objectMapper.writeValueAsString(t));
+                    writer.write(sse ? "\n\n" : "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            // tells EventSource clients the stream is complete instead of letting them reconnect
+            if (sse) writer.write("event: end\ndata: {}\n\n");
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+            .contentType(sse ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_NDJSON)
+            .body(body);
     }
 
     @GetMapping("/portfolio")
-    public ResponseEntity<Map<String, Object>> getPortfolioSummary() {
-        try {
-            String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-            List<Wallet> wallets = walletService.getUserWallets(userEmail);
-            BigDecimal totalValue = walletService.calculateTotalPortfolioValue(userEmail);
-            Map<String, Object> performanceMetrics = walletService.getPortfolioPerformance(userEmail);
-            Map<String, Object> response = new HashMap<>();
-            response.put("wallets", wallets);
-            response.put("totalValue", totalValue);
-            response.put("performance", performanceMetrics);
-            response.put("currency", "USD");
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            logger.error("Error fetching portfolio summary", e);
-            return errorResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getPortfolioSummary() {
+        return requestExecutor.cpu(() -> {
+            try {
+                String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+                PortfolioSnapshot snapshot = portfolioSnapshots.get(userEmail);
+                Map<String, Object> performanceMetrics = walletService.getPortfolioPerformance(snapshot);
+                Map<String, Object> response = new HashMap<>();
+                response.put("wallets", snapshot.getWallets());
+                response.put("totalValue", snapshot.getTotalValue());
+                response.put("performance", performanceMetrics);
+                response.put("currency", "USD");
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                logger.error("Error fetching portfolio summary", e);
+                return errorResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+        });
     }
 
     @GetMapping("/trading-volume")
-    public ResponseEntity<Map<String, Object>> getTotalTradingVolume() {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getTotalTradingVolume() {
+        return requestExecutor.io(() -> {
+            try {
+                String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+                BigDecimal totalVolume = walletService.getTotalTradingVolume(userEmail);
+                Map<String, Object> response = new HashMap<>();
+                response.put("totalTradingVolume", totalVolume);
+                response.put("currency", "USD");
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                logger.error("Error fetching trading volume", e);
+                return errorResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+        });
+    }
+
+    @GetMapping("/profit-loss")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getProfitLoss() {
+        return requestExecutor.io(() -> {
+            try {
+                String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+                BigDecimal pnl = walletService.calculateProfitLoss(userEmail);
+                Map<String, Object> response = new HashMap<>();
+                response.put("profitLoss", pnl);
+                response.put("assets", walletService.getTradingStats(userEmail));
+                response.put("currency", "USD");
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                logger.error("Error fetching profit/loss", e);
+                return errorResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+        });
+    }
+
+    /**
+     * OHLCV candles of one asset, oldest first. {@code from}/{@code to} are epoch millis; without
+     * {@code from} the newest {@code limit} candles up to {@code to} (default now) are returned.
+     */
+    @GetMapping("/candles")
+    public ResponseEntity<Map<String, Object>> getCandles(@RequestParam String asset,
+                                                          @RequestParam(defaultValue = "1h") String interval,
+                                                          @RequestParam(required = false) Long from,
+                                                          @RequestParam(required = false) Long to,
+                                                          @RequestParam(defaultValue = "500") int limit) {
         try {
-            String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-            BigDecimal totalVolume = walletService.getTotalTradingVolume(userEmail);
+            CandleInterval width = CandleInterval.fromKey(interval);
+            int count = Math.max(1, Math.min(limit, width.getCapacity()));
+            long end = to != null ? to : System.currentTimeMillis();
+            long start = from != null ? from : end - count * width.getSeconds() * 1000;
+            List<Candle> candles = candleStore.getCandles(asset, width, start, end, count);
             Map<String, Object> response = new HashMap<>();
-            response.put("totalTradingVolume", totalVolume);
-            response.put("currency", "USD");
+            response.put("asset", asset.toUpperCase());
+            response.put("interval", width.getKey());
+            response.put("candles", candles);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            logger.error("Error fetching trading volume", e);
-            return errorResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
+            logger.error("Error fetching candles", e);
+            return errorResponse(e, HttpStatus.BAD_REQUEST);
         }
     }
 
-    @GetMapping("/profit-loss")
-    public ResponseEntity<Map<String, Object>> getProfitLoss() {
+    /**
+     * Server-sent events with the caller's balances ({@code balances}) and current prices
+     * ({@code prices}), pushed as they change. If the stream cannot be opened a single
+     * {@code error} event is sent and the stream is closed.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
         try {
-            String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-            BigDecimal pnl = walletService.calculateProfitLoss(userEmail);
-            Map<String, Object> response = new HashMap<>();
-            response.put("profitLoss", pnl);
-            response.put("currency", "USD");
-            return ResponseEntity.ok(response);
+            return pushHub.subscribe(userEmail);
         } catch (Exception e) {
-            logger.error("Error fetching profit/loss", e);
-            return errorResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
+            logger.warn("Could not open stream for {}: {}", userEmail, e.getMessage());
+            SseEmitter rejected = new SseEmitter();
+            try {
+                rejected.send(SseEmitter.event().name("error").data(Map.of("error", String.valueOf(e.getMessage())), MediaType.APPLICATION_JSON));
+                rejected.complete();
+            } catch (IOException | RuntimeException ignored) {
+                rejected.complete();
+            }
+            return rejected;
         }
     }
 
+    @GetMapping("/cost-basis")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getCostBasis() {
+        return requestExecutor.cpu(() -> {
+            try {
+                String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+                List<CostBasis> assets = walletService.getCostBasis(userEmail);
+                BigDecimal realized = BigDecimal.ZERO;
+                BigDecimal unrealized = BigDecimal.ZERO;
+                for (CostBasis c : assets) {
+                    realized = realized.add(c.getRealizedProfitLoss());
+                    unrealized = unrealized.add(c.getUnrealizedProfitLoss());
+                }
+                Map<String, Object> response = new HashMap<>();
+                response.put("method", walletService.getCostBasisMethod());
+                response.put("assets", assets);
+                response.put("realizedProfitLoss", realized);
+                response.put("unrealizedProfitLoss", unrealized);
+                response.put("currency", "USD");
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                logger.error("Error fetching cost basis", e);
+                return errorResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+        });
+    }
+
+    private ResponseEntity<Map<String, Object>> batchResponse(List<BatchResult> results) {
+        int succeeded = 0;
+        for (BatchResult r : results) if (r.isSuccess()) succeeded++;
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Batch processed");
+        response.put("results", results);
+        response.put("succeeded", succeeded);
+        response.put("failed", results.size() - succeeded);
+        return ResponseEntity.ok(response);
+    }
+
+    // what a request asked for, so a reused Idempotency-Key can be told apart from a retry
+    private static String fingerprint(String endpoint, Object... fields) {
+        StringBuilder sb = new StringBuilder(endpoint);
+        for (Object f : fields) {
+            sb.append('|').append(f instanceof BigDecimal ? ((BigDecimal) f).stripTrailingZeros().toPlainString() : f);
+        }
+        return sb.toString();
+    }
+
     private ResponseEntity<Map<String, Object>> errorResponse(Exception e, HttpStatus status) {
         Map<String, Object> response = new HashMap<>();
         response.put("error", e.getMessage());
@@ -200,6 +517,8 @@ public class WalletController {
         @javax.validation.constraints.NotBlank
         @javax.validation.constraints.Pattern(regexp = "buy|sell")
         private String type;
+        // market (default) or limit
+        private String orderType;
         @javax.validation.constraints.NotBlank
         private String asset;
         @javax.validation.constraints.NotNull
@@ -210,6 +529,8 @@ public class WalletController {
         private BigDecimal price;
         public String getType() { return type; }
         public void setType(String type) { this.type = type; }
+        public String getOrderType() { return orderType; }
+        public void setOrderType(String orderType) { this.orderType = orderType; }
         public String getAsset() { return asset; }
         public void setAsset(String asset) { this.asset = asset; }
         public BigDecimal getAmount() { return amount; }
@@ -217,4 +538,20 @@ public class WalletController {
         public BigDecimal getPrice() { return price; }
         public void setPrice(BigDecimal price) { this.price = price; }
     }
+
+    public static class DepositBatchRequest {
+        @javax.validation.constraints.NotEmpty
+        @Valid
+        private List<DepositRequest> deposits;
+        public List<DepositRequest> getDeposits() { return deposits; }
+        public void setDeposits(List<DepositRequest> deposits) { this.deposits = deposits; }
+    }
+
+    public static class TradeBatchRequest {
+        @javax.validation.constraints.NotEmpty
+        @Valid
+        private List<TradeRequest> trades;
+        public List<TradeRequest> getTrades() { return trades; }
+        public void setTrades(List<TradeRequest> trades) { this.trades = trades; }
+    }
 }
@@ -0,0 +1,323 @@
+package com.tradax.wallet.idempotency;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.tradax.wallet.model.IdempotencyRecord;
+import com.tradax.wallet.repository.IdempotencyRecordRepository;
+
+/**
+ * Remembers the responses to requests sent with an {@code Idempotency-Key} header, so a client
+ * that retries one gets the original answer and the operation does not run twice.
+ *
+ * Keys are scoped to the user. Responses stay in a bounded in-memory map until their TTL runs out,
+ * oldest first once it is full, and a replay is served from there without touching the database.
+ * A duplicate that arrives while the first request is still running waits for it and gets the same
+ * response. Failed requests are not remembered and may be retried with the same key. Reusing a key
+ * for a different request is rejected with 422.
+ *
+ * When persistent, a request claims its key with a pending row in {@code idempotency_keys} before
+ * it runs, and the response is written into that row afterwards. The operations commit in their
+ * own transactions (or none, on the ledger), so the claim is what keeps a retry that reaches
+ * another instance, or arrives after a restart, from running the operation again: while the row
+ * is pending it gets 409. If the instance dies mid-request the key stays pending until its TTL,
+ * since whether the operation ran is not known.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${wallet.idempotency.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    @Value("${wallet.idempotency.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${wallet.idempotency.persistent:true}")
+    private boolean persistent;
+
+    // how long a duplicate waits for the request it duplicates
+    @Value("${wallet.idempotency.wait-ms:30000}")
+    private long waitMs;
+
+    @Value("${wallet.idempotency.purge-interval-ms:600000}")
+    private long purgeIntervalMs;
+
+    // every entry lives for the same TTL, so insertion order is also expiry order
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private ObjectReader bodyReader;
+    private ScheduledExecutorService purger;
+
+    @PostConstruct
+    void init() {
+        // keeps amounts as BigDecimal with their scale, so a replayed body matches the original
+        bodyReader = objectMapper.readerFor(Map.class).with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        if (!persistent) return;
+        purger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "idempotency-purge");
+            t.setDaemon(true);
+            return t;
+        });
+        purger.scheduleWithFixedDelay(this::purgeQuietly, purgeIntervalMs, purgeIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (purger != null) purger.shutdownNow();
+    }
+
+    /**
+     * Runs {@code action} once per user and key. {@code request} identifies what was asked for
+     * (endpoint and body); a later request with the same key must match it. Without a key the
+     * action simply runs.
+     */
+    public ResponseEntity<Map<String, Object>> execute(String userEmail, String key, String request,
+                                                       Supplier<ResponseEntity<Map<String, Object>>> action) {
+        if (key == null) return action.get();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH)
+            throw new RuntimeException(HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+
+        String id = userEmail + '\n' + key;
+        String requestHash = sha256(request);
+        long now = System.currentTimeMillis();
+        Entry mine = new Entry(requestHash, now + TimeUnit.SECONDS.toMillis(ttlSeconds));
+        Entry existing;
+        synchronized (entries) {
+            evict(now);
+            existing = entries.get(id);
+            if (existing != null && existing.isExpired(now)) {
+                entries.remove(id);
+                existing = null;
+            }
+            if (existing == null) entries.put(id, mine);
+        }
+        if (existing != null) return replay(existing, requestHash);
+
+        ResponseEntity<Map<String, Object>> response;
+        IdempotencyRecord claim = null;
+        try {
+            if (persistent) {
+                Optional<IdempotencyRecord> stored = findRecord(userEmail, key);
+                if (stored.isEmpty()) {
+                    claim = claim(userEmail, key, requestHash);
+                    if (claim == null) {
+                        // claimed by another instance since the lookup
+                        stored = findRecord(userEmail, key);
+                        if (stored.isEmpty()) stored = Optional.of(pendingRecord(userEmail, key, requestHash));
+                    }
+                }
+                if (stored.isPresent()) {
+                    IdempotencyRecord record = stored.get();
+                    if (!record.getRequestHash().equals(requestHash) || record.isPending()) {
+                        ResponseEntity<Map<String, Object>> refused = record.getRequestHash().equals(requestHash) ? inProgress() : keyReused();
+                        forget(id, mine);
+                        mine.response.complete(refused);
+                        return refused;
+                    }
+                    mine.response.complete(toResponse(record));
+                    return replay(mine, requestHash);
+                }
+            }
+            response = action.get();
+        } catch (RuntimeException e) {
+            // a failed lookup or replay must not leave an unfinished entry behind, which would also stall eviction
+            forget(id, mine);
+            mine.response.completeExceptionally(e);
+            if (claim != null) release(claim);
+            throw e;
+        }
+        boolean succeeded = response.getStatusCode().is2xxSuccessful();
+        if (!succeeded) forget(id, mine);
+        mine.response.complete(response);
+        if (claim != null) {
+            if (succeeded) {
+                saveResponse(claim, response);
+            } else {
+                release(claim);
+            }
+        }
+        return response;
+    }
+
+    private ResponseEntity<Map<String, Object>> replay(Entry entry, String requestHash) {
+        if (!entry.requestHash.equals(requestHash)) return keyReused();
+        ResponseEntity<Map<String, Object>> original;
+        try {
+            original = entry.response.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return inProgress();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the original request");
+        }
+        return ResponseEntity.status(original.getStatusCode())
+            .header(REPLAYED_HEADER, "true")
+            .body(original.getBody());
+    }
+
+    // caller holds the lock on entries
+    private void evict(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry eldest = it.next();
+            // an entry whose request is still running is never evicted, so its duplicates keep waiting on it
+            if (!eldest.response.isDone()) break;
+            if (!eldest.isExpired(now) && entries.size() <= maxEntries) break;
+            it.remove();
+        }
+    }
+
+    private void forget(String id, Entry entry) {
+        synchronized (entries) {
+            entries.remove(id, entry);
+        }
+    }
+
+    private Optional<IdempotencyRecord> findRecord(String userEmail, String key) {
+        Optional<IdempotencyRecord> record = repository.findByUserEmailAndIdempotencyKey(userEmail, key);
+        if (record.isPresent() && record.get().getExpiresAt().isBefore(LocalDateTime.now())) {
+            // clears the way for this request's own record
+            repository.delete(record.get());
+            return Optional.empty();
+        }
+        return record;
+    }
+
+    /**
+     * Inserts the pending row for the key, or returns null if another request holds it already.
+     */
+    private IdempotencyRecord claim(String userEmail, String key, String requestHash) {
+        try {
+            return repository.saveAndFlush(pendingRecord(userEmail, key, requestHash));
+        } catch (DataIntegrityViolationException e) {
+            return null;
+        }
+    }
+
+    private IdempotencyRecord pendingRecord(String userEmail, String key, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        return new IdempotencyRecord(userEmail, key, requestHash, IdempotencyRecord.PENDING, "", now, now.plusSeconds(ttlSeconds));
+    }
+
+    private void saveResponse(IdempotencyRecord claim, ResponseEntity<Map<String, Object>> response) {
+        try {
+            repository.complete(claim.getId(), response.getStatusCodeValue(), objectMapper.writeValueAsString(response.getBody()));
+        } catch (JsonProcessingException | DataAccessException e) {
+            // the key stays pending, so other instances refuse it rather than run it again; this one replays from memory
+            logger.warn("Could not persist response for idempotency key of {}: {}", claim.getUserEmail(), e.getMessage());
+        }
+    }
+
+    // the request failed, so the key may be used again
+    private void release(IdempotencyRecord claim) {
+        try {
+            repository.deleteById(claim.getId());
+        } catch (DataAccessException e) {
+            logger.warn("Could not release idempotency key of {}: {}", claim.getUserEmail(), e.getMessage());
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> toResponse(IdempotencyRecord record) {
+        try {
+            Map<String, Object> body = bodyReader.readValue(record.getResponseBody());
+            return ResponseEntity.status(record.getStatusCode()).body(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Stored response for this " + HEADER + " is unreadable");
+        }
+    }
+
+    private void purgeQuietly() {
+        try {
+            int purged = repository.deleteExpired(LocalDateTime.now());
+            if (purged > 0) logger.debug("Purged {} expired idempotency records", purged);
+        } catch (RuntimeException e) {
+            logger.error("Idempotency record purge failed", e);
+        }
+    }
+
+    private static ResponseEntity<Map<String, Object>> inProgress() {
+        return error(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+    }
+
+    private static ResponseEntity<Map<String, Object>> keyReused() {
+        return error(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used for a different request");
+    }
+
+    private static ResponseEntity<Map<String, Object>> error(HttpStatus status, String message) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", message);
+        return ResponseEntity.status(status).body(body);
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        final String requestHash;
+        final long expiresAt;
+        final CompletableFuture<ResponseEntity<Map<String, Object>>> response = new CompletableFuture<>();
+
+        Entry(String requestHash, long expiresAt) {
+            this.requestHash = requestHash;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
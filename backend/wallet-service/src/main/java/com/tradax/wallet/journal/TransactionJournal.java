@@ -0,0 +1,242 @@
+package com.tradax.wallet.journal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tradax.wallet.model.Transaction;
+import com.tradax.wallet.stats.TradingStats;
+
+/**
+ * Group-commit journal for balance changes and their {@link Transaction} rows.
+ *
+ * {@code Transaction} uses an IDENTITY key, so Hibernate inserts rows one statement at a time.
+ * The journal instead collects the changes submitted by concurrent requests and applies them in a
+ * single DB transaction, flushing as soon as {@code batch-size} changes are queued or the oldest has
+ * waited {@code max-wait-ms}. Each change updates its balances behind its own JDBC savepoint (the
+ * JPA dialect has no savepoint support) and returns its row; the rows are then written with one
+ * JDBC batch insert, so a balance change never commits without its row. Entity changes are flushed
+ * before each savepoint and the persistence context is cleared after a rollback to one, so nothing a
+ * failed change left in memory is written at commit. Callers are only released once their batch
+ * has committed, and get the row back with its generated id.
+ */
+@Component
+public class TransactionJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionJournal.class);
+
+    private static final String INSERT_SQL =
+        "INSERT INTO transactions (user_email, type, asset, amount, price, tx_value, status, " +
+        "transaction_hash, description, created_at, completed_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TradingStats tradingStats;
+
+    @Value("${wallet.journal.batch-size:256}")
+    private int batchSize;
+
+    @Value("${wallet.journal.max-wait-ms:5}")
+    private long maxWaitMs;
+
+    @Value("${wallet.journal.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private BlockingQueue<Entry> queue;
+    private TransactionTemplate transactionTemplate;
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        writer = new Thread(this::writeLoop, "transaction-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Queues a balance change for the next group commit. {@code work} runs on the journal's thread
+     * inside the batch transaction and returns the row to insert, or null for none; if it throws,
+     * only its own changes are rolled back. The returned future completes with the row, id
+     * assigned, once its batch is durable.
+     */
+    public CompletableFuture<Transaction> append(Supplier<Transaction> work) {
+        Entry entry = new Entry(work);
+        if (!running || !queue.offer(entry))
+            throw new RuntimeException("Transaction journal is busy, please retry");
+        return entry.done;
+    }
+
+    /**
+     * Same as {@link #append} but blocks until the change is committed.
+     */
+    public Transaction appendAndWait(Supplier<Transaction> work) {
+        try {
+            return append(work).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Inserts rows with one JDBC batch on the connection of the surrounding Spring transaction
+     * and assigns the generated ids. Usable directly by callers that already group their writes.
+     * The trades among them are added to the trading stats in the same transaction.
+     */
+    public void insertBatch(List<Transaction> rows) {
+        if (rows.isEmpty()) return;
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(INSERT_SQL, new String[] { "id" })) {
+                for (Transaction t : rows) {
+                    bind(ps, t);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (int i = 0; i < rows.size() && keys.next(); i++) {
+                        rows.get(i).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+        tradingStats.record(rows);
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        List<Transaction> rows = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = running ? queue.take() : queue.poll();
+                if (first == null) break;
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (batch.size() < batchSize) {
+                    long wait = deadline - System.nanoTime();
+                    Entry next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // shutting down: flush what is already collected, then drain the rest
+                running = false;
+            }
+            if (batch.isEmpty()) continue;
+            commit(batch, rows);
+        }
+    }
+
+    private void commit(List<Entry> batch, List<Transaction> rows) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Entry e : batch) {
+                    // what the earlier changes did to entities must be in the database before the savepoint
+                    entityManager.flush();
+                    Savepoint savepoint = jdbcTemplate.execute((ConnectionCallback<Savepoint>) Connection::setSavepoint);
+                    try {
+                        e.row = e.work.get();
+                    } catch (RuntimeException ex) {
+                        // e.g. insufficient balance; the rest of the batch goes ahead
+                        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+                            con.rollback(savepoint);
+                            return null;
+                        });
+                        // entities the failed change touched no longer match the database
+                        entityManager.clear();
+                        e.failure = ex;
+                        continue;
+                    }
+                    if (e.row != null) rows.add(e.row);
+                }
+                insertBatch(rows);
+            });
+            for (Entry e : batch) {
+                if (e.failure != null) e.done.completeExceptionally(e.failure);
+                else e.done.complete(e.row);
+            }
+        } catch (RuntimeException ex) {
+            logger.error("Group commit of {} balance changes failed", batch.size(), ex);
+            for (Entry e : batch) {
+                if (e.row != null) e.row.setId(null);
+                e.done.completeExceptionally(e.failure != null ? e.failure : ex);
+            }
+        } finally {
+            batch.clear();
+            rows.clear();
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Transaction t) throws SQLException {
+        ps.setString(1, t.getUserEmail());
+        ps.setString(2, t.getType().name());
+        ps.setString(3, t.getAsset());
+        ps.setBigDecimal(4, t.getAmount());
+        ps.setBigDecimal(5, t.getPrice());
+        ps.setBigDecimal(6, t.getValue());
+        ps.setString(7, t.getStatus() == null ? Transaction.TransactionStatus.PENDING.name() : t.getStatus().name());
+        ps.setString(8, t.getTransactionHash());
+        ps.setString(9, t.getDescription());
+        ps.setTimestamp(10, Timestamp.valueOf(t.getCreatedAt() == null ? LocalDateTime.now() : t.getCreatedAt()));
+        if (t.getCompletedAt() == null) ps.setNull(11, Types.TIMESTAMP);
+        else ps.setTimestamp(11, Timestamp.valueOf(t.getCompletedAt()));
+    }
+
+    private static final class Entry {
+        final Supplier<Transaction> work;
+        final CompletableFuture<Transaction> done = new CompletableFuture<>();
+        Transaction row;
+        RuntimeException failure;
+
+        Entry(Supplier<Transaction> work) {
+            this.work = work;
+        }
+    }
+}
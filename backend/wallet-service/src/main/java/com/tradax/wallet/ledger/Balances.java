@@ -0,0 +1,17 @@
+package com.tradax.wallet.ledger;
+
+/**
+ * One user's balances in {@link com.tradax.wallet.model.Money} units, held exclusively by the unit
+ * of work changing them, so a balance read is still valid when the debit that follows it runs.
+ */
+public interface Balances {
+
+    long balance(String asset);
+
+    void credit(String asset, long amount);
+
+    /**
+     * Fails with "Insufficient balance", changing nothing, if the balance does not cover {@code amount}.
+     */
+    void debit(String asset, long amount);
+}
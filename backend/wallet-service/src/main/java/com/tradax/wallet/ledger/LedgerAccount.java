@@ -0,0 +1,110 @@
+package com.tradax.wallet.ledger;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tradax.wallet.model.Asset;
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.model.Transaction;
+import com.tradax.wallet.model.Wallet;
+
+/**
+ * In-memory balances of a single user.
+ * Only ever touched by the writer thread of the shard that owns the user,
+ * so none of the state below needs synchronisation.
+ */
+public final class LedgerAccount implements Balances {
+
+    private final String userEmail;
+    private final Map<String, Wallet> wallets = new LinkedHashMap<>();
+    private final Map<String, Wallet> dirty = new HashMap<>();
+    private final List<Transaction> pending = new ArrayList<>();
+
+    // bookkeeping of the owning shard for eviction
+    long lastUsed;
+    long drainedIn;
+
+    LedgerAccount(String userEmail, List<Wallet> loaded) {
+        this.userEmail = userEmail;
+        for (Wallet w : loaded) {
+            wallets.put(w.getAsset(), copyOf(w));
+        }
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    @Override
+    public long balance(String asset) {
+        Wallet w = wallets.get(asset);
+        return w == null ? 0 : w.getBalanceUnits();
+    }
+
+    @Override
+    public void credit(String asset, long amount) {
+        Wallet w = wallet(asset);
+        w.setBalanceUnits(Money.add(w.getBalanceUnits(), amount));
+        touch(w);
+    }
+
+    @Override
+    public void debit(String asset, long amount) {
+        Wallet w = wallet(asset);
+        if (w.getBalanceUnits() < amount)
+            throw new RuntimeException("Insufficient balance");
+        w.setBalanceUnits(w.getBalanceUnits() - amount);
+        touch(w);
+    }
+
+    /**
+     * Queues a transaction for the write-behind flush and hands it back to the caller.
+     */
+    public Transaction record(Transaction t) {
+        pending.add(t);
+        return t;
+    }
+
+    /**
+     * Detached copies of every wallet, safe to hand to other threads.
+     */
+    public List<Wallet> snapshot() {
+        List<Wallet> copies = new ArrayList<>(wallets.size());
+        for (Wallet w : wallets.values()) copies.add(copyOf(w));
+        return copies;
+    }
+
+    boolean isDirty() {
+        return !dirty.isEmpty() || !pending.isEmpty();
+    }
+
+    void drainTo(List<Wallet> walletSink, List<Transaction> transactionSink) {
+        for (Wallet w : dirty.values()) walletSink.add(copyOf(w));
+        dirty.clear();
+        transactionSink.addAll(pending);
+        pending.clear();
+    }
+
+    private Wallet wallet(String asset) {
+        return wallets.computeIfAbsent(asset, a -> new Wallet(userEmail, a, a, Asset.nameOf(a)));
+    }
+
+    private void touch(Wallet w) {
+        w.setUpdatedAt(LocalDateTime.now());
+        dirty.put(w.getAsset(), w);
+    }
+
+    private static Wallet copyOf(Wallet w) {
+        Wallet c = new Wallet(w.getUserEmail(), w.getAsset(), w.getSymbol(), w.getName());
+        c.setId(w.getId());
+        c.setBalanceUnits(w.getBalanceUnits());
+        c.setPrice(w.getPrice());
+        c.setCreatedAt(w.getCreatedAt());
+        c.setUpdatedAt(w.getUpdatedAt());
+        return c;
+    }
+}
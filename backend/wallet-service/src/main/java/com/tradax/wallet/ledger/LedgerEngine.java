@@ -0,0 +1,311 @@
+package com.tradax.wallet.ledger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tradax.wallet.journal.TransactionJournal;
+import com.tradax.wallet.model.Transaction;
+import com.tradax.wallet.model.Wallet;
+import com.tradax.wallet.repository.WalletRepository;
+
+/**
+ * Sharded in-memory ledger.
+ *
+ * Users are hashed onto a fixed number of shards. Every shard owns the balances of its
+ * users and applies operations on a single writer thread, so a trade is a couple of
+ * in-memory updates instead of several SQL round trips and there are no lost updates
+ * between concurrent requests. Changed wallets and new transactions are written to the
+ * database asynchronously by a background flush.
+ *
+ * Accounts whose changes are committed and that have been idle for a while, or that exceed the
+ * per-shard account cap, are dropped and reloaded on next use. If the flush keeps failing the
+ * ledger stops accepting operations until a flush succeeds again, so unsaved changes cannot pile up.
+ */
+@Component
+public class LedgerEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerEngine.class);
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionJournal transactionJournal;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${wallet.ledger.shards:0}")
+    private int shardCount;
+
+    @Value("${wallet.ledger.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${wallet.ledger.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    @Value("${wallet.ledger.max-accounts:100000}")
+    private int maxAccounts;
+
+    @Value("${wallet.ledger.idle-ms:600000}")
+    private long idleMs;
+
+    @Value("${wallet.ledger.max-flush-failures:10}")
+    private int maxFlushFailures;
+
+    private volatile Shard[] shards;
+    private ScheduledExecutorService flusher;
+    private TransactionTemplate transactionTemplate;
+
+    // only touched by the flusher thread
+    private final List<Wallet> unsavedWallets = new ArrayList<>();
+    private final List<Transaction> unsavedTransactions = new ArrayList<>();
+    private long flushCount;
+    private int failedFlushes;
+
+    // every change drained in a flush up to this number is in the database
+    private volatile long committedFlush;
+    private volatile boolean failing;
+
+    /**
+     * Starts the shard threads. Accounts are loaded on first use through {@code loader},
+     * which runs on the owning shard thread.
+     */
+    public synchronized void start(Function<String, List<Wallet>> loader) {
+        if (shards != null) return;
+        int n = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        Shard[] created = new Shard[n];
+        for (int i = 0; i < n; i++) {
+            created[i] = new Shard(i, loader);
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "ledger-flush"));
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        shards = created;
+        logger.info("Ledger started with {} shards", n);
+    }
+
+    public boolean isRunning() {
+        return shards != null;
+    }
+
+    /**
+     * Runs {@code op} against the user's account on the owning shard thread and waits for the result.
+     * Exceptions thrown by {@code op} are rethrown as-is.
+     */
+    public <T> T execute(String userEmail, Function<LedgerAccount, T> op) {
+        Shard[] s = shards;
+        if (s == null) throw new IllegalStateException("Ledger is not running");
+        if (failing) throw new RuntimeException("Ledger is unavailable, pending changes could not be saved");
+        Shard shard = s[Math.floorMod(userEmail.hashCode(), s.length)];
+        try {
+            return CompletableFuture.supplyAsync(() -> shard.apply(userEmail, op), shard.executor).join();
+        } catch (RejectedExecutionException e) {
+            throw new RuntimeException("Ledger is busy, please retry");
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Like {@link #execute}, for a credit that completes a change already committed elsewhere, such as
+     * an order-book fill whose order rows are saved. It is never refused: it waits for room on a full
+     * shard queue and still runs while the flush is failing. {@code op} must not throw.
+     */
+    public <T> T executeCredit(String userEmail, Function<LedgerAccount, T> op) {
+        Shard[] s = shards;
+        if (s == null) throw new IllegalStateException("Ledger is not running");
+        Shard shard = s[Math.floorMod(userEmail.hashCode(), s.length)];
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                result.complete(shard.apply(userEmail, op));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        };
+        try {
+            // the worker is prestarted, so queueing directly is enough to get the task run
+            do {
+                if (shard.executor.isShutdown()) throw new IllegalStateException("Ledger is not running");
+            } while (!shard.executor.getQueue().offer(task, 10, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queueing a ledger credit");
+        }
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes all pending changes to the database and waits until they are committed.
+     */
+    public void flush() {
+        if (flusher == null) return;
+        CompletableFuture.runAsync(this::flushNow, flusher).join();
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (shards == null) return;
+        try {
+            flush();
+        } finally {
+            // let a scheduled flush that is already running finish before the shards go away
+            flusher.shutdown();
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+            for (Shard shard : shards) shard.executor.shutdown();
+            shards = null;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flushNow();
+        } catch (Exception e) {
+            if (failing) {
+                logger.error("Ledger flush failed {} times in a row, operations are rejected until {} wallets and {} transactions are saved",
+                        failedFlushes, unsavedWallets.size(), unsavedTransactions.size(), e);
+            } else {
+                logger.warn("Ledger flush failed, {} wallets and {} transactions will be retried",
+                        unsavedWallets.size(), unsavedTransactions.size(), e);
+            }
+        }
+    }
+
+    private void flushNow() {
+        try {
+            write(++flushCount);
+        } catch (RuntimeException e) {
+            // stop taking new changes once the flush is clearly not going to succeed on its own
+            if (++failedFlushes >= maxFlushFailures) failing = true;
+            throw e;
+        }
+        if (failing) logger.info("Ledger flush recovered after {} failures", failedFlushes);
+        failedFlushes = 0;
+        failing = false;
+    }
+
+    private void write(long flush) {
+        List<CompletableFuture<Void>> drains = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            drains.add(CompletableFuture.runAsync(() -> shard.drain(flush), shard.executor));
+        }
+        for (int i = 0; i < drains.size(); i++) {
+            drains.get(i).join();
+            shards[i].handOver(unsavedWallets, unsavedTransactions);
+        }
+        if (unsavedWallets.isEmpty() && unsavedTransactions.isEmpty()) {
+            committedFlush = flush;
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Wallet w : unsavedWallets) {
+                int updated = walletRepository.updateBalance(w.getUserEmail(), w.getAsset(), w.getBalanceUnits(), w.getUpdatedAt());
+                if (updated == 0) walletRepository.save(w);
+            }
+            transactionJournal.insertBatch(unsavedTransactions);
+        });
+        unsavedWallets.clear();
+        unsavedTransactions.clear();
+        committedFlush = flush;
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    private final class Shard {
+
+        final ThreadPoolExecutor executor;
+        final Function<String, List<Wallet>> loader;
+
+        // owned by the shard thread
+        final Map<String, LedgerAccount> accounts = new LinkedHashMap<>(16, 0.75f, true);
+        final Set<LedgerAccount> dirty = new LinkedHashSet<>();
+
+        // filled by drain() on the shard thread, consumed by handOver() on the flusher thread
+        // after the drain future completed, which gives the necessary happens-before edge
+        final List<Wallet> drainedWallets = new ArrayList<>();
+        final List<Transaction> drainedTransactions = new ArrayList<>();
+
+        Shard(int index, Function<String, List<Wallet>> loader) {
+            this.loader = loader;
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), r -> daemon(r, "ledger-shard-" + index));
+            executor.prestartCoreThread();
+        }
+
+        <T> T apply(String userEmail, Function<LedgerAccount, T> op) {
+            LedgerAccount account = accounts.computeIfAbsent(userEmail,
+                    u -> new LedgerAccount(u, loader.apply(u)));
+            account.lastUsed = System.currentTimeMillis();
+            try {
+                return op.apply(account);
+            } finally {
+                if (account.isDirty()) dirty.add(account);
+            }
+        }
+
+        void drain(long flush) {
+            for (LedgerAccount account : dirty) {
+                account.drainTo(drainedWallets, drainedTransactions);
+                account.drainedIn = flush;
+            }
+            dirty.clear();
+            evict();
+        }
+
+        // least recently used first; an account is only dropped once its last changes are
+        // committed, otherwise reloading it would read balances the flush has not written yet
+        void evict() {
+            long idleSince = System.currentTimeMillis() - idleMs;
+            long committed = committedFlush;
+            Iterator<LedgerAccount> it = accounts.values().iterator();
+            while (it.hasNext()) {
+                LedgerAccount account = it.next();
+                if (accounts.size() <= maxAccounts && account.lastUsed >= idleSince) break;
+                if (!account.isDirty() && account.drainedIn <= committed) it.remove();
+            }
+        }
+
+        void handOver(List<Wallet> walletSink, List<Transaction> transactionSink) {
+            walletSink.addAll(drainedWallets);
+            transactionSink.addAll(drainedTransactions);
+            drainedWallets.clear();
+            drainedTransactions.clear();
+        }
+    }
+}
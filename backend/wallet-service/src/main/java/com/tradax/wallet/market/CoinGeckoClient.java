@@ -0,0 +1,78 @@
+package com.tradax.wallet.market;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Plain GETs against the CoinGecko API (or whatever {@code wallet.market.base-url} points at, e.g.
+ * a local stub). Returns the response body unchanged.
+ */
+@Component
+public class CoinGeckoClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoinGeckoClient.class);
+
+    @Value("${wallet.market.base-url:https://api.coingecko.com/api/v3}")
+    private String baseUrl;
+
+    @Value("${wallet.market.api-key:}")
+    private String apiKey;
+
+    @Value("${wallet.market.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private HttpClient client;
+    private final AtomicLong requests = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+        if (baseUrl.endsWith("/")) baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+    }
+
+    /**
+     * {@code pathAndQuery} starts with a slash, e.g. {@code /search/trending}.
+     */
+    public String get(String pathAndQuery) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Accept", "application/json")
+                .GET();
+        if (!apiKey.isEmpty()) request.header("x-cg-demo-api-key", apiKey);
+        requests.incrementAndGet();
+        HttpResponse<String> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            logger.warn("Market data request {} failed: {}", pathAndQuery, e.toString());
+            throw new RuntimeException("Market data provider is unreachable");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading market data");
+        }
+        if (response.statusCode() != 200) {
+            logger.warn("Market data request {} returned HTTP {}", pathAndQuery, response.statusCode());
+            throw new RuntimeException("Market data provider returned HTTP " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    /** Upstream requests sent so far. */
+    public long getRequestCount() {
+        return requests.get();
+    }
+}
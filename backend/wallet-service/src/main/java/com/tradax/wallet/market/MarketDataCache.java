@@ -0,0 +1,140 @@
+package com.tradax.wallet.market;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Response bodies by key, each kept for the TTL it was requested with.
+ *
+ * Concurrent misses for one key share a single load (single flight). Once an entry is older than
+ * its TTL but not older than TTL + {@code maxStaleMs} it is still served while one background load
+ * replaces it (stale-while-revalidate), so callers only wait when nothing usable is cached. A failed
+ * load is not retried for {@code retryMs}; meanwhile callers get the last body, however old, or the
+ * failure if there is none. So upstream sees at most one request per key and TTL, however many
+ * callers there are.
+ */
+class MarketDataCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Executor loader;
+    private final int maxEntries;
+    private final long maxStaleMs;
+    private final long retryMs;
+    private final long waitMs;
+
+    private static final class Entry {
+        // all guarded by the entry's monitor
+        String body;
+        long fetchedAt;
+        long failedAt;
+        RuntimeException failure;
+        CompletableFuture<String> loading;
+    }
+
+    MarketDataCache(Executor loader, int maxEntries, long maxStaleMs, long retryMs, long waitMs) {
+        this.loader = loader;
+        this.maxEntries = maxEntries;
+        this.maxStaleMs = maxStaleMs;
+        this.retryMs = retryMs;
+        this.waitMs = waitMs;
+    }
+
+    String get(String key, long ttlMs, Supplier<String> fetch) {
+        Entry e = entries.get(key);
+        if (e == null) {
+            if (entries.size() >= maxEntries) evict(ttlMs);
+            e = entries.computeIfAbsent(key, k -> new Entry());
+        }
+        CompletableFuture<String> wait;
+        synchronized (e) {
+            long now = System.currentTimeMillis();
+            long age = now - e.fetchedAt;
+            if (e.body != null && age < ttlMs) return e.body;
+            if (e.loading == null) {
+                if (e.failure != null && now - e.failedAt < retryMs) {
+                    if (e.body != null) return e.body;
+                    throw e.failure;
+                }
+                e.loading = load(e, fetch);
+            }
+            if (e.body != null && age < ttlMs + maxStaleMs) return e.body;
+            wait = e.loading;
+        }
+        try {
+            return wait.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading market data");
+        } catch (ExecutionException | TimeoutException ex) {
+            synchronized (e) {
+                if (e.body != null) return e.body;
+            }
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            throw new RuntimeException("Market data provider did not respond in time");
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    // called with the entry's monitor held
+    private CompletableFuture<String> load(Entry e, Supplier<String> fetch) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        try {
+            loader.execute(() -> {
+                try {
+                    String body = fetch.get();
+                    synchronized (e) {
+                        e.body = body;
+                        e.fetchedAt = System.currentTimeMillis();
+                        e.failure = null;
+                        e.loading = null;
+                    }
+                    future.complete(body);
+                } catch (RuntimeException ex) {
+                    synchronized (e) {
+                        e.failure = ex;
+                        e.failedAt = System.currentTimeMillis();
+                        e.loading = null;
+                    }
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            throw new RuntimeException("Market data is busy, please retry");
+        }
+        return future;
+    }
+
+    /**
+     * Drops entries nobody could still be served from; if that is not enough, the oldest ones.
+     */
+    private void evict(long ttlMs) {
+        long now = System.currentTimeMillis();
+        long oldest = Long.MAX_VALUE;
+        String oldestKey = null;
+        for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Entry> next = it.next();
+            Entry e = next.getValue();
+            synchronized (e) {
+                if (e.loading != null) continue;
+                if (now - e.fetchedAt > ttlMs + maxStaleMs && now - e.failedAt > retryMs) {
+                    it.remove();
+                } else if (e.fetchedAt < oldest) {
+                    oldest = e.fetchedAt;
+                    oldestKey = next.getKey();
+                }
+            }
+        }
+        if (entries.size() >= maxEntries && oldestKey != null) entries.remove(oldestKey);
+    }
+}
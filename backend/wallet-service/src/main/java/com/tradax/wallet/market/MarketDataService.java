@@ -0,0 +1,177 @@
+package com.tradax.wallet.market;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * CoinGecko market data for the apps, served from a shared {@link MarketDataCache} so that any
+ * number of clients cost a few upstream requests per minute. Bodies are passed through as CoinGecko
+ * returns them. Parameters are validated and normalized (sorted ids, lower case, clamped sizes), which
+ * keeps the set of cache keys small and the proxy from being used for arbitrary requests.
+ * Invalid parameters fail with {@link IllegalArgumentException}.
+ */
+@Service
+public class MarketDataService {
+
+    private static final Pattern COIN_ID = Pattern.compile("[a-z0-9][a-z0-9-]{0,99}");
+    private static final Pattern CURRENCY = Pattern.compile("[a-z]{2,10}");
+    private static final List<String> DAYS = List.of("1", "7", "14", "30", "90", "180", "365", "max");
+    private static final int MAX_IDS = 100;
+    private static final int MAX_CURRENCIES = 5;
+    private static final int MAX_QUERY_LENGTH = 50;
+
+    @Autowired
+    private CoinGeckoClient client;
+
+    @Value("${wallet.market.ttl.prices-ms:10000}")
+    private long pricesTtlMs;
+
+    @Value("${wallet.market.ttl.markets-ms:30000}")
+    private long marketsTtlMs;
+
+    @Value("${wallet.market.ttl.charts-ms:300000}")
+    private long chartsTtlMs;
+
+    @Value("${wallet.market.ttl.details-ms:300000}")
+    private long detailsTtlMs;
+
+    @Value("${wallet.market.ttl.search-ms:3600000}")
+    private long searchTtlMs;
+
+    @Value("${wallet.market.max-stale-ms:300000}")
+    private long maxStaleMs;
+
+    @Value("${wallet.market.retry-ms:10000}")
+    private long retryMs;
+
+    @Value("${wallet.market.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${wallet.market.threads:4}")
+    private int threads;
+
+    @Value("${wallet.market.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor loader;
+    private MarketDataCache cache;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger index = new AtomicInteger();
+        loader = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1000), r -> {
+            Thread t = new Thread(r, "market-data-" + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        cache = new MarketDataCache(loader, maxEntries, maxStaleMs, retryMs, timeoutMs + 1000);
+    }
+
+    @PreDestroy
+    void stop() {
+        loader.shutdownNow();
+    }
+
+    public String getMarkets(int limit) {
+        int perPage = Math.max(1, Math.min(limit, 250));
+        return fetch("/coins/markets?vs_currency=usd&order=market_cap_desc&per_page=" + perPage
+                + "&page=1&sparkline=false&price_change_percentage=24h", marketsTtlMs);
+    }
+
+    public String getCoin(String coinId) {
+        return fetch("/coins/" + coinId(coinId) + "?localization=false&tickers=false&market_data=true"
+                + "&community_data=false&developer_data=false&sparkline=false", detailsTtlMs);
+    }
+
+    public String getMarketChart(String coinId, String days) {
+        String d = days(days);
+        return fetch("/coins/" + coinId(coinId) + "/market_chart?vs_currency=usd&days=" + d + "&interval=daily", chartTtl(d));
+    }
+
+    public String getOhlc(String coinId, String days) {
+        String d = days(days);
+        return fetch("/coins/" + coinId(coinId) + "/ohlc?vs_currency=usd&days=" + d, chartTtl(d));
+    }
+
+    public String getTrending() {
+        return fetch("/search/trending", detailsTtlMs);
+    }
+
+    public String getGlobal() {
+        return fetch("/global", marketsTtlMs);
+    }
+
+    public String search(String query) {
+        String q = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty() || q.length() > MAX_QUERY_LENGTH)
+            throw new IllegalArgumentException("Query must be between 1 and " + MAX_QUERY_LENGTH + " characters");
+        return fetch("/search?query=" + URLEncoder.encode(q, StandardCharsets.UTF_8), searchTtlMs);
+    }
+
+    public String getSimplePrices(String ids, String currencies) {
+        String idList = list(ids, COIN_ID, MAX_IDS, "coin id");
+        String vs = list(currencies == null || currencies.isBlank() ? "usd" : currencies, CURRENCY, MAX_CURRENCIES, "currency");
+        return fetch("/simple/price?ids=" + idList + "&vs_currencies=" + vs
+                + "&include_market_cap=true&include_24hr_vol=true&include_24hr_change=true", pricesTtlMs);
+    }
+
+    /** Upstream requests sent so far and the number of cached responses. */
+    public long getUpstreamRequests() {
+        return client.getRequestCount();
+    }
+
+    public int getCachedResponses() {
+        return cache.size();
+    }
+
+    private String fetch(String pathAndQuery, long ttlMs) {
+        return cache.get(pathAndQuery, ttlMs, () -> client.get(pathAndQuery));
+    }
+
+    // a one-day chart has 5-minute points, so it goes stale sooner
+    private long chartTtl(String days) {
+        return "1".equals(days) ? marketsTtlMs * 2 : chartsTtlMs;
+    }
+
+    private static String coinId(String coinId) {
+        String id = coinId == null ? "" : coinId.trim().toLowerCase(Locale.ROOT);
+        if (!COIN_ID.matcher(id).matches()) throw new IllegalArgumentException("Invalid coin id: " + coinId);
+        return id;
+    }
+
+    private static String days(String days) {
+        String d = days == null ? "7" : days.trim().toLowerCase(Locale.ROOT);
+        if (!DAYS.contains(d)) throw new IllegalArgumentException("Days must be one of " + String.join(", ", DAYS));
+        return d;
+    }
+
+    private static String list(String values, Pattern valid, int max, String what) {
+        TreeSet<String> sorted = new TreeSet<>();
+        if (values != null) {
+            for (String v : values.split(",")) {
+                String s = v.trim().toLowerCase(Locale.ROOT);
+                if (s.isEmpty()) continue;
+                if (!valid.matcher(s).matches()) throw new IllegalArgumentException("Invalid " + what + ": " + v);
+                sorted.add(s);
+            }
+        }
+        if (sorted.isEmpty()) throw new IllegalArgumentException("At least one " + what + " is required");
+        if (sorted.size() > max) throw new IllegalArgumentException("At most " + max + " values of " + what + " are allowed");
+        return String.join(",", sorted);
+    }
+}
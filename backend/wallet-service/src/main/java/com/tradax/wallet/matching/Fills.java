@@ -0,0 +1,80 @@
+package com.tradax.wallet.matching;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of fills produced by one matching call.
+ * Backed by primitive arrays so recording a fill does not allocate once the buffer has grown.
+ */
+public final class Fills {
+
+    private long[] makerOrderIds = new long[16];
+    private String[] makerOwners = new String[16];
+    private long[] prices = new long[16];
+    private long[] quantities = new long[16];
+    private long[] makerRemaining = new long[16];
+    private long[] takerReserved = new long[16];
+    private long[] makerReserved = new long[16];
+    private long[] makerReservedLeft = new long[16];
+    private long takerReservedLeft;
+    private int size;
+
+    public void clear() {
+        Arrays.fill(makerOwners, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long makerOrderId(int i) { return makerOrderIds[i]; }
+
+    public String makerOwner(int i) { return makerOwners[i]; }
+
+    public long price(int i) { return prices[i]; }
+
+    public long quantity(int i) { return quantities[i]; }
+
+    public long makerRemaining(int i) { return makerRemaining[i]; }
+
+    /** The part of the taker's reservation used up by fill {@code i}. */
+    public long takerReserved(int i) { return takerReserved[i]; }
+
+    /** The part of the maker's reservation used up by fill {@code i}. */
+    public long makerReserved(int i) { return makerReserved[i]; }
+
+    /** What the maker still has reserved after fill {@code i}. */
+    public long makerReservedLeft(int i) { return makerReservedLeft[i]; }
+
+    /** What the taker still had reserved when matching stopped. */
+    public long takerReservedLeft() { return takerReservedLeft; }
+
+    void takerReservedLeft(long reserved) {
+        takerReservedLeft = reserved;
+    }
+
+    void add(long makerOrderId, String makerOwner, long price, long quantity, long remaining,
+             long takerShare, long makerShare, long makerLeft) {
+        if (size == prices.length) {
+            int n = size * 2;
+            makerOrderIds = Arrays.copyOf(makerOrderIds, n);
+            makerOwners = Arrays.copyOf(makerOwners, n);
+            prices = Arrays.copyOf(prices, n);
+            quantities = Arrays.copyOf(quantities, n);
+            makerRemaining = Arrays.copyOf(makerRemaining, n);
+            takerReserved = Arrays.copyOf(takerReserved, n);
+            makerReserved = Arrays.copyOf(makerReserved, n);
+            makerReservedLeft = Arrays.copyOf(makerReservedLeft, n);
+        }
+        makerOrderIds[size] = makerOrderId;
+        makerOwners[size] = makerOwner;
+        prices[size] = price;
+        quantities[size] = quantity;
+        makerRemaining[size] = remaining;
+        takerReserved[size] = takerShare;
+        makerReserved[size] = makerShare;
+        makerReservedLeft[size] = makerLeft;
+        size++;
+    }
+}
@@ -0,0 +1,85 @@
+package com.tradax.wallet.matching;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.tradax.wallet.model.Money;
+
+/**
+ * Holds one {@link OrderBook} per asset and serialises access to each of them.
+ * Different assets match in parallel; a single book is only ever touched by one thread at a time.
+ *
+ * The engine is purely in-memory and knows nothing about wallets: callers reserve funds before
+ * submitting and settle the returned {@link Fills} afterwards. Prices and quantities on the book
+ * are {@link Money} units.
+ */
+@Component
+public class MatchingEngine {
+
+    private final ConcurrentHashMap<String, OrderBook> books = new ConcurrentHashMap<>();
+
+    /**
+     * Matches an order holding {@code reserved} against the book. With {@code rest} set, whatever
+     * is left unfilled is placed on the book under {@code orderId} together with the reservation
+     * left over ({@link Fills#takerReservedLeft}); otherwise both are simply returned.
+     *
+     * @return the unfilled quantity
+     */
+    public long submit(String asset, long orderId, String owner, boolean buy,
+                       long limitPrice, long quantity, long reserved, boolean rest, Fills fills) {
+        OrderBook book = book(asset);
+        synchronized (book) {
+            long remaining = book.match(buy, limitPrice, quantity, reserved, fills);
+            if (rest && remaining > 0) book.rest(orderId, owner, buy, limitPrice, remaining, fills.takerReservedLeft());
+            return remaining;
+        }
+    }
+
+    /**
+     * Puts a previously accepted order back on the book without matching it, e.g. after a restart
+     * or when a fill could not be settled. An order that is still resting keeps its place and has
+     * the quantity added to it.
+     */
+    public void restore(String asset, long orderId, String owner, boolean buy, long price, long quantity, long reserved) {
+        OrderBook book = book(asset);
+        synchronized (book) {
+            if (!book.topUp(orderId, quantity, reserved)) book.rest(orderId, owner, buy, price, quantity, reserved);
+        }
+    }
+
+    /**
+     * @return the reservation the order still held, or -1 if the order is not resting on the book
+     */
+    public long cancel(String asset, long orderId, String owner) {
+        OrderBook book = books.get(asset);
+        if (book == null) return -1;
+        synchronized (book) {
+            return book.cancel(orderId, owner);
+        }
+    }
+
+    /**
+     * Best {@code levels} price levels of one side as {@code [price, quantity]} pairs, best first.
+     */
+    public List<BigDecimal[]> depth(String asset, boolean bids, int levels) {
+        OrderBook book = books.get(asset);
+        if (book == null) return List.of();
+        List<long[]> raw;
+        synchronized (book) {
+            raw = book.depth(bids, levels);
+        }
+        List<BigDecimal[]> rows = new ArrayList<>(raw.size());
+        for (long[] r : raw) {
+            rows.add(new BigDecimal[] { Money.toBigDecimal(r[0]), Money.toBigDecimal(r[1]) });
+        }
+        return rows;
+    }
+
+    private OrderBook book(String asset) {
+        return books.computeIfAbsent(asset, a -> new OrderBook());
+    }
+}
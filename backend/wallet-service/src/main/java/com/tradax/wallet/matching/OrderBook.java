@@ -0,0 +1,318 @@
+package com.tradax.wallet.matching;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Price-time priority limit order book for a single asset.
+ *
+ * Prices and quantities are fixed-point longs in units of 1e-8 (the scale of the wallet columns).
+ * Each side keeps its price levels in a sorted primitive array with the best price at the end,
+ * so taking liquidity from the top of the book never shifts the array. Orders and levels are
+ * pooled, which keeps the matching loop free of allocation once the book has warmed up.
+ *
+ * Every order also carries the funds reserved for its unfilled part (USD with fees for buys, the
+ * asset for sells). A fill takes its pro-rata share of that reservation from both sides and the
+ * last fill takes whatever is left, so the amounts handed to settlement and to cancellation always
+ * add up to exactly what was reserved.
+ *
+ * Not thread-safe; {@link MatchingEngine} serialises access per book.
+ */
+final class OrderBook {
+
+    private final BookSide bids = new BookSide(true);
+    private final BookSide asks = new BookSide(false);
+    private final OrderIndex index = new OrderIndex(1024);
+    private final ArrayDeque<BookOrder> freeOrders = new ArrayDeque<>();
+    private final ArrayDeque<PriceLevel> freeLevels = new ArrayDeque<>();
+
+    /**
+     * Matches an incoming order holding {@code reserved} against the opposite side, recording every
+     * fill in {@code fills} along with the reservation the order has left.
+     *
+     * @return the quantity left unfilled
+     */
+    long match(boolean buy, long limitPrice, long quantity, long reserved, Fills fills) {
+        BookSide opposite = buy ? asks : bids;
+        while (quantity > 0 && opposite.size > 0) {
+            PriceLevel level = opposite.best();
+            long price = level.price;
+            if (buy ? price > limitPrice : price < limitPrice) break;
+
+            BookOrder maker = level.head;
+            while (maker != null && quantity > 0) {
+                long q = Math.min(quantity, maker.remaining);
+                long takerShare = share(reserved, q, quantity);
+                long makerShare = share(maker.reserved, q, maker.remaining);
+                quantity -= q;
+                reserved -= takerShare;
+                maker.remaining -= q;
+                maker.reserved -= makerShare;
+                level.total -= q;
+                fills.add(maker.id, maker.owner, price, q, maker.remaining, takerShare, makerShare, maker.reserved);
+
+                BookOrder next = maker.next;
+                if (maker.remaining == 0) {
+                    level.unlink(maker);
+                    index.remove(maker.id);
+                    release(maker);
+                }
+                maker = next;
+            }
+            if (level.head == null) {
+                opposite.removeBest();
+                freeLevels.push(level);
+            }
+        }
+        fills.takerReservedLeft(reserved);
+        return quantity;
+    }
+
+    /**
+     * Adds a resting order at the back of its price level.
+     */
+    void rest(long id, String owner, boolean buy, long price, long quantity, long reserved) {
+        BookOrder o = freeOrders.isEmpty() ? new BookOrder() : freeOrders.pop();
+        o.id = id;
+        o.owner = owner;
+        o.buy = buy;
+        o.remaining = quantity;
+        o.reserved = reserved;
+
+        BookSide side = buy ? bids : asks;
+        PriceLevel level = side.levelAt(price, freeLevels);
+        level.append(o);
+        level.total += quantity;
+        index.put(id, o);
+    }
+
+    /**
+     * Adds quantity and reservation to an order that is still resting, keeping its place in the queue.
+     *
+     * @return false if the order is not on the book
+     */
+    boolean topUp(long id, long quantity, long reserved) {
+        BookOrder o = index.get(id);
+        if (o == null) return false;
+        o.remaining += quantity;
+        o.reserved += reserved;
+        o.level.total += quantity;
+        return true;
+    }
+
+    /**
+     * Removes a resting order.
+     *
+     * @return the reservation the order still held, or -1 if the order is not on the book or not owned by {@code owner}
+     */
+    long cancel(long id, String owner) {
+        BookOrder o = index.get(id);
+        if (o == null || !o.owner.equals(owner)) return -1;
+        long remaining = o.remaining;
+        long reserved = o.reserved;
+        PriceLevel level = o.level;
+        level.unlink(o);
+        level.total -= remaining;
+        if (level.head == null) {
+            (o.buy ? bids : asks).remove(level);
+            freeLevels.push(level);
+        }
+        index.remove(id);
+        release(o);
+        return reserved;
+    }
+
+    /**
+     * Aggregated quantity per price for the best {@code depth} levels of one side, best first.
+     */
+    List<long[]> depth(boolean buy, int depth) {
+        BookSide side = buy ? bids : asks;
+        int n = Math.min(depth, side.size);
+        List<long[]> rows = new ArrayList<>(n);
+        for (int i = side.size - 1; i >= side.size - n; i--) {
+            rows.add(new long[] { side.prices[i], side.levels[i].total });
+        }
+        return rows;
+    }
+
+    // the part of a reservation that goes with q of the remaining quantity
+    static long share(long reserved, long q, long remaining) {
+        if (q >= remaining) return reserved;
+        long product = reserved * q;
+        if (Math.multiplyHigh(reserved, q) == 0 && product >= 0) return product / remaining;
+        return BigInteger.valueOf(reserved).multiply(BigInteger.valueOf(q))
+            .divide(BigInteger.valueOf(remaining)).longValueExact();
+    }
+
+    private void release(BookOrder o) {
+        o.owner = null;
+        o.prev = o.next = null;
+        o.level = null;
+        freeOrders.push(o);
+    }
+
+    static final class BookOrder {
+        long id;
+        String owner;
+        boolean buy;
+        long remaining;
+        long reserved;
+        PriceLevel level;
+        BookOrder prev;
+        BookOrder next;
+    }
+
+    static final class PriceLevel {
+        long price;
+        long total;
+        BookOrder head;
+        BookOrder tail;
+
+        void append(BookOrder o) {
+            o.level = this;
+            o.prev = tail;
+            o.next = null;
+            if (tail == null) head = o; else tail.next = o;
+            tail = o;
+        }
+
+        void unlink(BookOrder o) {
+            if (o.prev == null) head = o.next; else o.prev.next = o.next;
+            if (o.next == null) tail = o.prev; else o.next.prev = o.prev;
+        }
+    }
+
+    /**
+     * One side of the book. Prices are kept sorted so that the best price is the last element:
+     * ascending for bids, descending for asks.
+     */
+    static final class BookSide {
+        final boolean bids;
+        long[] prices = new long[64];
+        PriceLevel[] levels = new PriceLevel[64];
+        int size;
+
+        BookSide(boolean bids) {
+            this.bids = bids;
+        }
+
+        PriceLevel best() {
+            return levels[size - 1];
+        }
+
+        void removeBest() {
+            levels[--size] = null;
+        }
+
+        PriceLevel levelAt(long price, ArrayDeque<PriceLevel> pool) {
+            int i = search(price);
+            if (i >= 0) return levels[i];
+            i = -i - 1;
+            if (size == prices.length) {
+                prices = Arrays.copyOf(prices, size * 2);
+                levels = Arrays.copyOf(levels, size * 2);
+            }
+            System.arraycopy(prices, i, prices, i + 1, size - i);
+            System.arraycopy(levels, i, levels, i + 1, size - i);
+            PriceLevel level = pool.isEmpty() ? new PriceLevel() : pool.pop();
+            level.price = price;
+            level.total = 0;
+            level.head = level.tail = null;
+            prices[i] = price;
+            levels[i] = level;
+            size++;
+            return level;
+        }
+
+        void remove(PriceLevel level) {
+            int i = search(level.price);
+            System.arraycopy(prices, i + 1, prices, i, size - i - 1);
+            System.arraycopy(levels, i + 1, levels, i, size - i - 1);
+            levels[--size] = null;
+        }
+
+        // binary search over the sort order of this side; same contract as Arrays.binarySearch
+        private int search(long price) {
+            int lo = 0, hi = size - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                long p = prices[mid];
+                int cmp = bids ? Long.compare(p, price) : Long.compare(price, p);
+                if (cmp < 0) lo = mid + 1;
+                else if (cmp > 0) hi = mid - 1;
+                else return mid;
+            }
+            return -(lo + 1);
+        }
+    }
+
+    /**
+     * Open-addressing map from order id to resting order, so cancels do not box ids.
+     */
+    static final class OrderIndex {
+        long[] keys;
+        BookOrder[] values;
+        int size;
+
+        OrderIndex(int capacity) {
+            keys = new long[capacity];
+            values = new BookOrder[capacity];
+        }
+
+        BookOrder get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+            }
+            return null;
+        }
+
+        void put(long key, BookOrder value) {
+            if ((size + 1) * 2 > keys.length) grow();
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (values[i] != null && keys[i] != key) i = (i + 1) & mask;
+            if (values[i] == null) size++;
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (values[i] != null && keys[i] != key) i = (i + 1) & mask;
+            if (values[i] == null) return;
+            size--;
+            // backward-shift deletion keeps probe chains intact without tombstones
+            int gap = i;
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            values[gap] = null;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            BookOrder[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new BookOrder[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.tradax.wallet.model;
+
+/**
+ * Assets the platform knows a display name for.
+ * Wallets may still hold any other symbol; those fall back to the symbol itself.
+ */
+public enum Asset {
+    BTC("Bitcoin"),
+    ETH("Ethereum"),
+    ADA("Cardano"),
+    SOL("Solana"),
+    USD("US Dollar");
+
+    private final String displayName;
+
+    Asset(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public static String nameOf(String symbol) {
+        for (Asset a : values()) {
+            if (a.name().equalsIgnoreCase(symbol)) return a.displayName;
+        }
+        return symbol;
+    }
+}
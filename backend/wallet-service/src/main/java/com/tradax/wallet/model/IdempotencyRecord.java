@@ -0,0 +1,100 @@
+package com.tradax.wallet.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * The stored response of a request made with an {@code Idempotency-Key}, so a retry that arrives
+ * after the in-memory copy is gone (evicted, or the service restarted) still gets the original answer.
+ * The row is written before the request runs, as a pending claim on the key, and gets the response
+ * once it has run.
+ */
+@Entity
+@Table(name = "idempotency_keys", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"user_email", "idempotency_key"})
+}, indexes = {
+    @Index(name = "idx_idempotency_keys_expires", columnList = "expires_at")
+})
+public class IdempotencyRecord {
+
+    public static final int PENDING = 0;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    // SHA-256 of the endpoint and request body the key was first used with
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    // PENDING while the request is still running
+    @Column(name = "status_code", nullable = false)
+    private int statusCode;
+
+    // empty while pending
+    @Lob
+    @Column(name = "response_body", nullable = false)
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String userEmail, String idempotencyKey, String requestHash, int statusCode,
+                             String responseBody, LocalDateTime createdAt, LocalDateTime expiresAt) {
+        this.userEmail = userEmail;
+        this.idempotencyKey = idempotencyKey;
+        this.requestHash = requestHash;
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isPending() {
+        return statusCode == PENDING;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
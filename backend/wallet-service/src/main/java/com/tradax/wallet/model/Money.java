@@ -0,0 +1,104 @@
+package com.tradax.wallet.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point arithmetic on amounts held as a {@code long} count of 1e-8 units, the same scale as
+ * the {@code precision = 20, scale = 8} balance columns. Asset quantities, USD amounts and prices all
+ * use this representation, so trades, fees and valuations are computed without allocating.
+ *
+ * Every operation is checked: a result that does not fit in a long (about 92 billion whole units)
+ * fails with "Amount out of range" instead of wrapping. Products are rounded half-up to the last
+ * unit, exactly like {@link Wallet#roundBalance}. {@code BigDecimal} is only used at the edges,
+ * through {@link #of}, {@link #ofExact} and {@link #toBigDecimal}.
+ */
+public final class Money {
+
+    public static final int SCALE = Wallet.BALANCE_SCALE;
+
+    /** Units in one whole coin or dollar. */
+    public static final long ONE = 100_000_000L;
+
+    private static final long HALF = ONE / 2;
+
+    private Money() {
+    }
+
+    /**
+     * {@code value} in units, rounded half-up.
+     */
+    public static long of(BigDecimal value) {
+        return toLong(value.setScale(SCALE, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * {@code value} in units, for amounts and prices sent by clients: more than {@link #SCALE}
+     * decimal places are rejected instead of being rounded away.
+     */
+    public static long ofExact(BigDecimal value) {
+        if (value.scale() > SCALE && value.stripTrailingZeros().scale() > SCALE)
+            throw new RuntimeException("Amounts and prices can have at most " + SCALE + " decimal places");
+        return of(value);
+    }
+
+    public static BigDecimal toBigDecimal(long units) {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    public static long add(long a, long b) {
+        long r = a + b;
+        // overflow iff both operands have the sign opposite to the result
+        if (((a ^ r) & (b ^ r)) < 0) throw outOfRange();
+        return r;
+    }
+
+    public static long subtract(long a, long b) {
+        long r = a - b;
+        if (((a ^ b) & (a ^ r)) < 0) throw outOfRange();
+        return r;
+    }
+
+    /**
+     * {@code a * b} for two fixed-point amounts, e.g. quantity times price or value times fee rate.
+     */
+    public static long multiply(long a, long b) {
+        if (a == 0 || b == 0) return 0;
+        if (a == Long.MIN_VALUE || b == Long.MIN_VALUE) throw outOfRange();
+        boolean negative = (a < 0) != (b < 0);
+        long x = Math.abs(a);
+        long y = Math.abs(b);
+        long r;
+        if (Math.multiplyHigh(x, y) == 0 && x * y >= 0) {
+            // the full product fits in 63 bits
+            long p = x * y;
+            r = p / ONE + (p % ONE >= HALF ? 1 : 0);
+        } else {
+            // (x1 + x0/ONE) * (y1 + y0/ONE) in units, only the last term needs rounding
+            long x1 = x / ONE, x0 = x % ONE;
+            long y1 = y / ONE, y0 = y % ONE;
+            long low = x0 * y0;
+            try {
+                r = Math.multiplyExact(Math.multiplyExact(x1, y1), ONE);
+                r = Math.addExact(r, Math.multiplyExact(x1, y0));
+                r = Math.addExact(r, Math.multiplyExact(x0, y1));
+                r = Math.addExact(r, low / ONE + (low % ONE >= HALF ? 1 : 0));
+            } catch (ArithmeticException e) {
+                throw outOfRange();
+            }
+        }
+        return negative ? -r : r;
+    }
+
+    private static long toLong(BigDecimal scaled) {
+        try {
+            return scaled.unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw outOfRange();
+        }
+    }
+
+    private static RuntimeException outOfRange() {
+        return new RuntimeException("Amount out of range");
+    }
+}
@@ -0,0 +1,81 @@
+package com.tradax.wallet.model;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * One user's portfolio value snapshots for one UTC day, in whole cents.
+ *
+ * The first snapshot of the day is kept in {@code firstMinute}/{@code firstValue}; every later one is
+ * appended to {@code samples} as two varints, the minutes since the previous snapshot and the
+ * zigzag-encoded change in value (see {@link com.tradax.wallet.snapshot.ValueSeries}). A day of hourly
+ * snapshots usually takes well under 100 bytes. {@code lastMinute}/{@code lastValue} repeat the latest
+ * snapshot so the next one can be appended without reading the samples.
+ */
+@Entity
+@Table(name = "portfolio_value_days", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"user_email", "snapshot_day"})
+})
+public class PortfolioValueDay {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(name = "snapshot_day", nullable = false)
+    private LocalDate day;
+
+    // minute of the day, UTC
+    @Column(name = "first_minute", nullable = false)
+    private int firstMinute;
+
+    @Column(name = "first_value", nullable = false)
+    private long firstValue;
+
+    @Column(name = "last_minute", nullable = false)
+    private int lastMinute;
+
+    @Column(name = "last_value", nullable = false)
+    private long lastValue;
+
+    @Column(name = "samples", nullable = false, length = 16384)
+    private byte[] samples;
+
+    public PortfolioValueDay() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public int getFirstMinute() {
+        return firstMinute;
+    }
+
+    public long getFirstValue() {
+        return firstValue;
+    }
+
+    public int getLastMinute() {
+        return lastMinute;
+    }
+
+    public long getLastValue() {
+        return lastValue;
+    }
+
+    public byte[] getSamples() {
+        return samples;
+    }
+}
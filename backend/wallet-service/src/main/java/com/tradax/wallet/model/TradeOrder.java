@@ -0,0 +1,138 @@
+package com.tradax.wallet.model;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A limit order placed on the order book.
+ * Funds for the unfilled part stay reserved (debited from the wallet) while the order is OPEN;
+ * {@code reserved} is how much that is (USD with fees for buys, the asset for sells).
+ */
+@Entity
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_status", columnList = "status")
+})
+public class TradeOrder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(name = "asset", nullable = false)
+    private String asset;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "side", nullable = false)
+    private Side side;
+
+    @Column(name = "price", nullable = false, precision = 20, scale = 8)
+    private BigDecimal price;
+
+    @Column(name = "quantity", nullable = false, precision = 20, scale = 8)
+    private BigDecimal quantity;
+
+    @Column(name = "remaining", nullable = false, precision = 20, scale = 8)
+    private BigDecimal remaining;
+
+    @Column(name = "reserved", precision = 20, scale = 8)
+    private BigDecimal reserved;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private OrderStatus status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public enum Side {
+        BUY,
+        SELL
+    }
+
+    public enum OrderStatus {
+        OPEN,
+        FILLED,
+        CANCELLED
+    }
+
+    public TradeOrder() {
+    }
+
+    public TradeOrder(String userEmail, String asset, Side side, BigDecimal price, BigDecimal quantity) {
+        this.userEmail = userEmail;
+        this.asset = asset;
+        this.side = side;
+        this.price = price;
+        this.quantity = quantity;
+        this.remaining = quantity;
+        this.status = OrderStatus.OPEN;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    public Long getId() { return id; }
+
+    public void setId(Long id) { this.id = id; }
+
+    public String getUserEmail() { return userEmail; }
+
+    public void setUserEmail(String userEmail) { this.userEmail = userEmail; }
+
+    public String getAsset() { return asset; }
+
+    public void setAsset(String asset) { this.asset = asset; }
+
+    public Side getSide() { return side; }
+
+    public void setSide(Side side) { this.side = side; }
+
+    public BigDecimal getPrice() { return price; }
+
+    public void setPrice(BigDecimal price) { this.price = price; }
+
+    public BigDecimal getQuantity() { return quantity; }
+
+    public void setQuantity(BigDecimal quantity) { this.quantity = quantity; }
+
+    public BigDecimal getRemaining() { return remaining; }
+
+    public void setRemaining(BigDecimal remaining) { this.remaining = remaining; }
+
+    public BigDecimal getReserved() { return reserved; }
+
+    public void setReserved(BigDecimal reserved) { this.reserved = reserved; }
+
+    public OrderStatus getStatus() { return status; }
+
+    public void setStatus(OrderStatus status) { this.status = status; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    @Override
+    public String toString() {
+        return "TradeOrder{" +
+                "id=" + id +
+                ", userEmail='" + userEmail + '\'' +
+                ", asset='" + asset + '\'' +
+                ", side=" + side +
+                ", price=" + price +
+                ", quantity=" + quantity +
+                ", remaining=" + remaining +
+                ", status=" + status +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
@@ -0,0 +1,114 @@
+package com.tradax.wallet.model;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Running totals of one user's trades, deposits and withdrawals in one asset. Kept up to date by
+ * {@link com.tradax.wallet.stats.TradingStats} in the transaction that writes each trade's row.
+ */
+@Entity
+@Table(name = "trading_stats", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"user_email", "asset"})
+})
+public class TradingStat {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(name = "asset", nullable = false)
+    private String asset;
+
+    // USD value of all buys / sells
+    @Column(name = "buy_value", nullable = false, precision = 30, scale = 8)
+    private BigDecimal buyValue = BigDecimal.ZERO;
+
+    @Column(name = "sell_value", nullable = false, precision = 30, scale = 8)
+    private BigDecimal sellValue = BigDecimal.ZERO;
+
+    // quantity of the asset bought / sold
+    @Column(name = "buy_quantity", nullable = false, precision = 30, scale = 8)
+    private BigDecimal buyQuantity = BigDecimal.ZERO;
+
+    @Column(name = "sell_quantity", nullable = false, precision = 30, scale = 8)
+    private BigDecimal sellQuantity = BigDecimal.ZERO;
+
+    // USD value of deposits / withdrawals when they were made
+    @Column(name = "deposit_value", nullable = false, precision = 30, scale = 8)
+    private BigDecimal depositValue = BigDecimal.ZERO;
+
+    @Column(name = "withdrawal_value", nullable = false, precision = 30, scale = 8)
+    private BigDecimal withdrawalValue = BigDecimal.ZERO;
+
+    @Column(name = "buy_count", nullable = false)
+    private long buyCount;
+
+    @Column(name = "sell_count", nullable = false)
+    private long sellCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public TradingStat() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public String getAsset() {
+        return asset;
+    }
+
+    public BigDecimal getBuyValue() {
+        return buyValue;
+    }
+
+    public BigDecimal getSellValue() {
+        return sellValue;
+    }
+
+    public BigDecimal getBuyQuantity() {
+        return buyQuantity;
+    }
+
+    public BigDecimal getSellQuantity() {
+        return sellQuantity;
+    }
+
+    public BigDecimal getDepositValue() {
+        return depositValue;
+    }
+
+    public BigDecimal getWithdrawalValue() {
+        return withdrawalValue;
+    }
+
+    public long getBuyCount() {
+        return buyCount;
+    }
+
+    public long getSellCount() {
+        return sellCount;
+    }
+
+    /**
+     * USD value traded either way.
+     */
+    public BigDecimal getVolume() {
+        return buyValue.add(sellValue);
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
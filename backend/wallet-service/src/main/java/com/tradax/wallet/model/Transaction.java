@@ -5,7 +5,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+    // newest-first history per user, keyset-paginated over (created_at, id)
+    @Index(name = "idx_transactions_user_created", columnList = "user_email, created_at, id")
+})
 public class Transaction {
 
     @Id
@@ -1,7 +1,10 @@
 package com.tradax.wallet.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import javax.persistence.*;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 
 @Entity
@@ -10,6 +13,9 @@ import java.time.LocalDateTime;
 })
 public class Wallet {
 
+    /** Decimal places stored for balances. Amounts are rounded to this before they are applied. */
+    public static final int BALANCE_SCALE = 8;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -26,8 +32,10 @@ public class Wallet {
     @Column(name = "name", nullable = false)
     private String name;
 
+    // held in Money units; the column stays DECIMAL(20, 8)
+    @Convert(converter = MoneyConverter.class)
     @Column(name = "balance", nullable = false, precision = 20, scale = 8)
-    private BigDecimal balance = BigDecimal.ZERO;
+    private long balance;
 
     @Column(name = "price", precision = 20, scale = 8)
     private BigDecimal price;
@@ -41,12 +49,15 @@ public class Wallet {
     public Wallet() {
     }
 
+    public static BigDecimal roundBalance(BigDecimal amount) {
+        return amount.setScale(BALANCE_SCALE, RoundingMode.HALF_UP);
+    }
+
     public Wallet(String userEmail, String asset, String symbol, String name) {
         this.userEmail = userEmail;
         this.asset = asset;
         this.symbol = symbol;
         this.name = name;
-        this.balance = BigDecimal.ZERO;
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
     }
@@ -92,10 +103,19 @@ public class Wallet {
     }
 
     public BigDecimal getBalance() {
-        return balance;
+        return Money.toBigDecimal(balance);
     }
 
     public void setBalance(BigDecimal balance) {
+        this.balance = Money.of(balance);
+    }
+
+    @JsonIgnore
+    public long getBalanceUnits() {
+        return balance;
+    }
+
+    public void setBalanceUnits(long balance) {
         this.balance = balance;
     }
 
@@ -131,7 +151,7 @@ public class Wallet {
                 ", asset='" + asset + '\'' +
                 ", symbol='" + symbol + '\'' +
                 ", name='" + name + '\'' +
-                ", balance=" + balance +
+                ", balance=" + getBalance() +
                 ", price=" + price +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
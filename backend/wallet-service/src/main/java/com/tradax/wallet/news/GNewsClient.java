@@ -0,0 +1,154 @@
+package com.tradax.wallet.news;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Searches the GNews API (or whatever {@code wallet.news.base-url} points at, e.g. a local stub).
+ */
+@Component
+public class GNewsClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(GNewsClient.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${wallet.news.base-url:https://gnews.io/api/v4}")
+    private String baseUrl;
+
+    @Value("${wallet.news.api-key:}")
+    private String apiKey;
+
+    @Value("${wallet.news.lang:en}")
+    private String lang;
+
+    @Value("${wallet.news.timeout-ms:10000}")
+    private long timeoutMs;
+
+    private HttpClient client;
+
+    @PostConstruct
+    void init() {
+        client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(timeoutMs)).build();
+        if (baseUrl.endsWith("/")) baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+    }
+
+    /**
+     * One page of articles matching {@code query}, newest first. Articles without a URL or a
+     * publish time are skipped.
+     */
+    public List<NewsArticle> search(String query, int max, int page) {
+        String url = baseUrl + "/search?q=" + encode(query) + "&lang=" + encode(lang) + "&sortby=publishedAt"
+                + "&max=" + max + "&page=" + page + "&apikey=" + encode(apiKey);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        HttpResponse<String> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new RuntimeException("News provider is unreachable: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading news");
+        }
+        if (response.statusCode() != 200)
+            throw new RuntimeException("News provider returned HTTP " + response.statusCode());
+
+        JsonNode articles;
+        try {
+            articles = objectMapper.readTree(response.body()).path("articles");
+        } catch (IOException e) {
+            throw new RuntimeException("Malformed response from news provider");
+        }
+        if (!articles.isArray()) throw new RuntimeException("Malformed response from news provider");
+
+        List<NewsArticle> result = new ArrayList<>(articles.size());
+        for (JsonNode a : articles) {
+            String link = text(a, "url");
+            Instant publishedAt = instant(text(a, "publishedAt"));
+            if (link == null || publishedAt == null) {
+                logger.debug("Skipping news article without url or publish time: {}", a);
+                continue;
+            }
+            NewsArticle article = new NewsArticle();
+            article.setId(urlHash(link));
+            article.setTitle(text(a, "title"));
+            article.setDescription(text(a, "description"));
+            article.setContent(text(a, "content"));
+            article.setUrl(link);
+            article.setImage(text(a, "image"));
+            article.setPublishedAt(publishedAt);
+            article.setSource(new NewsArticle.Source(text(a.path("source"), "name"), text(a.path("source"), "url")));
+            result.add(article);
+        }
+        return result;
+    }
+
+    /**
+     * Identifies an article by its URL, ignoring scheme, host case, fragment and a trailing slash,
+     * so the same story linked slightly differently is still one article.
+     */
+    static String urlHash(String url) {
+        String u = url.trim();
+        int hash = u.indexOf('#');
+        if (hash >= 0) u = u.substring(0, hash);
+        u = u.replaceFirst("^(?i)https?://", "");
+        int slash = u.indexOf('/');
+        u = slash < 0 ? u.toLowerCase(Locale.ROOT) : u.substring(0, slash).toLowerCase(Locale.ROOT) + u.substring(slash);
+        if (u.endsWith("/")) u = u.substring(0, u.length() - 1);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(u.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) hex.append(String.format("%02x", digest[i]));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static Instant instant(String value) {
+        if (value == null) return null;
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
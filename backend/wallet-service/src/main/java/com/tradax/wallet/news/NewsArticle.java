@@ -0,0 +1,48 @@
+package com.tradax.wallet.news;
+
+import java.time.Instant;
+
+/**
+ * One article of the news feed. {@code id} is derived from the URL, so the same story fetched for
+ * several feeds is stored once.
+ */
+public class NewsArticle {
+
+    private String id;
+    private String title;
+    private String description;
+    private String content;
+    private String url;
+    private String image;
+    private Instant publishedAt;
+    private Source source;
+
+    public static class Source {
+        private String name;
+        private String url;
+
+        public Source() {}
+        public Source(String name, String url) { this.name = name; this.url = url; }
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+    public String getImage() { return image; }
+    public void setImage(String image) { this.image = image; }
+    public Instant getPublishedAt() { return publishedAt; }
+    public void setPublishedAt(Instant publishedAt) { this.publishedAt = publishedAt; }
+    public Source getSource() { return source; }
+    public void setSource(Source source) { this.source = source; }
+}
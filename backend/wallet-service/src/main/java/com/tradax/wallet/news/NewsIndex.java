@@ -0,0 +1,101 @@
+package com.tradax.wallet.news;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Articles of all feeds, each stored once by URL hash and capped at {@code maxArticles}, the oldest
+ * dropped first. Every feed is published as an immutable array sorted newest first together with an
+ * ETag of its contents, so readers never lock and a page is a slice of that array.
+ */
+class NewsIndex {
+
+    static final Comparator<NewsArticle> NEWEST_FIRST = Comparator
+            .comparing(NewsArticle::getPublishedAt).reversed()
+            .thenComparing(NewsArticle::getId);
+
+    static final class Feed {
+        final NewsArticle[] articles;
+        final String etag;
+        final long updatedAt;
+
+        Feed(NewsArticle[] articles, String etag, long updatedAt) {
+            this.articles = articles;
+            this.etag = etag;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    private final int maxArticles;
+
+    // guarded by this
+    private final Map<String, NewsArticle> articles = new HashMap<>();
+    private final Map<String, Set<String>> feedIds = new HashMap<>();
+
+    private volatile Map<String, Feed> feeds = Map.of();
+
+    NewsIndex(int maxArticles) {
+        this.maxArticles = maxArticles;
+    }
+
+    Feed feed(String key) {
+        return feeds.get(key);
+    }
+
+    /**
+     * Adds freshly fetched articles to a feed and returns how many were not known before.
+     */
+    synchronized int merge(String feed, List<NewsArticle> fetched) {
+        Set<String> ids = feedIds.computeIfAbsent(feed, k -> new LinkedHashSet<>());
+        int added = 0;
+        for (NewsArticle a : fetched) {
+            if (articles.putIfAbsent(a.getId(), a) == null) added++;
+            ids.add(a.getId());
+        }
+        Map<String, Feed> next = new HashMap<>(feeds);
+        if (articles.size() > maxArticles) {
+            trim();
+            for (String key : feedIds.keySet()) next.put(key, build(feedIds.get(key)));
+        } else {
+            next.put(feed, build(ids));
+        }
+        feeds = next;
+        return added;
+    }
+
+    synchronized int size() {
+        return articles.size();
+    }
+
+    private void trim() {
+        List<NewsArticle> all = new ArrayList<>(articles.values());
+        all.sort(NEWEST_FIRST);
+        for (NewsArticle dropped : all.subList(maxArticles, all.size())) {
+            articles.remove(dropped.getId());
+        }
+        for (Set<String> ids : feedIds.values()) ids.retainAll(articles.keySet());
+    }
+
+    private Feed build(Set<String> ids) {
+        NewsArticle[] sorted = new NewsArticle[ids.size()];
+        int i = 0;
+        for (String id : ids) sorted[i++] = articles.get(id);
+        Arrays.sort(sorted, NEWEST_FIRST);
+        // FNV-1a over the ids in order, so the tag changes whenever the feed does
+        long h = 0xcbf29ce484222325L;
+        for (NewsArticle a : sorted) {
+            for (byte b : a.getId().getBytes(StandardCharsets.US_ASCII)) {
+                h ^= b;
+                h *= 0x100000001b3L;
+            }
+        }
+        return new Feed(sorted, Long.toHexString(h), System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,43 @@
+package com.tradax.wallet.news;
+
+import java.util.List;
+
+/**
+ * One page of a news feed, newest first, with the ETag identifying exactly this response.
+ */
+public class NewsPage {
+
+    private final List<NewsArticle> articles;
+    private final boolean hasMore;
+    private final String etag;
+    private final long updatedAt;
+
+    NewsPage(List<NewsArticle> articles, boolean hasMore, String etag, long updatedAt) {
+        this.articles = articles;
+        this.hasMore = hasMore;
+        this.etag = etag;
+        this.updatedAt = updatedAt;
+    }
+
+    public List<NewsArticle> getArticles() {
+        return articles;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Changes whenever the feed gains or loses articles; already quoted as sent in the ETag header.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * When the feed was last merged, epoch millis, 0 before its first fetch.
+     */
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,223 @@
+package com.tradax.wallet.news;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * The news feed, served from memory.
+ *
+ * A fixed set of feeds (the general crypto feed, one per category and one per coin) is fetched from
+ * GNews on a schedule and merged into a {@link NewsIndex}; requests never go upstream. Upstream calls
+ * are capped at {@code wallet.news.daily-request-limit} per rolling day, the quota of the GNews plan.
+ */
+@Service
+public class NewsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NewsService.class);
+
+    public static final String LATEST = "latest";
+
+    private static final String DEFAULT_QUERY = "cryptocurrency OR bitcoin OR ethereum OR crypto OR blockchain";
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+
+    @Autowired
+    private GNewsClient client;
+
+    @Value("${wallet.news.categories:defi,nft,regulation}")
+    private List<String> categories;
+
+    @Value("${wallet.news.coins:bitcoin,ethereum}")
+    private List<String> coins;
+
+    // 0 = no scheduled fetches
+    @Value("${wallet.news.refresh-interval-ms:3600000}")
+    private long refreshIntervalMs;
+
+    // GNews returns at most 10 articles per request on the free plan
+    @Value("${wallet.news.page-size:10}")
+    private int upstreamPageSize;
+
+    @Value("${wallet.news.pages-per-feed:1}")
+    private int pagesPerFeed;
+
+    @Value("${wallet.news.daily-request-limit:100}")
+    private int dailyRequestLimit;
+
+    @Value("${wallet.news.max-articles:2000}")
+    private int maxArticles;
+
+    // feed key to GNews query
+    private final Map<String, String> feeds = new LinkedHashMap<>();
+    // times of upstream requests in the last day, only touched by the scheduler thread
+    private final Deque<Long> requests = new ArrayDeque<>();
+    private NewsIndex index;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void init() {
+        index = new NewsIndex(maxArticles);
+        feeds.put(LATEST, DEFAULT_QUERY);
+        for (String c : categories) {
+            if (!c.isBlank()) feeds.put(feedKey(c, null), c.trim() + " cryptocurrency blockchain");
+        }
+        for (String c : coins) {
+            if (!c.isBlank()) feeds.put(feedKey(null, c), c.trim() + " cryptocurrency");
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (refreshIntervalMs <= 0 || scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "news-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::refreshQuietly, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * The feed a request asks for: a category, a coin, or the general feed. Unknown ones fail,
+     * since they are not fetched.
+     */
+    public String feedKey(String category, String coin) {
+        if (category != null && !category.isBlank()) return "category:" + category.trim().toLowerCase(Locale.ROOT);
+        if (coin != null && !coin.isBlank()) return "coin:" + coin.trim().toLowerCase(Locale.ROOT);
+        return LATEST;
+    }
+
+    public List<String> getFeeds() {
+        return new ArrayList<>(feeds.keySet());
+    }
+
+    /**
+     * One page (1-based) of a feed, newest first, optionally limited to articles published since
+     * {@code since} and whose title or description contains every word of {@code query}.
+     */
+    public NewsPage getPage(String feed, Instant since, String query, int page, int size) {
+        if (!feeds.containsKey(feed)) throw new IllegalArgumentException("Unknown news feed: " + feed);
+        if (page < 1) throw new IllegalArgumentException("Page must be at least 1");
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        String[] words = query == null || query.isBlank() ? new String[0] : query.trim().toLowerCase(Locale.ROOT).split("\\s+");
+
+        NewsIndex.Feed f = index.feed(feed);
+        String tag = "\"" + (f == null ? "empty" : f.etag) + "-" + page + "-" + pageSize
+                + "-" + Integer.toHexString(Arrays.hashCode(words)) + "-" + (since == null ? 0 : since.toEpochMilli()) + "\"";
+        if (f == null) return new NewsPage(List.of(), false, tag, 0);
+
+        NewsArticle[] all = f.articles;
+        int end = since == null ? all.length : publishedSince(all, since);
+        long skip = (long) (page - 1) * pageSize;
+        List<NewsArticle> out = new ArrayList<>(pageSize);
+        boolean more = false;
+        for (int i = 0; i < end; i++) {
+            if (words.length > 0 && !matches(all[i], words)) continue;
+            if (skip > 0) {
+                skip--;
+            } else if (out.size() < pageSize) {
+                out.add(all[i]);
+            } else {
+                more = true;
+                break;
+            }
+        }
+        return new NewsPage(out, more, tag, f.updatedAt);
+    }
+
+    public int getArticleCount() {
+        return index.size();
+    }
+
+    /**
+     * Fetches every feed once, within the daily request budget. A feed that fails keeps the pages
+     * fetched before the failure and does not stop the others.
+     */
+    public void refresh() {
+        for (Map.Entry<String, String> feed : feeds.entrySet()) {
+            List<NewsArticle> fetched = new ArrayList<>();
+            try {
+                for (int page = 1; page <= pagesPerFeed; page++) {
+                    if (!takeRequest()) {
+                        logger.warn("Daily news request limit of {} reached, skipping the rest of this refresh", dailyRequestLimit);
+                        if (!fetched.isEmpty()) index.merge(feed.getKey(), fetched);
+                        return;
+                    }
+                    List<NewsArticle> batch = client.search(feed.getValue(), upstreamPageSize, page);
+                    fetched.addAll(batch);
+                    if (batch.size() < upstreamPageSize) break;
+                }
+            } catch (RuntimeException e) {
+                logger.warn("News feed {} failed after {} articles: {}", feed.getKey(), fetched.size(), e.getMessage());
+                if (fetched.isEmpty()) continue;
+            }
+            int added = index.merge(feed.getKey(), fetched);
+            logger.debug("News feed {}: {} articles fetched, {} new", feed.getKey(), fetched.size(), added);
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            logger.error("News refresh failed", e);
+        }
+    }
+
+    private boolean takeRequest() {
+        long now = System.currentTimeMillis();
+        while (!requests.isEmpty() && requests.peekFirst() <= now - DAY_MS) requests.pollFirst();
+        if (requests.size() >= dailyRequestLimit) return false;
+        requests.addLast(now);
+        return true;
+    }
+
+    // number of leading articles published at or after since; the array is newest first
+    private static int publishedSince(NewsArticle[] articles, Instant since) {
+        int lo = 0, hi = articles.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (articles[mid].getPublishedAt().isBefore(since)) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    private static boolean matches(NewsArticle a, String[] words) {
+        String text = ((a.getTitle() == null ? "" : a.getTitle()) + " "
+                + (a.getDescription() == null ? "" : a.getDescription())).toLowerCase(Locale.ROOT);
+        for (String w : words) {
+            if (!text.contains(w)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package com.tradax.wallet.price;
+
+import java.math.BigDecimal;
+
+/**
+ * One OHLCV candle as returned by {@code /wallet/candles}; {@code time} is its start in epoch millis.
+ */
+public class Candle {
+
+    private final long time;
+    private final BigDecimal open;
+    private final BigDecimal high;
+    private final BigDecimal low;
+    private final BigDecimal close;
+    private final BigDecimal volume;
+    private final int trades;
+
+    public Candle(long time, BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close,
+                  BigDecimal volume, int trades) {
+        this.time = time;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.trades = trades;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public BigDecimal getOpen() {
+        return open;
+    }
+
+    public BigDecimal getHigh() {
+        return high;
+    }
+
+    public BigDecimal getLow() {
+        return low;
+    }
+
+    public BigDecimal getClose() {
+        return close;
+    }
+
+    public BigDecimal getVolume() {
+        return volume;
+    }
+
+    public int getTrades() {
+        return trades;
+    }
+}
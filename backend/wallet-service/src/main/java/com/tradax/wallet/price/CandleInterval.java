@@ -0,0 +1,40 @@
+package com.tradax.wallet.price;
+
+/**
+ * Candle widths kept by {@link CandleStore}, each with the number of candles its ring buffer holds.
+ */
+public enum CandleInterval {
+    M1("1m", 60, 1440),       // one day
+    M5("5m", 300, 2016),      // one week
+    H1("1h", 3600, 2160),     // 90 days
+    D1("1d", 86400, 400);     // a year and a bit
+
+    private final String key;
+    private final long seconds;
+    private final int capacity;
+
+    CandleInterval(String key, long seconds, int capacity) {
+        this.key = key;
+        this.seconds = seconds;
+        this.capacity = capacity;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getSeconds() {
+        return seconds;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public static CandleInterval fromKey(String key) {
+        for (CandleInterval i : values()) {
+            if (i.key.equalsIgnoreCase(key)) return i;
+        }
+        throw new RuntimeException("Unsupported interval: " + key);
+    }
+}
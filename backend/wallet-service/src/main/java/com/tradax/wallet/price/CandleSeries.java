@@ -0,0 +1,98 @@
+package com.tradax.wallet.price;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.tradax.wallet.model.Money;
+
+/**
+ * Ring buffer of the most recent candles of one asset at one interval, as parallel primitive arrays
+ * indexed by bucket number modulo the capacity. Prices and volume are {@link Money} units. A slot
+ * holding an older bucket is reused when a newer one starts; updates for buckets that have already
+ * left the ring are dropped.
+ */
+final class CandleSeries {
+
+    private final long seconds;
+    private final int capacity;
+
+    private final long[] bucket;
+    private final long[] open;
+    private final long[] high;
+    private final long[] low;
+    private final long[] close;
+    private final long[] volume;
+    private final int[] trades;
+
+    // newest bucket written, -1 while empty
+    private long latest = -1;
+
+    CandleSeries(CandleInterval interval) {
+        seconds = interval.getSeconds();
+        capacity = interval.getCapacity();
+        bucket = new long[capacity];
+        Arrays.fill(bucket, -1);
+        open = new long[capacity];
+        high = new long[capacity];
+        low = new long[capacity];
+        close = new long[capacity];
+        volume = new long[capacity];
+        trades = new int[capacity];
+    }
+
+    synchronized void price(long epochSecond, long price) {
+        long b = epochSecond / seconds;
+        int slot = slot(b, price);
+        if (slot < 0) return;
+        if (price > high[slot]) high[slot] = price;
+        if (price < low[slot]) low[slot] = price;
+        close[slot] = price;
+    }
+
+    /**
+     * Adds an executed trade of {@code quantity} units; {@code price} opens the candle if the trade
+     * is the first thing in it.
+     */
+    synchronized void trade(long epochSecond, long quantity, long price) {
+        int slot = slot(epochSecond / seconds, price);
+        if (slot < 0) return;
+        volume[slot] = Money.add(volume[slot], quantity);
+        trades[slot]++;
+    }
+
+    /**
+     * Candles starting within [fromSecond, toSecond], oldest first; the newest {@code limit} if there
+     * are more.
+     */
+    synchronized List<Candle> range(long fromSecond, long toSecond, int limit) {
+        if (latest < 0 || limit <= 0) return Collections.emptyList();
+        long first = Math.max(Math.floorDiv(fromSecond + seconds - 1, seconds), latest - capacity + 1);
+        long last = Math.min(Math.floorDiv(toSecond, seconds), latest);
+        List<Candle> out = new ArrayList<>((int) Math.max(0, Math.min(limit, last - first + 1)));
+        for (long b = last; b >= first && out.size() < limit; b--) {
+            int slot = (int) Math.floorMod(b, (long) capacity);
+            if (bucket[slot] != b) continue;
+            out.add(new Candle(b * seconds * 1000, Money.toBigDecimal(open[slot]), Money.toBigDecimal(high[slot]),
+                    Money.toBigDecimal(low[slot]), Money.toBigDecimal(close[slot]), Money.toBigDecimal(volume[slot]),
+                    trades[slot]));
+        }
+        Collections.reverse(out);
+        return out;
+    }
+
+    // slot of bucket b, starting the candle at price if it is new; -1 if b is too old to keep
+    private int slot(long b, long price) {
+        if (latest >= 0 && b <= latest - capacity) return -1;
+        int slot = (int) Math.floorMod(b, (long) capacity);
+        if (bucket[slot] == b) return slot;
+        if (bucket[slot] > b) return -1;
+        bucket[slot] = b;
+        open[slot] = high[slot] = low[slot] = close[slot] = price;
+        volume[slot] = 0;
+        trades[slot] = 0;
+        if (b > latest) latest = b;
+        return slot;
+    }
+}
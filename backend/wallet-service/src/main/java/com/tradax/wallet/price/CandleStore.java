@@ -0,0 +1,86 @@
+package com.tradax.wallet.price;
+
+import java.math.BigDecimal;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.model.Transaction;
+
+/**
+ * 1m, 5m, 1h and 1d OHLCV candles of every quoted asset, built in memory as prices and trades
+ * arrive and shared by all chart requests.
+ *
+ * Open, high, low and close follow the {@link PriceFeed}, which reports at most one price per asset
+ * per batch of ticks, so a move that is reversed within one batch does not reach high or low. Trade
+ * prices come from requests and are not used for prices; executed BUY and SELL transactions only add
+ * their quantity to the volume and count as trades, once per transaction, so a fill between two
+ * users counts on both sides. Candles start empty when the service starts.
+ */
+@Component
+public class CandleStore implements PriceListener {
+
+    private static final CandleInterval[] INTERVALS = CandleInterval.values();
+
+    @Autowired
+    private PriceFeed priceFeed;
+
+    private final ConcurrentHashMap<String, CandleSeries[]> series = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        priceFeed.addListener(this);
+        // prices published before we listened
+        for (Map.Entry<String, BigDecimal> p : priceFeed.getPrices().entrySet()) {
+            if (!"USD".equals(p.getKey())) onPriceChange(p.getKey(), p.getValue());
+        }
+    }
+
+    @Override
+    public void onPriceChange(String symbol, BigDecimal price) {
+        long now = System.currentTimeMillis() / 1000;
+        long units = priceFeed.getPriceUnits(symbol);
+        for (CandleSeries s : seriesOf(symbol)) s.price(now, units);
+    }
+
+    /**
+     * Adds the executed trades among {@code rows} to the volume of their candles.
+     */
+    public void onTrades(Collection<Transaction> rows) {
+        for (Transaction t : rows) {
+            if (t.getType() != Transaction.TransactionType.BUY && t.getType() != Transaction.TransactionType.SELL) continue;
+            long at = t.getCreatedAt() == null ? System.currentTimeMillis() / 1000
+                : t.getCreatedAt().atZone(ZoneOffset.systemDefault()).toEpochSecond();
+            long quantity = Money.of(t.getAmount());
+            long price = priceFeed.getPriceUnits(t.getAsset());
+            for (CandleSeries s : seriesOf(t.getAsset())) s.trade(at, quantity, price);
+        }
+    }
+
+    /**
+     * Candles of {@code asset} starting between {@code fromMillis} and {@code toMillis}, oldest
+     * first, at most {@code limit} of them (the newest).
+     */
+    public List<Candle> getCandles(String asset, CandleInterval interval, long fromMillis, long toMillis, int limit) {
+        CandleSeries[] s = series.get(asset.toUpperCase());
+        if (s == null) return Collections.emptyList();
+        return s[interval.ordinal()].range(Math.floorDiv(fromMillis, 1000), Math.floorDiv(toMillis, 1000), limit);
+    }
+
+    private CandleSeries[] seriesOf(String symbol) {
+        return series.computeIfAbsent(symbol.toUpperCase(), k -> {
+            CandleSeries[] s = new CandleSeries[INTERVALS.length];
+            for (int i = 0; i < s.length; i++) s[i] = new CandleSeries(INTERVALS[i]);
+            return s;
+        });
+    }
+}
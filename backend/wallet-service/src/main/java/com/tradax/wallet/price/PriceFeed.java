@@ -0,0 +1,266 @@
+package com.tradax.wallet.price;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.tradax.wallet.model.Money;
+
+/**
+ * Current USD price of every known asset.
+ *
+ * Prices live in an immutable snapshot (symbol to id map plus price arrays indexed by id) behind a
+ * volatile reference. Readers take no lock and allocate nothing; ticks from the {@link PriceSource}s
+ * are queued without blocking and applied by a single ingestion thread, which folds everything
+ * queued since its last pass into one new snapshot. A burst of ticks therefore costs one array copy
+ * per batch, not per tick, and never touches request threads.
+ */
+@Component
+public class PriceFeed implements PriceSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceFeed.class);
+
+    private static final String QUOTE_CURRENCY = "USD";
+
+    @Autowired(required = false)
+    private List<PriceSource> sources = Collections.emptyList();
+
+    @Value("${wallet.prices.queue-capacity:65536}")
+    private int queueCapacity;
+
+    private volatile Snapshot snapshot;
+    private BlockingQueue<Tick> queue;
+    private Thread ingester;
+    private volatile boolean running;
+    private final AtomicLong dropped = new AtomicLong();
+    private final List<PriceListener> listeners = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    void start() {
+        Map<String, Integer> ids = new HashMap<>();
+        ids.put(QUOTE_CURRENCY, 0);
+        snapshot = new Snapshot(ids, new String[] { QUOTE_CURRENCY }, new BigDecimal[] { BigDecimal.ONE },
+                new long[] { Money.ONE }, 0);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+
+        for (PriceSource source : sources) {
+            source.start(this);
+            logger.info("Price source '{}' started", source.getName());
+        }
+        // initial prices are in place before the first request is served
+        List<Tick> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        apply(batch);
+
+        ingester = new Thread(this::ingestLoop, "price-ingest");
+        ingester.setDaemon(true);
+        ingester.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        for (PriceSource source : sources) source.stop();
+        running = false;
+        ingester.interrupt();
+        ingester.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @Override
+    public boolean publish(String symbol, BigDecimal price) {
+        if (!running || price == null || price.signum() <= 0 || QUOTE_CURRENCY.equals(symbol)) return false;
+        long units;
+        try {
+            units = Money.of(price);
+        } catch (RuntimeException e) {
+            return false;
+        }
+        if (units <= 0) return false;
+        if (queue.offer(new Tick(symbol, price, units))) return true;
+        // the next tick for the same asset supersedes this one, so dropping is only logged in aggregate
+        if ((dropped.incrementAndGet() & 0xFFF) == 1) logger.warn("Price feed saturated, {} ticks dropped so far", dropped.get());
+        return false;
+    }
+
+    public void addListener(PriceListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Price of {@code symbol}, or {@code BigDecimal.ONE} for assets the feed has never quoted.
+     */
+    public BigDecimal getPrice(String symbol) {
+        Snapshot s = snapshot;
+        int id = s.indexOf(symbol);
+        return id < 0 ? BigDecimal.ONE : s.prices[id];
+    }
+
+    /**
+     * Price of {@code symbol} in {@link Money} units, with the same fallback as {@link #getPrice}.
+     */
+    public long getPriceUnits(String symbol) {
+        Snapshot s = snapshot;
+        int id = s.indexOf(symbol);
+        return id < 0 ? Money.ONE : s.units[id];
+    }
+
+    /**
+     * The current prices as one set, for valuing several assets without a tick in between.
+     */
+    public Quotes quotes() {
+        return new Quotes(snapshot);
+    }
+
+    /**
+     * All current prices keyed by symbol, in id order.
+     */
+    public Map<String, BigDecimal> getPrices() {
+        Snapshot s = snapshot;
+        Map<String, BigDecimal> prices = new LinkedHashMap<>();
+        for (int i = 0; i < s.symbols.length; i++) prices.put(s.symbols[i], s.prices[i]);
+        return prices;
+    }
+
+    /**
+     * Incremented every time a new snapshot is published.
+     */
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    private void ingestLoop() {
+        List<Tick> batch = new ArrayList<>();
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch);
+            try {
+                apply(batch);
+            } catch (RuntimeException e) {
+                logger.error("Failed to apply {} price ticks", batch.size(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    // only called from the ingestion thread (or from start() before it exists)
+    private void apply(List<Tick> batch) {
+        if (batch.isEmpty()) return;
+        Snapshot current = snapshot;
+        Map<String, Integer> ids = current.ids;
+        String[] symbols = current.symbols;
+        BigDecimal[] prices = Arrays.copyOf(current.prices, current.prices.length);
+        long[] units = Arrays.copyOf(current.units, current.units.length);
+        BitSet changed = new BitSet();
+        for (Tick t : batch) {
+            Integer id = ids.get(t.symbol);
+            if (id == null) {
+                if (ids == current.ids) ids = new HashMap<>(current.ids);
+                id = symbols.length;
+                ids.put(t.symbol, id);
+                symbols = Arrays.copyOf(symbols, id + 1);
+                symbols[id] = t.symbol;
+                prices = Arrays.copyOf(prices, id + 1);
+                units = Arrays.copyOf(units, id + 1);
+            }
+            prices[id] = t.price;
+            units[id] = t.units;
+            changed.set(id);
+        }
+        snapshot = new Snapshot(ids, symbols, prices, units, current.version + 1);
+
+        for (int id = changed.nextSetBit(0); id >= 0; id = changed.nextSetBit(id + 1)) {
+            if (id < current.prices.length && prices[id].compareTo(current.prices[id]) == 0) continue;
+            for (PriceListener listener : listeners) {
+                try {
+                    listener.onPriceChange(symbols[id], prices[id]);
+                } catch (RuntimeException e) {
+                    logger.error("Price listener failed for {}", symbols[id], e);
+                }
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        final Map<String, Integer> ids;
+        final String[] symbols;
+        final BigDecimal[] prices;
+        final long[] units;
+        final long version;
+
+        Snapshot(Map<String, Integer> ids, String[] symbols, BigDecimal[] prices, long[] units, long version) {
+            this.ids = ids;
+            this.symbols = symbols;
+            this.prices = prices;
+            this.units = units;
+            this.version = version;
+        }
+
+        int indexOf(String symbol) {
+            Integer id = ids.get(symbol);
+            // wallets store upper-case symbols; only unusual callers pay for the case conversion
+            if (id == null) id = ids.get(symbol.toUpperCase());
+            return id == null ? -1 : id;
+        }
+    }
+
+    /**
+     * Prices as of one moment, with the same fallbacks as {@link #getPrice} and {@link #getPriceUnits}.
+     */
+    public static final class Quotes {
+        private final Snapshot s;
+
+        private Quotes(Snapshot s) {
+            this.s = s;
+        }
+
+        public BigDecimal getPrice(String symbol) {
+            int id = s.indexOf(symbol);
+            return id < 0 ? BigDecimal.ONE : s.prices[id];
+        }
+
+        public long getPriceUnits(String symbol) {
+            int id = s.indexOf(symbol);
+            return id < 0 ? Money.ONE : s.units[id];
+        }
+
+        public long getVersion() {
+            return s.version;
+        }
+    }
+
+    private static final class Tick {
+        final String symbol;
+        final BigDecimal price;
+        final long units;
+
+        Tick(String symbol, BigDecimal price, long units) {
+            this.symbol = symbol;
+            this.price = price;
+            this.units = units;
+        }
+    }
+}
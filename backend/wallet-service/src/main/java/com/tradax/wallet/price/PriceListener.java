@@ -0,0 +1,15 @@
+package com.tradax.wallet.price;
+
+import java.math.BigDecimal;
+
+/**
+ * Notified by {@link PriceFeed} when the price of an asset changes.
+ *
+ * Called on the price ingestion thread, at most once per asset for every batch of ticks and
+ * after the new price is visible through {@link PriceFeed#getPrice}. Implementations must be quick.
+ */
+@FunctionalInterface
+public interface PriceListener {
+
+    void onPriceChange(String symbol, BigDecimal price);
+}
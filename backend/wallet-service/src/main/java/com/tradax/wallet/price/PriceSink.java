@@ -0,0 +1,17 @@
+package com.tradax.wallet.price;
+
+import java.math.BigDecimal;
+
+/**
+ * Receives ticks from a {@link PriceSource}.
+ */
+@FunctionalInterface
+public interface PriceSink {
+
+    /**
+     * Queues a price for an asset symbol (upper case, e.g. {@code BTC}) quoted in USD.
+     *
+     * @return false if the tick was dropped because the feed is saturated
+     */
+    boolean publish(String symbol, BigDecimal price);
+}
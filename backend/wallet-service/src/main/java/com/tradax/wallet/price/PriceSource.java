@@ -0,0 +1,20 @@
+package com.tradax.wallet.price;
+
+/**
+ * A source of price ticks. Every {@code PriceSource} bean is started by {@link PriceFeed} on startup.
+ *
+ * Implementations push ticks into the {@link PriceSink} from their own threads; publishing never
+ * blocks, so a source may emit as fast as its upstream delivers.
+ */
+public interface PriceSource {
+
+    String getName();
+
+    /**
+     * Starts emitting ticks. Prices published before this method returns are applied before the
+     * service accepts requests, so a source should publish its initial prices synchronously.
+     */
+    void start(PriceSink sink);
+
+    void stop();
+}
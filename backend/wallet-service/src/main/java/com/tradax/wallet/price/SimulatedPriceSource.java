@@ -0,0 +1,72 @@
+package com.tradax.wallet.price;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local price source for development and load tests.
+ *
+ * Starts from fixed reference prices and moves each asset by a seeded geometric random walk, so two
+ * runs with the same seed produce the same price path.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.prices.source", havingValue = "simulated", matchIfMissing = true)
+public class SimulatedPriceSource implements PriceSource {
+
+    private static final String[] SYMBOLS = { "BTC", "ETH", "ADA", "SOL" };
+    private static final double[] REFERENCE_PRICES = { 45000.00, 3000.00, 0.50, 100.00 };
+
+    @Value("${wallet.prices.simulated.seed:42}")
+    private long seed;
+
+    @Value("${wallet.prices.simulated.interval-ms:0}")
+    private long intervalMs;
+
+    // standard deviation of the relative move per tick
+    @Value("${wallet.prices.simulated.volatility:0.0005}")
+    private double volatility;
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public String getName() {
+        return "simulated";
+    }
+
+    @Override
+    public void start(PriceSink sink) {
+        Random random = new Random(seed);
+        double[] prices = REFERENCE_PRICES.clone();
+        for (int i = 0; i < SYMBOLS.length; i++) sink.publish(SYMBOLS[i], toPrice(prices[i]));
+        if (intervalMs <= 0) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "price-simulator");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            for (int i = 0; i < SYMBOLS.length; i++) {
+                prices[i] *= Math.exp(volatility * random.nextGaussian());
+                sink.publish(SYMBOLS[i], toPrice(prices[i]));
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    private static BigDecimal toPrice(double price) {
+        return BigDecimal.valueOf(price).setScale(8, RoundingMode.HALF_UP);
+    }
+}
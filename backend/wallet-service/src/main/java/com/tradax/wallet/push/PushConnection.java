@@ -0,0 +1,137 @@
+package com.tradax.wallet.push;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * One subscribed client. Changes only set flags or bump versions; a single send task per connection,
+ * run on the hub's sender pool, reads the newest state when it runs and writes it. Whatever changes
+ * while a send is in progress is picked up by the next pass, so a slow client skips intermediate
+ * states instead of building up a backlog. A client too slow to take a single event is dropped by
+ * the hub's ticker, see {@link #dropIfStuck}.
+ */
+final class PushConnection {
+
+    final PushHub.User user;
+    final SseEmitter emitter;
+
+    private final PushHub hub;
+    private final Executor sender;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+    // set while the hub runs a spare sender thread for this connection
+    private final AtomicBoolean stuck = new AtomicBoolean();
+    // versions last sent, -1 before the first
+    private volatile long balancesSent = -1;
+    private volatile long pricesSent = -1;
+    // start of the write in progress, 0 while not writing
+    private volatile long sendingSince;
+    private volatile boolean closed;
+
+    PushConnection(PushHub.User user, SseEmitter emitter, PushHub hub, Executor sender) {
+        this.user = user;
+        this.emitter = emitter;
+        this.hub = hub;
+        this.sender = sender;
+    }
+
+    void heartbeat() {
+        heartbeatDue.set(true);
+        schedule();
+    }
+
+    void schedule() {
+        if (closed || !scheduled.compareAndSet(false, true)) return;
+        try {
+            sender.execute(this::flush);
+        } catch (RuntimeException e) {
+            scheduled.set(false);
+            close();
+        }
+    }
+
+    void close() {
+        if (closed) return;
+        closed = true;
+        hub.remove(this);
+        // completing waits for a write in progress; the sending thread completes it instead
+        if (sendingSince == 0) complete();
+    }
+
+    /**
+     * Drops the connection if a write has been in progress for longer than {@code timeoutMs}.
+     * The blocked sender thread is replaced until the write returns.
+     */
+    boolean dropIfStuck(long now, long timeoutMs) {
+        long since = sendingSince;
+        if (closed || since == 0 || now - since < timeoutMs) return false;
+        stuck.set(true);
+        hub.senderStuck();
+        close();
+        // the write may have returned in the meantime without seeing the flag
+        if (sendingSince == 0) released();
+        return true;
+    }
+
+    private void flush() {
+        try {
+            while (!closed) {
+                PushHub.Payload prices = hub.latestPrices();
+                boolean sendPrices = prices != null && prices.version != pricesSent;
+                boolean sendBalances = user.changes.get() != balancesSent;
+                boolean sendHeartbeat = heartbeatDue.getAndSet(false);
+                if (!sendPrices && !sendBalances && !sendHeartbeat) break;
+                if (sendBalances) {
+                    PushHub.Payload balances = hub.balances(user);
+                    send(SseEmitter.event().name("balances").data(balances.json, MediaType.APPLICATION_JSON));
+                    balancesSent = balances.version;
+                }
+                // dropped while the balances were being written
+                if (closed) break;
+                if (sendPrices) {
+                    send(SseEmitter.event().name("prices").data(prices.json, MediaType.APPLICATION_JSON));
+                    pricesSent = prices.version;
+                }
+                if (sendHeartbeat && !sendBalances && !sendPrices) {
+                    send(SseEmitter.event().comment("ping"));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // client went away or the emitter timed out
+            close();
+        } finally {
+            sendingSince = 0;
+            scheduled.set(false);
+        }
+        if (closed) {
+            complete();
+            released();
+            return;
+        }
+        // a change that arrived after the last check but before the flag was cleared
+        if (user.changes.get() != balancesSent || heartbeatDue.get() || hub.pricesNewerThan(pricesSent)) schedule();
+    }
+
+    private void send(SseEmitter.SseEventBuilder event) throws IOException {
+        sendingSince = System.currentTimeMillis();
+        emitter.send(event);
+        sendingSince = 0;
+    }
+
+    private void released() {
+        if (stuck.compareAndSet(true, false)) hub.senderReleased();
+    }
+
+    private void complete() {
+        try {
+            emitter.complete();
+        } catch (RuntimeException ignored) {
+            // already completed by the container
+        }
+    }
+}
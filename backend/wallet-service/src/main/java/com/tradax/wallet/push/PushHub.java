@@ -0,0 +1,284 @@
+package com.tradax.wallet.push;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tradax.wallet.price.PriceFeed;
+import com.tradax.wallet.service.PortfolioSnapshot;
+import com.tradax.wallet.service.WalletService;
+
+/**
+ * Server-sent event streams of balances and prices for subscribed clients ({@code GET /wallet/stream}).
+ *
+ * A client gets a {@code balances} event (same body as {@code /wallet/balance}) when it connects and
+ * after each change to its wallets, and a {@code prices} event with all current prices when it
+ * connects and at most once per {@code wallet.push.price-interval-ms} while they move. Price events
+ * are serialized once per interval and shared by every connection, balance events once per change
+ * and shared by the user's connections. Sending happens on a small pool with at most one pending
+ * send per connection, see {@link PushConnection}. A connection whose send has not finished within
+ * {@code wallet.push.write-timeout-ms} is dropped and the pool gets a spare thread while the stuck
+ * one waits for the container to give up on the write.
+ */
+@Component
+public class PushHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushHub.class);
+
+    @Autowired
+    private PriceFeed priceFeed;
+
+    // WalletService notifies the hub, and the hub reads balances back through it
+    @Lazy
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${wallet.push.threads:4}")
+    private int threads;
+
+    @Value("${wallet.push.max-connections:10000}")
+    private int maxConnections;
+
+    @Value("${wallet.push.max-connections-per-user:5}")
+    private int maxPerUser;
+
+    @Value("${wallet.push.price-interval-ms:1000}")
+    private long priceIntervalMs;
+
+    @Value("${wallet.push.heartbeat-ms:20000}")
+    private long heartbeatMs;
+
+    // 0 = streams stay open until the client disconnects
+    @Value("${wallet.push.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${wallet.push.write-timeout-ms:5000}")
+    private long writeTimeoutMs;
+
+    private final ConcurrentHashMap<String, User> users = new ConcurrentHashMap<>();
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile Payload prices;
+    private ThreadPoolExecutor sender;
+    private ScheduledExecutorService ticker;
+    private long lastHeartbeat;
+    private int stuckSenders;
+
+    static final class Payload {
+        final long version;
+        final String json;
+
+        Payload(long version, String json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+
+    /**
+     * Streams of one user and the balances last serialized for them.
+     */
+    static final class User {
+        final String email;
+        final Set<PushConnection> connections = new CopyOnWriteArraySet<>();
+        // bumped after every change to the user's wallets
+        final AtomicLong changes = new AtomicLong();
+
+        // guarded by this
+        private Payload balances;
+        private long balancesPrices = -1;
+
+        User(String email) {
+            this.email = email;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        AtomicInteger index = new AtomicInteger();
+        // up to one spare thread per core thread stands in for senders stuck on a slow client
+        sender = new ThreadPoolExecutor(threads, threads * 2, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> daemon(r, "push-sender-" + index.incrementAndGet()));
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "push-ticker"));
+        ticker.scheduleWithFixedDelay(this::tick, priceIntervalMs, priceIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        ticker.shutdownNow();
+        for (User user : users.values()) {
+            for (PushConnection c : user.connections) c.close();
+        }
+        sender.shutdownNow();
+    }
+
+    /**
+     * Opens a stream for the user. Beyond the per-user limit the user's oldest stream is closed.
+     */
+    public SseEmitter subscribe(String userEmail) {
+        if (count.get() >= maxConnections) throw new RuntimeException("Too many open streams, please retry later");
+        if (prices == null) refreshPrices();
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        PushConnection[] added = new PushConnection[1];
+        // compute keeps this atomic with remove() dropping the user's last connection
+        User user = users.compute(userEmail, (k, u) -> {
+            if (u == null) u = new User(k);
+            added[0] = new PushConnection(u, emitter, this, sender);
+            u.connections.add(added[0]);
+            return u;
+        });
+        PushConnection connection = added[0];
+        emitter.onCompletion(connection::close);
+        emitter.onTimeout(connection::close);
+        emitter.onError(e -> connection.close());
+
+        count.incrementAndGet();
+        if (user.connections.size() > maxPerUser) {
+            Iterator<PushConnection> oldest = user.connections.iterator();
+            if (oldest.hasNext()) oldest.next().close();
+        }
+        connection.schedule();
+        return emitter;
+    }
+
+    /**
+     * Called after the user's balances changed; their streams send fresh balances.
+     */
+    public void balancesChanged(String userEmail) {
+        User user = users.get(userEmail);
+        if (user == null) return;
+        user.changes.incrementAndGet();
+        for (PushConnection c : user.connections) c.schedule();
+    }
+
+    public int getConnectionCount() {
+        return count.get();
+    }
+
+    void remove(PushConnection connection) {
+        boolean[] removed = new boolean[1];
+        users.computeIfPresent(connection.user.email, (k, u) -> {
+            removed[0] = u.connections.remove(connection);
+            return u.connections.isEmpty() ? null : u;
+        });
+        if (removed[0]) count.decrementAndGet();
+    }
+
+    Payload latestPrices() {
+        return prices;
+    }
+
+    boolean pricesNewerThan(long version) {
+        Payload p = prices;
+        return p != null && p.version != version;
+    }
+
+    /**
+     * The user's balances as of their latest change. Built once per change and price version;
+     * the user's other connections reuse it.
+     */
+    Payload balances(User user) {
+        synchronized (user) {
+            long version = user.changes.get();
+            long pricesVersion = priceFeed.getVersion();
+            if (user.balances == null || user.balances.version != version || user.balancesPrices != pricesVersion) {
+                PortfolioSnapshot snapshot = walletService.getPortfolioSnapshot(user.email);
+                Map<String, Object> body = new HashMap<>();
+                body.put("balances", snapshot.getWallets());
+                body.put("totalValue", snapshot.getTotalValue());
+                body.put("currency", "USD");
+                user.balances = new Payload(version, json(body));
+                user.balancesPrices = pricesVersion;
+            }
+            return user.balances;
+        }
+    }
+
+    // the sender thread of a dropped connection is still blocked; let another take its place
+    synchronized void senderStuck() {
+        stuckSenders++;
+        sender.setCorePoolSize(threads + Math.min(stuckSenders, threads));
+    }
+
+    synchronized void senderReleased() {
+        stuckSenders--;
+        sender.setCorePoolSize(threads + Math.min(stuckSenders, threads));
+    }
+
+    private void tick() {
+        try {
+            Payload before = prices;
+            if (before == null || before.version != priceFeed.getVersion()) {
+                refreshPrices();
+                for (User user : users.values()) {
+                    for (PushConnection c : user.connections) c.schedule();
+                }
+            }
+            long now = System.currentTimeMillis();
+            for (User user : users.values()) {
+                for (PushConnection c : user.connections) {
+                    if (c.dropIfStuck(now, writeTimeoutMs)) {
+                        logger.info("Dropped stream of {}, a send took longer than {} ms", user.email, writeTimeoutMs);
+                    }
+                }
+            }
+            if (now - lastHeartbeat >= heartbeatMs) {
+                lastHeartbeat = now;
+                for (User user : users.values()) {
+                    for (PushConnection c : user.connections) c.heartbeat();
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Push tick failed", e);
+        }
+    }
+
+    private synchronized void refreshPrices() {
+        long version = priceFeed.getVersion();
+        if (prices != null && prices.version == version) return;
+        Map<String, BigDecimal> current = priceFeed.getPrices();
+        Map<String, Object> body = new HashMap<>();
+        body.put("prices", current);
+        body.put("currency", "USD");
+        prices = new Payload(version, json(body));
+    }
+
+    private String json(Map<String, Object> body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize push event", e);
+        }
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
@@ -0,0 +1,30 @@
+package com.tradax.wallet.repository;
+
+import com.tradax.wallet.model.TradeOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OrderRepository extends JpaRepository<TradeOrder, Long> {
+
+    List<TradeOrder> findByStatusOrderByCreatedAtAscIdAsc(TradeOrder.OrderStatus status);
+
+    List<TradeOrder> findByUserEmailAndStatusOrderByCreatedAtDesc(String userEmail, TradeOrder.OrderStatus status);
+
+    // remaining only ever shrinks, so a stale fill arriving late cannot overwrite a newer state
+    @Modifying
+    @Query("UPDATE TradeOrder o SET o.remaining = :remaining, o.reserved = :reserved, o.status = :status, " +
+           "o.updatedAt = :updatedAt WHERE o.id = :id AND o.remaining > :remaining")
+    int updateRemaining(@Param("id") Long id,
+                        @Param("remaining") BigDecimal remaining,
+                        @Param("reserved") BigDecimal reserved,
+                        @Param("status") TradeOrder.OrderStatus status,
+                        @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -0,0 +1,15 @@
+package com.tradax.wallet.repository;
+
+import com.tradax.wallet.model.PortfolioValueDay;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Rows are written by PortfolioHistory with plain JDBC; this side only reads them.
+@Repository
+public interface PortfolioValueDayRepository extends JpaRepository<PortfolioValueDay, Long> {
+
+    List<PortfolioValueDay> findByUserEmailAndDayBetweenOrderByDay(String userEmail, LocalDate from, LocalDate to);
+}
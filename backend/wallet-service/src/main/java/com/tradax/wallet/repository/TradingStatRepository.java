@@ -0,0 +1,26 @@
+package com.tradax.wallet.repository;
+
+import com.tradax.wallet.model.TradingStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Rows are written through TradingStats with plain JDBC; this side only reads them.
+@Repository
+public interface TradingStatRepository extends JpaRepository<TradingStat, Long> {
+
+    List<TradingStat> findByUserEmailOrderByAsset(String userEmail);
+
+    @Query("select coalesce(sum(s.sellValue - s.buyValue), 0) from TradingStat s where s.userEmail = :userEmail")
+    BigDecimal sumProfitLoss(@Param("userEmail") String userEmail);
+
+    @Query("select coalesce(sum(s.buyValue + s.sellValue), 0) from TradingStat s where s.userEmail = :userEmail")
+    BigDecimal sumVolume(@Param("userEmail") String userEmail);
+
+    @Query("select coalesce(sum(s.depositValue - s.withdrawalValue), 0) from TradingStat s where s.userEmail = :userEmail")
+    BigDecimal sumNetDeposits(@Param("userEmail") String userEmail);
+}
@@ -5,18 +5,39 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
     Page<Transaction> findByUserEmail(String userEmail, Pageable pageable);
 
+    // Keyset pagination: newest first, no COUNT and no skipped rows however deep the page
+
+    List<Transaction> findByUserEmailOrderByCreatedAtDescIdDesc(String userEmail, Pageable pageable);
+
+    @Query("select t from Transaction t " +
+           "where t.userEmail = :userEmail " +
+           "  and (t.createdAt < :createdAt or (t.createdAt = :createdAt and t.id < :id)) " +
+           "order by t.createdAt desc, t.id desc")
+    List<Transaction> findPageBefore(@Param("userEmail") String userEmail,
+                                     @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("id") Long id,
+                                     Pageable pageable);
+
+    // Must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select t from Transaction t where t.userEmail = :userEmail order by t.createdAt desc, t.id desc")
+    Stream<Transaction> streamByUserEmail(@Param("userEmail") String userEmail);
+
     List<Transaction> findByUserEmailAndAsset(String userEmail, String asset);
 
     List<Transaction> findByUserEmailAndType(String userEmail, Transaction.TransactionType type);
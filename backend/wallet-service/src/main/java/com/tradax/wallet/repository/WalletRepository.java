@@ -2,10 +2,13 @@ package com.tradax.wallet.repository;
 
 import com.tradax.wallet.model.Wallet;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -16,9 +19,14 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
 
     List<Wallet> findByUserEmail(String userEmail);
 
+    // SELECT ... FOR UPDATE: the rows stay locked until the surrounding transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.userEmail = :userEmail")
+    List<Wallet> lockByUserEmail(@Param("userEmail") String userEmail);
+
     Optional<Wallet> findByUserEmailAndAsset(String userEmail, String asset);
 
-    List<Wallet> findByUserEmailAndBalanceGreaterThan(String userEmail, BigDecimal balance);
+    List<Wallet> findByUserEmailAndBalanceGreaterThan(String userEmail, long balanceUnits);
 
     List<Wallet> findByAsset(String asset);
 
@@ -34,4 +42,37 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     boolean existsByUserEmailAndAsset(String userEmail, String asset);
 
     List<Wallet> findTop10ByAssetOrderByBalanceDesc(String asset);
+
+    // Balance parameters are Money units; the converter turns them into column values.
+
+    /**
+     * Subtracts {@code amount} only if the balance covers it; returns 0 when it does not
+     * (or when the wallet does not exist), so no entity has to be read first.
+     */
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance - :amount, w.updatedAt = :updatedAt " +
+           "WHERE w.userEmail = :userEmail AND w.asset = :asset AND w.balance >= :amount")
+    int debit(@Param("userEmail") String userEmail,
+              @Param("asset") String asset,
+              @Param("amount") long amount,
+              @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Adds {@code amount} to an existing wallet; returns 0 when the wallet does not exist yet.
+     */
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance + :amount, w.updatedAt = :updatedAt " +
+           "WHERE w.userEmail = :userEmail AND w.asset = :asset")
+    int credit(@Param("userEmail") String userEmail,
+               @Param("asset") String asset,
+               @Param("amount") long amount,
+               @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = :balance, w.updatedAt = :updatedAt " +
+           "WHERE w.userEmail = :userEmail AND w.asset = :asset")
+    int updateBalance(@Param("userEmail") String userEmail,
+                      @Param("asset") String asset,
+                      @Param("balance") long balance,
+                      @Param("updatedAt") LocalDateTime updatedAt);
 }
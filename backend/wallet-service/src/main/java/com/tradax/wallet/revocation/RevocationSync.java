@@ -0,0 +1,163 @@
+package com.tradax.wallet.revocation;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Follows the auth-service revocation feed ({@code GET /auth/revocations?after=id}) into
+ * {@link RevokedTokens}, so a logout takes effect here within one poll interval.
+ *
+ * Ids come from an identity column, so a revocation can commit after one with a higher id; each
+ * poll therefore starts {@code rescan-ids} below the highest id seen and lets {@link RevokedTokens}
+ * drop what it already has. The feed is only served to callers sending the shared
+ * {@code service-token}.
+ *
+ * While auth-service is unreachable the revocations already known stay in force. When it reports a
+ * new epoch (it restarted) the feed is read again from the start.
+ */
+@Component
+public class RevocationSync {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevocationSync.class);
+
+    static final String SERVICE_TOKEN_HEADER = "X-Service-Token";
+
+    @Autowired
+    private RevokedTokens revokedTokens;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${wallet.revocation.auth-url:http://localhost:8083}")
+    private String authUrl;
+
+    // 0 disables following auth-service
+    @Value("${wallet.revocation.poll-ms:1000}")
+    private long pollMs;
+
+    @Value("${wallet.revocation.purge-ms:60000}")
+    private long purgeMs;
+
+    @Value("${wallet.revocation.timeout-ms:2000}")
+    private long timeoutMs;
+
+    // how far below the highest id seen each poll starts, to pick up late commits
+    @Value("${wallet.revocation.rescan-ids:100}")
+    private long rescanIds;
+
+    @Value("${wallet.revocation.service-token:}")
+    private String serviceToken;
+
+    private ScheduledExecutorService scheduler;
+    private HttpClient client;
+
+    // only touched by the scheduler thread
+    private long lastId;
+    private String epoch;
+    private boolean reachable = true;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (pollMs <= 0 || scheduler != null) return;
+        if (authUrl.endsWith("/")) authUrl = authUrl.substring(0, authUrl.length() - 1);
+        client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(timeoutMs)).build();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "revocation-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollQuietly, 0, pollMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(revokedTokens::purge, purgeMs, purgeMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+            if (!reachable) logger.info("Revocation feed at {} is reachable again", authUrl);
+            reachable = true;
+        } catch (RuntimeException e) {
+            // logged once per outage, the next poll retries anyway
+            if (reachable) logger.warn("Failed to read revocations from {}: {}", authUrl, e.getMessage());
+            reachable = false;
+        }
+    }
+
+    private void poll() {
+        long after = Math.max(0, lastId - rescanIds);
+        boolean more = true;
+        while (more) {
+            JsonNode page = fetch(after);
+            String pageEpoch = page.path("epoch").asText();
+            if (!pageEpoch.equals(epoch)) {
+                if (epoch != null && lastId > 0) {
+                    logger.info("Auth service restarted, reading revocations from the start");
+                    epoch = pageEpoch;
+                    lastId = 0;
+                    after = 0;
+                    continue;
+                }
+                epoch = pageEpoch;
+            }
+            for (JsonNode r : page.path("revocations")) {
+                revokedTokens.add(r.path("jti").asText(), r.path("expiresAt").asLong());
+                after = Math.max(after, r.path("id").asLong());
+            }
+            lastId = Math.max(lastId, after);
+            more = page.path("more").asBoolean();
+        }
+    }
+
+    private JsonNode fetch(long after) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(authUrl + "/auth/revocations?after=" + after))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Accept", "application/json")
+                .GET();
+        if (!serviceToken.isEmpty()) builder.header(SERVICE_TOKEN_HEADER, serviceToken);
+        HttpRequest request = builder.build();
+        HttpResponse<String> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new RuntimeException("Auth service is unreachable: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while reading revocations");
+        }
+        if (response.statusCode() != 200) {
+            throw new RuntimeException("Auth service returned HTTP " + response.statusCode());
+        }
+        try {
+            return objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            throw new RuntimeException("Unreadable revocation feed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.tradax.wallet.service;
+
+import java.math.BigDecimal;
+
+/**
+ * One entry of a batch: a deposit, or a market buy or sell filled at the current price as long as
+ * that is no worse than {@code price}.
+ */
+public class BatchOperation {
+
+    private final String type;
+    private final String asset;
+    private final BigDecimal amount;
+    private final BigDecimal price;
+
+    public BatchOperation(String type, String asset, BigDecimal amount, BigDecimal price) {
+        this.type = type;
+        this.asset = asset;
+        this.amount = amount;
+        this.price = price;
+    }
+
+    public static BatchOperation deposit(String asset, BigDecimal amount) {
+        return new BatchOperation("deposit", asset, amount, null);
+    }
+
+    /**
+     * {@code deposit}, {@code buy} or {@code sell}.
+     */
+    public String getType() {
+        return type;
+    }
+
+    public String getAsset() {
+        return asset;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    /**
+     * Highest price a buy pays or lowest price a sell accepts; unused for deposits.
+     */
+    public BigDecimal getPrice() {
+        return price;
+    }
+}
@@ -0,0 +1,46 @@
+package com.tradax.wallet.service;
+
+import com.tradax.wallet.model.Transaction;
+
+/**
+ * Outcome of one operation of a batch: the transaction it created, or why it was not applied.
+ */
+public class BatchResult {
+
+    private final int index;
+    private final Transaction transaction;
+    private final String error;
+
+    private BatchResult(int index, Transaction transaction, String error) {
+        this.index = index;
+        this.transaction = transaction;
+        this.error = error;
+    }
+
+    static BatchResult succeeded(int index, Transaction transaction) {
+        return new BatchResult(index, transaction, null);
+    }
+
+    static BatchResult failed(int index, String error) {
+        return new BatchResult(index, null, error);
+    }
+
+    /**
+     * Position of the operation in the request.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
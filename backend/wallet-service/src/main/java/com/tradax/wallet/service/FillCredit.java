@@ -0,0 +1,44 @@
+package com.tradax.wallet.service;
+
+import com.tradax.wallet.model.Transaction;
+
+/**
+ * One side of an order-book fill: the units of the asset and of USD a user is credited, and the
+ * row that records the trade.
+ */
+public class FillCredit {
+
+    private final String userEmail;
+    private final String asset;
+    private final long assetAmount;
+    private final long usdAmount;
+    private final Transaction record;
+
+    public FillCredit(String userEmail, String asset, long assetAmount, long usdAmount, Transaction record) {
+        this.userEmail = userEmail;
+        this.asset = asset;
+        this.assetAmount = assetAmount;
+        this.usdAmount = usdAmount;
+        this.record = record;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public String getAsset() {
+        return asset;
+    }
+
+    public long getAssetAmount() {
+        return assetAmount;
+    }
+
+    public long getUsdAmount() {
+        return usdAmount;
+    }
+
+    public Transaction getRecord() {
+        return record;
+    }
+}
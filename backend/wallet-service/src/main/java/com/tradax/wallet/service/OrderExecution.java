@@ -0,0 +1,32 @@
+package com.tradax.wallet.service;
+
+import java.util.List;
+
+import com.tradax.wallet.model.TradeOrder;
+import com.tradax.wallet.model.Transaction;
+
+/**
+ * Outcome of placing an order: the resting order (limit orders only) and the fills it produced.
+ */
+public class OrderExecution {
+
+    private final TradeOrder order;
+    private final List<Transaction> fills;
+
+    public OrderExecution(TradeOrder order, List<Transaction> fills) {
+        this.order = order;
+        this.fills = fills;
+    }
+
+    public TradeOrder getOrder() {
+        return order;
+    }
+
+    public List<Transaction> getFills() {
+        return fills;
+    }
+
+    public Transaction getLastFill() {
+        return fills.isEmpty() ? null : fills.get(fills.size() - 1);
+    }
+}
@@ -0,0 +1,288 @@
+package com.tradax.wallet.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tradax.wallet.matching.Fills;
+import com.tradax.wallet.matching.MatchingEngine;
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.model.TradeOrder;
+import com.tradax.wallet.model.Transaction;
+import com.tradax.wallet.price.PriceFeed;
+import com.tradax.wallet.repository.OrderRepository;
+
+/**
+ * Places market and limit orders on the per-asset order books and settles the resulting fills.
+ *
+ * Funds for the whole order are reserved before it reaches the book (USD including fees for buys,
+ * the asset itself for sells), so settling a fill only ever credits wallets and cannot fail for
+ * lack of balance. The book tracks what each order still holds and hands every fill its share
+ * (see {@link MatchingEngine#submit}). Each fill is settled as a whole, both sides and the maker
+ * order together (see {@link WalletService#settleFill}); if placing an order fails part way,
+ * whatever it still holds is refunded and the unsettled fills go back to their makers.
+ *
+ * A market order is matched up to the price the client quoted. Whatever the book cannot fill at
+ * that price or better is filled by the house at the current {@link PriceFeed} price, as long as that
+ * price is no worse than the quote; otherwise the rest is returned, and an order nothing could be
+ * filled for is rejected.
+ *
+ * Quantities, prices and fees are {@link Money} units throughout; {@code BigDecimal} only appears
+ * in the orders and transaction rows that are handed back.
+ */
+@Service
+public class OrderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
+
+    @Autowired
+    private MatchingEngine matchingEngine;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PriceFeed priceFeed;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final ThreadLocal<Fills> fillBuffers = ThreadLocal.withInitial(Fills::new);
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreOpenOrders() {
+        List<TradeOrder> open = orderRepository.findByStatusOrderByCreatedAtAscIdAsc(TradeOrder.OrderStatus.OPEN);
+        for (TradeOrder o : open) {
+            boolean buy = o.getSide() == TradeOrder.Side.BUY;
+            long remaining = Money.of(o.getRemaining());
+            long reserved;
+            if (o.getReserved() != null) reserved = Money.of(o.getReserved());
+            else reserved = buy ? WalletService.buyCost(Money.multiply(remaining, Money.of(o.getPrice()))) : remaining;
+            matchingEngine.restore(o.getAsset(), o.getId(), o.getUserEmail(), buy, Money.of(o.getPrice()), remaining, reserved);
+        }
+        if (!open.isEmpty()) logger.info("Restored {} open orders onto the order books", open.size());
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public OrderExecution placeOrder(String userEmail, String type, String orderType, String asset,
+                                     BigDecimal amount, BigDecimal price) {
+        boolean buy;
+        if ("buy".equalsIgnoreCase(type)) buy = true;
+        else if ("sell".equalsIgnoreCase(type)) buy = false;
+        else throw new RuntimeException("Invalid trade type");
+
+        boolean limit;
+        if (orderType == null || "market".equalsIgnoreCase(orderType)) limit = false;
+        else if ("limit".equalsIgnoreCase(orderType)) limit = true;
+        else throw new RuntimeException("Unsupported order type: " + orderType);
+
+        String symbol = asset.toUpperCase();
+        long quantity = Money.ofExact(amount);
+        long limitPrice = Money.ofExact(price);
+        if (quantity <= 0 || limitPrice <= 0)
+            throw new RuntimeException("Amount and price must be at least 0.00000001");
+
+        String reservedAsset = buy ? "USD" : symbol;
+        long reserved = buy ? WalletService.buyCost(Money.multiply(quantity, limitPrice)) : quantity;
+        walletService.reserve(userEmail, reservedAsset, reserved,
+                buy ? "Insufficient USD for purchase with fees" : "Insufficient asset balance");
+
+        TradeOrder order = null;
+        long orderId = 0;
+        long remaining = quantity;
+        boolean submitted = false;
+        boolean remainderSettled = false;
+        int settled = 0;
+        List<Transaction> transactions = new ArrayList<>();
+        Fills fills = fillBuffers.get();
+        fills.clear();
+        try {
+            if (limit) {
+                order = new TradeOrder(userEmail, symbol, buy ? TradeOrder.Side.BUY : TradeOrder.Side.SELL,
+                        Money.toBigDecimal(limitPrice), Money.toBigDecimal(quantity));
+                order.setReserved(Money.toBigDecimal(reserved));
+                order = orderRepository.save(order);
+                orderId = order.getId();
+            }
+
+            remaining = matchingEngine.submit(symbol, orderId, userEmail, buy, limitPrice, quantity, reserved, limit, fills);
+            submitted = true;
+
+            for (int i = 0; i < fills.size(); i++) {
+                long fillQty = fills.quantity(i);
+                long fillPx = fills.price(i);
+                long makerOrderId = fills.makerOrderId(i);
+                long makerRemaining = fills.makerRemaining(i);
+                long makerReservedLeft = fills.makerReservedLeft(i);
+                transactions.add(walletService.settleFill(
+                        credit(userEmail, buy, symbol, fillQty, fillPx, fills.takerReserved(i)),
+                        credit(fills.makerOwner(i), !buy, symbol, fillQty, fillPx, fills.makerReserved(i)),
+                        () -> saveRemaining(makerOrderId, makerRemaining, makerReservedLeft)));
+                settled++;
+            }
+            if (!limit && remaining > 0) {
+                long left = fills.takerReservedLeft();
+                long housePrice = priceFeed.getPriceUnits(symbol);
+                if (buy ? housePrice > limitPrice : housePrice < limitPrice) {
+                    if (remaining == quantity)
+                        throw new RuntimeException("Not enough liquidity at the requested price");
+                    refund(userEmail, reservedAsset, symbol, left);
+                } else {
+                    FillCredit house = credit(userEmail, buy, symbol, remaining, housePrice, left);
+                    transactions.add(walletService.settle(userEmail, symbol, house.getAssetAmount(),
+                            house.getUsdAmount(), house.getRecord()));
+                }
+                remainderSettled = true;
+            }
+
+            if (order != null && remaining < quantity) {
+                updateRemaining(orderId, remaining, fills.takerReservedLeft());
+                order.setRemaining(Money.toBigDecimal(remaining));
+                order.setReserved(Money.toBigDecimal(fills.takerReservedLeft()));
+                if (remaining == 0) order.setStatus(TradeOrder.OrderStatus.FILLED);
+            }
+        } catch (RuntimeException e) {
+            long refund = submitted ? 0 : reserved;
+            if (submitted) {
+                for (int i = settled; i < fills.size(); i++) refund += fills.takerReserved(i);
+                if (limit && remaining > 0) {
+                    // other takers may have filled it since; cancelling returns what it still holds
+                    long left = matchingEngine.cancel(symbol, orderId, userEmail);
+                    if (left > 0) refund += left;
+                } else if (!limit && !remainderSettled) {
+                    refund += fills.takerReservedLeft();
+                }
+            } else if (limit && order != null) {
+                matchingEngine.cancel(symbol, orderId, userEmail);
+            }
+            unwind(userEmail, reservedAsset, refund, order, symbol, !buy, fills, settled);
+            throw e;
+        } finally {
+            fills.clear();
+        }
+        return new OrderExecution(order, transactions);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TradeOrder cancelOrder(String userEmail, Long orderId) {
+        TradeOrder order = orderRepository.findById(orderId)
+            .filter(o -> o.getUserEmail().equals(userEmail))
+            .orElseThrow(() -> new RuntimeException("Order not found"));
+        long reserved = matchingEngine.cancel(order.getAsset(), orderId, userEmail);
+        if (reserved < 0)
+            throw new RuntimeException("Order is no longer open");
+
+        if (order.getSide() == TradeOrder.Side.BUY) {
+            walletService.settle(userEmail, order.getAsset(), 0, reserved, null);
+        } else {
+            walletService.settle(userEmail, order.getAsset(), reserved, 0, null);
+        }
+        markCancelled(orderId);
+        order.setRemaining(BigDecimal.ZERO);
+        order.setReserved(BigDecimal.ZERO);
+        order.setStatus(TradeOrder.OrderStatus.CANCELLED);
+        return order;
+    }
+
+    @Transactional(readOnly = true)
+    public List<TradeOrder> getOpenOrders(String userEmail) {
+        return orderRepository.findByUserEmailAndStatusOrderByCreatedAtDesc(userEmail, TradeOrder.OrderStatus.OPEN);
+    }
+
+    public List<BigDecimal[]> getDepth(String asset, boolean bids, int levels) {
+        return matchingEngine.depth(asset.toUpperCase(), bids, levels);
+    }
+
+    // Both sides reserved at their own limit price, and a maker always fills at its resting price.
+    // A taker can fill at a better price than its limit; whatever a buyer saves is refunded.
+    private FillCredit credit(String userEmail, boolean buy, String asset, long qty, long price, long reserved) {
+        long value = Money.multiply(qty, price);
+        if (buy) {
+            long refund = Math.max(0, Money.subtract(reserved, WalletService.buyCost(value)));
+            return new FillCredit(userEmail, asset, qty, refund,
+                    fill(userEmail, Transaction.TransactionType.BUY, asset, qty, price, value));
+        }
+        return new FillCredit(userEmail, asset, 0, WalletService.sellProceeds(value),
+                fill(userEmail, Transaction.TransactionType.SELL, asset, qty, price, value));
+    }
+
+    private Transaction fill(String userEmail, Transaction.TransactionType type, String asset,
+                             long qty, long price, long value) {
+        return walletService.completedTransaction(userEmail, type, asset,
+                Money.toBigDecimal(qty), Money.toBigDecimal(price), Money.toBigDecimal(value));
+    }
+
+    /**
+     * Undoes what a failed {@link #placeOrder} still can: refunds what the taker has reserved,
+     * gives makers back the quantity of fills that were never settled and closes the taker's order.
+     */
+    private void unwind(String userEmail, String reservedAsset, long refund, TradeOrder order, String symbol,
+                        boolean makerBuy, Fills fills, int settled) {
+        try {
+            refund(userEmail, reservedAsset, symbol, refund);
+        } catch (RuntimeException e) {
+            logger.error("Could not refund {} units of {} reserved by {}", refund, reservedAsset, userEmail, e);
+        }
+        for (int i = settled; i < fills.size(); i++) {
+            matchingEngine.restore(symbol, fills.makerOrderId(i), fills.makerOwner(i), makerBuy, fills.price(i),
+                    fills.quantity(i), fills.makerReserved(i));
+        }
+        if (order != null && order.getId() != null) {
+            try {
+                markCancelled(order.getId());
+                order.setRemaining(BigDecimal.ZERO);
+                order.setReserved(BigDecimal.ZERO);
+                order.setStatus(TradeOrder.OrderStatus.CANCELLED);
+            } catch (RuntimeException e) {
+                logger.error("Could not cancel order {} after it failed", order.getId(), e);
+            }
+        }
+    }
+
+    private void refund(String userEmail, String reservedAsset, String symbol, long amount) {
+        if (amount <= 0) return;
+        if ("USD".equals(reservedAsset)) walletService.settle(userEmail, symbol, 0, amount, null);
+        else walletService.settle(userEmail, symbol, amount, 0, null);
+    }
+
+    private void markCancelled(long orderId) {
+        transactionTemplate.executeWithoutResult(status ->
+            orderRepository.updateRemaining(orderId, BigDecimal.ZERO, BigDecimal.ZERO,
+                    TradeOrder.OrderStatus.CANCELLED, LocalDateTime.now()));
+    }
+
+    private void updateRemaining(long orderId, long remaining, long reserved) {
+        transactionTemplate.executeWithoutResult(tx -> saveRemaining(orderId, remaining, reserved));
+    }
+
+    // runs in the caller's transaction
+    private void saveRemaining(long orderId, long remaining, long reserved) {
+        TradeOrder.OrderStatus status = remaining == 0 ? TradeOrder.OrderStatus.FILLED : TradeOrder.OrderStatus.OPEN;
+        orderRepository.updateRemaining(orderId, Money.toBigDecimal(remaining), Money.toBigDecimal(reserved),
+                status, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,48 @@
+package com.tradax.wallet.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.tradax.wallet.model.Wallet;
+
+/**
+ * A user's wallets, each with the price it is valued at, and their total value, taken from one
+ * read of the wallets and one set of prices. Everything a response derives from it is mutually
+ * consistent: the total is exactly the sum of the listed positions.
+ */
+public class PortfolioSnapshot {
+
+    private final String userEmail;
+    private final List<Wallet> wallets;
+    private final BigDecimal totalValue;
+    private final long priceVersion;
+
+    PortfolioSnapshot(String userEmail, List<Wallet> wallets, BigDecimal totalValue, long priceVersion) {
+        this.userEmail = userEmail;
+        this.wallets = wallets;
+        this.totalValue = totalValue;
+        this.priceVersion = priceVersion;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public List<Wallet> getWallets() {
+        return wallets;
+    }
+
+    /**
+     * Total USD value, rounded to cents.
+     */
+    public BigDecimal getTotalValue() {
+        return totalValue;
+    }
+
+    /**
+     * Version of the price feed snapshot the wallets were valued at.
+     */
+    public long getPriceVersion() {
+        return priceVersion;
+    }
+}
@@ -0,0 +1,26 @@
+package com.tradax.wallet.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * Loads each user's {@link PortfolioSnapshot} at most once per HTTP request, so balances, the total
+ * value and the performance figures of one response come from a single wallet query.
+ */
+@Component
+@RequestScope
+public class PortfolioSnapshots {
+
+    @Autowired
+    private WalletService walletService;
+
+    private final Map<String, PortfolioSnapshot> loaded = new HashMap<>(2);
+
+    public PortfolioSnapshot get(String userEmail) {
+        return loaded.computeIfAbsent(userEmail, walletService::getPortfolioSnapshot);
+    }
+}
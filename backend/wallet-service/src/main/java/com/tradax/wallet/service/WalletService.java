@@ -3,24 +3,53 @@ package com.tradax.wallet.service;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tradax.wallet.journal.TransactionJournal;
+import com.tradax.wallet.ledger.Balances;
+import com.tradax.wallet.ledger.LedgerAccount;
+import com.tradax.wallet.ledger.LedgerEngine;
+import com.tradax.wallet.model.Asset;
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.model.TradingStat;
 import com.tradax.wallet.model.Transaction;
 import com.tradax.wallet.model.Wallet;
+import com.tradax.wallet.price.PriceFeed;
+import com.tradax.wallet.push.PushHub;
+import com.tradax.wallet.repository.TradingStatRepository;
 import com.tradax.wallet.repository.TransactionRepository;
 import com.tradax.wallet.repository.WalletRepository;
+import com.tradax.wallet.snapshot.PortfolioHistory;
+import com.tradax.wallet.snapshot.ValueSeries;
+import com.tradax.wallet.stats.CostBasis;
+import com.tradax.wallet.stats.CostBasisBook;
+import com.tradax.wallet.stats.CostBasisMethod;
+import com.tradax.wallet.stats.TradingStats;
+import com.tradax.wallet.valuation.PortfolioValuationCache;
 
 @Service
 @Transactional
@@ -34,22 +63,101 @@ public class WalletService {
     @Autowired
     private TransactionRepository transactionRepository;
 
-    private static final BigDecimal FEE_RATE = new BigDecimal("0.001");
-    private static final Map<String, BigDecimal> CURRENT_PRICES = new HashMap<>() {{
-        put("btc", new BigDecimal("45000.00"));
-        put("eth", new BigDecimal("3000.00"));
-        put("ada", new BigDecimal("0.50"));
-        put("sol", new BigDecimal("100.00"));
-        put("usd", new BigDecimal("1.00"));
-    }};
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionJournal transactionJournal;
+
+    @Autowired
+    private PriceFeed priceFeed;
+
+    @Autowired
+    private PortfolioValuationCache valuationCache;
+
+    @Autowired
+    private TradingStats tradingStats;
+
+    @Autowired
+    private TradingStatRepository tradingStatRepository;
+
+    @Autowired
+    private CostBasisBook costBasisBook;
+
+    @Autowired
+    private PortfolioHistory portfolioHistory;
+
+    @Autowired
+    private PushHub pushHub;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Keep balances in the sharded in-memory ledger and persist them write-behind
+    @Value("${wallet.ledger.enabled:false}")
+    private boolean ledgerEnabled;
+
+    // Write transaction rows through the group-commit journal instead of one INSERT per request
+    @Value("${wallet.journal.enabled:false}")
+    private boolean journalEnabled;
+
+    @Value("${wallet.batch.max-operations:1000}")
+    private int maxBatchOperations;
+
+    // operations applied per DB transaction or ledger call
+    @Value("${wallet.batch.chunk-size:100}")
+    private int batchChunkSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    // USD every new account starts with
+    static final BigDecimal INITIAL_USD_BALANCE = new BigDecimal("10000.00");
+
+    // trade fee as a Money fraction (0.1%)
+    static final long FEE_RATE = Money.of(new BigDecimal("0.001"));
+    private static final int MAX_HISTORY_PAGE = 500;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if (ledgerEnabled) ledgerEngine.start(this::loadWallets);
+    }
 
     @Transactional(readOnly = true)
     public List<Wallet> getUserWallets(String userEmail) {
+        List<Wallet> wallets = valuationCache.load(userEmail, () -> ledgerEngine.isRunning()
+            ? ledgerEngine.execute(userEmail, LedgerAccount::snapshot)
+            : loadWallets(userEmail));
+        wallets.forEach(w -> w.setPrice(getCurrentPrice(w.getAsset())));
+        return wallets;
+    }
+
+    /**
+     * The user's wallets with their prices and total value, from one wallet read and one set of prices.
+     * Within a request, go through {@link PortfolioSnapshots} so the read is shared.
+     */
+    public PortfolioSnapshot getPortfolioSnapshot(String userEmail) {
+        PriceFeed.Quotes quotes = priceFeed.quotes();
+        List<Wallet> wallets = valuationCache.load(userEmail, () -> ledgerEngine.isRunning()
+            ? ledgerEngine.execute(userEmail, LedgerAccount::snapshot)
+            : loadWallets(userEmail));
+        // valued like calculateTotalPortfolioValue: each position rounded to a unit, then summed
+        long total = 0;
+        for(Wallet w : wallets) {
+            w.setPrice(quotes.getPrice(w.getAsset()));
+            total = Money.add(total, Money.multiply(w.getBalanceUnits(), quotes.getPriceUnits(w.getAsset())));
+        }
+        return new PortfolioSnapshot(userEmail, wallets, Money.toBigDecimal(total).setScale(2, RoundingMode.HALF_UP), quotes.getVersion());
+    }
+
+    private List<Wallet> loadWallets(String userEmail) {
         List<Wallet> wallets = walletRepository.findByUserEmail(userEmail);
         if (wallets.isEmpty()) {
             wallets = createInitialWallets(userEmail);
         }
-        wallets.forEach(w -> w.setPrice(getCurrentPrice(w.getAsset())));
         return wallets;
     }
 
@@ -64,7 +172,7 @@ public class WalletService {
             w.setSymbol(assets[i]);
             w.setName(names[i]);
             w.setBalance(BigDecimal.ZERO);
-            if("USD".equals(assets[i])) w.setBalance(new BigDecimal("10000.00"));
+            if("USD".equals(assets[i])) w.setBalance(INITIAL_USD_BALANCE);
             w.setPrice(getCurrentPrice(assets[i]));
             w.setCreatedAt(LocalDateTime.now());
             w.setUpdatedAt(LocalDateTime.now());
@@ -73,140 +181,435 @@ public class WalletService {
         return walletRepository.findByUserEmail(userEmail);
     }
 
+    // Mutations run without an ambient transaction so the ledger path never holds a DB
+    // connection while it waits for its shard; the database path opens its own below.
+    // Amounts are converted to Money units once on the way in; balances, fees and valuation
+    // deltas are all computed in units from there on.
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Transaction deposit(String userEmail, String asset, BigDecimal amount) {
         if(amount.compareTo(BigDecimal.ZERO)<=0)
             throw new RuntimeException("Deposit amount must be > 0");
-        Wallet w = getOrCreateWallet(userEmail, asset.toUpperCase());
-        w.setBalance(w.getBalance().add(amount));
-        w.setUpdatedAt(LocalDateTime.now());
-        walletRepository.save(w);
+        String symbol = asset.toUpperCase();
+        long units = Money.ofExact(amount);
+        BigDecimal stored = Money.toBigDecimal(units);
+        if(ledgerEngine.isRunning()) {
+            return revalued(userEmail, () -> ledgerEngine.execute(userEmail, account -> {
+                Transaction t = atCurrentPrice(userEmail, Transaction.TransactionType.DEPOSIT, symbol, stored, units);
+                account.credit(symbol, units);
+                return account.record(t);
+            }), symbol, units, null, 0);
+        }
+        return revalued(userEmail, () -> inDb(() -> depositInDb(userEmail, symbol, stored, units)),
+                symbol, units, null, 0);
+    }
 
-        BigDecimal price = getCurrentPrice(asset);
-        BigDecimal value = amount.multiply(price);
+    private Transaction depositInDb(String userEmail, String asset, BigDecimal amount, long units) {
+        creditWallet(userEmail, asset, units);
 
-        Transaction t = new Transaction();
-        t.setUserEmail(userEmail);
-        t.setType(Transaction.TransactionType.DEPOSIT);
-        t.setAsset(asset.toUpperCase());
-        t.setAmount(amount);
-        t.setPrice(price);
-        t.setValue(value);
-        t.setStatus(Transaction.TransactionStatus.COMPLETED);
-        t.setCreatedAt(LocalDateTime.now());
-        return transactionRepository.save(t);
+        return store(atCurrentPrice(userEmail, Transaction.TransactionType.DEPOSIT, asset, amount, units));
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Transaction withdraw(String userEmail, String asset, BigDecimal amount) {
         if(amount.compareTo(BigDecimal.ZERO)<=0)
             throw new RuntimeException("Withdrawal amount must be > 0");
-        Wallet w = getOrCreateWallet(userEmail, asset.toUpperCase());
-        if(w.getBalance().compareTo(amount)<0)
-            throw new RuntimeException("Insufficient balance");
-        w.setBalance(w.getBalance().subtract(amount));
-        w.setUpdatedAt(LocalDateTime.now());
-        walletRepository.save(w);
+        String symbol = asset.toUpperCase();
+        long units = Money.ofExact(amount);
+        BigDecimal stored = Money.toBigDecimal(units);
+        if(ledgerEngine.isRunning()) {
+            return revalued(userEmail, () -> ledgerEngine.execute(userEmail, account -> {
+                Transaction t = atCurrentPrice(userEmail, Transaction.TransactionType.WITHDRAWAL, symbol, stored, units);
+                account.debit(symbol, units);
+                return account.record(t);
+            }), symbol, -units, null, 0);
+        }
+        return revalued(userEmail, () -> inDb(() -> withdrawInDb(userEmail, symbol, stored, units)),
+                symbol, -units, null, 0);
+    }
 
-        BigDecimal price = getCurrentPrice(asset);
-        BigDecimal value = amount.multiply(price);
+    private Transaction withdrawInDb(String userEmail, String asset, BigDecimal amount, long units) {
+        debitWallet(userEmail, asset, units, "Insufficient balance");
 
-        Transaction t = new Transaction();
-        t.setUserEmail(userEmail);
-        t.setType(Transaction.TransactionType.WITHDRAWAL);
-        t.setAsset(asset.toUpperCase());
-        t.setAmount(amount);
-        t.setPrice(price);
-        t.setValue(value);
-        t.setStatus(Transaction.TransactionStatus.COMPLETED);
-        t.setCreatedAt(LocalDateTime.now());
-        return transactionRepository.save(t);
+        return store(atCurrentPrice(userEmail, Transaction.TransactionType.WITHDRAWAL, asset, amount, units));
     }
 
-    public Transaction executeTrade(String userEmail, String type, String asset, BigDecimal amount, BigDecimal price) {
-        BigDecimal total = amount.multiply(price);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Transaction executeTrade(String userEmail, String type, String asset, BigDecimal requestedAmount,
+                                    BigDecimal requestedPrice) {
+        long quantity = Money.ofExact(requestedAmount);
+        long unitPrice = Money.ofExact(requestedPrice);
+        if(quantity<=0 || unitPrice<=0)
+            throw new RuntimeException("Amount and price must be at least 0.00000001");
+        // the rows record exactly what was applied
+        BigDecimal amount = Money.toBigDecimal(quantity);
+        BigDecimal price = Money.toBigDecimal(unitPrice);
+        long total = Money.multiply(quantity, unitPrice);
+        BigDecimal value = Money.toBigDecimal(total);
+        String symbol = asset.toUpperCase();
         if("buy".equalsIgnoreCase(type)) {
-            return executeBuy(userEmail, asset.toUpperCase(), amount, price, total);
+            long cost = buyCost(total);
+            if(ledgerEngine.isRunning())
+                return revalued(userEmail, () -> ledgerEngine.execute(userEmail, account -> account.record(buy(account, userEmail, symbol, amount, price, value, quantity, cost))),
+                        "USD", -cost, symbol, quantity);
+            return revalued(userEmail, () -> inDb(() -> executeBuy(userEmail, symbol, amount, price, value, quantity, cost)),
+                    "USD", -cost, symbol, quantity);
         } else if("sell".equalsIgnoreCase(type)) {
-            return executeSell(userEmail, asset.toUpperCase(), amount, price, total);
+            long proceeds = sellProceeds(total);
+            if(ledgerEngine.isRunning())
+                return revalued(userEmail, () -> ledgerEngine.execute(userEmail, account -> account.record(sell(account, userEmail, symbol, amount, price, value, quantity, proceeds))),
+                        symbol, -quantity, "USD", proceeds);
+            return revalued(userEmail, () -> inDb(() -> executeSell(userEmail, symbol, amount, price, value, quantity, proceeds)),
+                    symbol, -quantity, "USD", proceeds);
         } else {
             throw new RuntimeException("Invalid trade type");
         }
     }
 
-    private Transaction executeBuy(String userEmail, String asset, BigDecimal amount, BigDecimal price, BigDecimal total) {
-        Wallet usd = getOrCreateWallet(userEmail, "USD");
-        BigDecimal fee = total.multiply(FEE_RATE);
-        BigDecimal cost = total.add(fee);
-        if(usd.getBalance().compareTo(cost)<0)
-            throw new RuntimeException("Insufficient USD for purchase with fees");
-        usd.setBalance(usd.getBalance().subtract(cost));
-        usd.setUpdatedAt(LocalDateTime.now());
-        walletRepository.save(usd);
+    /**
+     * USD a buy worth {@code total} units costs including the fee, in units.
+     */
+    public static long buyCost(long total) {
+        return Money.add(total, Money.multiply(total, FEE_RATE));
+    }
 
-        Wallet assetW = getOrCreateWallet(userEmail, asset);
-        assetW.setBalance(assetW.getBalance().add(amount));
-        assetW.setUpdatedAt(LocalDateTime.now());
-        walletRepository.save(assetW);
+    /**
+     * USD a sell worth {@code total} units pays out after the fee, in units.
+     */
+    public static long sellProceeds(long total) {
+        return Money.subtract(total, Money.multiply(total, FEE_RATE));
+    }
 
-        Transaction t = new Transaction();
-        t.setUserEmail(userEmail);
-        t.setType(Transaction.TransactionType.BUY);
-        t.setAsset(asset);
-        t.setAmount(amount);
-        t.setPrice(price);
-        t.setValue(total);
-        t.setStatus(Transaction.TransactionStatus.COMPLETED);
-        t.setCreatedAt(LocalDateTime.now());
-        return transactionRepository.save(t);
+    // Trades against balances the caller holds exclusively (a ledger account or locked wallet rows).
+    // Credits go first: a debit that passed the balance check cannot fail, so no half-applied trade.
+
+    private Transaction buy(Balances account, String userEmail, String asset, BigDecimal amount, BigDecimal price,
+                            BigDecimal value, long quantity, long cost) {
+        if(account.balance("USD")<cost)
+            throw new RuntimeException("Insufficient USD for purchase with fees");
+        account.credit(asset, quantity);
+        account.debit("USD", cost);
+        return completedTransaction(userEmail, Transaction.TransactionType.BUY, asset, amount, price, value);
     }
 
-    private Transaction executeSell(String userEmail, String asset, BigDecimal amount, BigDecimal price, BigDecimal total) {
-        Wallet assetW = getOrCreateWallet(userEmail, asset);
-        if(assetW.getBalance().compareTo(amount)<0)
+    private Transaction sell(Balances account, String userEmail, String asset, BigDecimal amount, BigDecimal price,
+                             BigDecimal value, long quantity, long proceeds) {
+        if(account.balance(asset)<quantity)
             throw new RuntimeException("Insufficient asset balance");
-        BigDecimal fee = total.multiply(FEE_RATE);
-        BigDecimal proceeds = total.subtract(fee);
+        account.credit("USD", proceeds);
+        account.debit(asset, quantity);
+        return completedTransaction(userEmail, Transaction.TransactionType.SELL, asset, amount, price, value);
+    }
 
-        assetW.setBalance(assetW.getBalance().subtract(amount));
-        assetW.setUpdatedAt(LocalDateTime.now());
-        walletRepository.save(assetW);
+    private Transaction executeBuy(String userEmail, String asset, BigDecimal amount, BigDecimal price,
+                                   BigDecimal value, long quantity, long cost) {
+        exchange(userEmail, "USD", cost, asset, quantity, "Insufficient USD for purchase with fees");
 
-        Wallet usd = getOrCreateWallet(userEmail, "USD");
-        usd.setBalance(usd.getBalance().add(proceeds));
-        usd.setUpdatedAt(LocalDateTime.now());
-        walletRepository.save(usd);
+        return store(completedTransaction(userEmail, Transaction.TransactionType.BUY,
+                asset, amount, price, value));
+    }
 
-        Transaction t = new Transaction();
-        t.setUserEmail(userEmail);
-        t.setType(Transaction.TransactionType.SELL);
-        t.setAsset(asset);
-        t.setAmount(amount);
-        t.setPrice(price);
-        t.setValue(total);
-        t.setStatus(Transaction.TransactionStatus.COMPLETED);
-        t.setCreatedAt(LocalDateTime.now());
-        return transactionRepository.save(t);
+    private Transaction executeSell(String userEmail, String asset, BigDecimal amount, BigDecimal price,
+                                    BigDecimal value, long quantity, long proceeds) {
+        exchange(userEmail, asset, quantity, "USD", proceeds, "Insufficient asset balance");
+
+        return store(completedTransaction(userEmail, Transaction.TransactionType.SELL,
+                asset, amount, price, value));
+    }
+
+    /**
+     * Takes {@code amount} units out of a wallet, e.g. to reserve funds for an order.
+     * Fails with {@code insufficientMessage} if the balance does not cover it.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void reserve(String userEmail, String asset, long amount, String insufficientMessage) {
+        revalued(userEmail, () -> {
+            if(ledgerEngine.isRunning()) {
+                return ledgerEngine.execute(userEmail, account -> {
+                    if(account.balance(asset)<amount)
+                        throw new RuntimeException(insufficientMessage);
+                    account.debit(asset, amount);
+                    return null;
+                });
+            }
+            transactionTemplate.executeWithoutResult(status -> debitWallet(userEmail, asset, amount, insufficientMessage));
+            return null;
+        }, asset, -amount, null, 0);
+    }
+
+    /**
+     * Credits {@code assetAmount} units of {@code asset} and {@code usdAmount} units of USD to a user
+     * and stores {@code record} (if any) in the same unit of work. Used to settle order fills and releases.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Transaction settle(String userEmail, String asset, long assetAmount, long usdAmount, Transaction record) {
+        if(ledgerEngine.isRunning()) {
+            return revalued(userEmail, () -> ledgerEngine.execute(userEmail, account -> {
+                if(assetAmount>0) account.credit(asset, assetAmount);
+                if(usdAmount>0) account.credit("USD", usdAmount);
+                return record == null ? null : account.record(record);
+            }), asset, Math.max(assetAmount, 0), "USD", Math.max(usdAmount, 0));
+        }
+        return revalued(userEmail, () -> inDb(() -> {
+            creditWallets(new FillCredit(userEmail, asset, assetAmount, usdAmount, record));
+            return record == null ? null : store(record);
+        }), asset, Math.max(assetAmount, 0), "USD", Math.max(usdAmount, 0));
+    }
+
+    /**
+     * Settles one order-book fill as a whole: credits the taker and the maker, stores both rows and
+     * runs {@code orderUpdate} (the maker order's new remaining) in one DB transaction or journal
+     * entry, so a failure leaves none of it behind. Returns the taker's row.
+     *
+     * With the ledger the order update is committed first and the two credits are then queued with
+     * {@link LedgerEngine#executeCredit}, which never refuses them: once the book and the order rows
+     * say a fill happened, both sides get paid.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Transaction settleFill(FillCredit taker, FillCredit maker, Runnable orderUpdate) {
+        if(ledgerEngine.isRunning()) {
+            transactionTemplate.executeWithoutResult(status -> orderUpdate.run());
+            Transaction row = creditInLedger(taker);
+            creditInLedger(maker);
+            return row;
+        }
+        valuationCache.beginUpdate(taker.getUserEmail());
+        valuationCache.beginUpdate(maker.getUserEmail());
+        Transaction row;
+        try {
+            row = inDb(() -> {
+                // same lock order for every fill, whichever side each user is on
+                boolean takerFirst = taker.getUserEmail().compareTo(maker.getUserEmail()) <= 0;
+                creditWallets(takerFirst ? taker : maker);
+                creditWallets(takerFirst ? maker : taker);
+                orderUpdate.run();
+                // a journal entry returns a single row, so the maker's is inserted right away
+                if(journalEnabled) transactionJournal.insertBatch(Collections.singletonList(maker.getRecord()));
+                else store(maker.getRecord());
+                return store(taker.getRecord());
+            });
+        } catch (RuntimeException e) {
+            valuationCache.abortUpdate(taker.getUserEmail());
+            valuationCache.abortUpdate(maker.getUserEmail());
+            throw e;
+        }
+        valuationCache.endUpdate(taker.getUserEmail(), taker.getAsset(), taker.getAssetAmount(), "USD", taker.getUsdAmount());
+        valuationCache.endUpdate(maker.getUserEmail(), maker.getAsset(), maker.getAssetAmount(), "USD", maker.getUsdAmount());
+        pushHub.balancesChanged(taker.getUserEmail());
+        pushHub.balancesChanged(maker.getUserEmail());
+        return row;
+    }
+
+    private Transaction creditInLedger(FillCredit c) {
+        return revalued(c.getUserEmail(), () -> ledgerEngine.executeCredit(c.getUserEmail(), account -> {
+            if(c.getAssetAmount()>0) account.credit(c.getAsset(), c.getAssetAmount());
+            if(c.getUsdAmount()>0) account.credit("USD", c.getUsdAmount());
+            return account.record(c.getRecord());
+        }), c.getAsset(), c.getAssetAmount(), "USD", c.getUsdAmount());
+    }
+
+    // in asset order, like exchange()
+    private void creditWallets(FillCredit c) {
+        boolean assetFirst = c.getAsset().compareTo("USD") < 0;
+        if(assetFirst && c.getAssetAmount()>0) creditWallet(c.getUserEmail(), c.getAsset(), c.getAssetAmount());
+        if(c.getUsdAmount()>0) creditWallet(c.getUserEmail(), "USD", c.getUsdAmount());
+        if(!assetFirst && c.getAssetAmount()>0) creditWallet(c.getUserEmail(), c.getAsset(), c.getAssetAmount());
+    }
+
+    /**
+     * Applies a batch of deposits and market trades for one user, in order, and reports on each.
+     *
+     * The whole batch is validated before anything runs and rejected if any operation is malformed.
+     * It is then applied in chunks, each chunk being one unit of work: a single ledger call, or one
+     * DB transaction that locks the user's wallet rows, applies the chunk in memory, inserts its
+     * transaction rows with one JDBC batch and leaves the balance UPDATEs to Hibernate's batching.
+     * An operation that fails, e.g. for lack of balance, changes nothing and does not affect the
+     * others. Trades are filled by the house at the {@link PriceFeed} price when their chunk is applied,
+     * like the part of a market order the book cannot fill: the client's price is the most a buy pays
+     * and the least a sell accepts, and a trade the current price is worse for fails.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BatchResult> applyBatch(String userEmail, List<BatchOperation> operations) {
+        if(operations.isEmpty() || operations.size()>maxBatchOperations)
+            throw new RuntimeException("A batch must contain between 1 and " + maxBatchOperations + " operations");
+        List<PreparedOperation> prepared = new ArrayList<>(operations.size());
+        for(int i=0;i<operations.size();i++) {
+            try {
+                prepared.add(prepare(operations.get(i)));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Operation " + i + ": " + e.getMessage());
+            }
+        }
+        List<BatchResult> results = new ArrayList<>(operations.size());
+        for(int from=0; from<prepared.size(); from+=batchChunkSize) {
+            applyChunk(userEmail, prepared.subList(from, Math.min(from + batchChunkSize, prepared.size())), from, results);
+        }
+        return results;
+    }
+
+    private PreparedOperation prepare(BatchOperation op) {
+        if(op.getAsset()==null || op.getAsset().isBlank())
+            throw new RuntimeException("Asset is required");
+        if(op.getAmount()==null || op.getAmount().signum()<=0)
+            throw new RuntimeException("Amount must be > 0");
+        String symbol = op.getAsset().toUpperCase();
+        long quantity = Money.ofExact(op.getAmount());
+        BigDecimal amount = Money.toBigDecimal(quantity);
+        if("deposit".equalsIgnoreCase(op.getType()))
+            return new PreparedOperation(Transaction.TransactionType.DEPOSIT, symbol, amount, quantity, 0);
+        boolean isBuy = "buy".equalsIgnoreCase(op.getType());
+        if(!isBuy && !"sell".equalsIgnoreCase(op.getType()))
+            throw new RuntimeException("Invalid operation type");
+        if(op.getPrice()==null || op.getPrice().signum()<=0)
+            throw new RuntimeException("Price must be > 0");
+        return new PreparedOperation(isBuy ? Transaction.TransactionType.BUY : Transaction.TransactionType.SELL, symbol,
+                amount, quantity, Money.ofExact(op.getPrice()));
+    }
+
+    private void applyChunk(String userEmail, List<PreparedOperation> chunk, int offset, List<BatchResult> results) {
+        Map<String, Long> deltas = new HashMap<>();
+        PriceFeed.Quotes quotes = priceFeed.quotes();
+        List<BatchResult> applied;
+        valuationCache.beginUpdate(userEmail);
+        try {
+            if(ledgerEngine.isRunning()) {
+                applied = ledgerEngine.execute(userEmail, account ->
+                    applyAll(account, userEmail, chunk, offset, quotes, deltas, account::record));
+            } else {
+                applied = transactionTemplate.execute(status -> {
+                    List<Transaction> rows = new ArrayList<>(chunk.size());
+                    List<BatchResult> r = applyAll(new LockedWallets(userEmail), userEmail, chunk, offset, quotes, deltas, rows::add);
+                    transactionJournal.insertBatch(rows);
+                    return r;
+                });
+            }
+        } catch (RuntimeException e) {
+            valuationCache.abortUpdate(userEmail);
+            logger.error("Batch chunk of {} operations failed for {}", chunk.size(), userEmail, e);
+            for(int i=0;i<chunk.size();i++) results.add(BatchResult.failed(offset + i, e.getMessage()));
+            return;
+        }
+        valuationCache.endUpdate(userEmail, deltas);
+        pushHub.balancesChanged(userEmail);
+        results.addAll(applied);
+    }
+
+    private List<BatchResult> applyAll(Balances account, String userEmail, List<PreparedOperation> chunk, int offset,
+                                       PriceFeed.Quotes quotes, Map<String, Long> deltas, Consumer<Transaction> sink) {
+        List<BatchResult> results = new ArrayList<>(chunk.size());
+        for(int i=0;i<chunk.size();i++) {
+            PreparedOperation op = chunk.get(i);
+            try {
+                Transaction t;
+                if(op.type == Transaction.TransactionType.DEPOSIT) {
+                    t = atCurrentPrice(userEmail, op.type, op.asset, op.amount, op.quantity);
+                    account.credit(op.asset, op.quantity);
+                    deltas.merge(op.asset, op.quantity, Money::add);
+                } else {
+                    boolean isBuy = op.type == Transaction.TransactionType.BUY;
+                    long price = quotes.getPriceUnits(op.asset);
+                    if(isBuy ? price > op.limitPrice : price < op.limitPrice)
+                        throw new RuntimeException("Not enough liquidity at the requested price");
+                    long total = Money.multiply(op.quantity, price);
+                    if(isBuy) {
+                        long cost = buyCost(total);
+                        t = buy(account, userEmail, op.asset, op.amount, Money.toBigDecimal(price), Money.toBigDecimal(total), op.quantity, cost);
+                        deltas.merge("USD", -cost, Money::add);
+                        deltas.merge(op.asset, op.quantity, Money::add);
+                    } else {
+                        long proceeds = sellProceeds(total);
+                        t = sell(account, userEmail, op.asset, op.amount, Money.toBigDecimal(price), Money.toBigDecimal(total), op.quantity, proceeds);
+                        deltas.merge(op.asset, -op.quantity, Money::add);
+                        deltas.merge("USD", proceeds, Money::add);
+                    }
+                }
+                sink.accept(t);
+                results.add(BatchResult.succeeded(offset + i, t));
+            } catch (RuntimeException e) {
+                results.add(BatchResult.failed(offset + i, e.getMessage()));
+            }
+        }
+        return results;
     }
 
     @Transactional(readOnly = true)
     public Page<Transaction> getTransactionHistory(String userEmail, int page, int size) {
         return transactionRepository.findByUserEmail(
             userEmail,
-            PageRequest.of(page, size, Sort.by("createdAt").descending())
+            PageRequest.of(page, size, Sort.by("createdAt").descending().and(Sort.by("id").descending()))
         );
     }
 
+    /**
+     * Keyset-paginated history: the page of {@code size} rows after {@code cursor}
+     * (null or empty for the newest rows).
+     */
     @Transactional(readOnly = true)
-    public BigDecimal calculateTotalPortfolioValue(String userEmail) {
-        return walletRepository.findByUserEmail(userEmail).stream()
-            .map(w -> w.getBalance().multiply(getCurrentPrice(w.getAsset())))
-            .reduce(BigDecimal.ZERO, BigDecimal::add)
-            .setScale(2, RoundingMode.HALF_UP);
+    public HistoryPage getTransactionHistory(String userEmail, String cursor, int size) {
+        if(size<1 || size>MAX_HISTORY_PAGE)
+            throw new RuntimeException("Page size must be between 1 and " + MAX_HISTORY_PAGE);
+        // one extra row tells whether another page follows
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Transaction> rows;
+        if(cursor == null || cursor.isEmpty()) {
+            rows = transactionRepository.findByUserEmailOrderByCreatedAtDescIdDesc(userEmail, limit);
+        } else {
+            HistoryPage.Cursor after = HistoryPage.decodeCursor(cursor);
+            rows = transactionRepository.findPageBefore(userEmail, after.createdAt, after.id, limit);
+        }
+        if(rows.size() <= size) return new HistoryPage(rows, null);
+        rows = rows.subList(0, size);
+        return new HistoryPage(rows, HistoryPage.encodeCursor(rows.get(size - 1)));
     }
 
+    /**
+     * Hands every transaction of the user to {@code sink}, newest first, straight from a database
+     * cursor. Rows are detached once consumed, so memory stays flat however long the history is.
+     */
     @Transactional(readOnly = true)
+    public void streamTransactionHistory(String userEmail, Consumer<Transaction> sink) {
+        try (Stream<Transaction> rows = transactionRepository.streamByUserEmail(userEmail)) {
+            rows.forEach(t -> {
+                sink.accept(t);
+                entityManager.detach(t);
+            });
+        }
+    }
+
+    // no transaction of its own: the cached value needs no connection
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public BigDecimal calculateTotalPortfolioValue(String userEmail) {
+        BigDecimal cached = valuationCache.getTotalValue(userEmail);
+        if(cached != null) return cached.setScale(2, RoundingMode.HALF_UP);
+        List<Wallet> wallets = valuationCache.load(userEmail, () -> ledgerEngine.isRunning()
+            ? ledgerEngine.execute(userEmail, LedgerAccount::snapshot)
+            : walletRepository.findByUserEmail(userEmail));
+        // valued exactly like the cache: each position rounded to a unit, then summed
+        long total = 0;
+        for(Wallet w : wallets)
+            total = Money.add(total, Money.multiply(w.getBalanceUnits(), priceFeed.getPriceUnits(w.getAsset())));
+        return Money.toBigDecimal(total).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Current value against the capital put in (the starting balance plus net deposits), and the
+     * change since the snapshots nearest to one day, one week and one month ago.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Map<String,Object> getPortfolioPerformance(String userEmail) {
-        BigDecimal total = calculateTotalPortfolioValue(userEmail);
-        BigDecimal init  = new BigDecimal("10000.00");
+        return getPortfolioPerformance(userEmail, calculateTotalPortfolioValue(userEmail));
+    }
+
+    /**
+     * {@link #getPortfolioPerformance(String)} valued at a snapshot already loaded for the request.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Map<String,Object> getPortfolioPerformance(PortfolioSnapshot snapshot) {
+        return getPortfolioPerformance(snapshot.getUserEmail(), snapshot.getTotalValue());
+    }
+
+    private Map<String,Object> getPortfolioPerformance(String userEmail, BigDecimal total) {
+        BigDecimal init  = INITIAL_USD_BALANCE.add(tradingStatRepository.sumNetDeposits(userEmail)).setScale(2, RoundingMode.HALF_UP);
         BigDecimal gain  = total.subtract(init);
         BigDecimal pct   = init.compareTo(BigDecimal.ZERO)==0
             ? BigDecimal.ZERO
@@ -216,52 +619,215 @@ public class WalletService {
         perf.put("initialValue", init);
         perf.put("totalGain", gain.setScale(2,RoundingMode.HALF_UP));
         perf.put("totalGainPercentage", pct.setScale(2,RoundingMode.HALF_UP));
-        perf.put("dayChange", BigDecimal.ZERO);
-        perf.put("dayChangePercentage", BigDecimal.ZERO);
+        ValueSeries history = portfolioHistory.recent(userEmail, 31);
+        long now = System.currentTimeMillis() / 60_000;
+        putChange(perf, "day", total, history, now - 24 * 60);
+        putChange(perf, "week", total, history, now - 7 * 24 * 60);
+        putChange(perf, "month", total, history, now - 30 * 24 * 60);
         return perf;
     }
 
+    // "<period>Change" and "<period>ChangePercentage" against the snapshot nearest to epochMinute
+    private static void putChange(Map<String,Object> perf, String period, BigDecimal total, ValueSeries history, long epochMinute) {
+        int i = history.nearest(epochMinute);
+        BigDecimal then = i < 0 ? total : BigDecimal.valueOf(history.value(i), 2);
+        BigDecimal change = total.subtract(then);
+        perf.put(period + "Change", change.setScale(2, RoundingMode.HALF_UP));
+        perf.put(period + "ChangePercentage", then.signum()==0
+            ? BigDecimal.ZERO.setScale(2)
+            : change.divide(then,4,RoundingMode.HALF_UP).multiply(new BigDecimal("100")).setScale(2,RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Realised USD flow of all trades, sells minus buys, read from the trading stats.
+     */
     @Transactional(readOnly = true)
     public BigDecimal calculateProfitLoss(String userEmail) {
-        BigDecimal sells = transactionRepository.findByUserEmailAndType(userEmail, Transaction.TransactionType.SELL)
-            .stream().map(t->Optional.ofNullable(t.getValue()).orElse(BigDecimal.ZERO))
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal buys  = transactionRepository.findByUserEmailAndType(userEmail, Transaction.TransactionType.BUY)
-            .stream().map(t->Optional.ofNullable(t.getValue()).orElse(BigDecimal.ZERO))
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        return sells.subtract(buys).setScale(2, RoundingMode.HALF_UP);
+        return tradingStatRepository.sumProfitLoss(userEmail).setScale(2, RoundingMode.HALF_UP);
     }
 
     @Transactional(readOnly = true)
     public BigDecimal getTotalTradingVolume(String userEmail) {
-        BigDecimal vol = transactionRepository.calculateTotalTradingVolume(userEmail);
-        return (vol==null?BigDecimal.ZERO:vol).setScale(2,RoundingMode.HALF_UP);
-    }
-
-    private Wallet getOrCreateWallet(String userEmail, String asset) {
-        return walletRepository.findByUserEmailAndAsset(userEmail, asset)
-            .orElseGet(() -> {
-                Wallet w = new Wallet();
-                w.setUserEmail(userEmail);
-                w.setAsset(asset);
-                w.setSymbol(asset);
-                w.setName(getAssetName(asset));
-                w.setBalance(BigDecimal.ZERO);
-                w.setPrice(getCurrentPrice(asset));
-                w.setCreatedAt(LocalDateTime.now());
-                w.setUpdatedAt(LocalDateTime.now());
-                return walletRepository.save(w);
-            });
+        return tradingStatRepository.sumVolume(userEmail).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    @Transactional(readOnly = true)
+    public List<TradingStat> getTradingStats(String userEmail) {
+        return tradingStatRepository.findByUserEmailOrderByAsset(userEmail);
+    }
+
+    /**
+     * Realized and unrealized profit/loss per asset from the user's open lots. Follows the stored
+     * history, so with the ledger enabled trades show up once they have been flushed.
+     */
+    public List<CostBasis> getCostBasis(String userEmail) {
+        return costBasisBook.getCostBasis(userEmail);
+    }
+
+    public CostBasisMethod getCostBasisMethod() {
+        return costBasisBook.getMethod();
+    }
+
+    /**
+     * Runs a balance update in its own DB transaction. With the journal enabled the update runs in
+     * the next group commit instead, together with the insert of its transaction row, and this
+     * returns once that batch is durable.
+     */
+    private Transaction inDb(Supplier<Transaction> work) {
+        if(journalEnabled) return transactionJournal.appendAndWait(work);
+        return transactionTemplate.execute(status -> work.get());
+    }
+
+    /**
+     * Runs a balance change and passes its deltas in units (negative for debits) on to the valuation cache,
+     * then lets the user's open streams know.
+     */
+    private <T> T revalued(String userEmail, Supplier<T> change, String asset, long delta,
+                           String otherAsset, long otherDelta) {
+        valuationCache.beginUpdate(userEmail);
+        T result;
+        try {
+            result = change.get();
+        } catch (RuntimeException e) {
+            valuationCache.abortUpdate(userEmail);
+            throw e;
+        }
+        valuationCache.endUpdate(userEmail, asset, delta, otherAsset, otherDelta);
+        pushHub.balancesChanged(userEmail);
+        return result;
+    }
+
+    private Transaction store(Transaction t) {
+        if(journalEnabled) return t;
+        Transaction saved = transactionRepository.save(t);
+        tradingStats.record(saved);
+        return saved;
+    }
+
+    // a deposit or withdrawal, recorded at the current price in effect when it is applied
+    private Transaction atCurrentPrice(String userEmail, Transaction.TransactionType type, String asset,
+                                       BigDecimal amount, long units) {
+        long price = priceFeed.getPriceUnits(asset);
+        return completedTransaction(userEmail, type, asset, amount,
+                Money.toBigDecimal(price), Money.toBigDecimal(Money.multiply(units, price)));
+    }
+
+    Transaction completedTransaction(String userEmail, Transaction.TransactionType type, String asset,
+                                             BigDecimal amount, BigDecimal price, BigDecimal value) {
+        Transaction t = new Transaction();
+        t.setUserEmail(userEmail);
+        t.setType(type);
+        t.setAsset(asset);
+        t.setAmount(amount);
+        t.setPrice(price);
+        t.setValue(value);
+        t.setStatus(Transaction.TransactionStatus.COMPLETED);
+        t.setCreatedAt(LocalDateTime.now());
+        return t;
+    }
+
+    // Balances on the database path are changed with conditional delta updates, never by
+    // reading the entity and saving it back, so concurrent requests cannot overwrite each other.
+
+    private void debitWallet(String userEmail, String asset, long amount, String insufficientMessage) {
+        if(walletRepository.debit(userEmail, asset, amount, LocalDateTime.now())==0)
+            throw new RuntimeException(insufficientMessage);
+    }
+
+    // Both legs of a trade, always locking the user's rows in asset order: a buy and a sell running
+    // at the same time would otherwise each hold the row the other one waits for.
+    private void exchange(String userEmail, String debitAsset, long debit, String creditAsset, long credit,
+                          String insufficientMessage) {
+        if(debitAsset.compareTo(creditAsset) < 0) {
+            debitWallet(userEmail, debitAsset, debit, insufficientMessage);
+            creditWallet(userEmail, creditAsset, credit);
+        } else {
+            creditWallet(userEmail, creditAsset, credit);
+            debitWallet(userEmail, debitAsset, debit, insufficientMessage);
+        }
+    }
+
+    private void creditWallet(String userEmail, String asset, long amount) {
+        if(walletRepository.credit(userEmail, asset, amount, LocalDateTime.now())>0) return;
+        Wallet w = new Wallet();
+        w.setUserEmail(userEmail);
+        w.setAsset(asset);
+        w.setSymbol(asset);
+        w.setName(getAssetName(asset));
+        w.setBalanceUnits(amount);
+        w.setPrice(getCurrentPrice(asset));
+        w.setCreatedAt(LocalDateTime.now());
+        w.setUpdatedAt(LocalDateTime.now());
+        walletRepository.save(w);
     }
 
     private BigDecimal getCurrentPrice(String asset) {
-        return CURRENT_PRICES.getOrDefault(asset.toLowerCase(), BigDecimal.ONE);
+        return priceFeed.getPrice(asset);
     }
 
     private String getAssetName(String s) {
-        Map<String,String> m = Map.of(
-            "BTC","Bitcoin","ETH","Ethereum","ADA","Cardano","SOL","Solana","USD","US Dollar"
-        );
-        return m.getOrDefault(s.toUpperCase(), s);
+        return Asset.nameOf(s);
+    }
+
+    /**
+     * The user's wallet rows, locked for the current transaction and changed in memory.
+     * Hibernate writes the changes back with batched UPDATEs at commit.
+     */
+    private final class LockedWallets implements Balances {
+
+        private final String userEmail;
+        private final Map<String, Wallet> wallets = new HashMap<>();
+        private final LocalDateTime now = LocalDateTime.now();
+
+        LockedWallets(String userEmail) {
+            this.userEmail = userEmail;
+            for(Wallet w : walletRepository.lockByUserEmail(userEmail)) wallets.put(w.getAsset(), w);
+        }
+
+        @Override
+        public long balance(String asset) {
+            Wallet w = wallets.get(asset);
+            return w == null ? 0 : w.getBalanceUnits();
+        }
+
+        @Override
+        public void credit(String asset, long amount) {
+            Wallet w = wallets.get(asset);
+            if(w == null) {
+                w = new Wallet(userEmail, asset, asset, getAssetName(asset));
+                w.setPrice(getCurrentPrice(asset));
+                w = walletRepository.save(w);
+                wallets.put(asset, w);
+            }
+            w.setBalanceUnits(Money.add(w.getBalanceUnits(), amount));
+            w.setUpdatedAt(now);
+        }
+
+        @Override
+        public void debit(String asset, long amount) {
+            Wallet w = wallets.get(asset);
+            if(w == null || w.getBalanceUnits()<amount)
+                throw new RuntimeException("Insufficient balance");
+            w.setBalanceUnits(w.getBalanceUnits() - amount);
+            w.setUpdatedAt(now);
+        }
+    }
+
+    // a batch operation, validated and converted to units
+    private static final class PreparedOperation {
+        final Transaction.TransactionType type;
+        final String asset;
+        final BigDecimal amount;
+        final long quantity;
+        // highest price a buy pays or lowest a sell accepts; unused for deposits
+        final long limitPrice;
+
+        PreparedOperation(Transaction.TransactionType type, String asset, BigDecimal amount, long quantity, long limitPrice) {
+            this.type = type;
+            this.asset = asset;
+            this.amount = amount;
+            this.quantity = quantity;
+            this.limitPrice = limitPrice;
+        }
     }
 }
@@ -0,0 +1,259 @@
+package com.tradax.wallet.snapshot;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tradax.wallet.ledger.LedgerEngine;
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.model.PortfolioValueDay;
+import com.tradax.wallet.price.PriceFeed;
+import com.tradax.wallet.repository.PortfolioValueDayRepository;
+
+/**
+ * Records every user's portfolio value on a schedule and answers what it was at an earlier time.
+ *
+ * A snapshot run prices all wallets at one set of prices. Users are taken in chunks of consecutive
+ * emails, paged with a keyset over the wallets index; each chunk is valued by one query and written
+ * in one transaction on a worker thread, with a bounded number of chunks in flight. Values go into
+ * {@code portfolio_value_days} (see {@link PortfolioValueDay}) and rows past the retention are
+ * dropped at the end of the run.
+ */
+@Component
+public class PortfolioHistory {
+
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioHistory.class);
+
+    private static final String USERS_SQL =
+        "SELECT DISTINCT user_email FROM wallets WHERE user_email > ? ORDER BY user_email LIMIT ?";
+
+    private static final String WALLETS_SQL =
+        "SELECT user_email, asset, balance FROM wallets WHERE user_email > ? AND user_email <= ?";
+
+    private static final String LAST_SQL =
+        "SELECT user_email, last_minute, last_value FROM portfolio_value_days WHERE snapshot_day = ? AND user_email > ? AND user_email <= ?";
+
+    // without the cast H2 takes the parameter for text and mangles bytes from 0x80 up
+    private static final String APPEND_SQL =
+        "UPDATE portfolio_value_days SET samples = samples || CAST(? AS VARBINARY), last_minute = ?, last_value = ? " +
+        "WHERE user_email = ? AND snapshot_day = ?";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO portfolio_value_days (user_email, snapshot_day, first_minute, first_value, last_minute, last_value, samples) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String PURGE_SQL = "DELETE FROM portfolio_value_days WHERE snapshot_day < ?";
+
+    private static final byte[] NO_SAMPLES = new byte[0];
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PortfolioValueDayRepository portfolioValueDayRepository;
+
+    @Autowired
+    private PriceFeed priceFeed;
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    // 0 = no scheduled snapshots
+    @Value("${wallet.snapshots.interval-ms:3600000}")
+    private long intervalMs;
+
+    @Value("${wallet.snapshots.chunk-size:1000}")
+    private int chunkSize;
+
+    // 0 = one per available core
+    @Value("${wallet.snapshots.threads:0}")
+    private int threads;
+
+    @Value("${wallet.snapshots.retention-days:35}")
+    private int retentionDays;
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (intervalMs <= 0 || scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "portfolio-snapshots"));
+        scheduler.scheduleAtFixedRate(this::snapshotQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            scheduler = null;
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+    }
+
+    /**
+     * Snapshots of the user from the last {@code days} days, oldest first.
+     */
+    public ValueSeries recent(String userEmail, int days) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        ValueSeries series = new ValueSeries();
+        for (PortfolioValueDay d : portfolioValueDayRepository.findByUserEmailAndDayBetweenOrderByDay(
+                userEmail, today.minusDays(days), today)) {
+            series.add(d);
+        }
+        return series;
+    }
+
+    /**
+     * Takes a snapshot of every user now and returns how many were recorded.
+     */
+    public int snapshotAll() {
+        long started = System.nanoTime();
+        if (ledgerEngine.isRunning()) ledgerEngine.flush();
+        Map<String, Long> prices = new HashMap<>();
+        for (Map.Entry<String, BigDecimal> p : priceFeed.getPrices().entrySet()) prices.put(p.getKey(), Money.of(p.getValue()));
+        ZonedDateTime now = Instant.now().atZone(ZoneOffset.UTC);
+        LocalDate day = now.toLocalDate();
+        int minute = now.getHour() * 60 + now.getMinute();
+
+        ExecutorService pool = workers();
+        Semaphore inFlight = new Semaphore(parallelism() * 2);
+        AtomicInteger failedChunks = new AtomicInteger();
+        List<Future<Integer>> chunks = new ArrayList<>();
+        String after = "";
+        try {
+            while (true) {
+                List<String> users = jdbcTemplate.queryForList(USERS_SQL, String.class, after, chunkSize);
+                if (users.isEmpty()) break;
+                String from = after;
+                String to = users.get(users.size() - 1);
+                inFlight.acquire();
+                chunks.add(pool.submit(() -> {
+                    try {
+                        return snapshotRange(from, to, day, minute, prices);
+                    } catch (RuntimeException e) {
+                        failedChunks.incrementAndGet();
+                        logger.error("Portfolio snapshot of users after {} up to {} failed", from, to, e);
+                        return 0;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+                after = to;
+                if (users.size() < chunkSize) break;
+            }
+            int recorded = 0;
+            for (Future<Integer> f : chunks) recorded += f.get();
+            jdbcTemplate.update(PURGE_SQL, Date.valueOf(day.minusDays(retentionDays)));
+            logger.info("Portfolio snapshot of {} users in {} chunks took {} ms{}", recorded, chunks.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                    failedChunks.get() > 0 ? " (" + failedChunks.get() + " chunks failed)" : "");
+            return recorded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Portfolio snapshot interrupted");
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshotAll();
+        } catch (Exception e) {
+            logger.error("Portfolio snapshot failed", e);
+        }
+    }
+
+    // users with emails in (from, to]
+    private int snapshotRange(String from, String to, LocalDate day, int minute, Map<String, Long> prices) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        jdbcTemplate.query(WALLETS_SQL, rs -> {
+            long price = prices.getOrDefault(rs.getString(2), Money.ONE);
+            long value = Money.multiply(Money.of(rs.getBigDecimal(3)), price);
+            values.merge(rs.getString(1), value, Money::add);
+        }, from, to);
+
+        Date sqlDay = Date.valueOf(day);
+        Map<String, long[]> last = new HashMap<>();
+        List<Object[]> appends = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.query(LAST_SQL, rs -> {
+                last.put(rs.getString(1), new long[] { rs.getInt(2), rs.getLong(3) });
+            }, sqlDay, from, to);
+            for (Map.Entry<String, Long> v : values.entrySet()) {
+                long cents = toCents(v.getValue());
+                long[] prev = last.get(v.getKey());
+                if (prev == null) {
+                    inserts.add(new Object[] { v.getKey(), sqlDay, minute, cents, minute, cents, NO_SAMPLES });
+                } else if (minute > prev[0]) {
+                    appends.add(new Object[] { ValueSeries.encode(minute - (int) prev[0], cents - prev[1]),
+                        minute, cents, v.getKey(), sqlDay });
+                }
+            }
+            if (!appends.isEmpty()) jdbcTemplate.batchUpdate(APPEND_SQL, appends);
+            if (!inserts.isEmpty()) jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        });
+        return appends.size() + inserts.size();
+    }
+
+    // whole cents, rounded half-up
+    private static long toCents(long units) {
+        return Math.floorDiv(units + 500_000, 1_000_000);
+    }
+
+    private synchronized ExecutorService workers() {
+        if (workers == null) {
+            AtomicInteger index = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(parallelism(), r -> daemon(r, "portfolio-snapshot-" + index.incrementAndGet()));
+        }
+        return workers;
+    }
+
+    private int parallelism() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
@@ -0,0 +1,102 @@
+package com.tradax.wallet.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import com.tradax.wallet.model.PortfolioValueDay;
+
+/**
+ * The snapshots of one or more {@link PortfolioValueDay} rows as parallel arrays of epoch minutes
+ * and values in cents, in time order, plus the encoding of a single appended sample.
+ */
+public final class ValueSeries {
+
+    private long[] minutes = new long[32];
+    private long[] values = new long[32];
+    private int size;
+
+    /**
+     * Bytes appended to a day's samples for a snapshot taken {@code minuteDelta} minutes after the
+     * previous one and worth {@code valueDelta} cents more.
+     */
+    public static byte[] encode(int minuteDelta, long valueDelta) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(12);
+        writeVarint(out, minuteDelta);
+        writeVarint(out, (valueDelta << 1) ^ (valueDelta >> 63));
+        return out.toByteArray();
+    }
+
+    /**
+     * Appends the snapshots of {@code day}; days must be added in order.
+     */
+    public void add(PortfolioValueDay day) {
+        long dayStart = day.getDay().atStartOfDay().toEpochSecond(ZoneOffset.UTC) / 60;
+        long minute = day.getFirstMinute();
+        long value = day.getFirstValue();
+        append(dayStart + minute, value);
+        byte[] b = day.getSamples();
+        int[] pos = { 0 };
+        while (pos[0] < b.length) {
+            minute += readVarint(b, pos);
+            long zigzag = readVarint(b, pos);
+            value += (zigzag >>> 1) ^ -(zigzag & 1);
+            append(dayStart + minute, value);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Index of the snapshot closest to {@code epochMinute} from below, or the first one if all are
+     * later; -1 if there are none.
+     */
+    public int nearest(long epochMinute) {
+        if (size == 0) return -1;
+        int lo = 0, hi = size - 1;
+        // last index with minutes[i] <= epochMinute
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (minutes[mid] <= epochMinute) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    public long minute(int i) {
+        return minutes[i];
+    }
+
+    public long value(int i) {
+        return values[i];
+    }
+
+    private void append(long minute, long value) {
+        if (size == minutes.length) {
+            minutes = Arrays.copyOf(minutes, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        minutes[size] = minute;
+        values[size] = value;
+        size++;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static long readVarint(byte[] b, int[] pos) {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte x = b[pos[0]++];
+            v |= (long) (x & 0x7F) << shift;
+            if (x >= 0) return v;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.tradax.wallet.stats;
+
+import java.math.BigDecimal;
+
+/**
+ * Cost basis and profit/loss of one asset, as returned by {@code /wallet/cost-basis}.
+ */
+public class CostBasis {
+
+    private final String asset;
+    private final BigDecimal quantity;
+    private final BigDecimal costBasis;
+    private final BigDecimal averageCost;
+    private final BigDecimal price;
+    private final BigDecimal marketValue;
+    private final BigDecimal realizedProfitLoss;
+    private final BigDecimal unrealizedProfitLoss;
+
+    public CostBasis(String asset, BigDecimal quantity, BigDecimal costBasis, BigDecimal averageCost,
+                     BigDecimal price, BigDecimal marketValue, BigDecimal realizedProfitLoss,
+                     BigDecimal unrealizedProfitLoss) {
+        this.asset = asset;
+        this.quantity = quantity;
+        this.costBasis = costBasis;
+        this.averageCost = averageCost;
+        this.price = price;
+        this.marketValue = marketValue;
+        this.realizedProfitLoss = realizedProfitLoss;
+        this.unrealizedProfitLoss = unrealizedProfitLoss;
+    }
+
+    public String getAsset() {
+        return asset;
+    }
+
+    public BigDecimal getQuantity() {
+        return quantity;
+    }
+
+    public BigDecimal getCostBasis() {
+        return costBasis;
+    }
+
+    public BigDecimal getAverageCost() {
+        return averageCost;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public BigDecimal getMarketValue() {
+        return marketValue;
+    }
+
+    public BigDecimal getRealizedProfitLoss() {
+        return realizedProfitLoss;
+    }
+
+    public BigDecimal getUnrealizedProfitLoss() {
+        return unrealizedProfitLoss;
+    }
+}
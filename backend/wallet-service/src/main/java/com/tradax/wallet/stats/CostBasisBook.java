@@ -0,0 +1,234 @@
+package com.tradax.wallet.stats;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.model.Transaction;
+import com.tradax.wallet.price.PriceFeed;
+import com.tradax.wallet.service.WalletService;
+
+/**
+ * Open lots and realized profit/loss per user and asset, matched with the configured
+ * {@link CostBasisMethod}.
+ *
+ * Buys (at their cost including the fee) and deposits (at their value when received) open lots;
+ * sells (for their proceeds after the fee) and withdrawals close them. A user's book is built from
+ * their transaction history on first use and afterwards follows the rows {@link TradingStats}
+ * records, applied once their transaction commits. Rows that were pending while the history was
+ * read are remembered, so a row is never counted both by the read and by its commit.
+ *
+ * Rows are applied in id order as far as the pending ones allow. Two fills of the same user that
+ * settle at the same moment without sharing a wallet row can still commit the other way round, in
+ * which case the live book matches them in commit order and a rebuild in id order.
+ */
+@Component
+public class CostBasisBook {
+
+    private static final Logger logger = LoggerFactory.getLogger(CostBasisBook.class);
+
+    private static final String HISTORY_SQL =
+        "SELECT id, type, asset, amount, tx_value FROM transactions WHERE user_email = ? AND status = 'COMPLETED' " +
+        "AND asset <> 'USD' AND type IN ('BUY', 'SELL', 'DEPOSIT', 'WITHDRAWAL') ORDER BY id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PriceFeed priceFeed;
+
+    @Value("${wallet.cost-basis.method:FIFO}")
+    private CostBasisMethod method;
+
+    @Value("${wallet.cost-basis.max-users:100000}")
+    private int maxUsers;
+
+    private final ConcurrentHashMap<String, UserBook> books = new ConcurrentHashMap<>();
+
+    public CostBasisMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * Called with rows being written in the current transaction; they are applied after it commits.
+     */
+    void register(Collection<Transaction> rows) {
+        Map<String, List<Transaction>> byUser = new HashMap<>();
+        for (Transaction t : rows) {
+            if (tracked(t) && t.getId() != null) byUser.computeIfAbsent(t.getUserEmail(), k -> new ArrayList<>()).add(t);
+        }
+        if (byUser.isEmpty()) return;
+        for (Map.Entry<String, List<Transaction>> e : byUser.entrySet()) {
+            // a user without a book reads everything from the history when it is built
+            UserBook b = books.computeIfAbsent(e.getKey(), k -> books.size() >= maxUsers ? null : new UserBook());
+            if (b == null) continue;
+            synchronized (b) {
+                for (Transaction t : e.getValue()) b.pending.add(t.getId());
+            }
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete(byUser, true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                complete(byUser, status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    /**
+     * Cost basis and profit/loss of every asset the user has held, valued at current prices.
+     */
+    public List<CostBasis> getCostBasis(String userEmail) {
+        Map<String, long[]> totals = new TreeMap<>();
+        UserBook b = books.computeIfAbsent(userEmail, k -> books.size() >= maxUsers ? null : new UserBook());
+        if (b == null) {
+            // over the limit: build a throwaway book
+            b = new UserBook();
+        }
+        synchronized (b) {
+            if (b.assets == null) load(userEmail, b);
+            for (Map.Entry<String, LotQueue> e : b.assets.entrySet()) {
+                LotQueue q = e.getValue();
+                totals.put(e.getKey(), new long[] { q.quantity(), q.cost(), q.realized() });
+            }
+        }
+
+        List<CostBasis> result = new ArrayList<>(totals.size());
+        for (Map.Entry<String, long[]> e : totals.entrySet()) {
+            long quantity = e.getValue()[0];
+            long cost = e.getValue()[1];
+            long price = priceFeed.getPriceUnits(e.getKey());
+            long value = Money.multiply(quantity, price);
+            BigDecimal qty = Money.toBigDecimal(quantity);
+            BigDecimal costBasis = Money.toBigDecimal(cost);
+            result.add(new CostBasis(e.getKey(), qty, usd(costBasis),
+                    quantity == 0 ? BigDecimal.ZERO : costBasis.divide(qty, 2, RoundingMode.HALF_UP),
+                    Money.toBigDecimal(price), usd(Money.toBigDecimal(value)),
+                    usd(Money.toBigDecimal(e.getValue()[2])), usd(Money.toBigDecimal(Money.subtract(value, cost)))));
+        }
+        return result;
+    }
+
+    private void complete(Map<String, List<Transaction>> byUser, boolean committed) {
+        for (Map.Entry<String, List<Transaction>> e : byUser.entrySet()) {
+            UserBook b = books.get(e.getKey());
+            if (b == null) continue;
+            synchronized (b) {
+                for (Transaction t : e.getValue()) {
+                    if (!b.pending.remove(t.getId())) continue;
+                    boolean alreadyRead = b.readWhilePending.remove(t.getId());
+                    if (committed && b.assets != null && !alreadyRead) b.committed.put(t.getId(), t);
+                }
+                // commits can complete out of order; apply rows in id order, i.e. the order they were made in
+                while (!b.committed.isEmpty() && (b.pending.isEmpty() || b.committed.firstKey() < b.pending.first())) {
+                    Transaction t = b.committed.pollFirstEntry().getValue();
+                    try {
+                        apply(b.assets, t.getType(), t.getAsset(), Money.of(t.getAmount()), units(t.getValue()));
+                    } catch (RuntimeException ex) {
+                        // start over from the history on next use
+                        logger.warn("Dropping cost basis of {}: {}", e.getKey(), ex.getMessage());
+                        b.assets = null;
+                        b.readWhilePending.clear();
+                        b.committed.clear();
+                    }
+                }
+            }
+        }
+    }
+
+    // caller holds the book's lock, so no row can become pending while the history is read
+    private void load(String userEmail, UserBook b) {
+        Map<String, LotQueue> assets = new LinkedHashMap<>();
+        Set<Long> readWhilePending = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(HISTORY_SQL);
+            ps.setFetchSize(1000);
+            ps.setString(1, userEmail);
+            return ps;
+        }, rs -> {
+            long id = rs.getLong(1);
+            if (b.pending.contains(id)) readWhilePending.add(id);
+            apply(assets, Transaction.TransactionType.valueOf(rs.getString(2)), rs.getString(3),
+                    Money.of(rs.getBigDecimal(4)), units(rs.getBigDecimal(5)));
+        });
+        b.assets = assets;
+        b.readWhilePending.addAll(readWhilePending);
+    }
+
+    private void apply(Map<String, LotQueue> assets, Transaction.TransactionType type, String asset,
+                       long amount, long value) {
+        LotQueue q = assets.computeIfAbsent(asset, a -> new LotQueue(method));
+        switch (type) {
+            case BUY:
+                q.acquire(amount, WalletService.buyCost(value));
+                break;
+            case SELL:
+                q.sell(amount, WalletService.sellProceeds(value));
+                break;
+            case DEPOSIT:
+                q.acquire(amount, value);
+                break;
+            case WITHDRAWAL:
+                q.dispose(amount);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static boolean tracked(Transaction t) {
+        if ("USD".equals(t.getAsset()) || t.getStatus() != Transaction.TransactionStatus.COMPLETED) return false;
+        switch (t.getType()) {
+            case BUY:
+            case SELL:
+            case DEPOSIT:
+            case WITHDRAWAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static long units(BigDecimal value) {
+        return value == null ? 0 : Money.of(value);
+    }
+
+    private static BigDecimal usd(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static final class UserBook {
+        // ids of rows registered but not yet committed or rolled back
+        final TreeSet<Long> pending = new TreeSet<>();
+        // committed rows waiting for an earlier pending row
+        final TreeMap<Long, Transaction> committed = new TreeMap<>();
+        // pending ids the history read already contained
+        final Set<Long> readWhilePending = new HashSet<>();
+        // null until built from the history
+        Map<String, LotQueue> assets;
+    }
+}
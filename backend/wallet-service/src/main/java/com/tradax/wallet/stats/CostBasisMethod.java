@@ -0,0 +1,13 @@
+package com.tradax.wallet.stats;
+
+/**
+ * Which lots a sale is matched against.
+ */
+public enum CostBasisMethod {
+    /** Oldest lots first. */
+    FIFO,
+    /** Newest lots first. */
+    LIFO,
+    /** The average cost of everything held. */
+    AVERAGE
+}
@@ -0,0 +1,178 @@
+package com.tradax.wallet.stats;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import com.tradax.wallet.model.Money;
+
+/**
+ * The open lots of one asset held by one user, with quantities and costs in {@link Money} units.
+ *
+ * Lots are stored as two running sums, {@code qty[i]} and {@code cost[i]} being the quantity and
+ * cost of lots 0..i together, so a lot takes 16 bytes and the cost of any stretch of holdings is
+ * the difference of two points on that curve. Held lots are the quantity range {@code (lo, hi]}:
+ * FIFO sales move {@code lo} up and LIFO sales move {@code hi} down, each finding its new end with
+ * one binary search however many lots it spans. A sale that ends inside a lot takes a pro-rata
+ * share of that lot's cost. Lots FIFO has used up are dropped once they are the larger part of the
+ * arrays; lots above {@code hi} are cut off by the next acquisition.
+ *
+ * AVERAGE only needs the totals and keeps no lots. Not thread-safe; {@link CostBasisBook} guards it.
+ */
+final class LotQueue {
+
+    private final CostBasisMethod method;
+
+    private long[] qty;
+    private long[] cost;
+    private int lots;
+
+    // held range and the cost curve at both ends; for AVERAGE lo = loCost = 0
+    private long lo;
+    private long hi;
+    private long loCost;
+    private long hiCost;
+
+    private long realized;
+
+    LotQueue(CostBasisMethod method) {
+        this.method = method;
+        if (method != CostBasisMethod.AVERAGE) {
+            qty = new long[8];
+            cost = new long[8];
+        }
+    }
+
+    long quantity() {
+        return hi - lo;
+    }
+
+    long cost() {
+        return hiCost - loCost;
+    }
+
+    long realized() {
+        return realized;
+    }
+
+    int lots() {
+        return lots;
+    }
+
+    /**
+     * Adds a lot of {@code quantity} units bought for {@code totalCost}.
+     */
+    void acquire(long quantity, long totalCost) {
+        if (quantity <= 0) return;
+        if (method == CostBasisMethod.AVERAGE) {
+            hi = Money.add(hi, quantity);
+            hiCost = Money.add(hiCost, totalCost);
+            return;
+        }
+        if (lots > 0 && qty[lots - 1] != hi) {
+            // LIFO sold past the last lots; continue the curve from hi
+            int i = indexOf(hi);
+            qty[i] = hi;
+            cost[i] = hiCost;
+            lots = i + 1;
+        }
+        if (lots == qty.length) {
+            qty = Arrays.copyOf(qty, lots * 2);
+            cost = Arrays.copyOf(cost, lots * 2);
+        }
+        hi = Money.add(hi, quantity);
+        hiCost = Money.add(hiCost, totalCost);
+        qty[lots] = hi;
+        cost[lots] = hiCost;
+        lots++;
+    }
+
+    /**
+     * Removes {@code quantity} units, or everything held if that is less, and returns their cost.
+     */
+    long dispose(long quantity) {
+        long q = Math.min(quantity, quantity());
+        if (q <= 0) return 0;
+        long removed;
+        if (method == CostBasisMethod.AVERAGE) {
+            removed = q == hi ? hiCost : prorate(hiCost, q, hi);
+            hi -= q;
+            hiCost -= removed;
+        } else if (method == CostBasisMethod.FIFO) {
+            long to = lo + q;
+            long toCost = costAt(to);
+            removed = toCost - loCost;
+            lo = to;
+            loCost = toCost;
+            compact();
+        } else {
+            long to = hi - q;
+            long toCost = costAt(to);
+            removed = hiCost - toCost;
+            hi = to;
+            hiCost = toCost;
+        }
+        if (lo == hi) clear();
+        return removed;
+    }
+
+    /**
+     * Sells {@code quantity} units for {@code proceeds} and books the gain against their cost.
+     * Units beyond what the lots hold count at zero cost.
+     */
+    void sell(long quantity, long proceeds) {
+        realized = Money.add(realized, Money.subtract(proceeds, dispose(quantity)));
+    }
+
+    // cost curve at quantity x, lo <= x <= hi
+    private long costAt(long x) {
+        if (x == lo) return loCost;
+        if (x == hi) return hiCost;
+        int i = indexOf(x);
+        if (qty[i] == x) return cost[i];
+        long fromQty = i == 0 ? 0 : qty[i - 1];
+        long fromCost = i == 0 ? 0 : cost[i - 1];
+        return fromCost + prorate(cost[i] - fromCost, x - fromQty, qty[i] - fromQty);
+    }
+
+    // first lot whose running quantity reaches x
+    private int indexOf(long x) {
+        int i = Arrays.binarySearch(qty, 0, lots, x);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private void compact() {
+        int first = indexOf(lo);
+        if (qty[first] == lo) first++;
+        if (first < 64 || first * 2 < lots) return;
+        long baseQty = qty[first - 1];
+        long baseCost = cost[first - 1];
+        lots -= first;
+        for (int i = 0; i < lots; i++) {
+            qty[i] = qty[first + i] - baseQty;
+            cost[i] = cost[first + i] - baseCost;
+        }
+        lo -= baseQty;
+        hi -= baseQty;
+        loCost -= baseCost;
+        hiCost -= baseCost;
+    }
+
+    private void clear() {
+        lots = 0;
+        lo = hi = loCost = hiCost = 0;
+    }
+
+    // a * part / whole rounded half-up, for 0 <= part <= whole and a >= 0
+    static long prorate(long a, long part, long whole) {
+        if (Math.multiplyHigh(a, part) == 0 && a * part >= 0) {
+            long p = a * part;
+            long r = p / whole;
+            long rem = p % whole;
+            return rem >= whole - rem ? r + 1 : r;
+        }
+        BigInteger[] qr = BigInteger.valueOf(a).multiply(BigInteger.valueOf(part)).divideAndRemainder(BigInteger.valueOf(whole));
+        long r = qr[0].longValueExact();
+        long rem = qr[1].longValueExact();
+        return rem >= whole - rem ? r + 1 : r;
+    }
+}
@@ -0,0 +1,202 @@
+package com.tradax.wallet.stats;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tradax.wallet.model.Transaction;
+import com.tradax.wallet.price.CandleStore;
+
+/**
+ * Maintains the {@code trading_stats} aggregates (value, quantity and count of buys and sells, and
+ * value of deposits and withdrawals, per user and asset) that profit/loss, trading volume and the
+ * capital put into a portfolio are read from.
+ *
+ * {@link #record} must run in the transaction that inserts the trades' rows, so the aggregates
+ * always match the transaction history exactly: every path that writes rows calls it, whether
+ * one at a time or in a batch. Rows are folded per user and asset first, so a batch costs one
+ * JDBC batch of UPDATEs, plus an INSERT for each pair that has no row yet. If a concurrent
+ * transaction created that row in the meantime, the INSERT hits the unique key and the UPDATE is
+ * run again instead; H2's {@code MERGE ... KEY} would replace the row rather than add to it.
+ */
+@Component
+public class TradingStats {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradingStats.class);
+
+    private static final String UPDATE_SQL =
+        "UPDATE trading_stats SET buy_value = buy_value + ?, sell_value = sell_value + ?, " +
+        "buy_quantity = buy_quantity + ?, sell_quantity = sell_quantity + ?, " +
+        "deposit_value = deposit_value + ?, withdrawal_value = withdrawal_value + ?, " +
+        "buy_count = buy_count + ?, sell_count = sell_count + ?, updated_at = ? " +
+        "WHERE user_email = ? AND asset = ?";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO trading_stats (buy_value, sell_value, buy_quantity, sell_quantity, deposit_value, withdrawal_value, " +
+        "buy_count, sell_count, updated_at, user_email, asset) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // one-off build from the existing history, for databases that predate the table
+    private static final String BACKFILL_SQL =
+        "INSERT INTO trading_stats (user_email, asset, buy_value, sell_value, buy_quantity, sell_quantity, " +
+        "deposit_value, withdrawal_value, buy_count, sell_count, updated_at) " +
+        "SELECT user_email, asset, " +
+        "COALESCE(SUM(CASE WHEN type = 'BUY' THEN tx_value END), 0), " +
+        "COALESCE(SUM(CASE WHEN type = 'SELL' THEN tx_value END), 0), " +
+        "COALESCE(SUM(CASE WHEN type = 'BUY' THEN amount END), 0), " +
+        "COALESCE(SUM(CASE WHEN type = 'SELL' THEN amount END), 0), " +
+        "COALESCE(SUM(CASE WHEN type = 'DEPOSIT' THEN tx_value END), 0), " +
+        "COALESCE(SUM(CASE WHEN type = 'WITHDRAWAL' THEN tx_value END), 0), " +
+        "SUM(CASE WHEN type = 'BUY' THEN 1 ELSE 0 END), " +
+        "SUM(CASE WHEN type = 'SELL' THEN 1 ELSE 0 END), ? " +
+        "FROM transactions WHERE type IN ('BUY', 'SELL', 'DEPOSIT', 'WITHDRAWAL') AND status = 'COMPLETED' " +
+        "GROUP BY user_email, asset";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CostBasisBook costBasisBook;
+
+    @Autowired
+    private CandleStore candleStore;
+
+    // also guarantees the schema exists before backfill() runs
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    void backfill() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM trading_stats", Long.class);
+            if (existing != null && existing > 0) return;
+            int built = jdbcTemplate.update(BACKFILL_SQL, Timestamp.valueOf(LocalDateTime.now()));
+            if (built > 0) logger.info("Built trading stats for {} user/asset pairs from transaction history", built);
+        });
+    }
+
+    /**
+     * Adds the BUY, SELL, DEPOSIT and WITHDRAWAL rows among {@code rows} to the aggregates; other
+     * types are ignored.
+     * All rows are also passed on to the {@link CostBasisBook}, and to the {@link CandleStore} once
+     * they are committed.
+     */
+    public void record(Collection<Transaction> rows) {
+        costBasisBook.register(rows);
+        afterCommit(() -> candleStore.onTrades(rows));
+        Map<String, Delta> deltas = new LinkedHashMap<>();
+        for (Transaction t : rows) {
+            Transaction.TransactionType type = t.getType();
+            if (type != Transaction.TransactionType.BUY && type != Transaction.TransactionType.SELL
+                    && type != Transaction.TransactionType.DEPOSIT && type != Transaction.TransactionType.WITHDRAWAL) continue;
+            deltas.computeIfAbsent(t.getUserEmail() + '\n' + t.getAsset(), k -> new Delta(t.getUserEmail(), t.getAsset()))
+                .add(type, t.getAmount(), t.getValue());
+        }
+        if (deltas.isEmpty()) return;
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        for (Delta d : deltas.values()) args.add(d.toArgs(now));
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, args);
+        List<Object[]> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) missing.add(args.get(i));
+        }
+        for (Object[] row : missing) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, row);
+            } catch (DuplicateKeyException e) {
+                // another transaction inserted it since the UPDATE; the INSERT waited for that one to commit
+                jdbcTemplate.update(UPDATE_SQL, row);
+            }
+        }
+    }
+
+    public void record(Transaction row) {
+        record(List.of(row));
+    }
+
+    // the transaction has already committed by then, so a failure must not reach the caller
+    private static void afterCommit(Runnable action) {
+        Runnable guarded = () -> {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                logger.warn("Post-commit update failed", e);
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            guarded.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                guarded.run();
+            }
+        });
+    }
+
+    private static final class Delta {
+        final String userEmail;
+        final String asset;
+        BigDecimal buyValue = BigDecimal.ZERO;
+        BigDecimal sellValue = BigDecimal.ZERO;
+        BigDecimal buyQuantity = BigDecimal.ZERO;
+        BigDecimal sellQuantity = BigDecimal.ZERO;
+        BigDecimal depositValue = BigDecimal.ZERO;
+        BigDecimal withdrawalValue = BigDecimal.ZERO;
+        long buyCount;
+        long sellCount;
+
+        Delta(String userEmail, String asset) {
+            this.userEmail = userEmail;
+            this.asset = asset;
+        }
+
+        void add(Transaction.TransactionType type, BigDecimal quantity, BigDecimal value) {
+            BigDecimal v = value == null ? BigDecimal.ZERO : value;
+            switch (type) {
+                case BUY:
+                    buyValue = buyValue.add(v);
+                    buyQuantity = buyQuantity.add(quantity);
+                    buyCount++;
+                    break;
+                case SELL:
+                    sellValue = sellValue.add(v);
+                    sellQuantity = sellQuantity.add(quantity);
+                    sellCount++;
+                    break;
+                case DEPOSIT:
+                    depositValue = depositValue.add(v);
+                    break;
+                default:
+                    withdrawalValue = withdrawalValue.add(v);
+                    break;
+            }
+        }
+
+        // same parameter order for UPDATE_SQL and INSERT_SQL
+        Object[] toArgs(Timestamp now) {
+            return new Object[] { buyValue, sellValue, buyQuantity, sellQuantity, depositValue, withdrawalValue,
+                buyCount, sellCount, now, userEmail, asset };
+        }
+    }
+}
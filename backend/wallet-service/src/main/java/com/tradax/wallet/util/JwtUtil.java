@@ -1,18 +1,26 @@
 package com.tradax.wallet.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.security.Key;
+import com.tradax.wallet.revocation.RevokedTokens;
+
+import javax.annotation.PostConstruct;
 import java.util.Date;
 import java.util.function.Function;
 
 /**
  * JWT utility class for the wallet-service.
  * Must use the SAME secret as auth-service.
+ *
+ * The key and parser are built once; claims of verified tokens are cached until the token
+ * expires, so repeat requests with the same token skip the signature check. Tokens revoked
+ * in auth-service are rejected through {@link RevokedTokens}.
  */
 @Component
 public class JwtUtil {
@@ -20,8 +28,21 @@ public class JwtUtil {
     @Value("${jwt.secret:TradaXSecretKeyThatIsVeryLongAndSecureForProductionUse2024}")
     private String secret;
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    @Value("${jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    @Autowired
+    private RevokedTokens revokedTokens;
+
+    private JwtParser parser;
+    private VerifiedTokenCache cache;
+
+    @PostConstruct
+    void init() {
+        parser = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(secret.getBytes()))
+                .build();
+        cache = new VerifiedTokenCache(cacheMaxEntries);
     }
 
     public Date extractExpiration(String token) {
@@ -33,31 +54,29 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
-    public boolean isTokenValid(String token, String username) {
+    /**
+     * Subject of {@code token} if it is signed with our key, not expired and not revoked, otherwise
+     * null. One cache lookup and one revocation check for a token seen before.
+     */
+    public String validateToken(String token) {
         try {
-            final String extractedUsername = extractUsername(token);
-            return extractedUsername.equals(username) && !isTokenExpired(token);
+            Claims claims = extractAllClaims(token);
+            Date exp = claims.getExpiration();
+            if (exp == null || exp.before(new Date()) || revokedTokens.isRevoked(claims.getId())) return null;
+            return claims.getSubject();
         } catch (Exception e) {
-            return false;
+            return null;
         }
     }
 
     // ------------ helpers ------------
 
-    private boolean isTokenExpired(String token) {
-        Date exp = extractExpiration(token);
-        return exp == null || exp.before(new Date());
-    }
-
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Key getSignInKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        Claims claims = cache.get(token);
+        if (claims == null) {
+            claims = parser.parseClaimsJws(token).getBody();
+            cache.put(token, claims);
+        }
+        return claims;
     }
 }
@@ -0,0 +1,112 @@
+package com.tradax.wallet.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Claims of tokens whose signature has already been checked, keyed by the SHA-256 of the token.
+ *
+ * A client sends the same token on every request until it expires, so after the first request
+ * the HMAC check and JSON parse are replaced by one hash and a map lookup. Entries are dropped at
+ * the token's {@code exp}; raw tokens are never kept. Only successful verifications are cached.
+ */
+final class VerifiedTokenCache {
+
+    private final int maxEntries;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    VerifiedTokenCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Cached claims of {@code token}, or null if it was not verified yet or has expired since.
+     */
+    Claims get(String token) {
+        Key key = key(token);
+        Entry e = entries.get(key);
+        if (e == null) return null;
+        if (e.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key, e);
+            return null;
+        }
+        return e.claims;
+    }
+
+    /**
+     * Remembers the claims of a verified token until its expiration. Tokens without {@code exp}
+     * are not cached, since nothing would ever retire them.
+     */
+    void put(String token, Claims claims) {
+        if (maxEntries <= 0 || claims.getExpiration() == null) return;
+        if (entries.size() >= maxEntries) evict();
+        entries.put(key(token), new Entry(claims, claims.getExpiration().getTime()));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    // expired entries go first; if that is not enough an arbitrary tenth is dropped so a full
+    // cache does not pay for a scan on every insert
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAt <= now);
+        int excess = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        for (Iterator<Key> it = entries.keySet().iterator(); excess > 0 && it.hasNext(); excess--) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static Key key(String token) {
+        MessageDigest md = SHA256.get();
+        return new Key(md.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static final class Key {
+        final byte[] digest;
+        final int hash;
+
+        Key(byte[] digest) {
+            this.digest = digest;
+            // the digest is uniformly distributed, so its first bytes are as good as any hash
+            this.hash = (digest[0] & 0xFF) << 24 | (digest[1] & 0xFF) << 16 | (digest[2] & 0xFF) << 8 | (digest[3] & 0xFF);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(digest, ((Key) o).digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        final Claims claims;
+        final long expiresAt;
+
+        Entry(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.tradax.wallet.valuation;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.model.Wallet;
+import com.tradax.wallet.price.PriceFeed;
+import com.tradax.wallet.price.PriceListener;
+
+/**
+ * Total USD value of each user's wallets, kept up to date incrementally.
+ *
+ * A user's entry is built once from their wallets and from then on only adjusted: a balance change
+ * or a price tick revalues the positions it touches and adds the difference to the total. Amounts are
+ * {@link Money} units and every position keeps its own rounded value, so the total is always exactly
+ * the sum of its positions, updating it allocates nothing and reading it is a single field access.
+ *
+ * Balance changes are bracketed by {@link #beginUpdate} and {@link #endUpdate}. An entry is only
+ * built from a read of the wallets that no change overlapped; otherwise the read may or may not
+ * contain that change and the result is used once but not cached. A change that fails, possibly
+ * after part of it was written, drops the user's entry, as does a total too large for a long.
+ */
+@Component
+public class PortfolioValuationCache implements PriceListener {
+
+    @Autowired
+    private PriceFeed priceFeed;
+
+    @Value("${wallet.valuation.max-users:100000}")
+    private int maxUsers;
+
+    // total of an entry that has not been valued
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<Entry>> holders = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        priceFeed.addListener(this);
+    }
+
+    /**
+     * Cached total value of the user's wallets, or null if it has to be computed.
+     */
+    public BigDecimal getTotalValue(String userEmail) {
+        Entry e = entries.get(userEmail);
+        if (e == null) return null;
+        long total = e.total;
+        return total == NONE ? null : Money.toBigDecimal(total);
+    }
+
+    /**
+     * Reads the user's wallets through {@code reader} and, if nothing raced with the read, caches
+     * their valuation. Returns what {@code reader} returned.
+     */
+    public List<Wallet> load(String userEmail, Supplier<List<Wallet>> reader) {
+        Entry existing = entries.get(userEmail);
+        if (existing != null && existing.total != NONE) return reader.get();
+
+        boolean[] owner = new boolean[1];
+        entries.compute(userEmail, (k, e) -> {
+            if (e == null) {
+                if (entries.size() >= maxUsers) return null;
+                e = new Entry();
+            }
+            synchronized (e) {
+                if (e.total == NONE && !e.loading) {
+                    e.loading = true;
+                    e.raced = e.inflight > 0;
+                    owner[0] = true;
+                }
+            }
+            return e;
+        });
+        if (!owner[0]) return reader.get();
+
+        List<Wallet> wallets;
+        try {
+            wallets = reader.get();
+        } catch (RuntimeException ex) {
+            finishLoad(userEmail, null);
+            throw ex;
+        }
+        finishLoad(userEmail, wallets);
+        return wallets;
+    }
+
+    /**
+     * Marks the start of a balance change for the user.
+     */
+    public void beginUpdate(String userEmail) {
+        entries.compute(userEmail, (k, e) -> {
+            if (e == null) e = new Entry();
+            synchronized (e) {
+                e.inflight++;
+                if (e.loading) e.raced = true;
+            }
+            return e;
+        });
+    }
+
+    /**
+     * Completes a balance change and applies its deltas in {@link Money} units (negative for debits).
+     */
+    public void endUpdate(String userEmail, String asset, long delta, String otherAsset, long otherDelta) {
+        finishUpdate(userEmail, e -> {
+            apply(e, asset, delta);
+            if (otherAsset != null) apply(e, otherAsset, otherDelta);
+        });
+    }
+
+    /**
+     * Completes a balance change that touched any number of assets, with its net delta per asset.
+     */
+    public void endUpdate(String userEmail, Map<String, Long> deltas) {
+        finishUpdate(userEmail, e -> {
+            for (Map.Entry<String, Long> d : deltas.entrySet()) apply(e, d.getKey(), d.getValue());
+        });
+    }
+
+    /**
+     * Completes a balance change that failed. Its effect is unknown, so the entry is dropped.
+     */
+    public void abortUpdate(String userEmail) {
+        entries.computeIfPresent(userEmail, (k, e) -> {
+            synchronized (e) {
+                e.inflight--;
+                if (e.loading) e.raced = true;
+                clear(e);
+                return e.isIdle() ? null : e;
+            }
+        });
+    }
+
+    @Override
+    public void onPriceChange(String symbol, BigDecimal price) {
+        Set<Entry> entriesHolding = holders.get(symbol);
+        if (entriesHolding == null) return;
+        long units = Money.of(price);
+        for (Entry e : entriesHolding) {
+            synchronized (e) {
+                Position p = e.positions.get(symbol);
+                if (e.total == NONE || p == null || p.price == units) continue;
+                try {
+                    p.price = units;
+                    revalue(e, p);
+                } catch (RuntimeException ex) {
+                    clear(e);
+                }
+            }
+        }
+    }
+
+    private void finishUpdate(String userEmail, Consumer<Entry> applyDeltas) {
+        entries.computeIfPresent(userEmail, (k, e) -> {
+            synchronized (e) {
+                e.inflight--;
+                if (e.loading) {
+                    e.raced = true;
+                } else if (e.total != NONE) {
+                    try {
+                        applyDeltas.accept(e);
+                    } catch (RuntimeException ex) {
+                        clear(e);
+                    }
+                }
+                return e.isIdle() ? null : e;
+            }
+        });
+    }
+
+    private void finishLoad(String userEmail, List<Wallet> wallets) {
+        entries.computeIfPresent(userEmail, (k, e) -> {
+            synchronized (e) {
+                e.loading = false;
+                if (wallets != null && !e.raced && e.inflight == 0) {
+                    e.total = 0;
+                    try {
+                        for (Wallet w : wallets) apply(e, w.getAsset(), w.getBalanceUnits());
+                    } catch (RuntimeException ex) {
+                        clear(e);
+                    }
+                }
+                e.raced = false;
+                return e.isIdle() ? null : e;
+            }
+        });
+    }
+
+    // caller holds the entry's monitor
+    private void apply(Entry e, String asset, long delta) {
+        if (delta == 0 && e.positions.containsKey(asset)) return;
+        Position p = e.positions.get(asset);
+        if (p == null) {
+            p = new Position();
+            e.positions.put(asset, p);
+            holders.computeIfAbsent(asset, a -> ConcurrentHashMap.newKeySet()).add(e);
+            // read after registering: a tick that misses this entry has already published its price
+            p.price = priceFeed.getPriceUnits(asset);
+        }
+        p.balance = Money.add(p.balance, delta);
+        revalue(e, p);
+    }
+
+    // caller holds the entry's monitor
+    private static void revalue(Entry e, Position p) {
+        long value = Money.multiply(p.balance, p.price);
+        e.total = Money.add(e.total, Money.subtract(value, p.value));
+        p.value = value;
+    }
+
+    // caller holds the entry's monitor
+    private void clear(Entry e) {
+        for (String asset : e.positions.keySet()) {
+            Set<Entry> set = holders.get(asset);
+            if (set != null) set.remove(e);
+        }
+        e.positions.clear();
+        e.total = NONE;
+    }
+
+    private static final class Entry {
+        // all fields guarded by the entry's monitor; total is also read without it
+        int inflight;
+        boolean loading;
+        boolean raced;
+        final Map<String, Position> positions = new HashMap<>();
+        volatile long total = NONE;
+
+        boolean isIdle() {
+            return total == NONE && !loading && inflight == 0;
+        }
+    }
+
+    private static final class Position {
+        long balance;
+        long price;
+        long value;
+    }
+}
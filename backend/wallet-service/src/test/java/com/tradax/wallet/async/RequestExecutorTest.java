@@ -0,0 +1,137 @@
+package com.tradax.wallet.async;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * {@link RequestExecutor} disabled and enabled: inline by default, otherwise on the pools with the
+ * caller's security context and request carried over and cleared afterwards, failures passed on,
+ * and 503 with {@code Retry-After} once a pool's queue is full.
+ */
+class RequestExecutorTest {
+
+    private RequestExecutor executor;
+
+    @AfterEach
+    void stop() {
+        if (executor != null) executor.stop();
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void disabledRunsOnTheCallingThread() throws Exception {
+        executor = executor(false);
+        Thread caller = Thread.currentThread();
+        CompletableFuture<ResponseEntity<Map<String, Object>>> result =
+                executor.io(() -> ResponseEntity.ok(Map.of("thread", Thread.currentThread())));
+        assertTrue(result.isDone());
+        assertSame(caller, result.get().getBody().get("thread"));
+    }
+
+    @Test
+    void poolThreadsSeeTheCallersContextAndRequest() throws Exception {
+        executor = executor(true);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("a@tradax.local", null, List.of()));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("userEmail", "a@tradax.local");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        ResponseEntity<Map<String, Object>> response = executor.cpu(() -> ResponseEntity.ok(Map.of(
+                "thread", Thread.currentThread().getName(),
+                "user", SecurityContextHolder.getContext().getAuthentication().getName(),
+                "attribute", RequestContextHolder.currentRequestAttributes()
+                        .getAttribute("userEmail", RequestAttributes.SCOPE_REQUEST)))).get(5, TimeUnit.SECONDS);
+        assertTrue(((String) response.getBody().get("thread")).startsWith("request-cpu-"));
+        assertEquals("a@tradax.local", response.getBody().get("user"));
+        assertEquals("a@tradax.local", response.getBody().get("attribute"));
+
+        // the single CPU thread is reused and has nothing left over from the last task
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+        Map<String, Object> after = new HashMap<>();
+        executor.cpu(() -> {
+            after.put("authentication", SecurityContextHolder.getContext().getAuthentication());
+            after.put("attributes", RequestContextHolder.getRequestAttributes());
+            return ResponseEntity.ok(Map.of());
+        }).get(5, TimeUnit.SECONDS);
+        assertNull(after.get("authentication"));
+        assertNull(after.get("attributes"));
+    }
+
+    @Test
+    void failuresCompleteTheResultExceptionally() {
+        executor = executor(true);
+        CompletableFuture<ResponseEntity<Map<String, Object>>> result = executor.io(() -> {
+            throw new RuntimeException("Wallet not found");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertEquals("Wallet not found", e.getCause().getMessage());
+    }
+
+    @Test
+    void fullQueueIsAnsweredWithServiceUnavailable() throws Exception {
+        executor = executor(true);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<Map<String, Object>>> first = executor.cpu(() -> {
+            running.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ResponseEntity.ok(Map.of());
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ResponseEntity<Map<String, Object>>> queued = executor.cpu(() -> ResponseEntity.ok(Map.of()));
+
+        ResponseEntity<Map<String, Object>> busy = executor.cpu(() -> ResponseEntity.ok(Map.of())).getNow(null);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, busy.getStatusCode());
+        assertEquals("7", busy.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("Server is busy, please retry", busy.getBody().get("error"));
+        // the other pool is not affected
+        assertEquals(HttpStatus.OK, executor.io(() -> ResponseEntity.ok(Map.of())).get(5, TimeUnit.SECONDS).getStatusCode());
+
+        release.countDown();
+        assertEquals(HttpStatus.OK, first.get(5, TimeUnit.SECONDS).getStatusCode());
+        assertEquals(HttpStatus.OK, queued.get(5, TimeUnit.SECONDS).getStatusCode());
+    }
+
+    private static RequestExecutor executor(boolean enabled) {
+        RequestExecutor executor = new RequestExecutor();
+        ReflectionTestUtils.setField(executor, "enabled", enabled);
+        ReflectionTestUtils.setField(executor, "cpuThreads", 1);
+        ReflectionTestUtils.setField(executor, "cpuQueue", 1);
+        ReflectionTestUtils.setField(executor, "ioThreads", 2);
+        ReflectionTestUtils.setField(executor, "ioQueue", 4);
+        ReflectionTestUtils.setField(executor, "retryAfterSeconds", 7);
+        executor.init();
+        return executor;
+    }
+}
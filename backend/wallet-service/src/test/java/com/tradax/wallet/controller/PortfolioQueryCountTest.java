@@ -0,0 +1,101 @@
+package com.tradax.wallet.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Statements issued per request by the endpoints built on one {@link com.tradax.wallet.service.PortfolioSnapshot}:
+ * balances and total value come from a single wallet query, whatever the number of assets.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.tradax.wallet.controller.PortfolioQueryCountTest$RequestStatements",
+    "wallet.snapshots.interval-ms=0",
+    "wallet.news.refresh-interval-ms=0",
+    "wallet.revocation.poll-ms=0"
+})
+class PortfolioQueryCountTest {
+
+    private static final String USER = "query-count@tradax.local";
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Value("${jwt.secret}")
+    private String secret;
+
+    @BeforeEach
+    void warmUp() {
+        // the first request creates the user's wallets
+        get("/wallet/balance");
+    }
+
+    @Test
+    void balanceReadsTheWalletsOnce() {
+        assertEquals(1, statementsFor("/wallet/balance"));
+    }
+
+    @Test
+    void portfolioReadsTheWalletsOnce() {
+        // wallets, net deposits and the value history
+        assertEquals(3, statementsFor("/wallet/portfolio"));
+    }
+
+    private int statementsFor(String path) {
+        RequestStatements.COUNT.set(0);
+        get(path);
+        return RequestStatements.COUNT.get();
+    }
+
+    private void get(String path) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token());
+        ResponseEntity<Map<String, Object>> response = rest.exchange(path, HttpMethod.GET, new HttpEntity<>(headers),
+                new ParameterizedTypeReference<Map<String, Object>>() {});
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    private String token() {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setSubject(USER)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + 3_600_000))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes()))
+                .compact();
+    }
+
+    /**
+     * Counts the SQL Hibernate prepares on request threads, leaving out background work such as price ticks.
+     */
+    public static class RequestStatements implements StatementInspector {
+        static final AtomicInteger COUNT = new AtomicInteger();
+
+        @Override
+        public String inspect(String sql) {
+            if (Thread.currentThread().getName().startsWith("http-nio")) COUNT.incrementAndGet();
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.tradax.wallet.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tradax.wallet.model.IdempotencyRecord;
+import com.tradax.wallet.repository.IdempotencyRecordRepository;
+
+/**
+ * {@link IdempotencyStore} claims a key in {@code idempotency_keys} before the operation runs, so a
+ * second instance sharing the table refuses a retry instead of running it again, and a failed
+ * request gives the key back.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.jpa.show-sql=false",
+    "wallet.snapshots.interval-ms=0",
+    "wallet.news.refresh-interval-ms=0",
+    "wallet.revocation.poll-ms=0"
+})
+class IdempotencyStoreTest {
+
+    private static final String KEY = "key-1";
+
+    @Autowired
+    private IdempotencyStore store;
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // a second instance of the service, sharing only the database
+    private IdempotencyStore otherInstance;
+
+    @BeforeEach
+    void startOtherInstance() {
+        otherInstance = new IdempotencyStore();
+        ReflectionTestUtils.setField(otherInstance, "repository", repository);
+        ReflectionTestUtils.setField(otherInstance, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(otherInstance, "ttlSeconds", 3600L);
+        ReflectionTestUtils.setField(otherInstance, "maxEntries", 100);
+        ReflectionTestUtils.setField(otherInstance, "persistent", true);
+        ReflectionTestUtils.setField(otherInstance, "waitMs", 100L);
+        ReflectionTestUtils.setField(otherInstance, "purgeIntervalMs", 600_000L);
+        otherInstance.init();
+    }
+
+    @AfterEach
+    void stopOtherInstance() {
+        otherInstance.stop();
+    }
+
+    @Test
+    void keyIsClaimedBeforeTheOperationRuns() {
+        String user = user();
+        ResponseEntity<Map<String, Object>> response = store.execute(user, KEY, "deposit 1", () -> {
+            IdempotencyRecord claim = repository.findByUserEmailAndIdempotencyKey(user, KEY).orElseThrow();
+            assertTrue(claim.isPending());
+            return ok("done");
+        });
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        IdempotencyRecord record = repository.findByUserEmailAndIdempotencyKey(user, KEY).orElseThrow();
+        assertEquals(200, record.getStatusCode());
+        assertTrue(record.getResponseBody().contains("done"), record.getResponseBody());
+    }
+
+    @Test
+    void retryOnAnotherInstanceDoesNotRunTheOperationAgain() throws Exception {
+        String user = user();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<Map<String, Object>>> first = CompletableFuture.supplyAsync(() ->
+                store.execute(user, KEY, "deposit 1", () -> {
+                    runs.incrementAndGet();
+                    running.countDown();
+                    await(finish);
+                    return ok("done");
+                }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        // the operation may already have committed; the retry must not run it a second time
+        ResponseEntity<Map<String, Object>> whileRunning = otherInstance.execute(user, KEY, "deposit 1", () -> {
+            runs.incrementAndGet();
+            return ok("again");
+        });
+        assertEquals(HttpStatus.CONFLICT, whileRunning.getStatusCode());
+
+        finish.countDown();
+        assertEquals(HttpStatus.OK, first.get(5, TimeUnit.SECONDS).getStatusCode());
+
+        ResponseEntity<Map<String, Object>> replayed = otherInstance.execute(user, KEY, "deposit 1", () -> {
+            runs.incrementAndGet();
+            return ok("again");
+        });
+        assertEquals(HttpStatus.OK, replayed.getStatusCode());
+        assertEquals("done", replayed.getBody().get("message"));
+        assertEquals("true", replayed.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void failedRequestReleasesTheKey() {
+        String user = user();
+        ResponseEntity<Map<String, Object>> rejected = store.execute(user, KEY, "withdraw 1",
+                () -> ResponseEntity.badRequest().body(new HashMap<>()));
+        assertEquals(HttpStatus.BAD_REQUEST, rejected.getStatusCode());
+        assertTrue(repository.findByUserEmailAndIdempotencyKey(user, KEY).isEmpty());
+
+        assertThrows(RuntimeException.class, () -> otherInstance.execute(user, KEY, "withdraw 1", () -> {
+            throw new RuntimeException("Insufficient USD balance");
+        }));
+        assertTrue(repository.findByUserEmailAndIdempotencyKey(user, KEY).isEmpty());
+
+        assertEquals(HttpStatus.OK, otherInstance.execute(user, KEY, "withdraw 1", () -> ok("done")).getStatusCode());
+    }
+
+    @Test
+    void keyOfAnotherInstanceCannotBeReusedForADifferentRequest() {
+        String user = user();
+        store.execute(user, KEY, "deposit 1", () -> ok("done"));
+        ResponseEntity<Map<String, Object>> reused = otherInstance.execute(user, KEY, "deposit 2", () -> ok("other"));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, reused.getStatusCode());
+    }
+
+    private static String user() {
+        return UUID.randomUUID() + "@tradax.local";
+    }
+
+    private static ResponseEntity<Map<String, Object>> ok(String message) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", message);
+        return ResponseEntity.ok(body);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.tradax.wallet.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.model.Transaction;
+import com.tradax.wallet.model.Wallet;
+import com.tradax.wallet.repository.TransactionRepository;
+import com.tradax.wallet.repository.WalletRepository;
+import com.tradax.wallet.service.WalletService;
+
+/**
+ * {@link TransactionJournal} commits a batch of changes in one transaction: a change that fails
+ * leaves nothing behind, not even entity changes it made before failing, while the rest of its
+ * batch commits with their rows.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.jpa.show-sql=false",
+    "wallet.snapshots.interval-ms=0",
+    "wallet.news.refresh-interval-ms=0",
+    "wallet.revocation.poll-ms=0",
+    "wallet.journal.max-wait-ms=200"
+})
+class TransactionJournalTest {
+
+    @Autowired
+    private TransactionJournal journal;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void failedChangeLeavesNoEntityChangesBehind() throws Exception {
+        String user = UUID.randomUUID() + "@tradax.local";
+        walletService.getUserWallets(user);
+        long usd = balance(user, "USD");
+
+        // held until all three are queued, so they land in one batch
+        CountDownLatch queued = new CountDownLatch(1);
+        List<CompletableFuture<Transaction>> changes = new ArrayList<>();
+        changes.add(journal.append(() -> {
+            await(queued);
+            return adjust(user, "USD", Money.of(new BigDecimal("1")));
+        }));
+        changes.add(journal.append(() -> {
+            // changed in memory, then refused
+            adjust(user, "USD", Money.of(new BigDecimal("5000")));
+            throw new RuntimeException("Insufficient USD balance");
+        }));
+        changes.add(journal.append(() -> adjust(user, "USD", Money.of(new BigDecimal("2")))));
+        queued.countDown();
+
+        Transaction first = changes.get(0).get(5, TimeUnit.SECONDS);
+        CompletionException refused = assertThrows(CompletionException.class, () -> changes.get(1).join());
+        assertEquals("Insufficient USD balance", refused.getCause().getMessage());
+        Transaction third = changes.get(2).get(5, TimeUnit.SECONDS);
+
+        assertEquals(usd + Money.of(new BigDecimal("3")), balance(user, "USD"));
+        assertNotNull(first.getId());
+        assertNotNull(third.getId());
+        assertTrue(transactionRepository.existsById(first.getId()));
+        assertTrue(transactionRepository.existsById(third.getId()));
+    }
+
+    // a read-modify-write through the entity, the way locked wallets are changed
+    private Transaction adjust(String user, String asset, long delta) {
+        Wallet wallet = walletRepository.lockByUserEmail(user).stream()
+                .filter(w -> w.getAsset().equals(asset)).findFirst().orElseThrow();
+        wallet.setBalanceUnits(wallet.getBalanceUnits() + delta);
+        return new Transaction(user, Transaction.TransactionType.DEPOSIT, asset, Money.toBigDecimal(delta));
+    }
+
+    private long balance(String user, String asset) {
+        return walletRepository.findByUserEmailAndAsset(user, asset).orElseThrow().getBalanceUnits();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
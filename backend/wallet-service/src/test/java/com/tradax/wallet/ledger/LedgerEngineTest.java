@@ -0,0 +1,171 @@
+package com.tradax.wallet.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.tradax.wallet.journal.TransactionJournal;
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.model.Transaction;
+import com.tradax.wallet.model.Wallet;
+import com.tradax.wallet.repository.WalletRepository;
+
+/**
+ * {@link LedgerEngine} on one shard over a mocked database: concurrent operations on one account
+ * lose nothing, the flush writes what changed, accounts beyond the cap are dropped once committed,
+ * and operations are refused while the flush keeps failing.
+ */
+class LedgerEngineTest {
+
+    private static final long START = 1_000;
+
+    private WalletRepository walletRepository;
+    private TransactionJournal transactionJournal;
+    private LedgerEngine ledger;
+
+    // loads per user, to tell a cached account from a reloaded one
+    private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+    private final List<Transaction> inserted = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void start() {
+        walletRepository = mock(WalletRepository.class);
+        transactionJournal = mock(TransactionJournal.class);
+        // the ledger reuses its list once the batch is written
+        doAnswer(call -> inserted.addAll(call.getArgument(0))).when(transactionJournal).insertBatch(any());
+        doReturn(1).when(walletRepository).updateBalance(anyString(), anyString(), anyLong(), any());
+
+        ledger = new LedgerEngine();
+        ReflectionTestUtils.setField(ledger, "walletRepository", walletRepository);
+        ReflectionTestUtils.setField(ledger, "transactionJournal", transactionJournal);
+        ReflectionTestUtils.setField(ledger, "transactionManager", mock(PlatformTransactionManager.class));
+        // one shard, so the account cap applies to all users of the test
+        ReflectionTestUtils.setField(ledger, "shardCount", 1);
+        ReflectionTestUtils.setField(ledger, "queueCapacity", 1000);
+        // flushed by the tests only
+        ReflectionTestUtils.setField(ledger, "flushIntervalMs", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(ledger, "maxAccounts", 1);
+        ReflectionTestUtils.setField(ledger, "idleMs", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(ledger, "maxFlushFailures", 2);
+        ledger.start(this::load);
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        doReturn(1).when(walletRepository).updateBalance(anyString(), anyString(), anyLong(), any());
+        ledger.stop();
+    }
+
+    @Test
+    void concurrentCreditsOnOneAccountAreNotLost() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        List<Future<?>> done = new ArrayList<>();
+        for (int i = 0; i < 800; i++) {
+            done.add(callers.submit(() -> ledger.execute("a@tradax.local", account -> {
+                account.credit("USD", 1);
+                return null;
+            })));
+        }
+        for (Future<?> f : done) f.get(5, TimeUnit.SECONDS);
+        callers.shutdown();
+
+        assertEquals(START + 800, balance("a@tradax.local"));
+        assertEquals(1, loads.get("a@tradax.local").get());
+    }
+
+    @Test
+    void flushWritesChangedWalletsAndTheirRows() {
+        Transaction row = new Transaction("a@tradax.local", Transaction.TransactionType.DEPOSIT, "USD", Money.toBigDecimal(5));
+        ledger.execute("a@tradax.local", account -> {
+            account.credit("USD", 5);
+            return account.record(row);
+        });
+        ledger.flush();
+
+        verify(walletRepository).updateBalance(eq("a@tradax.local"), eq("USD"), eq(START + 5), any());
+        assertEquals(List.of(row), inserted);
+    }
+
+    @Test
+    void accountsBeyondTheCapAreDroppedOnceCommitted() {
+        credit("a@tradax.local", 1);
+        credit("b@tradax.local", 1);
+        // the first flush hands the changes over, the second finds them committed and evicts
+        ledger.flush();
+        ledger.flush();
+
+        // reloaded, so the loader's starting balance again
+        assertEquals(START, balance("a@tradax.local"));
+        assertEquals(2, loads.get("a@tradax.local").get());
+    }
+
+    @Test
+    void failingFlushStopsOperationsUntilItRecovers() {
+        doThrow(new RuntimeException("database is down"))
+                .when(walletRepository).updateBalance(anyString(), anyString(), anyLong(), any());
+        credit("a@tradax.local", 1);
+        assertThrows(RuntimeException.class, ledger::flush);
+        credit("a@tradax.local", 1);
+        assertThrows(RuntimeException.class, ledger::flush);
+
+        RuntimeException refused = assertThrows(RuntimeException.class, () -> credit("a@tradax.local", 1));
+        assertEquals("Ledger is unavailable, pending changes could not be saved", refused.getMessage());
+        // a credit finishing a change committed elsewhere still goes through
+        assertEquals(START + 3, (long) ledger.executeCredit("a@tradax.local", account -> {
+            account.credit("USD", 1);
+            return account.balance("USD");
+        }));
+
+        doReturn(1).when(walletRepository).updateBalance(anyString(), anyString(), anyLong(), any());
+        ledger.flush();
+        credit("a@tradax.local", 1);
+        assertEquals(START + 4, balance("a@tradax.local"));
+        // served from memory throughout, the failed flushes lost nothing
+        assertEquals(1, loads.get("a@tradax.local").get());
+        verify(walletRepository, atLeastOnce()).updateBalance(eq("a@tradax.local"), eq("USD"), eq(START + 3), any());
+    }
+
+    private void credit(String user, long amount) {
+        ledger.execute(user, account -> {
+            account.credit("USD", amount);
+            return null;
+        });
+    }
+
+    private long balance(String user) {
+        return ledger.execute(user, account -> account.balance("USD"));
+    }
+
+    private List<Wallet> load(String user) {
+        loads.computeIfAbsent(user, u -> new AtomicInteger()).incrementAndGet();
+        Wallet usd = new Wallet(user, "USD", "USD", "US Dollar");
+        usd.setBalanceUnits(START);
+        return List.of(usd);
+    }
+}
@@ -0,0 +1,163 @@
+package com.tradax.wallet.market;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * {@link MarketDataCache} in front of a real {@link CoinGeckoClient} talking to a stub upstream:
+ * concurrent misses share one request, stale bodies are served while one refresh runs, and a failed
+ * load is not retried before the retry interval.
+ */
+class MarketDataCacheTest {
+
+    private static final String PATH = "/simple/price?ids=bitcoin&vs_currencies=usd";
+    private static final long RETRY_MS = 300;
+
+    private HttpServer upstream;
+    private ExecutorService loader;
+    private CoinGeckoClient client;
+    private MarketDataCache cache;
+
+    // what the stub answers with, changed by the tests between requests
+    private volatile int status = 200;
+    private volatile String body = "v1";
+    private volatile long delayMs;
+
+    @BeforeEach
+    void start() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        upstream.createContext("/", this::answer);
+        upstream.setExecutor(Executors.newCachedThreadPool());
+        upstream.start();
+
+        client = new CoinGeckoClient();
+        ReflectionTestUtils.setField(client, "baseUrl", "http://127.0.0.1:" + upstream.getAddress().getPort());
+        ReflectionTestUtils.setField(client, "apiKey", "");
+        ReflectionTestUtils.setField(client, "timeoutMs", 2000L);
+        client.init();
+
+        loader = Executors.newFixedThreadPool(4);
+        cache = new MarketDataCache(loader, 100, 60_000, RETRY_MS, 2000);
+    }
+
+    @AfterEach
+    void stop() {
+        upstream.stop(0);
+        loader.shutdownNow();
+    }
+
+    @Test
+    void concurrentMissesShareOneRequest() throws Exception {
+        delayMs = 300;
+        int callers = 8;
+        ExecutorService callerPool = Executors.newFixedThreadPool(callers);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(callerPool.submit(() -> {
+                go.await();
+                return get(10_000);
+            }));
+        }
+        go.countDown();
+        for (Future<String> r : results) assertEquals("v1", r.get(5, TimeUnit.SECONDS));
+        callerPool.shutdown();
+
+        assertEquals(1, client.getRequestCount());
+    }
+
+    @Test
+    void staleBodyIsServedWhileOneRefreshRuns() throws Exception {
+        assertEquals("v1", get(100));
+        Thread.sleep(150);
+
+        body = "v2";
+        delayMs = 500;
+        long started = System.nanoTime();
+        assertEquals("v1", get(100));
+        assertEquals("v1", get(100));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < delayMs, "stale reads must not wait for the refresh");
+
+        awaitRequests(2);
+        assertEquals("v2", awaitBody("v2", 100));
+        assertEquals(2, client.getRequestCount());
+    }
+
+    @Test
+    void failedLoadIsNotRetriedBeforeTheRetryInterval() throws Exception {
+        status = 500;
+        RuntimeException first = assertThrows(RuntimeException.class, () -> get(10_000));
+        assertEquals("Market data provider returned HTTP 500", first.getMessage());
+        assertThrows(RuntimeException.class, () -> get(10_000));
+        assertEquals(1, client.getRequestCount());
+
+        Thread.sleep(RETRY_MS + 50);
+        status = 200;
+        assertEquals("v1", get(10_000));
+        assertEquals(2, client.getRequestCount());
+    }
+
+    @Test
+    void lastBodyIsServedWhileRefreshesFail() throws Exception {
+        MarketDataCache strict = new MarketDataCache(loader, 100, 0, RETRY_MS, 2000);
+        assertEquals("v1", strict.get(PATH, 100, () -> client.get(PATH)));
+        Thread.sleep(150);
+
+        status = 500;
+        // past TTL and stale window: the caller waits for the refresh, which fails
+        assertEquals("v1", strict.get(PATH, 100, () -> client.get(PATH)));
+        assertEquals("v1", strict.get(PATH, 100, () -> client.get(PATH)));
+        assertEquals(2, client.getRequestCount());
+    }
+
+    private String get(long ttlMs) {
+        return cache.get(PATH, ttlMs, () -> client.get(PATH));
+    }
+
+    private void awaitRequests(long n) throws InterruptedException {
+        for (int i = 0; i < 100 && client.getRequestCount() < n; i++) Thread.sleep(20);
+    }
+
+    private String awaitBody(String expected, long ttlMs) throws InterruptedException {
+        String got = get(ttlMs);
+        for (int i = 0; i < 100 && !expected.equals(got); i++) {
+            Thread.sleep(20);
+            got = get(ttlMs);
+        }
+        return got;
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        try {
+            if (delayMs > 0) Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
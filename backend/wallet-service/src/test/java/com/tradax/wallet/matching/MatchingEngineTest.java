@@ -0,0 +1,88 @@
+package com.tradax.wallet.matching;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link MatchingEngine} resting what a limit order leaves unfilled and putting the fills of a
+ * rejected order back, the way {@code OrderService} unwinds a placement that failed.
+ */
+class MatchingEngineTest {
+
+    private final MatchingEngine engine = new MatchingEngine();
+    private final Fills fills = new Fills();
+
+    @Test
+    void limitOrderRestsItsRemainderWithItsReservation() {
+        engine.submit("BTC", 1, "alice", false, 100, 5, 5, true, fills);
+        fills.clear();
+
+        long left = engine.submit("BTC", 2, "bob", true, 100, 8, 808, true, fills);
+
+        assertEquals(3, left);
+        assertEquals(fills.takerReservedLeft(), engine.cancel("BTC", 2, "bob"));
+        assertEquals(808, fills.takerReserved(0) + fills.takerReservedLeft());
+    }
+
+    @Test
+    void marketOrderNeverRests() {
+        long left = engine.submit("BTC", 0, "bob", true, 100, 8, 808, false, fills);
+
+        assertEquals(8, left);
+        assertEquals(808, fills.takerReservedLeft());
+        assertEquals(List.of(), engine.depth("BTC", true, 5));
+    }
+
+    @Test
+    void unwindingARejectedOrderRestoresTheBook() {
+        engine.submit("ETH", 1, "alice", false, 100, 4, 4, true, fills);
+        engine.submit("ETH", 2, "bob", false, 100, 6, 6, true, fills);
+        engine.submit("ETH", 3, "carol", false, 101, 5, 5, true, fills);
+        fills.clear();
+
+        long left = engine.submit("ETH", 4, "dave", true, 101, 12, 1300, false, fills);
+        assertEquals(0, left);
+        assertEquals(3, fills.size());
+
+        // nothing was settled: every fill goes back to its maker
+        for (int i = 0; i < fills.size(); i++) {
+            engine.restore("ETH", fills.makerOrderId(i), fills.makerOwner(i), false, fills.price(i),
+                    fills.quantity(i), fills.makerReserved(i));
+        }
+
+        List<BigDecimal[]> asks = engine.depth("ETH", false, 5);
+        assertEquals(2, asks.size());
+        assertEquals(0, new BigDecimal("0.00000010").compareTo(asks.get(0)[1]));
+        assertEquals(0, new BigDecimal("0.00000005").compareTo(asks.get(1)[1]));
+        assertEquals(4, engine.cancel("ETH", 1, "alice"));
+        assertEquals(6, engine.cancel("ETH", 2, "bob"));
+        assertEquals(5, engine.cancel("ETH", 3, "carol"));
+    }
+
+    @Test
+    void restoringAPartlyFilledOrderKeepsItsPlace() {
+        engine.submit("SOL", 1, "alice", false, 100, 10, 10, true, fills);
+        engine.submit("SOL", 2, "bob", false, 100, 10, 10, true, fills);
+        fills.clear();
+
+        engine.submit("SOL", 3, "carol", true, 100, 4, 404, false, fills);
+        engine.restore("SOL", 1, "alice", false, 100, fills.quantity(0), fills.makerReserved(0));
+        fills.clear();
+
+        engine.submit("SOL", 4, "dave", true, 100, 10, 1010, false, fills);
+        assertEquals(1, fills.size());
+        assertEquals(1, fills.makerOrderId(0));
+        assertEquals(10, fills.quantity(0));
+    }
+
+    @Test
+    void cancellingAnUnknownOrderReturnsMinusOne() {
+        assertEquals(-1, engine.cancel("DOGE", 1, "alice"));
+        engine.submit("DOGE", 1, "alice", true, 100, 1, 100, true, fills);
+        assertEquals(-1, engine.cancel("DOGE", 2, "alice"));
+    }
+}
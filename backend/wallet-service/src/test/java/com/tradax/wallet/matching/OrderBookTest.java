@@ -0,0 +1,165 @@
+package com.tradax.wallet.matching;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link OrderBook} matching in price-time priority, partial fills, the split of reservations
+ * between fills, and cancels against the open-addressing order index.
+ */
+class OrderBookTest {
+
+    private final OrderBook book = new OrderBook();
+    private final Fills fills = new Fills();
+
+    @Test
+    void bestPriceFirstThenOldestFirst() {
+        book.rest(1, "alice", false, 101, 100, 100);
+        book.rest(2, "bob", false, 100, 100, 100);
+        book.rest(3, "carol", false, 100, 100, 100);
+        book.rest(4, "dave", false, 102, 100, 100);
+
+        long left = book.match(true, 101, 250, 0, fills);
+
+        assertEquals(0, left);
+        assertEquals(3, fills.size());
+        assertEquals(2, fills.makerOrderId(0));
+        assertEquals(100, fills.price(0));
+        assertEquals(3, fills.makerOrderId(1));
+        assertEquals(100, fills.price(1));
+        assertEquals(1, fills.makerOrderId(2));
+        assertEquals(101, fills.price(2));
+        assertEquals(50, fills.quantity(2));
+        // the limit keeps the taker off the 102 level
+        assertArrayEquals(new long[] { 101, 50 }, book.depth(false, 5).get(0));
+        assertArrayEquals(new long[] { 102, 100 }, book.depth(false, 5).get(1));
+    }
+
+    @Test
+    void partialFillLeavesTheMakerAtTheFrontOfItsLevel() {
+        book.rest(1, "alice", true, 500, 10, 5000);
+        book.rest(2, "bob", true, 500, 10, 5000);
+
+        long left = book.match(false, 500, 4, 4, fills);
+
+        assertEquals(0, left);
+        assertEquals(1, fills.size());
+        assertEquals(6, fills.makerRemaining(0));
+        assertArrayEquals(new long[] { 500, 16 }, book.depth(true, 1).get(0));
+
+        fills.clear();
+        book.match(false, 500, 7, 7, fills);
+        assertEquals(1, fills.makerOrderId(0));
+        assertEquals(6, fills.quantity(0));
+        assertEquals(2, fills.makerOrderId(1));
+        assertEquals(1, fills.quantity(1));
+    }
+
+    @Test
+    void takerBeyondTheBookKeepsItsRemainder() {
+        book.rest(1, "alice", false, 100, 30, 30);
+
+        long left = book.match(true, 100, 50, 5000, fills);
+
+        assertEquals(20, left);
+        assertEquals(0, book.depth(false, 5).size());
+    }
+
+    @Test
+    void reservationsAddUpAcrossFills() {
+        long[] makerReserved = { 1001, 777, 313 };
+        book.rest(1, "alice", false, 100, 7, makerReserved[0]);
+        book.rest(2, "bob", false, 101, 11, makerReserved[1]);
+        book.rest(3, "carol", false, 103, 13, makerReserved[2]);
+        long takerReserved = 99_999;
+
+        long left = book.match(true, 103, 25, takerReserved, fills);
+
+        assertEquals(0, left);
+        long takerTotal = fills.takerReservedLeft();
+        for (int i = 0; i < fills.size(); i++) {
+            takerTotal += fills.takerReserved(i);
+            int maker = (int) fills.makerOrderId(i) - 1;
+            assertEquals(makerReserved[maker], fills.makerReserved(i) + fills.makerReservedLeft(i));
+            makerReserved[maker] = fills.makerReservedLeft(i);
+        }
+        assertEquals(takerReserved, takerTotal);
+        // carol's order is partly filled, the rest of her reservation comes back on cancel
+        assertEquals(makerReserved[2], book.cancel(3, "carol"));
+        assertEquals(0, makerReserved[0]);
+        assertEquals(0, makerReserved[1]);
+    }
+
+    @Test
+    void shareIsExactForLargeAmounts() {
+        assertEquals(Long.MAX_VALUE / 3, OrderBook.share(Long.MAX_VALUE, 1, 3));
+        assertEquals(5, OrderBook.share(5, 3, 3));
+        assertEquals(3, OrderBook.share(10, 1, 3));
+    }
+
+    @Test
+    void cancelReturnsTheReservationOnlyToTheOwner() {
+        book.rest(1, "alice", true, 100, 10, 1234);
+
+        assertEquals(-1, book.cancel(1, "mallory"));
+        assertEquals(1234, book.cancel(1, "alice"));
+        assertEquals(-1, book.cancel(1, "alice"));
+        assertEquals(0, book.depth(true, 5).size());
+    }
+
+    @Test
+    void lookupsStillWorkAfterADeletionShiftsEntriesBack() {
+        OrderBook.OrderIndex index = new OrderBook.OrderIndex(16);
+        List<Long> chain = collidingKeys(4);
+        List<OrderBook.BookOrder> orders = new ArrayList<>();
+        for (long key : chain) {
+            OrderBook.BookOrder o = new OrderBook.BookOrder();
+            o.id = key;
+            orders.add(o);
+            index.put(key, o);
+        }
+
+        // removing the head of the probe chain shifts the others back into its slot
+        index.remove(chain.get(0));
+        assertNull(index.get(chain.get(0)));
+        for (int i = 1; i < chain.size(); i++) assertSame(orders.get(i), index.get(chain.get(i)));
+
+        index.remove(chain.get(2));
+        assertSame(orders.get(1), index.get(chain.get(1)));
+        assertSame(orders.get(3), index.get(chain.get(3)));
+        assertEquals(2, index.size);
+    }
+
+    @Test
+    void cancelsInTheMiddleOfAProbeChainKeepTheRestReachable() {
+        List<Long> chain = collidingKeys(3);
+        for (long id : chain) book.rest(id, "alice", true, 100 + id % 7, 1, id);
+
+        assertEquals(chain.get(1), book.cancel(chain.get(1), "alice"));
+        assertEquals(chain.get(0), book.cancel(chain.get(0), "alice"));
+        assertEquals(chain.get(2), book.cancel(chain.get(2), "alice"));
+        assertEquals(0, book.depth(true, 10).size());
+    }
+
+    // keys that all hash to the same home slot of a 16 and a 1024 slot index
+    private static List<Long> collidingKeys(int n) {
+        List<Long> keys = new ArrayList<>();
+        int home = -1;
+        for (long key = 1; keys.size() < n; key++) {
+            OrderBook.OrderIndex probe = new OrderBook.OrderIndex(1024);
+            probe.put(key, new OrderBook.BookOrder());
+            int slot = 0;
+            while (probe.values[slot] == null) slot++;
+            if (home < 0) home = slot;
+            if (slot == home) keys.add(key);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,50 @@
+package com.tradax.wallet.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link Money} conversions and checked arithmetic.
+ */
+class MoneyTest {
+
+    @Test
+    void ofRoundsHalfUpToTheLastUnit() {
+        assertEquals(1, Money.of(new BigDecimal("0.000000005")));
+        assertEquals(0, Money.of(new BigDecimal("0.000000004")));
+        assertEquals(-1, Money.of(new BigDecimal("-0.000000005")));
+    }
+
+    @Test
+    void ofExactRejectsWhatWouldBeRounded() {
+        assertEquals(123_456_789, Money.ofExact(new BigDecimal("1.23456789")));
+        // trailing zeros beyond the scale are not a loss of precision
+        assertEquals(Money.ONE, Money.ofExact(new BigDecimal("1.0000000000")));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> Money.ofExact(new BigDecimal("0.000000001")));
+        assertEquals("Amounts and prices can have at most 8 decimal places", e.getMessage());
+        assertThrows(RuntimeException.class, () -> Money.ofExact(new BigDecimal("1.234567891")));
+    }
+
+    @Test
+    void multiplyRoundsAndSplitsLargeProducts() {
+        assertEquals(Money.of(new BigDecimal("0.5")), Money.multiply(Money.of(new BigDecimal("0.25")), Money.of(new BigDecimal("2"))));
+        assertEquals(1, Money.multiply(1, Money.of(new BigDecimal("0.5"))));
+        assertEquals(-1, Money.multiply(-1, Money.of(new BigDecimal("0.5"))));
+        // beyond 63 bits before scaling back down
+        long big = Money.of(new BigDecimal("50000000"));
+        assertEquals(Money.of(new BigDecimal("1000000000")), Money.multiply(big, Money.of(new BigDecimal("20"))));
+    }
+
+    @Test
+    void overflowFailsInsteadOfWrapping() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertEquals("Amount out of range", e.getMessage());
+        assertThrows(RuntimeException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+        assertThrows(RuntimeException.class, () -> Money.multiply(Long.MAX_VALUE, 2 * Money.ONE));
+        assertThrows(RuntimeException.class, () -> Money.of(new BigDecimal("1e12")));
+    }
+}
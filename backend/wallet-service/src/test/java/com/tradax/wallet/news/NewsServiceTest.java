@@ -0,0 +1,158 @@
+package com.tradax.wallet.news;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * {@link NewsService} refreshing its feeds from a stub GNews upstream: a feed that fails does not
+ * stop the others, a feed that fails part way keeps the pages it already has, and the daily request
+ * budget ends a refresh early.
+ */
+class NewsServiceTest {
+
+    private HttpServer upstream;
+    private NewsService service;
+
+    // status per query word, 200 unless set; the page after which a query starts failing
+    private final Map<String, Integer> statuses = new ConcurrentHashMap<>();
+    private final Map<String, Integer> failAfterPage = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    void start() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        upstream.createContext("/", this::answer);
+        upstream.setExecutor(Executors.newCachedThreadPool());
+        upstream.start();
+        service = newService(100);
+    }
+
+    @AfterEach
+    void stop() {
+        upstream.stop(0);
+    }
+
+    @Test
+    void failingFeedDoesNotStopTheOthers() {
+        statuses.put("defi", 500);
+
+        service.refresh();
+
+        assertEquals(0, page("category:defi").getArticles().size());
+        assertEquals(4, page(NewsService.LATEST).getArticles().size());
+        assertEquals(4, page("coin:bitcoin").getArticles().size());
+        assertEquals(4, page("coin:ethereum").getArticles().size());
+        assertEquals(2 + 1 + 2 + 2, requests.get());
+    }
+
+    @Test
+    void feedFailingPartWayKeepsItsEarlierPages() {
+        failAfterPage.put("bitcoin", 1);
+
+        service.refresh();
+
+        List<NewsArticle> bitcoin = page("coin:bitcoin").getArticles();
+        assertEquals(2, bitcoin.size());
+        assertTrue(bitcoin.get(0).getTitle().startsWith("bitcoin"));
+        assertEquals(4, page("coin:ethereum").getArticles().size());
+    }
+
+    @Test
+    void unreachableUpstreamLeavesEveryFeedEmpty() {
+        upstream.stop(0);
+
+        service.refresh();
+
+        for (String feed : service.getFeeds()) assertEquals(0, page(feed).getArticles().size());
+    }
+
+    @Test
+    void dailyBudgetEndsTheRefreshEarly() {
+        NewsService limited = newService(3);
+
+        limited.refresh();
+
+        // two pages of the general feed and the first of the next one
+        assertEquals(3, requests.get());
+        assertEquals(4, limited.getPage(NewsService.LATEST, null, null, 1, 50).getArticles().size());
+        assertEquals(2, limited.getPage("category:defi", null, null, 1, 50).getArticles().size());
+        assertEquals(0, limited.getPage("coin:bitcoin", null, null, 1, 50).getArticles().size());
+    }
+
+    private NewsPage page(String feed) {
+        return service.getPage(feed, null, null, 1, 50);
+    }
+
+    private NewsService newService(int dailyLimit) {
+        GNewsClient client = new GNewsClient();
+        ReflectionTestUtils.setField(client, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(client, "baseUrl", "http://127.0.0.1:" + upstream.getAddress().getPort());
+        ReflectionTestUtils.setField(client, "apiKey", "");
+        ReflectionTestUtils.setField(client, "lang", "en");
+        ReflectionTestUtils.setField(client, "timeoutMs", 2000L);
+        client.init();
+
+        NewsService news = new NewsService();
+        ReflectionTestUtils.setField(news, "client", client);
+        ReflectionTestUtils.setField(news, "categories", List.of("defi"));
+        ReflectionTestUtils.setField(news, "coins", List.of("bitcoin", "ethereum"));
+        ReflectionTestUtils.setField(news, "upstreamPageSize", 2);
+        ReflectionTestUtils.setField(news, "pagesPerFeed", 2);
+        ReflectionTestUtils.setField(news, "dailyRequestLimit", dailyLimit);
+        ReflectionTestUtils.setField(news, "maxArticles", 1000);
+        news.init();
+        return news;
+    }
+
+    // two articles per page, unique per query and page
+    private void answer(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        Map<String, String> params = new HashMap<>();
+        for (String p : exchange.getRequestURI().getRawQuery().split("&")) {
+            int eq = p.indexOf('=');
+            params.put(p.substring(0, eq), URLDecoder.decode(p.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        String word = params.get("q").split(" ")[0];
+        int page = Integer.parseInt(params.get("page"));
+        int status = statuses.getOrDefault(word, 200);
+        if (page > failAfterPage.getOrDefault(word, Integer.MAX_VALUE)) status = 503;
+
+        StringBuilder body = new StringBuilder("{\"articles\":[");
+        if (status == 200) {
+            for (int i = 0; i < 2; i++) {
+                if (i > 0) body.append(',');
+                String id = word + "-" + page + "-" + i;
+                body.append("{\"title\":\"").append(id).append("\",\"description\":\"about ").append(word)
+                    .append("\",\"url\":\"https://news.example/").append(id)
+                    .append("\",\"publishedAt\":\"2024-01-0").append(3 - page).append("T1").append(i).append(":00:00Z\"")
+                    .append(",\"source\":{\"name\":\"stub\",\"url\":\"https://news.example\"}}");
+            }
+        }
+        byte[] bytes = body.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
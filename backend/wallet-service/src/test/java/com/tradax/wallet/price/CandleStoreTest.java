@@ -0,0 +1,157 @@
+package com.tradax.wallet.price;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.model.Transaction;
+
+/**
+ * {@link CandleSeries} fed with explicit times, and {@link CandleStore} on a {@link PriceFeed}:
+ * prices build open, high, low and close per bucket, trades add volume, the ring keeps the newest
+ * buckets only, and ranges are cut to bucket starts and to the newest {@code limit}.
+ */
+class CandleStoreTest {
+
+    private static final long END = Long.MAX_VALUE / 2;
+
+    @Test
+    void pricesBuildOneCandlePerBucket() {
+        CandleSeries series = new CandleSeries(CandleInterval.M1);
+        series.price(0, 100);
+        series.price(30, 120);
+        series.price(50, 90);
+        series.price(59, 110);
+        series.price(60, 105);
+
+        List<Candle> candles = series.range(0, END, 10);
+        assertEquals(2, candles.size());
+        assertCandle(candles.get(0), 0, 100, 120, 90, 110);
+        assertCandle(candles.get(1), 60_000, 105, 105, 105, 105);
+    }
+
+    @Test
+    void tradesAddVolumeAndOpenNewCandles() {
+        CandleSeries series = new CandleSeries(CandleInterval.M5);
+        series.price(10, 100);
+        series.trade(20, 3, 999);
+        series.trade(40, 4, 999);
+        // nothing quoted yet in the second bucket, so the trade opens it
+        series.trade(310, 5, 101);
+
+        List<Candle> candles = series.range(0, END, 10);
+        assertEquals(2, candles.size());
+        assertCandle(candles.get(0), 0, 100, 100, 100, 100);
+        assertEquals(7, Money.of(candles.get(0).getVolume()));
+        assertEquals(2, candles.get(0).getTrades());
+        assertCandle(candles.get(1), 300_000, 101, 101, 101, 101);
+        assertEquals(5, Money.of(candles.get(1).getVolume()));
+        assertEquals(1, candles.get(1).getTrades());
+    }
+
+    @Test
+    void ringKeepsTheNewestBuckets() {
+        CandleSeries series = new CandleSeries(CandleInterval.M1);
+        int capacity = CandleInterval.M1.getCapacity();
+        for (int b = 0; b <= capacity; b++) series.price(b * 60L, b + 1);
+
+        List<Candle> candles = series.range(0, END, Integer.MAX_VALUE);
+        assertEquals(capacity, candles.size());
+        assertEquals(60_000, candles.get(0).getTime());
+
+        // bucket 0 has left the ring; a late price for it is dropped and does not take a slot
+        series.price(0, 7);
+        assertEquals(candles.get(0).getTime(), series.range(0, END, Integer.MAX_VALUE).get(0).getTime());
+        // a late price for a bucket still held updates it
+        series.price(capacity * 60L - 1, 1_000_000);
+        Candle late = series.range((capacity - 1) * 60L, (capacity - 1) * 60L, 1).get(0);
+        assertEquals(1_000_000, Money.of(late.getHigh()));
+    }
+
+    @Test
+    void rangesStartAtBucketsAndKeepTheNewest() {
+        CandleSeries series = new CandleSeries(CandleInterval.M1);
+        for (int b = 0; b < 10; b++) series.price(b * 60L, b + 1);
+
+        // from inside bucket 2 leaves it out
+        List<Candle> candles = series.range(121, 5 * 60, 10);
+        assertEquals(List.of(180_000L, 240_000L, 300_000L), times(candles));
+        assertEquals(List.of(420_000L, 480_000L, 540_000L), times(series.range(0, END, 3)));
+        assertEquals(List.of(), series.range(0, END, 0));
+        assertEquals(List.of(), new CandleSeries(CandleInterval.D1).range(0, END, 10));
+    }
+
+    @Test
+    void storeFollowsTheFeedAndCountsTrades() throws InterruptedException {
+        PriceFeed feed = new PriceFeed();
+        ReflectionTestUtils.setField(feed, "queueCapacity", 16);
+        ReflectionTestUtils.setField(feed, "sources", List.of(new PriceSource() {
+            @Override
+            public String getName() {
+                return "test";
+            }
+
+            @Override
+            public void start(PriceSink sink) {
+                sink.publish("BTC", new BigDecimal("45000"));
+            }
+
+            @Override
+            public void stop() {
+            }
+        }));
+        feed.start();
+        try {
+            CandleStore store = new CandleStore();
+            ReflectionTestUtils.setField(store, "priceFeed", feed);
+            ReflectionTestUtils.invokeMethod(store, "init");
+
+            store.onTrades(List.of(
+                    new Transaction("a@tradax.local", Transaction.TransactionType.BUY, "BTC", new BigDecimal("0.5")),
+                    new Transaction("b@tradax.local", Transaction.TransactionType.SELL, "BTC", new BigDecimal("0.25")),
+                    new Transaction("a@tradax.local", Transaction.TransactionType.DEPOSIT, "BTC", BigDecimal.ONE)));
+
+            for (CandleInterval interval : CandleInterval.values()) {
+                // one candle, or two if a bucket ended in between
+                List<Candle> candles = store.getCandles("btc", interval, 0, END, 10);
+                assertEquals(Money.of(new BigDecimal("45000")), Money.of(candles.get(0).getOpen()), interval.getKey());
+                long volume = 0;
+                int trades = 0;
+                for (Candle c : candles) {
+                    volume += Money.of(c.getVolume());
+                    trades += c.getTrades();
+                }
+                assertEquals(Money.of(new BigDecimal("0.75")), volume, interval.getKey());
+                assertEquals(2, trades, interval.getKey());
+            }
+            assertEquals(List.of(), store.getCandles("DOGE", CandleInterval.M1, 0, END, 10));
+        } finally {
+            feed.stop();
+        }
+    }
+
+    @Test
+    void intervalsAreLookedUpByKey() {
+        assertEquals(CandleInterval.H1, CandleInterval.fromKey("1H"));
+        assertEquals("Unsupported interval: 2m",
+                assertThrows(RuntimeException.class, () -> CandleInterval.fromKey("2m")).getMessage());
+    }
+
+    private static void assertCandle(Candle candle, long time, long open, long high, long low, long close) {
+        assertEquals(time, candle.getTime());
+        assertEquals(open, Money.of(candle.getOpen()));
+        assertEquals(high, Money.of(candle.getHigh()));
+        assertEquals(low, Money.of(candle.getLow()));
+        assertEquals(close, Money.of(candle.getClose()));
+    }
+
+    private static List<Long> times(List<Candle> candles) {
+        return candles.stream().map(Candle::getTime).toList();
+    }
+}
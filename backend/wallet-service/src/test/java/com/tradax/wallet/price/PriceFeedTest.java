@@ -0,0 +1,137 @@
+package com.tradax.wallet.price;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tradax.wallet.model.Money;
+
+/**
+ * {@link PriceFeed} with a source the test drives by hand: initial prices are in place once the
+ * feed has started, ticks replace whole snapshots, listeners hear about real changes only, and a
+ * full queue drops ticks instead of blocking the source.
+ */
+class PriceFeedTest {
+
+    private PriceFeed feed;
+    private PriceSink sink;
+
+    @BeforeEach
+    void start() {
+        feed = new PriceFeed();
+        ReflectionTestUtils.setField(feed, "queueCapacity", 2);
+        ReflectionTestUtils.setField(feed, "sources", List.of(new PriceSource() {
+            @Override
+            public String getName() {
+                return "test";
+            }
+
+            @Override
+            public void start(PriceSink s) {
+                sink = s;
+                s.publish("BTC", new BigDecimal("45000"));
+                s.publish("ETH", new BigDecimal("3000"));
+            }
+
+            @Override
+            public void stop() {
+            }
+        }));
+        feed.start();
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        feed.stop();
+    }
+
+    @Test
+    void initialPricesAreInPlaceOnStart() {
+        assertEquals(new BigDecimal("45000"), feed.getPrice("BTC"));
+        assertEquals(Money.of(new BigDecimal("3000")), feed.getPriceUnits("eth"));
+        assertEquals(BigDecimal.ONE, feed.getPrice("USD"));
+        // never quoted
+        assertEquals(BigDecimal.ONE, feed.getPrice("DOGE"));
+        assertEquals(List.of("USD", "BTC", "ETH"), List.copyOf(feed.getPrices().keySet()));
+    }
+
+    @Test
+    void quotesKeepTheirSnapshotAcrossTicks() throws InterruptedException {
+        PriceFeed.Quotes before = feed.quotes();
+        long version = feed.getVersion();
+        assertTrue(sink.publish("BTC", new BigDecimal("46000")));
+        awaitVersion(version + 1);
+
+        assertEquals(new BigDecimal("45000"), before.getPrice("BTC"));
+        assertEquals(new BigDecimal("46000"), feed.getPrice("BTC"));
+        assertEquals(new BigDecimal("46000"), feed.quotes().getPrice("BTC"));
+    }
+
+    @Test
+    void listenersHearOnlyRealChanges() throws InterruptedException {
+        List<String> heard = new CopyOnWriteArrayList<>();
+        feed.addListener((symbol, price) -> heard.add(symbol + "=" + price.toPlainString()));
+        long version = feed.getVersion();
+        sink.publish("BTC", new BigDecimal("45000.00"));
+        awaitVersion(version + 1);
+        sink.publish("SOL", new BigDecimal("100"));
+        // listeners run after the snapshot is published, on the same thread, batch after batch
+        for (int i = 0; i < 500 && heard.isEmpty(); i++) Thread.sleep(10);
+
+        // the same BTC price at another scale is not a change, a new asset is
+        assertEquals(List.of("SOL=100"), heard);
+    }
+
+    @Test
+    void invalidTicksAreRejected() {
+        assertFalse(sink.publish("BTC", null));
+        assertFalse(sink.publish("BTC", BigDecimal.ZERO));
+        assertFalse(sink.publish("BTC", new BigDecimal("-1")));
+        assertFalse(sink.publish("USD", new BigDecimal("2")));
+        // rounds to zero units
+        assertFalse(sink.publish("BTC", new BigDecimal("0.000000001")));
+        assertEquals(new BigDecimal("45000"), feed.getPrice("BTC"));
+    }
+
+    @Test
+    void fullQueueDropsTicksWithoutBlocking() throws InterruptedException {
+        CountDownLatch inListener = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        feed.addListener((symbol, price) -> {
+            inListener.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // holds the ingestion thread in the listener
+        sink.publish("BTC", new BigDecimal("46000"));
+        assertTrue(inListener.await(5, TimeUnit.SECONDS));
+
+        assertTrue(sink.publish("BTC", new BigDecimal("46001")));
+        assertTrue(sink.publish("BTC", new BigDecimal("46002")));
+        assertFalse(sink.publish("BTC", new BigDecimal("46003")));
+
+        long version = feed.getVersion();
+        release.countDown();
+        awaitVersion(version + 1);
+        assertEquals(new BigDecimal("46002"), feed.getPrice("BTC"));
+    }
+
+    private void awaitVersion(long version) throws InterruptedException {
+        for (int i = 0; i < 500 && feed.getVersion() < version; i++) Thread.sleep(10);
+        assertTrue(feed.getVersion() >= version, "feed did not reach version " + version);
+    }
+}
@@ -0,0 +1,228 @@
+package com.tradax.wallet.push;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tradax.wallet.price.PriceFeed;
+import com.tradax.wallet.service.PortfolioSnapshot;
+import com.tradax.wallet.service.WalletService;
+
+/**
+ * {@link PushHub} and {@link PushConnection} with emitters that record what is sent: a new stream
+ * gets balances and prices, changes made during a slow send are coalesced into one more event,
+ * the user's streams share one serialized body, the per-user and total limits hold, and a stuck
+ * send drops its stream and lends the pool a spare thread until it returns.
+ */
+class PushHubTest {
+
+    private static final int THREADS = 2;
+
+    private PriceFeed feed;
+    private WalletService walletService;
+    private PushHub hub;
+
+    @BeforeEach
+    void start() {
+        feed = mock(PriceFeed.class);
+        doReturn(1L).when(feed).getVersion();
+        doReturn(Map.of("USD", BigDecimal.ONE, "BTC", new BigDecimal("45000"))).when(feed).getPrices();
+
+        PortfolioSnapshot snapshot = mock(PortfolioSnapshot.class);
+        doReturn(List.of()).when(snapshot).getWallets();
+        doReturn(new BigDecimal("10000")).when(snapshot).getTotalValue();
+        walletService = mock(WalletService.class);
+        doReturn(snapshot).when(walletService).getPortfolioSnapshot(anyString());
+
+        hub = new PushHub();
+        ReflectionTestUtils.setField(hub, "priceFeed", feed);
+        ReflectionTestUtils.setField(hub, "walletService", walletService);
+        ReflectionTestUtils.setField(hub, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(hub, "threads", THREADS);
+        ReflectionTestUtils.setField(hub, "maxConnections", 3);
+        ReflectionTestUtils.setField(hub, "maxPerUser", 2);
+        // the test drives changes itself; keep the ticker out of the way
+        ReflectionTestUtils.setField(hub, "priceIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(hub, "heartbeatMs", 3_600_000L);
+        ReflectionTestUtils.setField(hub, "timeoutMs", 0L);
+        ReflectionTestUtils.setField(hub, "writeTimeoutMs", 100L);
+        hub.start();
+        ReflectionTestUtils.invokeMethod(hub, "refreshPrices");
+    }
+
+    @AfterEach
+    void stop() {
+        hub.stop();
+    }
+
+    @Test
+    void newStreamGetsBalancesAndPrices() throws InterruptedException {
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        PushConnection connection = connect("a@tradax.local", emitter);
+        connection.schedule();
+        emitter.await(2);
+        assertEquals(List.of("balances", "prices"), emitter.names());
+        assertTrue(emitter.events.get(0).contains("\"totalValue\":10000"));
+        assertTrue(emitter.events.get(1).contains("\"BTC\":45000"));
+
+        // nothing changed, nothing to send
+        connection.schedule();
+        Thread.sleep(50);
+        assertEquals(2, emitter.events.size());
+    }
+
+    @Test
+    void changesDuringASlowSendAreCoalesced() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(release);
+        PushConnection connection = connect("a@tradax.local", emitter);
+        connection.schedule();
+        emitter.awaitSending();
+
+        for (int i = 0; i < 5; i++) {
+            connection.user.changes.incrementAndGet();
+            connection.schedule();
+        }
+        release.countDown();
+        emitter.await(3);
+        Thread.sleep(50);
+
+        // the first balances, prices, then one balances for all five changes
+        assertEquals(List.of("balances", "prices", "balances"), emitter.names());
+    }
+
+    @Test
+    void streamsOfOneUserShareTheirBalances() {
+        PushHub.User user = new PushHub.User("a@tradax.local");
+        PushHub.Payload first = hub.balances(user);
+        assertSame(first, hub.balances(user));
+
+        user.changes.incrementAndGet();
+        PushHub.Payload second = hub.balances(user);
+        assertNotSame(first, second);
+        assertEquals(1, second.version);
+        verify(walletService, times(2)).getPortfolioSnapshot("a@tradax.local");
+    }
+
+    @Test
+    void limitsCloseTheOldestAndRefuseTheRest() {
+        hub.subscribe("a@tradax.local");
+        hub.subscribe("a@tradax.local");
+        hub.subscribe("a@tradax.local");
+        // the user's oldest stream made way for the third
+        assertEquals(2, hub.getConnectionCount());
+
+        hub.subscribe("b@tradax.local");
+        assertEquals(3, hub.getConnectionCount());
+        assertEquals("Too many open streams, please retry later",
+                assertThrows(RuntimeException.class, () -> hub.subscribe("c@tradax.local")).getMessage());
+
+        // unknown users are ignored
+        hub.balancesChanged("c@tradax.local");
+    }
+
+    @Test
+    void stuckSendIsDroppedAndItsThreadReplaced() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(release);
+        PushConnection connection = connect("a@tradax.local", emitter);
+        ThreadPoolExecutor sender = (ThreadPoolExecutor) ReflectionTestUtils.getField(hub, "sender");
+        connection.schedule();
+        emitter.awaitSending();
+
+        long now = System.currentTimeMillis();
+        assertFalse(connection.dropIfStuck(now, 60_000));
+        assertTrue(connection.dropIfStuck(now + 1000, 100));
+        assertEquals(THREADS + 1, sender.getCorePoolSize());
+        // not completed while the write is still in progress
+        assertFalse(emitter.completed);
+
+        release.countDown();
+        for (int i = 0; i < 500 && !emitter.completed; i++) Thread.sleep(10);
+        assertTrue(emitter.completed);
+        for (int i = 0; i < 500 && sender.getCorePoolSize() != THREADS; i++) Thread.sleep(10);
+        assertEquals(THREADS, sender.getCorePoolSize());
+        // closed, so nothing more is sent
+        assertEquals(1, emitter.events.size());
+    }
+
+    private PushConnection connect(String email, SseEmitter emitter) {
+        PushHub.User user = new PushHub.User(email);
+        PushConnection connection = new PushConnection(user, emitter, hub,
+                (Executor) ReflectionTestUtils.getField(hub, "sender"));
+        user.connections.add(connection);
+        return connection;
+    }
+
+    /**
+     * Keeps the text of every event sent; with a latch, the first send waits for it.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release;
+        volatile boolean completed;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            if (release != null && events.isEmpty()) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            builder.build().forEach(d -> text.append(d.getData()));
+            events.add(text.toString());
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+
+        void awaitSending() throws InterruptedException {
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+        }
+
+        void await(int count) throws InterruptedException {
+            for (int i = 0; i < 500 && events.size() < count; i++) Thread.sleep(10);
+            assertEquals(count, events.size());
+        }
+
+        List<String> names() {
+            return events.stream().map(e -> e.substring("event:".length(), e.indexOf('\n'))).toList();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.tradax.wallet.revocation;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * {@link RevocationSync} following a stub of the auth-service feed: it sends the service token,
+ * and a revocation that commits below an id already seen is still picked up by the next poll.
+ */
+class RevocationSyncTest {
+
+    private static final String TOKEN = "sync-test-token";
+
+    private HttpServer upstream;
+    private RevokedTokens revokedTokens;
+    private RevocationSync sync;
+
+    // committed rows of the stub's revoked_tokens table, id -> jti
+    private final Map<Long, String> rows = new TreeMap<>();
+    private final List<Long> requestedAfter = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void start() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        upstream.createContext("/auth/revocations", this::answer);
+        upstream.start();
+
+        revokedTokens = new RevokedTokens();
+        ReflectionTestUtils.setField(revokedTokens, "expectedEntries", 100);
+        ReflectionTestUtils.setField(revokedTokens, "falsePositiveRate", 0.01);
+        revokedTokens.init();
+
+        sync = new RevocationSync();
+        ReflectionTestUtils.setField(sync, "revokedTokens", revokedTokens);
+        ReflectionTestUtils.setField(sync, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(sync, "authUrl", "http://127.0.0.1:" + upstream.getAddress().getPort());
+        ReflectionTestUtils.setField(sync, "pollMs", 20L);
+        ReflectionTestUtils.setField(sync, "purgeMs", 60_000L);
+        ReflectionTestUtils.setField(sync, "timeoutMs", 2000L);
+        ReflectionTestUtils.setField(sync, "rescanIds", 100L);
+    }
+
+    @AfterEach
+    void stop() {
+        sync.stop();
+        upstream.stop(0);
+    }
+
+    @Test
+    void revocationCommittedBelowTheLastIdIsPickedUp() {
+        ReflectionTestUtils.setField(sync, "serviceToken", TOKEN);
+        commit(1, "jti-1");
+        commit(3, "jti-3");
+        sync.start();
+        await(() -> revokedTokens.isRevoked("jti-3"));
+
+        // id 2 was taken before 3 but its transaction commits later
+        commit(2, "jti-2");
+        await(() -> revokedTokens.isRevoked("jti-2"));
+        assertTrue(revokedTokens.isRevoked("jti-1"));
+    }
+
+    @Test
+    void feedIsNotReadWithoutTheServiceToken() {
+        ReflectionTestUtils.setField(sync, "serviceToken", "wrong");
+        commit(1, "jti-1");
+        sync.start();
+        await(() -> requestedAfter.size() >= 3);
+        assertFalse(revokedTokens.isRevoked("jti-1"));
+    }
+
+    private synchronized void commit(long id, String jti) {
+        rows.put(id, jti);
+    }
+
+    private synchronized String page(long after) {
+        StringBuilder json = new StringBuilder("{\"epoch\":\"e1\",\"more\":false,\"revocations\":[");
+        String separator = "";
+        long expiresAt = System.currentTimeMillis() + 3_600_000;
+        for (Map.Entry<Long, String> row : rows.entrySet()) {
+            if (row.getKey() <= after) continue;
+            json.append(separator).append("{\"id\":").append(row.getKey())
+                    .append(",\"jti\":\"").append(row.getValue())
+                    .append("\",\"expiresAt\":").append(expiresAt).append('}');
+            separator = ",";
+        }
+        return json.append("]}").toString();
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        long after = Long.parseLong(query.substring(query.indexOf('=') + 1));
+        requestedAfter.add(after);
+        boolean allowed = TOKEN.equals(exchange.getRequestHeaders().getFirst(RevocationSync.SERVICE_TOKEN_HEADER));
+        byte[] bytes = (allowed ? page(after) : "").getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(allowed ? 200 : 403, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Timed out waiting for the sync");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError("Interrupted");
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.tradax.wallet.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * {@link OrderServiceTest} with balance changes going through the group-commit journal.
+ */
+@TestPropertySource(properties = "wallet.journal.enabled=true")
+class OrderServiceJournalTest extends OrderServiceTest {
+}
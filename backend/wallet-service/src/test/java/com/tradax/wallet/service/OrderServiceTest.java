@@ -0,0 +1,157 @@
+package com.tradax.wallet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tradax.wallet.ledger.LedgerEngine;
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.model.TradeOrder;
+import com.tradax.wallet.model.Transaction;
+import com.tradax.wallet.price.PriceFeed;
+import com.tradax.wallet.repository.OrderRepository;
+import com.tradax.wallet.repository.TransactionRepository;
+
+/**
+ * {@link OrderService} settling fills against the wallets: both sides of a fill and the maker's
+ * order change together, a market order's remainder is filled at the feed price, and an order
+ * the house will not fill is rejected with its reservation returned. Subclasses run the same
+ * checks with the journal and with the ledger.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.jpa.show-sql=false",
+    "wallet.snapshots.interval-ms=0",
+    "wallet.news.refresh-interval-ms=0",
+    "wallet.revocation.poll-ms=0"
+})
+class OrderServiceTest {
+
+    private static final long START_USD = Money.of(WalletService.INITIAL_USD_BALANCE);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private PriceFeed priceFeed;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Test
+    void fillSettlesBothSidesAndTheMakerOrder() {
+        String asset = "ETH";
+        String maker = user("maker");
+        String taker = user("taker");
+        long feed = priceFeed.getPriceUnits(asset);
+        long ask = Money.multiply(feed, Money.of(new BigDecimal("0.9")));
+        long quantity = Money.of(new BigDecimal("0.5"));
+        walletService.deposit(maker, asset, Money.toBigDecimal(quantity));
+
+        TradeOrder order = orderService.placeOrder(maker, "sell", "limit", asset,
+                Money.toBigDecimal(quantity), Money.toBigDecimal(ask)).getOrder();
+        OrderExecution execution = orderService.placeOrder(taker, "buy", "market", asset,
+                Money.toBigDecimal(Money.multiply(quantity, Money.of(new BigDecimal("2")))), Money.toBigDecimal(feed));
+
+        // half from the book at the ask, the rest from the house at the feed price
+        assertEquals(2, execution.getFills().size());
+        assertEquals(0, Money.toBigDecimal(ask).compareTo(execution.getFills().get(0).getPrice()));
+        assertEquals(0, Money.toBigDecimal(feed).compareTo(execution.getFills().get(1).getPrice()));
+        long cost = WalletService.buyCost(Money.multiply(quantity, ask)) + WalletService.buyCost(Money.multiply(quantity, feed));
+        assertEquals(START_USD - cost, balance(taker, "USD"));
+        assertEquals(2 * quantity, balance(taker, asset));
+        assertEquals(START_USD + WalletService.sellProceeds(Money.multiply(quantity, ask)), balance(maker, "USD"));
+        assertEquals(0, balance(maker, asset));
+
+        TradeOrder saved = orderRepository.findById(order.getId()).orElseThrow();
+        assertEquals(TradeOrder.OrderStatus.FILLED, saved.getStatus());
+        assertEquals(0, BigDecimal.ZERO.compareTo(saved.getRemaining()));
+        ledgerEngine.flush();
+        assertEquals(1, count(maker, Transaction.TransactionType.SELL));
+        assertEquals(2, count(taker, Transaction.TransactionType.BUY));
+    }
+
+    @Test
+    void marketRemainderIsFilledAtTheFeedPriceNotTheQuote() {
+        String asset = "SOL";
+        String taker = user("quote");
+        long feed = priceFeed.getPriceUnits(asset);
+        long quote = Money.multiply(feed, Money.of(new BigDecimal("1.5")));
+        long quantity = Money.of(new BigDecimal("0.25"));
+
+        Transaction fill = orderService.placeOrder(taker, "buy", "market", asset,
+                Money.toBigDecimal(quantity), Money.toBigDecimal(quote)).getLastFill();
+
+        assertEquals(0, Money.toBigDecimal(feed).compareTo(fill.getPrice()));
+        assertEquals(START_USD - WalletService.buyCost(Money.multiply(quantity, feed)), balance(taker, "USD"));
+    }
+
+    @Test
+    void orderTheHouseWillNotFillIsRejectedAndRefunded() {
+        String asset = "ADA";
+        String taker = user("cheap");
+        long feed = priceFeed.getPriceUnits(asset);
+        long quote = Money.multiply(feed, Money.of(new BigDecimal("0.5")));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> orderService.placeOrder(taker, "buy", "market",
+                asset, new BigDecimal("0.1"), Money.toBigDecimal(quote)));
+
+        assertEquals("Not enough liquidity at the requested price", e.getMessage());
+        assertEquals(START_USD, balance(taker, "USD"));
+        assertEquals(0, balance(taker, asset));
+    }
+
+    @Test
+    void partlyFilledMarketSellReturnsWhatTheHouseWillNotTake() {
+        String asset = "BTC";
+        String maker = user("bidder");
+        String taker = user("seller");
+        long feed = priceFeed.getPriceUnits(asset);
+        long floor = Money.multiply(feed, Money.of(new BigDecimal("1.2")));
+        long quantity = Money.of(new BigDecimal("0.1"));
+        walletService.deposit(taker, asset, Money.toBigDecimal(3 * quantity));
+        orderService.placeOrder(maker, "buy", "limit", asset, Money.toBigDecimal(quantity), Money.toBigDecimal(floor));
+
+        OrderExecution execution = orderService.placeOrder(taker, "sell", "market", asset,
+                Money.toBigDecimal(3 * quantity), Money.toBigDecimal(floor));
+
+        assertEquals(1, execution.getFills().size());
+        assertEquals(2 * quantity, balance(taker, asset));
+        assertEquals(START_USD + WalletService.sellProceeds(Money.multiply(quantity, floor)), balance(taker, "USD"));
+        assertEquals(quantity, balance(maker, asset));
+    }
+
+    private long balance(String user, String asset) {
+        return walletService.getUserWallets(user).stream()
+                .filter(w -> w.getAsset().equals(asset))
+                .mapToLong(w -> w.getBalanceUnits())
+                .findFirst().orElse(0);
+    }
+
+    private long count(String user, Transaction.TransactionType type) {
+        return transactionRepository.findAll().stream()
+                .filter(t -> t.getUserEmail().equals(user) && t.getType() == type)
+                .count();
+    }
+
+    // a fresh account, opened with the starting balance
+    private String user(String name) {
+        String user = name + "-" + UUID.randomUUID() + "@tradax.local";
+        walletService.getUserWallets(user);
+        return user;
+    }
+}
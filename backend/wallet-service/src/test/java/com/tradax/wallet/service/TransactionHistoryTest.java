@@ -0,0 +1,124 @@
+package com.tradax.wallet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tradax.wallet.model.Transaction;
+import com.tradax.wallet.repository.TransactionRepository;
+
+/**
+ * Keyset-paginated and streamed history: pages walk every row once, newest first with ties on
+ * {@code createdAt} broken by id, rows added meanwhile do not shift later pages, and the stream
+ * returns the same order.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.jpa.show-sql=false",
+    "wallet.snapshots.interval-ms=0",
+    "wallet.news.refresh-interval-ms=0",
+    "wallet.revocation.poll-ms=0"
+})
+class TransactionHistoryTest {
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void pagesWalkEveryRowOnceNewestFirst() {
+        String user = user();
+        List<Transaction> rows = insert(user, 10);
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            HistoryPage page = walletService.getTransactionHistory(user, cursor, 3);
+            page.getTransactions().forEach(t -> seen.add(t.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(4, pages);
+        assertEquals(newestFirst(rows), seen);
+    }
+
+    @Test
+    void rowsAddedMeanwhileDoNotShiftLaterPages() {
+        String user = user();
+        List<Transaction> rows = insert(user, 6);
+        HistoryPage first = walletService.getTransactionHistory(user, null, 3);
+
+        // newer than everything listed so far
+        insert(user, 2, 60);
+        HistoryPage second = walletService.getTransactionHistory(user, first.getNextCursor(), 3);
+
+        List<Long> expected = newestFirst(rows).subList(3, 6);
+        assertEquals(expected, ids(second.getTransactions()));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void streamReturnsThePagedOrder() {
+        String user = user();
+        List<Transaction> rows = insert(user, 7);
+        List<Long> streamed = new ArrayList<>();
+        walletService.streamTransactionHistory(user, t -> streamed.add(t.getId()));
+        assertEquals(newestFirst(rows), streamed);
+    }
+
+    @Test
+    void badCursorsAndSizesAreRejected() {
+        String user = user();
+        assertEquals("Invalid cursor", assertThrows(RuntimeException.class,
+                () -> walletService.getTransactionHistory(user, "not-a-cursor", 10)).getMessage());
+        assertThrows(RuntimeException.class, () -> walletService.getTransactionHistory(user, null, 0));
+        assertThrows(RuntimeException.class, () -> walletService.getTransactionHistory(user, null, 501));
+    }
+
+    private List<Transaction> insert(String user, int count) {
+        return insert(user, count, 0);
+    }
+
+    // three rows per timestamp, so the id has to break ties
+    private List<Transaction> insert(String user, int count, long laterBySeconds) {
+        LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(laterBySeconds);
+        List<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Transaction t = new Transaction(user, Transaction.TransactionType.DEPOSIT, "USD", new BigDecimal(i + 1));
+            t.setCreatedAt(base.plusSeconds(i / 3));
+            rows.add(t);
+        }
+        return transactionRepository.saveAll(rows);
+    }
+
+    private static List<Long> newestFirst(List<Transaction> rows) {
+        List<Transaction> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(Transaction::getCreatedAt).thenComparing(Transaction::getId).reversed());
+        return ids(sorted);
+    }
+
+    private static List<Long> ids(List<Transaction> rows) {
+        List<Long> ids = new ArrayList<>();
+        for (Transaction t : rows) ids.add(t.getId());
+        return ids;
+    }
+
+    private static String user() {
+        return UUID.randomUUID() + "@tradax.local";
+    }
+}
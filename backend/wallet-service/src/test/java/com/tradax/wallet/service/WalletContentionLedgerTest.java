@@ -0,0 +1,10 @@
+package com.tradax.wallet.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * {@link WalletContentionTest} with balances held by the in-memory ledger.
+ */
+@TestPropertySource(properties = "wallet.ledger.enabled=true")
+class WalletContentionLedgerTest extends WalletContentionTest {
+}
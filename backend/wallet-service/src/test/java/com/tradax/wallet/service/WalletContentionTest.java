@@ -0,0 +1,100 @@
+package com.tradax.wallet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tradax.wallet.model.Money;
+
+/**
+ * Many threads trading against one wallet: every trade that succeeds is applied exactly once, every
+ * one that is rejected changes nothing, so the final balances equal the starting ones plus the
+ * deltas of the successful trades. The only reason a trade may fail is a lack of funds. Subclasses repeat it with the journal and with the ledger.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.jpa.show-sql=false",
+    "wallet.snapshots.interval-ms=0",
+    "wallet.news.refresh-interval-ms=0",
+    "wallet.revocation.poll-ms=0"
+})
+class WalletContentionTest {
+
+    private static final int THREADS = 8;
+    private static final int TRADES_PER_THREAD = 50;
+    private static final BigDecimal PRICE = new BigDecimal("1000");
+    private static final BigDecimal BUY_AMOUNT = new BigDecimal("0.01");
+    // larger than the buys, so sells start failing once the position runs low
+    private static final BigDecimal SELL_AMOUNT = new BigDecimal("0.03");
+
+    @Autowired
+    private WalletService walletService;
+
+    @Test
+    void concurrentTradesAreNeitherLostNorDoubled() throws Exception {
+        String user = "contended-" + UUID.randomUUID() + "@tradax.local";
+        walletService.getUserWallets(user);
+        walletService.deposit(user, "BTC", new BigDecimal("0.5"));
+        long startUsd = balance(user, "USD");
+        long startBtc = balance(user, "BTC");
+
+        long buyCost = WalletService.buyCost(Money.multiply(Money.of(BUY_AMOUNT), Money.of(PRICE)));
+        long sellProceeds = WalletService.sellProceeds(Money.multiply(Money.of(SELL_AMOUNT), Money.of(PRICE)));
+        AtomicLong usdDelta = new AtomicLong();
+        AtomicLong btcDelta = new AtomicLong();
+        AtomicInteger rejected = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                go.await();
+                for (int i = 0; i < TRADES_PER_THREAD; i++) {
+                    boolean buy = ThreadLocalRandom.current().nextBoolean();
+                    try {
+                        walletService.executeTrade(user, buy ? "buy" : "sell", "BTC", buy ? BUY_AMOUNT : SELL_AMOUNT, PRICE);
+                    } catch (RuntimeException e) {
+                        // running out is fine; a deadlock or lost lock is not
+                        if (!String.valueOf(e.getMessage()).startsWith("Insufficient")) throw e;
+                        rejected.incrementAndGet();
+                        continue;
+                    }
+                    usdDelta.addAndGet(buy ? -buyCost : sellProceeds);
+                    btcDelta.addAndGet(buy ? Money.of(BUY_AMOUNT) : -Money.of(SELL_AMOUNT));
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> w : workers) w.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertTrue(rejected.get() < THREADS * TRADES_PER_THREAD, "some trades went through");
+        assertEquals(startUsd + usdDelta.get(), balance(user, "USD"));
+        assertEquals(startBtc + btcDelta.get(), balance(user, "BTC"));
+        assertTrue(balance(user, "BTC") >= 0);
+    }
+
+    private long balance(String user, String asset) {
+        return walletService.getUserWallets(user).stream()
+                .filter(w -> w.getAsset().equals(asset))
+                .mapToLong(w -> w.getBalanceUnits())
+                .findFirst().orElse(0);
+    }
+}
@@ -0,0 +1,10 @@
+package com.tradax.wallet.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * {@link WalletServiceBatchTest} with balances held by the in-memory ledger.
+ */
+@TestPropertySource(properties = "wallet.ledger.enabled=true")
+class WalletServiceBatchLedgerTest extends WalletServiceBatchTest {
+}
@@ -0,0 +1,133 @@
+package com.tradax.wallet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.price.PriceFeed;
+
+/**
+ * {@link WalletService#applyBatch}: trades fill at the feed price within the client's limit, an
+ * operation that fails changes nothing while the rest of the batch goes ahead, and a malformed
+ * batch is rejected before anything runs. {@link WalletServiceBatchLedgerTest} repeats it on the ledger.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.jpa.show-sql=false",
+    "wallet.snapshots.interval-ms=0",
+    "wallet.news.refresh-interval-ms=0",
+    "wallet.revocation.poll-ms=0"
+})
+class WalletServiceBatchTest {
+
+    private static final long START_USD = Money.of(WalletService.INITIAL_USD_BALANCE);
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private PriceFeed priceFeed;
+
+    @Test
+    void tradesFillAtTheFeedPriceWithinTheClientsLimit() {
+        String user = user();
+        long feed = priceFeed.getPriceUnits("SOL");
+        long quantity = Money.of(new BigDecimal("2"));
+
+        List<BatchResult> results = walletService.applyBatch(user, List.of(
+                new BatchOperation("buy", "SOL", Money.toBigDecimal(quantity), Money.toBigDecimal(feed * 2)),
+                new BatchOperation("sell", "SOL", Money.toBigDecimal(quantity / 2), new BigDecimal("0.00000001"))));
+
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals(0, Money.toBigDecimal(feed).compareTo(results.get(0).getTransaction().getPrice()));
+        assertEquals(0, Money.toBigDecimal(feed).compareTo(results.get(1).getTransaction().getPrice()));
+        long spent = WalletService.buyCost(Money.multiply(quantity, feed));
+        long earned = WalletService.sellProceeds(Money.multiply(quantity / 2, feed));
+        assertEquals(START_USD - spent + earned, balance(user, "USD"));
+        assertEquals(quantity / 2, balance(user, "SOL"));
+    }
+
+    @Test
+    void tradeTheFeedPriceIsWorseForFailsAlone() {
+        String user = user();
+        long feed = priceFeed.getPriceUnits("ADA");
+
+        List<BatchResult> results = walletService.applyBatch(user, List.of(
+                new BatchOperation("buy", "ADA", new BigDecimal("10"), Money.toBigDecimal(feed / 2)),
+                BatchOperation.deposit("ADA", new BigDecimal("5")),
+                new BatchOperation("sell", "ADA", new BigDecimal("1"), Money.toBigDecimal(feed * 2)),
+                new BatchOperation("sell", "ADA", new BigDecimal("6"), Money.toBigDecimal(feed))));
+
+        assertFalse(results.get(0).isSuccess());
+        assertEquals("Not enough liquidity at the requested price", results.get(0).getError());
+        assertTrue(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals("Insufficient asset balance", results.get(3).getError());
+        assertEquals(START_USD, balance(user, "USD"));
+        assertEquals(Money.of(new BigDecimal("5")), balance(user, "ADA"));
+    }
+
+    @Test
+    void malformedBatchIsRejectedBeforeAnythingRuns() {
+        String user = user();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> walletService.applyBatch(user, List.of(
+                BatchOperation.deposit("BTC", new BigDecimal("1")),
+                new BatchOperation("buy", "BTC", new BigDecimal("1"), null))));
+
+        assertEquals("Operation 1: Price must be > 0", e.getMessage());
+        assertEquals(0, balance(user, "BTC"));
+    }
+
+    @Test
+    void amountsFinerThanOneUnitAreRejectedBeforeAnythingRuns() {
+        String user = user();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> walletService.applyBatch(user, List.of(
+                BatchOperation.deposit("BTC", new BigDecimal("1")),
+                BatchOperation.deposit("BTC", new BigDecimal("0.000000001")))));
+
+        assertEquals("Operation 1: Amounts and prices can have at most 8 decimal places", e.getMessage());
+        assertEquals(0, balance(user, "BTC"));
+        assertThrows(RuntimeException.class, () -> walletService.deposit(user, "BTC", new BigDecimal("0.123456789")));
+        assertThrows(RuntimeException.class, () -> walletService.executeTrade(user, "buy", "BTC",
+                new BigDecimal("0.1"), new BigDecimal("100.000000001")));
+        assertEquals(0, balance(user, "BTC"));
+        assertEquals(START_USD, balance(user, "USD"));
+    }
+
+    @Test
+    void rowsRecordTheAmountThatWasApplied() {
+        String user = user();
+
+        BatchResult result = walletService.applyBatch(user, List.of(
+                BatchOperation.deposit("ETH", new BigDecimal("1.5000000000")))).get(0);
+
+        assertEquals(new BigDecimal("1.50000000"), result.getTransaction().getAmount());
+        assertEquals(new BigDecimal("0.12345678"), walletService.deposit(user, "ETH", new BigDecimal("0.12345678")).getAmount());
+    }
+
+    private long balance(String user, String asset) {
+        return walletService.getUserWallets(user).stream()
+                .filter(w -> w.getAsset().equals(asset))
+                .mapToLong(w -> w.getBalanceUnits())
+                .findFirst().orElse(0);
+    }
+
+    // a fresh account, opened with the starting balance
+    private String user() {
+        String user = "batch-" + UUID.randomUUID() + "@tradax.local";
+        walletService.getUserWallets(user);
+        return user;
+    }
+}
@@ -0,0 +1,126 @@
+package com.tradax.wallet.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.tradax.wallet.service.WalletService;
+
+/**
+ * {@link PortfolioHistory} over the real tables, in chunks of two users: every user gets one row
+ * per day that later snapshots are appended to, the day, week and month changes are taken from the
+ * decoded samples, and days past the retention are purged.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.jpa.show-sql=false",
+    "wallet.snapshots.interval-ms=0",
+    "wallet.news.refresh-interval-ms=0",
+    "wallet.revocation.poll-ms=0",
+    "wallet.snapshots.chunk-size=2",
+    "wallet.snapshots.threads=2",
+    "wallet.snapshots.retention-days=35"
+})
+class PortfolioHistoryTest {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO portfolio_value_days (user_email, snapshot_day, first_minute, first_value, last_minute, last_value, samples) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private PortfolioHistory portfolioHistory;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void everyUserIsSnapshottedAcrossChunks() {
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) users.add(user());
+        walletService.deposit(users.get(0), "USD", new BigDecimal("0.125"));
+
+        assertTrue(portfolioHistory.snapshotAll() >= users.size());
+        for (String user : users) {
+            ValueSeries today = portfolioHistory.recent(user, 0);
+            assertEquals(1, today.size(), user);
+        }
+        // whole cents, rounded half-up
+        assertEquals(1_000_013, portfolioHistory.recent(users.get(0), 0).value(0));
+        assertEquals(1_000_000, portfolioHistory.recent(users.get(1), 0).value(0));
+    }
+
+    @Test
+    void laterSnapshotsOfTheDayAreAppended() {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        assumeTrue(now.getHour() > 0 || now.getMinute() > 1, "needs an earlier minute of the same day");
+        String user = user();
+        jdbcTemplate.update(INSERT_SQL, user, Date.valueOf(now.toLocalDate()), 0, 900_000, 0, 900_000, new byte[0]);
+
+        portfolioHistory.snapshotAll();
+        ValueSeries today = portfolioHistory.recent(user, 0);
+        assertEquals(2, today.size());
+        assertEquals(900_000, today.value(0));
+        assertEquals(1_000_000, today.value(1));
+    }
+
+    @Test
+    void changesAreTakenFromTheNearestEarlierSnapshot() {
+        String user = user();
+        LocalDate twoDaysAgo = LocalDate.now(ZoneOffset.UTC).minusDays(2);
+        // 9000.00 at 10:00, then 9005.00 at 11:00 and 7005.00 at 11:30
+        ByteArrayOutputStream samples = new ByteArrayOutputStream();
+        samples.writeBytes(ValueSeries.encode(60, 500));
+        samples.writeBytes(ValueSeries.encode(30, -200_000));
+        jdbcTemplate.update(INSERT_SQL, user, Date.valueOf(twoDaysAgo), 600, 900_000, 690, 700_500, samples.toByteArray());
+
+        ValueSeries series = portfolioHistory.recent(user, 31);
+        assertEquals(3, series.size());
+        assertEquals(700_500, series.value(2));
+        assertEquals(twoDaysAgo.atStartOfDay().toEpochSecond(ZoneOffset.UTC) / 60 + 690, series.minute(2));
+
+        Map<String, Object> performance = walletService.getPortfolioPerformance(user);
+        // a day ago the latest snapshot was the last one two days ago
+        assertEquals(new BigDecimal("2995.00"), performance.get("dayChange"));
+        // nothing is older than a week, so the first snapshot stands in
+        assertEquals(new BigDecimal("1000.00"), performance.get("weekChange"));
+        assertEquals(new BigDecimal("1000.00"), performance.get("monthChange"));
+    }
+
+    @Test
+    void daysPastTheRetentionArePurged() {
+        String user = user();
+        LocalDate old = LocalDate.now(ZoneOffset.UTC).minusDays(40);
+        jdbcTemplate.update(INSERT_SQL, user, Date.valueOf(old), 0, 1, 0, 1, new byte[0]);
+
+        portfolioHistory.snapshotAll();
+        Integer left = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM portfolio_value_days WHERE user_email = ? AND snapshot_day = ?",
+                Integer.class, user, Date.valueOf(old));
+        assertEquals(0, left);
+    }
+
+    private String user() {
+        String user = UUID.randomUUID() + "@tradax.local";
+        // creates the starting wallets
+        walletService.getUserWallets(user);
+        return user;
+    }
+}
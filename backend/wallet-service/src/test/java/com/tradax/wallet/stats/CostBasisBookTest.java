@@ -0,0 +1,85 @@
+package com.tradax.wallet.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tradax.wallet.model.Money;
+import com.tradax.wallet.service.WalletService;
+
+/**
+ * {@link CostBasisBook} through real trades: fees count against the lots, and a book that followed
+ * the trades as they committed matches one built afterwards from the history.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.jpa.show-sql=false",
+    "wallet.snapshots.interval-ms=0",
+    "wallet.news.refresh-interval-ms=0",
+    "wallet.revocation.poll-ms=0"
+})
+class CostBasisBookTest {
+
+    private static final BigDecimal ETH_PRICE = new BigDecimal("3000");
+
+    @Autowired
+    private WalletService walletService;
+
+    @Test
+    void buyAndPartialSellAreBookedWithFees() {
+        String user = user();
+        // the book is built now and follows the trades from here on
+        assertEquals(List.of(), walletService.getCostBasis(user));
+        trade(user);
+
+        CostBasis eth = eth(user);
+        long cost = WalletService.buyCost(Money.of(ETH_PRICE));
+        long proceeds = WalletService.sellProceeds(Money.of(ETH_PRICE) / 2);
+        assertEquals(Money.of(new BigDecimal("0.5")), Money.of(eth.getQuantity()));
+        assertEquals(cost / 2, Money.of(eth.getCostBasis()));
+        assertEquals(proceeds - cost / 2, Money.of(eth.getRealizedProfitLoss()));
+        assertEquals(Money.of(ETH_PRICE) / 2 - cost / 2, Money.of(eth.getUnrealizedProfitLoss()));
+    }
+
+    @Test
+    void liveBookMatchesOneBuiltFromHistory() {
+        String live = user();
+        walletService.getCostBasis(live);
+        trade(live);
+        walletService.deposit(live, "ETH", new BigDecimal("2"));
+        walletService.withdraw(live, "ETH", new BigDecimal("1.25"));
+
+        String rebuilt = user();
+        trade(rebuilt);
+        walletService.deposit(rebuilt, "ETH", new BigDecimal("2"));
+        walletService.withdraw(rebuilt, "ETH", new BigDecimal("1.25"));
+
+        CostBasis a = eth(live);
+        CostBasis b = eth(rebuilt);
+        assertEquals(a.getQuantity(), b.getQuantity());
+        assertEquals(a.getCostBasis(), b.getCostBasis());
+        assertEquals(a.getRealizedProfitLoss(), b.getRealizedProfitLoss());
+    }
+
+    private void trade(String user) {
+        walletService.executeTrade(user, "buy", "ETH", BigDecimal.ONE, ETH_PRICE);
+        walletService.executeTrade(user, "sell", "ETH", new BigDecimal("0.5"), ETH_PRICE);
+    }
+
+    private CostBasis eth(String user) {
+        return walletService.getCostBasis(user).stream()
+                .filter(c -> c.getAsset().equals("ETH")).findFirst().orElseThrow();
+    }
+
+    private String user() {
+        String user = UUID.randomUUID() + "@tradax.local";
+        // creates the starting wallets
+        walletService.getUserWallets(user);
+        return user;
+    }
+}
@@ -0,0 +1,161 @@
+package com.tradax.wallet.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link LotQueue} against hand-worked examples and against a plain list of lots, for FIFO, LIFO
+ * and AVERAGE, including sales that end inside a lot and queues long enough to be compacted.
+ */
+class LotQueueTest {
+
+    @Test
+    void fifoSellsTheOldestLotsFirst() {
+        LotQueue lots = new LotQueue(CostBasisMethod.FIFO);
+        lots.acquire(10, 100);
+        lots.acquire(10, 300);
+        // all of the first lot and half of the second: 100 + 150
+        lots.sell(15, 400);
+        assertEquals(5, lots.quantity());
+        assertEquals(150, lots.cost());
+        assertEquals(150, lots.realized());
+    }
+
+    @Test
+    void lifoSellsTheNewestLotsFirst() {
+        LotQueue lots = new LotQueue(CostBasisMethod.LIFO);
+        lots.acquire(10, 100);
+        lots.acquire(10, 300);
+        // all of the second lot and half of the first: 300 + 50
+        lots.sell(15, 400);
+        assertEquals(5, lots.quantity());
+        assertEquals(50, lots.cost());
+        assertEquals(50, lots.realized());
+
+        // buying again continues from what is held, not from the lots sold
+        lots.acquire(5, 70);
+        assertEquals(10, lots.quantity());
+        assertEquals(120, lots.cost());
+        assertEquals(70, lots.dispose(5));
+    }
+
+    @Test
+    void averageSellsAtTheAverageCost() {
+        LotQueue lots = new LotQueue(CostBasisMethod.AVERAGE);
+        lots.acquire(10, 100);
+        lots.acquire(10, 300);
+        // 20 units for 400 is 20 each
+        lots.sell(15, 400);
+        assertEquals(5, lots.quantity());
+        assertEquals(100, lots.cost());
+        assertEquals(100, lots.realized());
+        assertEquals(0, lots.lots());
+    }
+
+    @Test
+    void sellingMoreThanHeldCountsTheRestAtZeroCost() {
+        LotQueue lots = new LotQueue(CostBasisMethod.FIFO);
+        lots.acquire(10, 100);
+        lots.sell(15, 300);
+        assertEquals(0, lots.quantity());
+        assertEquals(0, lots.cost());
+        assertEquals(200, lots.realized());
+    }
+
+    @Test
+    void prorateRoundsHalfUpWithoutOverflow() {
+        assertEquals(3, LotQueue.prorate(5, 1, 2));
+        assertEquals(1, LotQueue.prorate(4, 1, 3));
+        assertEquals(Long.MAX_VALUE / 2 + 1, LotQueue.prorate(Long.MAX_VALUE, 1, 2));
+        assertEquals(3_000_000_000_000L, LotQueue.prorate(9_000_000_000_000L, 1_000_000_000_000L, 3_000_000_000_000L));
+    }
+
+    @Test
+    void matchesAPlainListOfLots() {
+        for (CostBasisMethod method : CostBasisMethod.values()) {
+            Random random = new Random(42);
+            LotQueue lots = new LotQueue(method);
+            Reference reference = new Reference(method);
+            // enough buys for FIFO to compact its arrays several times
+            for (int i = 0; i < 5000; i++) {
+                if (random.nextInt(3) > 0 || reference.quantity() == 0) {
+                    long quantity = 1 + random.nextInt(1000);
+                    long cost = quantity * (50 + random.nextInt(100));
+                    lots.acquire(quantity, cost);
+                    reference.acquire(quantity, cost);
+                } else {
+                    long quantity = 1 + random.nextInt((int) Math.min(3000, reference.quantity()));
+                    assertEquals(reference.dispose(quantity), lots.dispose(quantity), method + " sale " + i);
+                }
+                assertEquals(reference.quantity(), lots.quantity(), method + " step " + i);
+                assertEquals(reference.cost(), lots.cost(), method + " step " + i);
+            }
+        }
+    }
+
+    /**
+     * One entry per lot. The random lots cost a whole number per unit, so partial sales are exact
+     * and the reference has to agree with the running sums to the unit.
+     */
+    private static final class Reference {
+        final CostBasisMethod method;
+        final Deque<long[]> lots = new ArrayDeque<>();
+        long quantity;
+        long cost;
+
+        Reference(CostBasisMethod method) {
+            this.method = method;
+        }
+
+        long quantity() {
+            return quantity;
+        }
+
+        long cost() {
+            return cost;
+        }
+
+        void acquire(long q, long c) {
+            if (method == CostBasisMethod.AVERAGE) {
+                quantity += q;
+                cost += c;
+                return;
+            }
+            // original size and cost, plus how much of it is left
+            lots.addLast(new long[] { q, c, q });
+            quantity += q;
+            cost += c;
+        }
+
+        long dispose(long q) {
+            if (method == CostBasisMethod.AVERAGE) {
+                long removed = q == quantity ? cost : LotQueue.prorate(cost, q, quantity);
+                quantity -= q;
+                cost -= removed;
+                return removed;
+            }
+            long removed = 0;
+            long left = q;
+            while (left > 0) {
+                long[] lot = method == CostBasisMethod.FIFO ? lots.peekFirst() : lots.peekLast();
+                long take = Math.min(left, lot[2]);
+                long remaining = lot[2] - take;
+                removed += lot[1] / lot[0] * take;
+                lot[2] = remaining;
+                left -= take;
+                if (remaining == 0) {
+                    if (method == CostBasisMethod.FIFO) lots.pollFirst();
+                    else lots.pollLast();
+                }
+            }
+            quantity -= q;
+            cost -= removed;
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.tradax.wallet.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tradax.wallet.model.TradingStat;
+import com.tradax.wallet.model.Transaction;
+import com.tradax.wallet.repository.TradingStatRepository;
+
+/**
+ * {@link TradingStats#record} folding rows into the per user and asset aggregates, including two
+ * transactions that both create the first row for a pair at the same time.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.jpa.show-sql=false",
+    "wallet.snapshots.interval-ms=0",
+    "wallet.news.refresh-interval-ms=0",
+    "wallet.revocation.poll-ms=0"
+})
+class TradingStatsTest {
+
+    @Autowired
+    private TradingStats tradingStats;
+
+    @Autowired
+    private TradingStatRepository tradingStatRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void rowsAreFoldedPerAsset() {
+        String user = user();
+        transactionTemplate.executeWithoutResult(status -> tradingStats.record(List.of(
+                row(user, Transaction.TransactionType.BUY, "BTC", "0.5", "100"),
+                row(user, Transaction.TransactionType.BUY, "BTC", "0.25", "60"),
+                row(user, Transaction.TransactionType.SELL, "BTC", "0.1", "30"),
+                row(user, Transaction.TransactionType.DEPOSIT, "USD", "500", "500"),
+                row(user, Transaction.TransactionType.TRANSFER_IN, "USD", "1", "1"))));
+        transactionTemplate.executeWithoutResult(status ->
+                tradingStats.record(row(user, Transaction.TransactionType.SELL, "BTC", "0.15", "40")));
+
+        List<TradingStat> stats = tradingStatRepository.findByUserEmailOrderByAsset(user);
+        assertEquals(2, stats.size());
+        TradingStat btc = stats.get(0);
+        assertEquals(2, btc.getBuyCount());
+        assertEquals(2, btc.getSellCount());
+        assertEquals(0, new BigDecimal("160").compareTo(btc.getBuyValue()));
+        assertEquals(0, new BigDecimal("0.75").compareTo(btc.getBuyQuantity()));
+        assertEquals(0, new BigDecimal("70").compareTo(btc.getSellValue()));
+        assertEquals(0, new BigDecimal("500").compareTo(stats.get(1).getDepositValue()));
+    }
+
+    @Test
+    void concurrentFirstRowsForAPairAreBothCounted() throws Exception {
+        String user = user();
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // the first transaction creates the row and holds it uncommitted
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            tradingStats.record(row(user, Transaction.TransactionType.BUY, "ETH", "1", "3000"));
+            inserted.countDown();
+            await(release);
+        }));
+        assertEquals(true, inserted.await(10, TimeUnit.SECONDS));
+        // the second finds no row to update and inserts too
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status ->
+                tradingStats.record(row(user, Transaction.TransactionType.BUY, "ETH", "2", "6000"))));
+        Thread.sleep(300);
+        release.countDown();
+
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        List<TradingStat> stats = tradingStatRepository.findByUserEmailOrderByAsset(user);
+        assertEquals(1, stats.size());
+        assertEquals(2, stats.get(0).getBuyCount());
+        assertEquals(0, new BigDecimal("3").compareTo(stats.get(0).getBuyQuantity()));
+        assertEquals(0, new BigDecimal("9000").compareTo(stats.get(0).getBuyValue()));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Transaction row(String user, Transaction.TransactionType type, String asset, String amount, String value) {
+        Transaction t = new Transaction();
+        t.setUserEmail(user);
+        t.setType(type);
+        t.setAsset(asset);
+        t.setAmount(new BigDecimal(amount));
+        t.setValue(new BigDecimal(value));
+        t.setStatus(Transaction.TransactionStatus.COMPLETED);
+        t.setCreatedAt(LocalDateTime.now());
+        return t;
+    }
+
+    private static String user() {
+        return "stats-" + UUID.randomUUID() + "@tradax.local";
+    }
+}
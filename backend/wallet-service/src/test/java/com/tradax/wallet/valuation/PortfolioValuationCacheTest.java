@@ -0,0 +1,69 @@
+package com.tradax.wallet.valuation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tradax.wallet.price.PriceFeed;
+import com.tradax.wallet.service.WalletService;
+
+/**
+ * The cached total follows deposits, withdrawals, trades and price ticks and always equals the
+ * total valued from a fresh read of the wallets.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.jpa.show-sql=false",
+    "wallet.snapshots.interval-ms=0",
+    "wallet.news.refresh-interval-ms=0",
+    "wallet.revocation.poll-ms=0"
+})
+class PortfolioValuationCacheTest {
+
+    private static final String USER = "valuation@tradax.local";
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private PortfolioValuationCache valuationCache;
+
+    @Autowired
+    private PriceFeed priceFeed;
+
+    @Test
+    void cachedTotalFollowsEveryChange() throws InterruptedException {
+        // the first read creates the wallets and builds the entry
+        assertInSync();
+        assertNotNull(valuationCache.getTotalValue(USER), "entry is built from the first read");
+
+        walletService.deposit(USER, "USD", new BigDecimal("1234.56789"));
+        assertInSync();
+        walletService.executeTrade(USER, "buy", "BTC", new BigDecimal("0.01234567"), priceFeed.getPrice("BTC"));
+        assertInSync();
+        walletService.executeTrade(USER, "sell", "BTC", new BigDecimal("0.00200001"), priceFeed.getPrice("BTC"));
+        assertInSync();
+        walletService.withdraw(USER, "USD", new BigDecimal("10"));
+        assertInSync();
+
+        // a failed change leaves nothing stale behind
+        assertThrows(RuntimeException.class, () -> walletService.withdraw(USER, "ETH", new BigDecimal("1000000")));
+        assertInSync();
+
+        long version = priceFeed.getVersion();
+        priceFeed.publish("BTC", priceFeed.getPrice("BTC").multiply(new BigDecimal("1.1")).setScale(2, RoundingMode.HALF_UP));
+        for (int i = 0; i < 100 && priceFeed.getVersion() == version; i++) Thread.sleep(10);
+        assertInSync();
+    }
+
+    private void assertInSync() {
+        BigDecimal fresh = walletService.getPortfolioSnapshot(USER).getTotalValue();
+        assertEquals(fresh, walletService.calculateTotalPortfolioValue(USER));
+    }
+}
@@ -5,6 +5,7 @@ import {
   removeToken,
   clearAuthData,
 } from '@tradax/utils/storage';
+import { authApi } from '@tradax/utils/api';
 
 const AuthContext = createContext();
 
@@ -52,6 +53,8 @@ export const AuthProvider = ({ children }) => {
 
   const logout = async () => {
     try {
+      // revokes the token server-side; the local logout goes ahead even if this fails
+      await authApi.logout().catch(() => {});
       await clearAuthData();
       setUser(null);
       setIsAuthenticated(false);
@@ -25,12 +25,12 @@ import {
 import PriceChart from '../components/PriceChart';
 import TradeModal from '../components/TradeModal';
 const RANGES = [
-  { key: '1D', days: 1 },
-  { key: '1W', days: 7 },
-  { key: '1M', days: 30 },
-  { key: '3M', days: 90 },
-  { key: '6M', days: 180 },
-  { key: '1Y', days: 365 },
+  { key: '1D', days: 1, interval: '5m', candles: 288 },
+  { key: '1W', days: 7, interval: '1h', candles: 168 },
+  { key: '1M', days: 30, interval: '1d', candles: 30 },
+  { key: '3M', days: 90, interval: '1d', candles: 90 },
+  { key: '6M', days: 180, interval: '1d', candles: 180 },
+  { key: '1Y', days: 365, interval: '1d', candles: 365 },
 ];
 
 const CHART_TYPES = ['candle', 'line'];
@@ -78,12 +78,26 @@ export default function TradingScreen() {
     fetchAll();
   }, [selectedAsset, range]);
 
+  // candles the wallet service builds from its own price feed; CoinGecko for assets it does not quote
+  const fetchChart = async () => {
+    const symbol = availableAssets.find(a => a.id === selectedAsset)?.symbol;
+    if (symbol) {
+      try {
+        const res = await walletApi.getCandles(symbol, range.interval, range.candles);
+        if (Array.isArray(res?.candles) && res.candles.length) return res.candles;
+      } catch (e) {
+        // fall through to CoinGecko
+      }
+    }
+    return cryptoApi.getPriceHistory(selectedAsset, range.days);
+  };
+
   const fetchAll = async () => {
   setLoading(true);
   try {
     const [coin, history, balRaw, book, trades] = await Promise.all([
       cryptoApi.getCoinDetails(selectedAsset),
-      cryptoApi.getPriceHistory(selectedAsset, range.days),
+      fetchChart(),
       walletApi.getBalances(),
       cryptoApi.getOrderBook?.(selectedAsset) ?? { bids: [], asks: [] },
       walletApi.getUserTrades?.(selectedAsset) ?? [],
@@ -287,10 +287,44 @@ export default function WalletScreen() {
       } catch (_) {}
     };
     loadPrices();
-    const id = setInterval(loadPrices, 15000);
+
+    // balances and prices are pushed by the wallet service; poll only while the stream is down
+    let pollId = null;
+    let retryId = null;
+    let unsubscribe = () => {};
+    const connect = () => {
+      unsubscribe = walletApi.subscribe(
+        (event, data) => {
+          if (!mounted) return;
+          if (pollId) {
+            clearInterval(pollId);
+            pollId = null;
+          }
+          if (event === 'balances') {
+            setServerBalances(Array.isArray(data?.balances) ? data.balances : []);
+          } else if (event === 'prices' && data?.prices) {
+            const map = {};
+            Object.keys(data.prices).forEach(k => {
+              const price = Number(data.prices[k]);
+              if (price) map[k.toUpperCase()] = { price };
+            });
+            setPriceMap(prev => ({ ...prev, ...map }));
+          }
+        },
+        () => {
+          if (!mounted) return;
+          if (!pollId) pollId = setInterval(loadPrices, 15000);
+          retryId = setTimeout(connect, 5000);
+        }
+      );
+    };
+    connect();
+
     return () => {
       mounted = false;
-      clearInterval(id);
+      unsubscribe();
+      clearInterval(pollId);
+      clearTimeout(retryId);
     };
   }, []);
 
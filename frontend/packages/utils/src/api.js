@@ -174,6 +174,67 @@ export const walletApi = {
   getProfitLoss() {
     return this.client.get('/wallet/profit-loss');
   },
+
+  getCandles(asset, interval = '1h', limit = 500) {
+    return this.client.get(
+      `/wallet/candles?asset=${encodeURIComponent(asset)}&interval=${interval}&limit=${limit}`
+    );
+  },
+
+  // Server-sent balance and price updates. Calls onEvent(name, data) for every event and
+  // onClose(error) once when the stream ends. Returns a function that closes the stream.
+  subscribe(onEvent, onClose = () => {}) {
+    let xhr = null;
+    let closed = false;
+    let seen = 0;
+    let buffer = '';
+
+    const finish = (error) => {
+      if (closed) return;
+      closed = true;
+      if (xhr) xhr.abort();
+      onClose(error);
+    };
+
+    const parse = (block) => {
+      let name = 'message';
+      const data = [];
+      block.split('\n').forEach((line) => {
+        if (line.startsWith('event:')) name = line.slice(6).trim();
+        else if (line.startsWith('data:')) data.push(line.slice(5));
+      });
+      if (data.length === 0) return;
+      try {
+        onEvent(name, JSON.parse(data.join('\n')));
+      } catch (err) {
+        console.error('Error handling stream event:', err);
+      }
+    };
+
+    getToken()
+      .catch(() => null)
+      .then((token) => {
+        if (closed) return;
+        xhr = new XMLHttpRequest();
+        xhr.open('GET', `${WALLET_SERVICE_URL}/wallet/stream`);
+        xhr.setRequestHeader('Accept', 'text/event-stream');
+        if (token) xhr.setRequestHeader('Authorization', `Bearer ${token}`);
+        xhr.onprogress = () => {
+          buffer += xhr.responseText.slice(seen).replace(/\r/g, '');
+          seen = xhr.responseText.length;
+          let end;
+          while ((end = buffer.indexOf('\n\n')) >= 0) {
+            parse(buffer.slice(0, end));
+            buffer = buffer.slice(end + 2);
+          }
+        };
+        xhr.onload = () => finish(xhr.status === 200 ? null : new Error(`HTTP ${xhr.status}`));
+        xhr.onerror = () => finish(new Error('Network error: Please check your internet connection'));
+        xhr.send();
+      });
+
+    return () => finish(null);
+  },
 };
 
 export const externalApi = {
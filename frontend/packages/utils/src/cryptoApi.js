@@ -1,50 +1,15 @@
-import { externalApi } from './api';
-
-const COINGECKO_BASE_URL = 'https://api.coingecko.com/api/v3';
-const COINGECKO_API_KEY = 'key'
-class RateLimit {
-  constructor(requestsPerMinute = 30) {
-    this.requests = [];
-    this.maxRequests = requestsPerMinute;
-  }
-
-  async waitIfNeeded() {
-    const now = Date.now();
-    const oneMinuteAgo = now - 60000;
-
-    this.requests = this.requests.filter(time => time > oneMinuteAgo);
-
-    if (this.requests.length >= this.maxRequests) {
-      const oldestRequest = Math.min(...this.requests);
-      const waitTime = 60000 - (now - oldestRequest) + 1000;
-
-      if (waitTime > 0) {
-        await new Promise(resolve => setTimeout(resolve, waitTime));
-      }
-    }
+import { walletApi } from './api';
 
-    this.requests.push(now);
-  }
-}
-
-const rateLimiter = new RateLimit(30);
-
-const makeRequest = async (url) => {
-  await rateLimiter.waitIfNeeded();
+// CoinGecko is reached through the wallet service, which caches responses for all clients
+const MARKET_PATH = '/wallet/market';
 
-  const headers = {
-    'x-cg-demo-api-key': COINGECKO_API_KEY,
-    'Accept': 'application/json'
-  };
-
-  return await externalApi.request(url, { headers });
-};
+const makeRequest = (path) => walletApi.client.get(`${MARKET_PATH}${path}`);
 
 export const cryptoApi = {
   async getTopCoins(limit = 10) {
     try {
-      const url = `${COINGECKO_BASE_URL}/coins/markets?vs_currency=usd&order=market_cap_desc&per_page=${limit}&page=1&sparkline=false&price_change_percentage=24h`;
-      const data = await makeRequest(url);
+      const path = `/coins/markets?limit=${limit}`;
+      const data = await makeRequest(path);
 
       return data.map(coin => ({
         id: coin.id,
@@ -65,8 +30,8 @@ export const cryptoApi = {
 
   async getCoinDetails(coinId) {
     try {
-      const url = `${COINGECKO_BASE_URL}/coins/${coinId}?localization=false&tickers=false&market_data=true&community_data=false&developer_data=false&sparkline=false`;
-      const data = await makeRequest(url);
+      const path = `/coins/${encodeURIComponent(coinId)}`;
+      const data = await makeRequest(path);
 
       return {
         id: data.id,
@@ -92,8 +57,8 @@ export const cryptoApi = {
 
   async getPriceHistory(coinId, days = 7) {
     try {
-      const url = `${COINGECKO_BASE_URL}/coins/${coinId}/market_chart?vs_currency=usd&days=${days}&interval=daily`;
-      const data = await makeRequest(url);
+      const path = `/coins/${encodeURIComponent(coinId)}/market_chart?days=${days}`;
+      const data = await makeRequest(path);
 
       return data.prices.map(entry => ({
         timestamp: new Date(entry[0]),
@@ -107,8 +72,8 @@ export const cryptoApi = {
 
   async getOHLCData(coinId, days = 7) {
     try {
-      const url = `${COINGECKO_BASE_URL}/coins/${coinId}/ohlc?vs_currency=usd&days=${days}`;
-      const data = await makeRequest(url);
+      const path = `/coins/${encodeURIComponent(coinId)}/ohlc?days=${days}`;
+      const data = await makeRequest(path);
 
       return data.map(entry => ({
         timestamp: new Date(entry[0]),
@@ -125,8 +90,8 @@ export const cryptoApi = {
 
   async getTrendingCoins() {
     try {
-      const url = `${COINGECKO_BASE_URL}/search/trending`;
-      const data = await makeRequest(url);
+      const path = '/trending';
+      const data = await makeRequest(path);
 
       return data.coins.map(item => ({
         id: item.item.id,
@@ -147,8 +112,8 @@ export const cryptoApi = {
 
   async searchCoins(query) {
     try {
-      const url = `${COINGECKO_BASE_URL}/search?query=${encodeURIComponent(query)}`;
-      const data = await makeRequest(url);
+      const path = `/search?query=${encodeURIComponent(query)}`;
+      const data = await makeRequest(path);
 
       return data.coins.map(coin => ({
         id: coin.id,
@@ -166,8 +131,8 @@ export const cryptoApi = {
 
   async getGlobalData() {
     try {
-      const url = `${COINGECKO_BASE_URL}/global`;
-      const data = await makeRequest(url);
+      const path = '/global';
+      const data = await makeRequest(path);
 
       return {
         active_cryptocurrencies: data.data.active_cryptocurrencies,
@@ -189,8 +154,8 @@ export const cryptoApi = {
       const ids = Array.isArray(coinIds) ? coinIds.join(',') : coinIds;
       const vs_currencies = Array.isArray(currencies) ? currencies.join(',') : currencies;
 
-      const url = `${COINGECKO_BASE_URL}/simple/price?ids=${ids}&vs_currencies=${vs_currencies}&include_market_cap=true&include_24hr_vol=true&include_24hr_change=true`;
-      const data = await makeRequest(url);
+      const path = `/simple/price?ids=${encodeURIComponent(ids)}&vs_currencies=${encodeURIComponent(vs_currencies)}`;
+      const data = await makeRequest(path);
 
       return data;
     } catch (error) {
@@ -1,56 +1,9 @@
-import { externalApi } from './api';
+import { walletApi } from './api';
 
-const GNEWS_BASE_URL = 'https://gnews.io/api/v4';
-const GNEWS_API_KEY = 'key';
-
-// GNews: 10 max articles per request
-const GNEWS_HARD_MAX = 10;
-
-class NewsRateLimit {
-  constructor(requestsPerDay = 100) { // GNews free tier: 100 requests/day
-    this.requests = [];
-    this.maxRequests = requestsPerDay;
-  }
-
-  async waitIfNeeded() {
-    const now = Date.now();
-    const oneDayAgo = now - 86400000; // 24 hours in milliseconds
-
-    // Remove requests older than 24 hours
-    this.requests = this.requests.filter(time => time > oneDayAgo);
-
-    if (this.requests.length >= this.maxRequests) {
-      throw new Error('Daily API limit reached. Please try again tomorrow.');
-    }
-
-    this.requests.push(now);
-  }
-}
-
-const newsRateLimit = new NewsRateLimit(100);
-
-const DEFAULT_QUERY = 'cryptocurrency OR bitcoin OR ethereum OR crypto OR blockchain';
-
-// ------------------------------------------------------------------
-// Core request helpers
-// ------------------------------------------------------------------
-const makeNewsRequest = async (endpoint, params = {}) => {
-  await newsRateLimit.waitIfNeeded();
-
-  const searchParams = new URLSearchParams({
-    apikey: GNEWS_API_KEY,
-    ...params,
-  });
-
-  const url = `${GNEWS_BASE_URL}/${endpoint}?${searchParams.toString()}`;
-  const json = await externalApi.request(url);
-
-  // externalApi.request should throw on non-2xx; if not, validate here
-  if (!json || !Array.isArray(json.articles)) {
-    throw new Error('Malformed response from news provider');
-  }
-  return json;
-};
+// News is fetched by the wallet service on a schedule and served from its cache,
+// so paging here never reaches GNews.
+const NEWS_PATH = '/wallet/news';
+const MAX_PAGE_SIZE = 50;
 
 const mapArticle = (article) => ({
   title: article.title,
@@ -66,46 +19,32 @@ const mapArticle = (article) => ({
   },
 });
 
-// Generic paginator for GNews (supports `page` or an auto-fetch `limit`)
-async function pagedSearch({
-  endpoint,
-  baseParams,
-  limit = 30,       // how many you finally want client-side
-  pageSize = 10,    // how many to request per HTTP call (<=10 per GNews)
-  page,             // if provided, returns only that page
-}) {
-  const finalPageSize = Math.min(pageSize, GNEWS_HARD_MAX);
-
-  // If caller passed an explicit page, return exactly that page (no auto-loop)
-  if (typeof page === 'number') {
-    const json = await makeNewsRequest(endpoint, {
-      ...baseParams,
-      max: finalPageSize,
-      page,
-    });
-    return json.articles.map(mapArticle);
+const sinceFrom = ({ from, days }) => {
+  if (from) return new Date(from).toISOString();
+  if (days) {
+    const d = new Date();
+    d.setDate(d.getDate() - Number(days));
+    return d.toISOString();
   }
+  return undefined;
+};
 
-  // Auto-paginate until we reach `limit` or run out of data
-  const out = [];
-  let currentPage = 1;
-  while (out.length < limit) {
-    const json = await makeNewsRequest(endpoint, {
-      ...baseParams,
-      max: finalPageSize,
-      page: currentPage,
-    });
-
-    const mapped = json.articles.map(mapArticle);
-    out.push(...mapped);
-
-    // Stop when we got fewer than the page size (no more pages)
-    if (mapped.length < finalPageSize) break;
-
-    currentPage += 1;
+// One page of a feed. Without an explicit page, `limit` articles from the first page.
+async function fetchFeed(feedParams, options = {}) {
+  const { limit = 30, pageSize = 10, page } = options;
+  const params = {
+    ...feedParams,
+    page: typeof page === 'number' ? page : 1,
+    size: Math.min(typeof page === 'number' ? pageSize : limit, MAX_PAGE_SIZE),
+  };
+  const since = sinceFrom(options);
+  if (since) params.since = since;
+
+  const json = await walletApi.client.get(`${NEWS_PATH}?${new URLSearchParams(params).toString()}`);
+  if (!json || !Array.isArray(json.data)) {
+    throw new Error('Malformed response from news service');
   }
-
-  return out.slice(0, limit);
+  return json.data.map(mapArticle);
 }
 
 // ------------------------------------------------------------------
@@ -113,61 +52,18 @@ async function pagedSearch({
 // ------------------------------------------------------------------
 export const newsApi = {
   /**
-   * Fetch the latest crypto news with optional pagination & date filters.
+   * Latest crypto news with optional pagination & date filters.
    *
    * @param {Object} options
-   * @param {string} [options.lang='en']
-   * @param {string} [options.country]
-   * @param {number} [options.limit=30]     - final number of articles to return (auto-paginates)
-   * @param {number} [options.pageSize=10]  - per-request size (<=10 on GNews)
-   * @param {number} [options.page]         - fetch ONLY this page (no auto-pagination)
+   * @param {number} [options.limit=30]     - number of articles when no page is given
+   * @param {number} [options.pageSize=10]  - page size when a page is given
+   * @param {number} [options.page]         - fetch ONLY this page (1-based)
    * @param {string} [options.from]         - ISO date
-   * @param {string} [options.to]           - ISO date
    * @param {number} [options.days]         - shortcut: now - days -> from
-   * @param {string} [options.sortby='publishedAt']
    */
   getLatestNews: async (options = {}) => {
     try {
-      const {
-        lang = 'en',
-        country,
-        limit = 30,
-        pageSize = 10,
-        page,
-        from,
-        to,
-        days,
-        sortby = 'publishedAt',
-      } = options;
-
-      const baseParams = {
-        q: DEFAULT_QUERY,
-        lang,
-        sortby,
-        max: Math.min(pageSize, GNEWS_HARD_MAX),
-      };
-
-      if (country) baseParams.country = country;
-
-      // Date filters (GNews supports from/to)
-      if (days && !from) {
-        const d = new Date();
-        d.setDate(d.getDate() - Number(days));
-        baseParams.from = d.toISOString();
-      } else if (from) {
-        baseParams.from = from;
-      }
-      if (to) baseParams.to = to;
-
-      const articles = await pagedSearch({
-        endpoint: 'search',
-        baseParams,
-        limit,
-        pageSize,
-        page,
-      });
-
-      return articles;
+      return await fetchFeed({}, options);
     } catch (error) {
       console.error('Error fetching crypto news:', error);
       throw new Error('Failed to fetch cryptocurrency news.');
@@ -175,49 +71,11 @@ export const newsApi = {
   },
 
   /**
-   * Search for crypto news with pagination/date filters.
+   * Latest crypto news whose title or description contains every word of the query.
    */
   searchNews: async (query, options = {}) => {
     try {
-      const {
-        lang = 'en',
-        country,
-        limit = 30,
-        pageSize = 10,
-        page,
-        from,
-        to,
-        days,
-        sortby = 'publishedAt',
-      } = options;
-
-      const baseParams = {
-        q: `${query} AND (${DEFAULT_QUERY})`,
-        lang,
-        sortby,
-        max: Math.min(pageSize, GNEWS_HARD_MAX),
-      };
-
-      if (country) baseParams.country = country;
-
-      if (days && !from) {
-        const d = new Date();
-        d.setDate(d.getDate() - Number(days));
-        baseParams.from = d.toISOString();
-      } else if (from) {
-        baseParams.from = from;
-      }
-      if (to) baseParams.to = to;
-
-      const articles = await pagedSearch({
-        endpoint: 'search',
-        baseParams,
-        limit,
-        pageSize,
-        page,
-      });
-
-      return articles;
+      return await fetchFeed({ q: query }, options);
     } catch (error) {
       console.error('Error searching news:', error);
       throw new Error(`Failed to search news for "${query}".`);
@@ -225,36 +83,11 @@ export const newsApi = {
   },
 
   /**
-   * Top headlines (still capped by GNews to 10 per request). Adds pagination.
+   * Top headlines: the latest feed.
    */
   getTopHeadlines: async (options = {}) => {
     try {
-      const {
-        topic,
-        lang = 'en',
-        country,
-        limit = 20,
-        pageSize = 10,
-        page,
-      } = options;
-
-      const baseParams = {
-        lang,
-        max: Math.min(pageSize, GNEWS_HARD_MAX),
-      };
-
-      if (topic) baseParams.topic = topic;
-      if (country) baseParams.country = country;
-
-      const articles = await pagedSearch({
-        endpoint: 'top-headlines',
-        baseParams,
-        limit,
-        pageSize,
-        page,
-      });
-
-      return articles;
+      return await fetchFeed({}, { limit: 20, ...options });
     } catch (error) {
       console.error('Error fetching top headlines:', error);
       throw new Error('Failed to fetch top headlines.');
@@ -262,12 +95,11 @@ export const newsApi = {
   },
 
   /**
-   * Get news for a specific coin.
+   * Get news for a specific coin (one of the coins the service fetches).
    */
   getCoinNews: async (coinName, options = {}) => {
     try {
-      const searchQuery = `${coinName} cryptocurrency`;
-      return await newsApi.searchNews(searchQuery, options);
+      return await fetchFeed({ coin: coinName }, options);
     } catch (error) {
       console.error(`Error fetching ${coinName} news:`, error);
       throw new Error(`Failed to fetch ${coinName} news.`);
@@ -275,12 +107,11 @@ export const newsApi = {
   },
 
   /**
-   * Get category news.
+   * Get category news (one of the categories the service fetches).
    */
   getCategoryNews: async (category, options = {}) => {
     try {
-      const searchQuery = `${category} cryptocurrency blockchain`;
-      return await newsApi.searchNews(searchQuery, options);
+      return await fetchFeed({ category }, options);
     } catch (error) {
       console.error(`Error fetching ${category} news:`, error);
       throw new Error(`Failed to fetch ${category} news.`);
@@ -292,14 +123,7 @@ export const newsApi = {
    */
   getBreakingNews: async (options = {}) => {
     try {
-      const yesterday = new Date();
-      yesterday.setDate(yesterday.getDate() - 1);
-
-      return await newsApi.getLatestNews({
-        ...options,
-        from: yesterday.toISOString(),
-        sortby: 'publishedAt',
-      });
+      return await newsApi.getLatestNews({ ...options, days: 1 });
     } catch (error) {
       console.error('Error fetching breaking news:', error);
       throw new Error('Failed to fetch breaking cryptocurrency news.');